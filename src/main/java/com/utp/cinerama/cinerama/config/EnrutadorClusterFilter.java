@@ -0,0 +1,372 @@
+package com.utp.cinerama.cinerama.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
+import com.utp.cinerama.cinerama.service.TopologiaCluster;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Con el cluster habilitado, envía cada petición de boletos, funciones, compras y pagos al nodo
+// dueño de la función (o al nodo que creó el boleto/pago) y devuelve su respuesta tal cual.
+// Las peticiones ya reenviadas se atienden localmente para no rebotar entre nodos; solo se aceptan
+// como reenvíos si traen una firma válida de otro nodo (ver TopologiaCluster.firmarReenvio). Una
+// petición con la cabecera de reenvío pero sin esa firma viene de afuera y se rechaza con 403.
+// Los flujos SSE no se pueden retransmitir completos, así que se redirigen con 307 al dueño.
+// Los lotes de boletos y pagos se reparten por el nodo dueño de cada id y las respuestas se unen.
+// El catálogo (películas, salas, productos y la definición de las funciones) no está particionado:
+// cada nodo carga el mismo catálogo al arrancar y numera sus altas con su propio contador, así que
+// un alta o cambio atendido en un solo nodo dejaría ids repetidos entre nodos y funciones que el
+// dueño no conoce. Con el cluster habilitado esas escrituras se rechazan con 409; el catálogo se
+// cambia en la configuración de carga y se redespliega en todos los nodos.
+// Después del limitador y antes de la sala de espera, que se aplica en el nodo dueño de la función
+@Component
+@Order(3)
+public class EnrutadorClusterFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA_REENVIO = "X-Cinerama-Reenviado-Por";
+    public static final String CABECERA_FIRMA_REENVIO = "X-Cinerama-Firma-Reenvio";
+    public static final String CABECERA_CLIENTE_ORIGINAL = "X-Cinerama-Cliente-Original";
+
+    private static final Pattern RUTA_FUNCION = Pattern.compile("^/api/funciones/(\\d+)(/.*)?$");
+    private static final Pattern RUTA_BOLETOS_FUNCION = Pattern.compile("^/api/boletos/funcion/(\\d+)(/.*)?$");
+    private static final Pattern RUTA_BOLETO = Pattern.compile("^/api/boletos/(\\d+)(/.*)?$");
+    private static final Pattern RUTA_PAGO = Pattern.compile("^/api/pagos/(\\d+)(/.*)?$");
+    private static final String RUTA_LOTE_BOLETOS = "/api/boletos/lote";
+    private static final String RUTA_LOTE_PAGOS = "/api/pagos/lote";
+
+    // Altas, cambios y bajas del catálogo; las rutas de stock y de reservas de /api/funciones/{id}/... no entran
+    private static final Pattern RUTA_CATALOGO = Pattern.compile(
+            "^/api/(peliculas|productos)(/\\d+|/importar)?$"
+            + "|^/api/salas(/\\d+(/activar|/desactivar)?)?$"
+            + "|^/api/funciones(/\\d+)?$");
+
+    // Cabeceras que describen la conexión y no el contenido; HttpClient rechaza algunas de ellas
+    private static final Set<String> CABECERAS_DE_CONEXION = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade", "keep-alive",
+            "transfer-encoding", "te", "trailer", "proxy-authorization", "proxy-connection", "date",
+            CABECERA_REENVIO.toLowerCase(), CABECERA_FIRMA_REENVIO.toLowerCase(), CABECERA_CLIENTE_ORIGINAL.toLowerCase());
+
+    @Autowired
+    private TopologiaCluster topologiaCluster;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cinerama.cluster.timeout-reenvio-ms:5000}")
+    private long timeoutReenvioMs;
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !topologiaCluster.estaHabilitado()
+                || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (request.getHeader(CABECERA_REENVIO) != null) {
+            if (esReenvioAutentico(topologiaCluster, request)) {
+                chain.doFilter(request, response);
+            } else {
+                responderError(response, HttpStatus.FORBIDDEN, "Reenvío entre nodos no autenticado");
+            }
+            return;
+        }
+
+        byte[] cuerpo = null;
+        String ruta = request.getRequestURI();
+
+        if (esEscrituraDeCatalogo(request, ruta)) {
+            responderError(response, HttpStatus.CONFLICT,
+                    "Con el cluster habilitado el catálogo es de solo lectura; actualícelo en todos los nodos al desplegar");
+            return;
+        }
+
+        // Un boleto nuevo trae la función en el cuerpo JSON
+        if ("POST".equals(request.getMethod()) && ruta.equals("/api/boletos")) {
+            cuerpo = request.getInputStream().readAllBytes();
+            request = new PeticionConCuerpo(request, cuerpo);
+        }
+
+        if ("POST".equals(request.getMethod()) && (ruta.equals(RUTA_LOTE_BOLETOS) || ruta.equals(RUTA_LOTE_PAGOS))) {
+            cuerpo = request.getInputStream().readAllBytes();
+            request = new PeticionConCuerpo(request, cuerpo);
+            JsonNode entradas = leerLote(cuerpo);
+            Map<String, List<Integer>> partes = entradas != null
+                    ? repartirPorNodo(ruta, entradas) : Collections.emptyMap();
+            if (partes.size() > 1) {
+                reenviarLote(request, response, ruta, entradas, partes);
+                return;
+            }
+            String destino = partes.isEmpty() ? null : partes.keySet().iterator().next();
+            if (destino == null || destino.equals(topologiaCluster.getNodoActual())) {
+                chain.doFilter(request, response);
+            } else {
+                reenviar(request, response, destino, cuerpo);
+            }
+            return;
+        }
+
+        String destino = buscarDestino(request, ruta, cuerpo);
+        if (destino == null || destino.equals(topologiaCluster.getNodoActual())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (esFlujoDeEventos(request, ruta)) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, destino + rutaCompleta(request));
+            return;
+        }
+
+        if (cuerpo == null) {
+            cuerpo = request.getInputStream().readAllBytes();
+        }
+        reenviar(request, response, destino, cuerpo);
+    }
+
+    // La firma cubre la petición tal como la envió el otro nodo; también la usa el limitador de tasa
+    // para confiar en el cliente original que informa
+    static boolean esReenvioAutentico(TopologiaCluster topologiaCluster, HttpServletRequest request) {
+        return topologiaCluster.esReenvioAutentico(request.getHeader(CABECERA_REENVIO), request.getMethod(),
+                rutaCompleta(request), request.getHeader(CABECERA_CLIENTE_ORIGINAL),
+                request.getHeader(CABECERA_FIRMA_REENVIO));
+    }
+
+    // Métodos auxiliares
+    private String buscarDestino(HttpServletRequest request, String ruta, byte[] cuerpo) {
+        Matcher coincidencia;
+        if ((coincidencia = RUTA_FUNCION.matcher(ruta)).matches()
+                || (coincidencia = RUTA_BOLETOS_FUNCION.matcher(ruta)).matches()) {
+            return topologiaCluster.nodoDeFuncion(Long.parseLong(coincidencia.group(1)));
+        }
+        if ((coincidencia = RUTA_BOLETO.matcher(ruta)).matches()
+                || (coincidencia = RUTA_PAGO.matcher(ruta)).matches()) {
+            return topologiaCluster.nodoDeId(Long.parseLong(coincidencia.group(1)));
+        }
+
+        switch (ruta) {
+            case "/api/boletos/grupo":
+            case "/api/compras/boletos":
+                Long funcionId = parametroLong(request.getParameter("funcionId"));
+                return funcionId != null ? topologiaCluster.nodoDeFuncion(funcionId) : null;
+            case "/api/pagos/boletos":
+                // Los boletos de un pago son de una misma función, así que basta con el primero
+                String boletosIds = request.getParameter("boletosIds");
+                Long boletoId = boletosIds != null ? parametroLong(boletosIds.split(",")[0]) : null;
+                return boletoId != null ? topologiaCluster.nodoDeId(boletoId) : null;
+            case "/api/boletos":
+                if (cuerpo != null) {
+                    Long funcionDelBoleto = PeticionConCuerpo.funcionDelBoleto(objectMapper, cuerpo);
+                    return funcionDelBoleto != null ? topologiaCluster.nodoDeFuncion(funcionDelBoleto) : null;
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private void reenviar(HttpServletRequest request, HttpServletResponse response, String destino, byte[] cuerpo)
+            throws IOException {
+        HttpResponse<byte[]> respuesta;
+        try {
+            respuesta = cliente.send(construirPeticion(request, destino, cuerpo), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            responderError(response, HttpStatus.BAD_GATEWAY, "El nodo " + destino + " no respondió");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            responderError(response, HttpStatus.BAD_GATEWAY, "Se interrumpió el reenvío al nodo " + destino);
+            return;
+        }
+
+        response.setStatus(respuesta.statusCode());
+        for (Map.Entry<String, List<String>> cabecera : respuesta.headers().map().entrySet()) {
+            String nombre = cabecera.getKey();
+            if (nombre.startsWith(":") || CABECERAS_DE_CONEXION.contains(nombre.toLowerCase())) {
+                continue;
+            }
+            for (String valor : cabecera.getValue()) {
+                response.addHeader(nombre, valor);
+            }
+        }
+        response.setContentLength(respuesta.body().length);
+        response.getOutputStream().write(respuesta.body());
+    }
+
+    // Cada parte del lote va a su nodo en paralelo (la local también, por HTTP, para tratarlas igual).
+    // Si un nodo falla, sus entradas quedan como error y las demás conservan su resultado.
+    private void reenviarLote(HttpServletRequest request, HttpServletResponse response, String ruta,
+                              JsonNode entradas, Map<String, List<Integer>> partes) throws IOException {
+        long inicio = System.nanoTime();
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> pendientes = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> parte : partes.entrySet()) {
+            ArrayNode subLote = objectMapper.createArrayNode();
+            parte.getValue().forEach(posicion -> subLote.add(entradas.get(posicion)));
+            HttpRequest peticion = construirPeticion(request, parte.getKey(), objectMapper.writeValueAsBytes(subLote));
+            pendientes.put(parte.getKey(), cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        ResultadoLote unido = new ResultadoLote(entradas.size());
+        int estado = HttpStatus.BAD_GATEWAY.value();
+        for (Map.Entry<String, List<Integer>> parte : partes.entrySet()) {
+            String nodo = parte.getKey();
+            List<Integer> posiciones = parte.getValue();
+            String error;
+            try {
+                HttpResponse<byte[]> respuesta = pendientes.get(nodo).join();
+                JsonNode resultado = objectMapper.readTree(respuesta.body());
+                JsonNode elementos = resultado.path("elementos");
+                if (respuesta.statusCode() < 300 && elementos.size() == posiciones.size()) {
+                    estado = respuesta.statusCode();
+                    for (int i = 0; i < posiciones.size(); i++) {
+                        JsonNode elemento = elementos.get(i);
+                        Long id = elemento.path("id").canConvertToLong() ? elemento.path("id").asLong() : null;
+                        if (elemento.path("exito").asBoolean()) {
+                            unido.registrarExito(posiciones.get(i), id, textoOpcional(elemento, "detalle"));
+                        } else {
+                            unido.registrarError(posiciones.get(i), id, textoOpcional(elemento, "error"));
+                        }
+                    }
+                    continue;
+                }
+                error = resultado.path("error").asText("El nodo " + nodo + " respondió " + respuesta.statusCode());
+            } catch (CompletionException | IOException e) {
+                error = "El nodo " + nodo + " no respondió";
+            }
+            for (int posicion : posiciones) {
+                unido.registrarError(posicion, idDeEntrada(ruta, entradas.get(posicion)), error);
+            }
+        }
+        unido.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+
+        byte[] cuerpo = objectMapper.writeValueAsBytes(unido);
+        response.setStatus(estado);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(cuerpo.length);
+        response.getOutputStream().write(cuerpo);
+    }
+
+    private JsonNode leerLote(byte[] cuerpo) {
+        try {
+            JsonNode entradas = objectMapper.readTree(cuerpo);
+            return entradas != null && entradas.isArray() ? entradas : null;
+        } catch (IOException e) {
+            return null; // El controlador responderá el error de formato
+        }
+    }
+
+    // Posiciones de las entradas agrupadas por nodo dueño; las que no traen un id válido se quedan en
+    // este nodo para que el controlador informe el error
+    private Map<String, List<Integer>> repartirPorNodo(String ruta, JsonNode entradas) {
+        Map<String, List<Integer>> partes = new LinkedHashMap<>();
+        for (int i = 0; i < entradas.size(); i++) {
+            Long id = idDeEntrada(ruta, entradas.get(i));
+            String nodo = id != null ? topologiaCluster.nodoDeId(id) : topologiaCluster.getNodoActual();
+            partes.computeIfAbsent(nodo, clave -> new ArrayList<>()).add(i);
+        }
+        return partes;
+    }
+
+    private static Long idDeEntrada(String ruta, JsonNode entrada) {
+        JsonNode id = ruta.equals(RUTA_LOTE_PAGOS) ? entrada.path("pagoId") : entrada;
+        return id.canConvertToLong() ? id.asLong() : null;
+    }
+
+    private static String textoOpcional(JsonNode nodo, String campo) {
+        JsonNode valor = nodo.path(campo);
+        return valor.isTextual() ? valor.asText() : null;
+    }
+
+    private HttpRequest construirPeticion(HttpServletRequest request, String destino, byte[] cuerpo) {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(destino + rutaCompleta(request)))
+                .timeout(Duration.ofMillis(timeoutReenvioMs))
+                .method(request.getMethod(), cuerpo.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(cuerpo));
+
+        for (String nombre : Collections.list(request.getHeaderNames())) {
+            if (!CABECERAS_DE_CONEXION.contains(nombre.toLowerCase())) {
+                for (String valor : Collections.list(request.getHeaders(nombre))) {
+                    peticion.header(nombre, valor);
+                }
+            }
+        }
+        // Si el limitador ya identificó al cliente (por ejemplo detrás de un proxy) se usa esa identidad
+        Object identificado = request.getAttribute(LimiteTasaFilter.ATRIBUTO_CLIENTE);
+        String cliente = identificado != null ? identificado.toString() : request.getRemoteAddr();
+        String ruta = rutaCompleta(request);
+        peticion.header(CABECERA_REENVIO, topologiaCluster.getNodoActual());
+        peticion.header(CABECERA_CLIENTE_ORIGINAL, cliente);
+        peticion.header(CABECERA_FIRMA_REENVIO, topologiaCluster.firmarReenvio(request.getMethod(), ruta, cliente));
+        return peticion.build();
+    }
+
+    private void responderError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        response.setStatus(estado.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\": \"" + mensaje + "\"}");
+    }
+
+    private static boolean esEscrituraDeCatalogo(HttpServletRequest request, String ruta) {
+        String metodo = request.getMethod();
+        boolean escritura = "POST".equals(metodo) || "PUT".equals(metodo)
+                || "PATCH".equals(metodo) || "DELETE".equals(metodo);
+        return escritura && RUTA_CATALOGO.matcher(ruta).matches();
+    }
+
+    private static boolean esFlujoDeEventos(HttpServletRequest request, String ruta) {
+        String acepta = request.getHeader(HttpHeaders.ACCEPT);
+        return ruta.endsWith("/eventos")
+                || (acepta != null && acepta.contains(MediaType.TEXT_EVENT_STREAM_VALUE));
+    }
+
+    private static String rutaCompleta(HttpServletRequest request) {
+        String consulta = request.getQueryString();
+        return request.getRequestURI() + (consulta != null ? "?" + consulta : "");
+    }
+
+    private static Long parametroLong(String valor) {
+        try {
+            return valor != null ? Long.parseLong(valor.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.utp.cinerama.cinerama.config;
+
+import com.utp.cinerama.cinerama.service.LimitadorTasaService;
+import com.utp.cinerama.cinerama.service.TopologiaCluster;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Aplica el limitador de tasa a la API. El cliente se identifica por su dirección IP; la cabecera
+// configurada en cinerama.limite.cabecera-cliente solo se respeta si la petición llega desde uno de
+// los proxies de cinerama.limite.proxies-confiables, porque cualquier otro podría inventarla. Una
+// petición reenviada por otro nodo del cluster (con firma válida) se cuenta a nombre del cliente
+// original y no del nodo. Lo que excede se rechaza con 429 y Retry-After.
+// Primero de los filtros de la API: lo que excede el límite no llega a reenviarse ni a ocupar lugar
+@Component
+@Order(1)
+public class LimiteTasaFilter extends OncePerRequestFilter {
+
+    // El nodo que reenvía una petición informa el cliente con el que la contó él
+    static final String ATRIBUTO_CLIENTE = LimiteTasaFilter.class.getName() + ".cliente";
+
+    @Autowired
+    private LimitadorTasaService limitadorTasaService;
+
+    @Autowired
+    private TopologiaCluster topologiaCluster;
+
+    @Value("${cinerama.limite.cabecera-cliente:}")
+    private String cabeceraCliente;
+
+    @Value("${cinerama.limite.proxies-confiables:}")
+    private String[] proxiesConfigurados;
+
+    private Set<String> proxiesConfiables;
+
+    @PostConstruct
+    public void iniciar() {
+        proxiesConfiables = Arrays.stream(proxiesConfigurados)
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !limitadorTasaService.estaHabilitado() || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cliente = cliente(request);
+        request.setAttribute(ATRIBUTO_CLIENTE, cliente);
+        long esperaNanos = limitadorTasaService.esperaParaPermitir(
+                request.getMethod(), request.getRequestURI(), cliente);
+        if (esperaNanos > 0) {
+            long segundos = Math.max(1, (esperaNanos + 999_999_999L) / 1_000_000_000L);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(segundos));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("{\"error\": \"Límite de solicitudes excedido, intente de nuevo en " + segundos + " s\"}");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private String cliente(HttpServletRequest request) {
+        if (topologiaCluster.estaHabilitado() && request.getHeader(EnrutadorClusterFilter.CABECERA_REENVIO) != null) {
+            String original = request.getHeader(EnrutadorClusterFilter.CABECERA_CLIENTE_ORIGINAL);
+            if (original != null && EnrutadorClusterFilter.esReenvioAutentico(topologiaCluster, request)) {
+                return original;
+            }
+            return request.getRemoteAddr(); // El enrutador la rechazará
+        }
+        if (!cabeceraCliente.isBlank() && proxiesConfiables.contains(request.getRemoteAddr())) {
+            String valor = request.getHeader(cabeceraCliente);
+            if (valor != null && !valor.isBlank()) {
+                return valor.trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,79 @@
+package com.utp.cinerama.cinerama.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Petición cuyo cuerpo ya leyó un filtro (para decidir qué hacer con ella); lo vuelve a entregar
+// a los filtros siguientes y al controlador
+final class PeticionConCuerpo extends HttpServletRequestWrapper {
+    private final byte[] cuerpo;
+
+    PeticionConCuerpo(HttpServletRequest request, byte[] cuerpo) {
+        super(request);
+        this.cuerpo = cuerpo;
+    }
+
+    // Id de la función de un boleto enviado en JSON, o null si falta o el cuerpo no es válido
+    static Long funcionDelBoleto(ObjectMapper objectMapper, byte[] cuerpo) {
+        try {
+            JsonNode id = objectMapper.readTree(cuerpo).path("funcion").path("id");
+            return id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            return null; // El controlador responderá el error de formato
+        }
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return entrada.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return entrada.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return entrada.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            // Los bytes ya están en memoria: todo está disponible desde el primer momento
+            @Override
+            public void setReadListener(ReadListener listener) {
+                try {
+                    if (!isFinished()) {
+                        listener.onDataAvailable();
+                    }
+                    listener.onAllDataRead();
+                } catch (IOException e) {
+                    listener.onError(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,70 @@
+package com.utp.cinerama.cinerama.config;
+
+import com.utp.cinerama.cinerama.service.ReplicacionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+// En una réplica la API es de solo lectura: las escrituras se rechazan (deben ir al primario) y las
+// lecturas solo se atienden si la réplica está sincronizada y su retraso no supera el máximo.
+// Cada lectura informa el retraso en X-Cinerama-Retraso-Ms para que el cliente decida si le sirve.
+// Antes del enrutador, para que una réplica no reenvíe escrituras que no le corresponden
+@Component
+@Order(2)
+public class ReplicaSoloLecturaFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA_RETRASO = "X-Cinerama-Retraso-Ms";
+
+    private static final Set<String> METODOS_LECTURA = Set.of("GET", "HEAD", "OPTIONS");
+
+    @Autowired
+    private ReplicacionService replicacionService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = request.getRequestURI();
+        return !replicacionService.esReplica()
+                || !ruta.startsWith("/api/")
+                || ruta.startsWith("/api/replicacion");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!METODOS_LECTURA.contains(request.getMethod())) {
+            response.setHeader(HttpHeaders.ALLOW, String.join(", ", METODOS_LECTURA));
+            responderError(response, HttpStatus.METHOD_NOT_ALLOWED,
+                    "Este nodo es una réplica de solo lectura; envíe las modificaciones al primario");
+            return;
+        }
+
+        if (!replicacionService.puedeServirLecturas()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            responderError(response, HttpStatus.SERVICE_UNAVAILABLE,
+                    "La réplica no está al día con el primario");
+            return;
+        }
+
+        response.setHeader(CABECERA_RETRASO, Long.toString(replicacionService.retrasoMs()));
+        chain.doFilter(request, response);
+    }
+
+    private void responderError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        response.setStatus(estado.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\": \"" + mensaje + "\"}");
+    }
+}
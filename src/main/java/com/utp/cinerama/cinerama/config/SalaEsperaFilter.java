@@ -0,0 +1,138 @@
+package com.utp.cinerama.cinerama.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utp.cinerama.cinerama.service.SalaEsperaService;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+// Control de admisión para las aperturas de venta (solo con la sala de espera habilitada):
+// - Las reservas (POST /api/boletos, /api/boletos/grupo y /api/compras/boletos) exigen un pase
+//   admitido para esa función en la cabecera X-Cinerama-Pase; sin él se responde 429 con Retry-After.
+//   Cada reserva consume una compra del pase (cinerama.sala-espera.compras-por-pase) y solo la
+//   devuelve si la reserva falla.
+// - El resto de /api/funciones y /api/boletos se limita a max-concurrentes peticiones a la vez;
+//   lo que excede se descarta con 429 en lugar de hacer esperar a todos. Los flujos SSE no cuentan.
+// - El control de ingreso en la puerta (/api/funciones/{id}/ingreso) queda fuera: una venta masiva
+//   de otra función no debe frenar a los que están entrando a la sala.
+// Último: los pases y el límite de concurrencia son del nodo que atiende la función
+@Component
+@Order(4)
+public class SalaEsperaFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA_PASE = "X-Cinerama-Pase";
+
+    // Solo las rutas de IngresoController; un "/ingreso" en cualquier otra parte de la ruta no exime del control
+    private static final Pattern RUTA_INGRESO = Pattern.compile("^/api/funciones/\\d+/ingreso(/.*)?$");
+
+    @Autowired
+    private SalaEsperaService salaEsperaService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cinerama.sala-espera.max-concurrentes:200}")
+    private int maxConcurrentes;
+
+    private Semaphore enCurso;
+
+    @PostConstruct
+    public void iniciar() {
+        enCurso = new Semaphore(maxConcurrentes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = request.getRequestURI();
+        return !salaEsperaService.estaHabilitada()
+                || !(ruta.startsWith("/api/funciones") || ruta.startsWith("/api/boletos")
+                        || ruta.equals("/api/compras/boletos"))
+                || RUTA_INGRESO.matcher(ruta).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String ruta = request.getRequestURI();
+        String paseTomado = null;
+
+        if ("POST".equals(request.getMethod()) && esReserva(ruta)) {
+            Long funcionId;
+            if (ruta.equals("/api/boletos")) {
+                byte[] cuerpo = request.getInputStream().readAllBytes();
+                request = new PeticionConCuerpo(request, cuerpo);
+                funcionId = PeticionConCuerpo.funcionDelBoleto(objectMapper, cuerpo);
+            } else {
+                funcionId = parametroLong(request.getParameter("funcionId"));
+            }
+
+            if (funcionId != null) {
+                String pase = request.getHeader(CABECERA_PASE);
+                if (!salaEsperaService.tomarPase(pase, funcionId)) {
+                    rechazar(response, salaEsperaService.esperaEstimadaSegundos(funcionId),
+                            "Se necesita un pase admitido y sin usar para reservar en esta función; tome un turno en POST /api/sala-espera/funcion/" + funcionId);
+                    return;
+                }
+                paseTomado = pase;
+            }
+        }
+
+        if (ruta.endsWith("/eventos")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!enCurso.tryAcquire()) {
+            if (paseTomado != null) {
+                salaEsperaService.devolverPase(paseTomado);
+            }
+            rechazar(response, 1, "Hay demasiadas solicitudes en este momento, intente de nuevo");
+            return;
+        }
+        boolean reservado = false;
+        try {
+            chain.doFilter(request, response);
+            reservado = response.getStatus() < 400;
+        } finally {
+            enCurso.release();
+            if (paseTomado != null && !reservado) {
+                salaEsperaService.devolverPase(paseTomado);
+            }
+        }
+    }
+
+    // Métodos auxiliares
+    private static boolean esReserva(String ruta) {
+        return ruta.equals("/api/boletos") || ruta.equals("/api/boletos/grupo") || ruta.equals("/api/compras/boletos");
+    }
+
+    private void rechazar(HttpServletResponse response, long reintentarEnSegundos, String mensaje) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(reintentarEnSegundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\": \"" + mensaje + "\"}");
+    }
+
+    private static Long parametroLong(String valor) {
+        try {
+            return valor != null ? Long.parseLong(valor.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.utp.cinerama.cinerama.config;
+
+import com.utp.cinerama.cinerama.controller.MapaAsientosWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private MapaAsientosWebSocketHandler mapaAsientosWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(mapaAsientosWebSocketHandler, "/ws/funciones/*/asientos")
+                .setAllowedOrigins("*");
+    }
+}
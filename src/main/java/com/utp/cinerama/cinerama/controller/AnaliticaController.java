@@ -0,0 +1,124 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.ConteoEstimado;
+import com.utp.cinerama.cinerama.model.ResultadoAnalitico;
+import com.utp.cinerama.cinerama.model.TasaConsumo;
+import com.utp.cinerama.cinerama.service.AlmacenAnaliticoService;
+import com.utp.cinerama.cinerama.service.EstimadoresVentasService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analitica")
+@CrossOrigin(origins = "*") // Permitir solicitudes de cualquier origen
+public class AnaliticaController {
+
+    @Autowired
+    private AlmacenAnaliticoService almacenAnaliticoService;
+
+    @Autowired
+    private EstimadoresVentasService estimadoresVentasService;
+
+    // GET /api/analitica/consumo-por-pelicula?desde=2025-01-01&hasta=2025-01-31 - Tasa de compra de productos por película
+    @GetMapping("/consumo-por-pelicula")
+    public ResponseEntity<List<TasaConsumo>> obtenerTasaConsumoPorPelicula(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ResponseEntity.ok(almacenAnaliticoService.calcularTasaConsumoPorPelicula(desde, hasta));
+    }
+
+    // GET /api/analitica/estimados/clientes?desde=2025-01-01&hasta=2025-01-31&peliculaId=3 - Clientes distintos (aproximado)
+    // Sin fechas se usa el día de hoy; 'peliculaId' o 'funcionId' restringen a los clientes de sus boletos
+    @GetMapping("/estimados/clientes")
+    public ResponseEntity<?> estimarClientesDistintos(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long peliculaId,
+            @RequestParam(required = false) Long funcionId) {
+        try {
+            LocalDate inicio = desde != null ? desde : LocalDate.now();
+            long clientes = estimadoresVentasService.estimarClientesDistintos(inicio, hasta != null ? hasta : inicio, peliculaId, funcionId);
+            return ResponseEntity.ok("{\"clientesDistintos\": " + clientes + "}");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/analitica/estimados/clientes-por-pelicula?desde=2025-01-01&hasta=2025-01-31 - Clientes distintos de cada película
+    @GetMapping("/estimados/clientes-por-pelicula")
+    public ResponseEntity<?> estimarClientesPorPelicula(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            LocalDate inicio = desde != null ? desde : LocalDate.now();
+            List<ConteoEstimado> resultado = estimadoresVentasService.estimarClientesPorPelicula(inicio, hasta != null ? hasta : inicio);
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/analitica/estimados/top-peliculas?desde=2025-01-01&hora=20&limite=5 - Películas con más boletos
+    // GET /api/analitica/estimados/top-productos?desde=2025-01-01&hora=20&limite=5 - Productos más vendidos
+    @GetMapping("/estimados/top-{tipo}")
+    public ResponseEntity<?> obtenerTop(
+            @PathVariable String tipo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Integer hora,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            LocalDate inicio = desde != null ? desde : LocalDate.now();
+            LocalDate fin = hasta != null ? hasta : inicio;
+            List<ConteoEstimado> resultado;
+            if ("peliculas".equals(tipo)) {
+                resultado = estimadoresVentasService.obtenerTopPeliculas(inicio, fin, hora, limite);
+            } else if ("productos".equals(tipo)) {
+                resultado = estimadoresVentasService.obtenerTopProductos(inicio, fin, hora, limite);
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/analitica/{tabla}?agruparPor=horaSemana - Agrupación sobre boletos, productos o pagos
+    // Ejemplos:
+    //   /api/analitica/boletos?agruparPor=genero&sumar=centimos
+    //   /api/analitica/boletos?agruparPor=horaSemana&estado=VENDIDO&desde=2025-01-01
+    //   /api/analitica/productos?agruparPor=categoria&sumar=cantidad&cliente=3
+    //   /api/analitica/pagos?agruparPor=metodo&sumar=centimos
+    // Cualquier otro parámetro se usa como filtro de igualdad sobre la columna del mismo nombre
+    @GetMapping("/{tabla}")
+    public ResponseEntity<?> consultar(
+            @PathVariable String tabla,
+            @RequestParam String agruparPor,
+            @RequestParam(required = false) String sumar,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam Map<String, String> parametros) {
+
+        Map<String, String> filtros = new HashMap<>(parametros);
+        filtros.remove("agruparPor");
+        filtros.remove("sumar");
+        filtros.remove("desde");
+        filtros.remove("hasta");
+
+        try {
+            ResultadoAnalitico resultado = almacenAnaliticoService.consultar(tabla, agruparPor, sumar, filtros, desde, hasta);
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+}
@@ -2,15 +2,29 @@ package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Boleto;
 import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
+import com.utp.cinerama.cinerama.model.Cliente;
+import com.utp.cinerama.cinerama.model.DisposicionAsientos;
+import com.utp.cinerama.cinerama.model.ResultadoIngreso;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
 import com.utp.cinerama.cinerama.service.BoletoService;
+import com.utp.cinerama.cinerama.service.ClienteService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
+import com.utp.cinerama.cinerama.service.EventosAsientosService;
+import com.utp.cinerama.cinerama.service.IngresoService;
+import com.utp.cinerama.cinerama.service.MapaAsientos;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/boletos")
@@ -20,6 +34,15 @@ public class BoletoController {
     @Autowired
     private BoletoService boletoService;
 
+    @Autowired
+    private EventosAsientosService eventosAsientosService;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private IngresoService ingresoService;
+
     // GET /api/boletos - Obtener todos los boletos
     @GetMapping
     public ResponseEntity<List<Boleto>> obtenerTodosLosBoletos() {
@@ -50,17 +73,50 @@ public class BoletoController {
         }
     }
 
-    // PUT /api/boletos/{id} - Actualizar boleto completo
+    // POST /api/boletos/grupo?funcionId=1&clienteId=1&cantidad=4 - Reservar los mejores asientos juntos
+    // POST /api/boletos/grupo?funcionId=1&clienteId=1&asientos=F8,F9 - Reservar asientos concretos
+    // En ambos casos se reservan todos los asientos o ninguno
+    @PostMapping("/grupo")
+    public ResponseEntity<?> reservarGrupo(
+            @RequestParam Long funcionId,
+            @RequestParam Long clienteId,
+            @RequestParam(required = false) Integer cantidad,
+            @RequestParam(required = false) List<String> asientos) {
+
+        try {
+            Optional<Cliente> cliente = clienteService.obtenerClientePorId(clienteId);
+            if (cliente.isEmpty()) {
+                return ResponseEntity.badRequest().body("{\"error\": \"Cliente no encontrado\"}");
+            }
+
+            List<Boleto> boletos;
+            if (asientos != null && !asientos.isEmpty()) {
+                boletos = boletoService.reservarAsientos(funcionId, asientos, cliente.get());
+            } else if (cantidad != null) {
+                boletos = boletoService.reservarMejoresAsientos(funcionId, cantidad, cliente.get());
+            } else {
+                return ResponseEntity.badRequest().body("{\"error\": \"Debe indicar la cantidad o los asientos\"}");
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(boletos);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // PUT /api/boletos/{id} - Actualizar boleto completo (acepta If-Match)
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarBoleto(@PathVariable Long id, @RequestBody Boleto boleto) {
+    public ResponseEntity<?> actualizarBoleto(@PathVariable Long id, @RequestBody Boleto boleto,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Boleto> boletoActualizado = boletoService.actualizarBoleto(id, boleto);
+            Optional<Boleto> boletoActualizado = boletoService.actualizarBoleto(id, boleto, ContadorVersiones.versionEsperada(ifMatch));
             
             if (boletoActualizado.isPresent()) {
                 return ResponseEntity.ok(boletoActualizado.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -103,14 +159,43 @@ public class BoletoController {
     }
 
     // POST /api/boletos/{id}/usar - Marcar boleto como usado
+    // Pasa por el control de ingreso (ver /api/funciones/{funcionId}/ingreso), que detecta los duplicados
     @PostMapping("/{id}/usar")
     public ResponseEntity<?> marcarBoletoComoUsado(@PathVariable Long id) {
-        boolean usado = boletoService.marcarBoletoComoUsado(id);
+        ResultadoIngreso resultado = ingresoService.registrarIngreso(id);
         
-        if (usado) {
+        if (resultado.isAdmitido()) {
             return ResponseEntity.ok("{\"mensaje\": \"Boleto marcado como usado exitosamente\"}");
         } else {
-            return ResponseEntity.badRequest().body("{\"error\": \"No se pudo marcar el boleto como usado. Verifique que esté PAGADO\"}");
+            return ResponseEntity.badRequest().body("{\"error\": \"No se pudo marcar el boleto como usado: "
+                    + resultado.getMensaje() + "\"}");
+        }
+    }
+
+    // GET /api/boletos/{id}/codigo-ingreso - Código firmado para el QR del boleto
+    @GetMapping("/{id}/codigo-ingreso")
+    public ResponseEntity<?> obtenerCodigoIngreso(@PathVariable Long id) {
+        try {
+            String codigo = ingresoService.codigoDe(id);
+            return ResponseEntity.ok("{\"boletoId\": " + id + ", \"codigo\": \"" + codigo + "\"}");
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // POST /api/boletos/lote?accion=CANCELAR - Pagar, cancelar o marcar como usados varios boletos
+    // El cuerpo es la lista de ids; la respuesta trae el resultado de cada uno en el mismo orden
+    @PostMapping("/lote")
+    public ResponseEntity<?> aplicarEnLote(@RequestParam BoletoService.AccionLote accion,
+                                           @RequestBody List<Long> boletosIds) {
+        if (boletosIds.isEmpty()) {
+            return ResponseEntity.badRequest().body("{\"error\": \"Debe indicar al menos un boleto\"}");
+        }
+        try {
+            ResultadoLote resultado = boletoService.aplicarEnLote(accion, boletosIds);
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
@@ -149,6 +234,53 @@ public class BoletoController {
         return ResponseEntity.ok(asientosOcupados);
     }
 
+    // GET /api/boletos/funcion/{funcionId}/mapa-asientos - Mapa de ocupación compacto (1 bit por asiento)
+    // Por defecto responde application/octet-stream; con ?formato=base64 responde JSON.
+    // El ETag es el arranque del nodo y la versión del mapa: si no cambió, responde 304 sin recalcular nada.
+    @GetMapping("/funcion/{funcionId}/mapa-asientos")
+    public ResponseEntity<?> obtenerMapaAsientos(
+            @PathVariable Long funcionId,
+            @RequestParam(defaultValue = "binario") String formato,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            long version = boletoService.obtenerVersionMapaAsientos(funcionId);
+            if (ifNoneMatch != null && coincideEtag(ifNoneMatch, etagMapa(funcionId, version))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etagMapa(funcionId, version))
+                        .build();
+            }
+
+            MapaAsientos.Foto foto = boletoService.obtenerMapaAsientos(funcionId);
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                    .eTag(etagMapa(funcionId, foto.getVersion()))
+                    .cacheControl(CacheControl.noCache());
+
+            if ("base64".equalsIgnoreCase(formato)) {
+                return respuesta.contentType(MediaType.APPLICATION_JSON)
+                        .body(boletoService.mapaAsientosJson(funcionId, foto));
+            }
+            return respuesta.contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header("X-Capacidad", String.valueOf(foto.getCapacidad()))
+                    .header("X-Asientos-Por-Fila", String.valueOf(DisposicionAsientos.ASIENTOS_POR_FILA))
+                    .body(foto.getBitmap());
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // GET /api/boletos/funcion/{funcionId}/asientos/eventos - Suscribirse a los cambios del mapa de asientos (SSE)
+    // Envía un evento "mapa" con la ocupación actual y luego eventos "ocupado"/"liberado" por asiento
+    @GetMapping(value = "/funcion/{funcionId}/asientos/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> suscribirMapaAsientos(@PathVariable Long funcionId) {
+        try {
+            SseEmitter emitter = eventosAsientosService.suscribirSse(funcionId,
+                    boletoService.mapaAsientosInicial(funcionId));
+            return ResponseEntity.ok(emitter);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     // GET /api/boletos/funcion/{funcionId}/asiento/{asiento} - Verificar si un asiento está ocupado
     @GetMapping("/funcion/{funcionId}/asiento/{asiento}")
     public ResponseEntity<?> verificarAsiento(@PathVariable Long funcionId, @PathVariable String asiento) {
@@ -172,7 +304,9 @@ public class BoletoController {
                 "\"ingresos\": " + ingresos + "," +
                 "\"boletosVendidos\": " + boletosVendidos + "," +
                 "\"totalAsientosOcupados\": " + asientosOcupados.size() + "," +
-                "\"asientosOcupados\": " + asientosOcupados +
+                "\"asientosOcupados\": " + asientosOcupados.stream()
+                        .map(asiento -> "\"" + asiento + "\"")
+                        .collect(Collectors.joining(",", "[", "]")) +
                 "}";
         
         return ResponseEntity.ok(estadisticas);
@@ -199,4 +333,27 @@ public class BoletoController {
         
         return ResponseEntity.ok(boletos);
     }
+
+    // Métodos auxiliares
+    // La versión del mapa vuelve a empezar en cada arranque: sin el arranque en la etiqueta, un cliente
+    // con el ETag de antes del reinicio recibiría 304 con un mapa que ya no es el suyo
+    private String etagMapa(Long funcionId, long version) {
+        return "\"" + funcionId + "-" + ContadorVersiones.arranque() + "-" + version + "\"";
+    }
+
+    private boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String limpio = candidato.trim();
+            if (limpio.startsWith("W/")) {
+                limpio = limpio.substring(2);
+            }
+            if (limpio.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,29 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.EstadisticasCache;
+import com.utp.cinerama.cinerama.service.CacheRespuestasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
+    // GET /api/cache/estadisticas - Aciertos, fallos, desalojos y tamaño de la caché de respuestas
+    @GetMapping("/estadisticas")
+    public ResponseEntity<EstadisticasCache> obtenerEstadisticas() {
+        return ResponseEntity.ok(cacheRespuestasService.obtenerEstadisticas());
+    }
+
+    // DELETE /api/cache - Vaciar la caché de respuestas
+    @DeleteMapping
+    public ResponseEntity<?> vaciarCache() {
+        cacheRespuestasService.invalidarTodo();
+        return ResponseEntity.ok("{\"mensaje\": \"Caché vaciada exitosamente\"}");
+    }
+}
@@ -0,0 +1,37 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.service.CacheRespuestasService;
+import com.utp.cinerama.cinerama.service.CarteleraService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/cartelera")
+@CrossOrigin(origins = "*")
+public class CarteleraController {
+
+    @Autowired
+    private CarteleraService carteleraService;
+
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
+    // GET /api/cartelera - Funciones desde hoy agrupadas por día, película y sala/hora, con asientos disponibles
+    @GetMapping
+    public ResponseEntity<byte[]> obtenerCartelera(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+            WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, carteleraService.version(), aceptaCodificacion)) {
+            return null;
+        }
+        return RespuestasCacheadas.responder(
+                cacheRespuestasService.obtener(CarteleraService.PREFIJO_CACHE + LocalDate.now(),
+                        carteleraService::obtenerCartelera),
+                aceptaCodificacion);
+    }
+}
@@ -1,12 +1,18 @@
 package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Cliente;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
 import com.utp.cinerama.cinerama.service.ClienteService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
+import com.utp.cinerama.cinerama.service.LectorImportacion;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +24,9 @@ public class ClienteController {
     @Autowired
     private ClienteService clienteService;
 
+    @Autowired
+    private LectorImportacion lectorImportacion;
+
     // GET /api/clientes - Obtener todos los clientes
     @GetMapping
     public ResponseEntity<List<Cliente>> obtenerTodosLosClientes() {
@@ -48,33 +57,51 @@ public class ClienteController {
         }
     }
 
-    // PUT /api/clientes/{id} - Actualizar cliente completo
+    // POST /api/clientes/importar - Importación masiva (CSV con cabecera o NDJSON, un registro por línea)
+    @PostMapping(value = "/importar", consumes = {"text/csv", "application/x-ndjson", "text/plain"})
+    public ResponseEntity<?> importarClientes(HttpServletRequest request) {
+        try {
+            ResultadoImportacion resultado = lectorImportacion.importar(request.getReader(),
+                    LectorImportacion.esCsv(request.getContentType()), Cliente.class, clienteService::importarClientes);
+            return ResponseEntity.ok(resultado);
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // PUT /api/clientes/{id} - Actualizar cliente completo (acepta If-Match)
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarCliente(@PathVariable Long id, @RequestBody Cliente cliente) {
+    public ResponseEntity<?> actualizarCliente(@PathVariable Long id, @RequestBody Cliente cliente,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Cliente> clienteActualizado = clienteService.actualizarCliente(id, cliente);
+            Optional<Cliente> clienteActualizado = clienteService.actualizarCliente(id, cliente, ContadorVersiones.versionEsperada(ifMatch));
             
             if (clienteActualizado.isPresent()) {
                 return ResponseEntity.ok(clienteActualizado.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
-    // PATCH /api/clientes/{id} - Actualización parcial
+    // PATCH /api/clientes/{id} - Actualización parcial (acepta If-Match)
     @PatchMapping("/{id}")
-    public ResponseEntity<?> actualizarClienteParcial(@PathVariable Long id, @RequestBody Cliente clienteParcial) {
+    public ResponseEntity<?> actualizarClienteParcial(@PathVariable Long id, @RequestBody Cliente clienteParcial,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Cliente> clienteActualizado = clienteService.actualizarClienteParcial(id, clienteParcial);
+            Optional<Cliente> clienteActualizado = clienteService.actualizarClienteParcial(id, clienteParcial, ContadorVersiones.versionEsperada(ifMatch));
             
             if (clienteActualizado.isPresent()) {
                 return ResponseEntity.ok(clienteActualizado.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -116,17 +143,18 @@ public class ClienteController {
         }
     }
 
-    // GET /api/clientes/buscar?nombre=juan - Buscar clientes por nombre
+    // GET /api/clientes/buscar?nombre=juan&limite=10 - Buscar clientes por nombre (autocompletado)
     @GetMapping("/buscar")
     public ResponseEntity<List<Cliente>> buscarClientes(
             @RequestParam(required = false) String nombre,
             @RequestParam(required = false) String email,
-            @RequestParam(required = false) String telefono) {
+            @RequestParam(required = false) String telefono,
+            @RequestParam(defaultValue = "" + ClienteService.LIMITE_BUSQUEDA_POR_DEFECTO) int limite) {
         
         List<Cliente> clientes;
         
         if (nombre != null) {
-            clientes = clienteService.buscarPorNombre(nombre);
+            clientes = clienteService.buscarPorNombre(nombre, Math.min(limite, 100));
         } else if (email != null) {
             Optional<Cliente> cliente = clienteService.buscarPorEmail(email);
             clientes = cliente.map(List::of).orElse(List.of());
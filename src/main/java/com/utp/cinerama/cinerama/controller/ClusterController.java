@@ -0,0 +1,36 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.service.TopologiaCluster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/cluster")
+@CrossOrigin(origins = "*")
+public class ClusterController {
+
+    @Autowired
+    private TopologiaCluster topologiaCluster;
+
+    // GET /api/cluster - Nodos configurados y nodo que responde
+    @GetMapping
+    public ResponseEntity<?> obtenerTopologia() {
+        String nodos = topologiaCluster.getNodos().stream()
+                .map(nodo -> "\"" + nodo + "\"")
+                .collect(Collectors.joining(", "));
+        return ResponseEntity.ok("{\"habilitado\": " + topologiaCluster.estaHabilitado() + ", " +
+                "\"nodoActual\": \"" + topologiaCluster.getNodoActual() + "\", " +
+                "\"nodos\": [" + nodos + "]}");
+    }
+
+    // GET /api/cluster/funcion/{funcionId} - Nodo dueño de los asientos y boletos de una función
+    @GetMapping("/funcion/{funcionId}")
+    public ResponseEntity<?> obtenerDuenoFuncion(@PathVariable Long funcionId) {
+        return ResponseEntity.ok("{\"funcionId\": " + funcionId + ", " +
+                "\"nodo\": \"" + topologiaCluster.nodoDeFuncion(funcionId) + "\", " +
+                "\"local\": " + topologiaCluster.esFuncionLocal(funcionId) + "}");
+    }
+}
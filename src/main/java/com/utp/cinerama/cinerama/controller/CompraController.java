@@ -0,0 +1,50 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.Pago;
+import com.utp.cinerama.cinerama.service.CompraService;
+import com.utp.cinerama.cinerama.service.PagoService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/compras")
+@CrossOrigin(origins = "*") // Permitir solicitudes de cualquier origen
+public class CompraController {
+
+    @Autowired
+    private CompraService compraService;
+
+    // POST /api/compras/boletos?funcionId=1&clienteId=1&asientos=F8,F9&metodoPago=APP_YAPE&tipoComprobante=BOLETA
+    // POST /api/compras/boletos?funcionId=1&clienteId=1&cantidad=4&metodoPago=TARJETA_CREDITO&numeroTarjeta=...
+    // Responde 202 con el pago PENDIENTE; su resultado se sigue en /api/pagos/{id} o /api/pagos/{id}/eventos
+    @PostMapping("/boletos")
+    public ResponseEntity<?> comprarBoletos(
+            @RequestParam Long funcionId,
+            @RequestParam Long clienteId,
+            @RequestParam(required = false) List<String> asientos,
+            @RequestParam(required = false) Integer cantidad,
+            @RequestParam Pago.MetodoPago metodoPago,
+            @RequestParam(defaultValue = "BOLETA") Pago.TipoComprobante tipoComprobante,
+            @RequestParam(required = false) String numeroTarjeta) {
+
+        try {
+            Pago pago = compraService.comprarBoletos(funcionId, clienteId, asientos, cantidad,
+                    metodoPago, tipoComprobante, numeroTarjeta);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(pago);
+        } catch (PagoService.PagosSaturadosException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("{\"error\": \"" + e.getMessage() + "\"}");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+}
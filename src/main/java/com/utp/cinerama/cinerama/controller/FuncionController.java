@@ -1,12 +1,16 @@
 package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.service.CacheRespuestasService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
 import com.utp.cinerama.cinerama.service.FuncionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -20,16 +24,26 @@ public class FuncionController {
     @Autowired
     private FuncionService funcionService;
 
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
     // GET /api/funciones - Obtener todas las funciones
     @GetMapping
-    public ResponseEntity<List<Funcion>> obtenerTodasLasFunciones() {
+    public ResponseEntity<List<Funcion>> obtenerTodasLasFunciones(WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, funcionService.versionColeccion())) {
+            return null;
+        }
         List<Funcion> funciones = funcionService.obtenerTodasLasFunciones();
         return ResponseEntity.ok(funciones);
     }
 
     // GET /api/funciones/{id} - Obtener función por ID
     @GetMapping("/{id}")
-    public ResponseEntity<Funcion> obtenerFuncionPorId(@PathVariable Long id) {
+    public ResponseEntity<Funcion> obtenerFuncionPorId(@PathVariable Long id, WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, funcionService.versionDe(id))) {
+            return null;
+        }
+
         Optional<Funcion> funcion = funcionService.obtenerFuncionPorId(id);
         
         if (funcion.isPresent()) {
@@ -50,17 +64,20 @@ public class FuncionController {
         }
     }
 
-    // PUT /api/funciones/{id} - Actualizar función completa
+    // PUT /api/funciones/{id} - Actualizar función completa (acepta If-Match)
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarFuncion(@PathVariable Long id, @RequestBody Funcion funcion) {
+    public ResponseEntity<?> actualizarFuncion(@PathVariable Long id, @RequestBody Funcion funcion,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Funcion> funcionActualizada = funcionService.actualizarFuncion(id, funcion);
+            Optional<Funcion> funcionActualizada = funcionService.actualizarFuncion(id, funcion, ContadorVersiones.versionEsperada(ifMatch));
             
             if (funcionActualizada.isPresent()) {
                 return ResponseEntity.ok(funcionActualizada.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -87,10 +104,17 @@ public class FuncionController {
 
     // GET /api/funciones/fecha/{fecha} - Buscar funciones por fecha
     @GetMapping("/fecha/{fecha}")
-    public ResponseEntity<List<Funcion>> buscarPorFecha(
-            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
-        List<Funcion> funciones = funcionService.buscarPorFecha(fecha);
-        return ResponseEntity.ok(funciones);
+    public ResponseEntity<byte[]> buscarPorFecha(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+            WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, funcionService.versionColeccion(), aceptaCodificacion)) {
+            return null;
+        }
+        return RespuestasCacheadas.responder(
+                cacheRespuestasService.obtener(CacheRespuestasService.claveFuncionesPorFecha(fecha),
+                        () -> funcionService.buscarPorFecha(fecha)),
+                aceptaCodificacion);
     }
 
     // GET /api/funciones/sala/{salaId} - Buscar funciones por sala ID
@@ -109,9 +133,16 @@ public class FuncionController {
 
     // GET /api/funciones/disponibles - Obtener funciones con asientos disponibles
     @GetMapping("/disponibles")
-    public ResponseEntity<List<Funcion>> obtenerFuncionesDisponibles() {
-        List<Funcion> funciones = funcionService.buscarFuncionesDisponibles();
-        return ResponseEntity.ok(funciones);
+    public ResponseEntity<byte[]> obtenerFuncionesDisponibles(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+            WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, funcionService.versionColeccion(), aceptaCodificacion)) {
+            return null;
+        }
+        return RespuestasCacheadas.responder(
+                cacheRespuestasService.obtener(CacheRespuestasService.CLAVE_FUNCIONES_DISPONIBLES,
+                        funcionService::buscarFuncionesDisponibles),
+                aceptaCodificacion);
     }
 
     // POST /api/funciones/{id}/reservar - Reservar asiento en función
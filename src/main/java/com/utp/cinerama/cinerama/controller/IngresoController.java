@@ -0,0 +1,76 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.EscaneoPendiente;
+import com.utp.cinerama.cinerama.model.ResultadoIngreso;
+import com.utp.cinerama.cinerama.service.IngresoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Las rutas cuelgan de la función para que el cluster las envíe al nodo dueño de sus boletos
+@RestController
+@RequestMapping("/api/funciones/{funcionId}/ingreso")
+@CrossOrigin(origins = "*")
+public class IngresoController {
+
+    @Autowired
+    private IngresoService ingresoService;
+
+    // GET /api/funciones/{funcionId}/ingreso - Boletos por ingresar, ingresados, duplicados y rechazados
+    @GetMapping
+    public ResponseEntity<String> obtenerEstadisticas(@PathVariable Long funcionId) {
+        return ResponseEntity.ok(ingresoService.obtenerEstadisticasJson(funcionId));
+    }
+
+    // POST /api/funciones/{funcionId}/ingreso/precargar - Cargar los boletos de la función antes de abrir la puerta
+    // Las funciones que empiezan pronto se precargan solas (ver cinerama.ingreso.anticipacion-minutos)
+    @PostMapping("/precargar")
+    public ResponseEntity<?> precargar(@PathVariable Long funcionId) {
+        try {
+            ingresoService.precargar(funcionId);
+            return ResponseEntity.ok(ingresoService.obtenerEstadisticasJson(funcionId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // POST /api/funciones/{funcionId}/ingreso/escanear?codigo=CIN1.1.25.xxxx - Validar un boleto en la puerta
+    // El código es el del QR del boleto o simplemente su id. Responde 200 si puede ingresar,
+    // 409 si el boleto ya se usó y 400 en los demás casos; el cuerpo siempre trae el veredicto.
+    @PostMapping("/escanear")
+    public ResponseEntity<?> escanear(@PathVariable Long funcionId, @RequestParam String codigo) {
+        try {
+            ResultadoIngreso resultado = ingresoService.registrarIngreso(funcionId, codigo);
+            return ResponseEntity.status(estadoHttp(resultado)).body(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // POST /api/funciones/{funcionId}/ingreso/sincronizar - Subir los escaneos de un lector que estuvo sin conexión
+    // Cuerpo: [{"codigo": "CIN1.1.25.xxxx", "escaneadoEn": "2025-06-01T19:02:11"}, ...]
+    @PostMapping("/sincronizar")
+    public ResponseEntity<?> sincronizar(@PathVariable Long funcionId, @RequestBody List<EscaneoPendiente> escaneos) {
+        try {
+            List<ResultadoIngreso> resultados = ingresoService.sincronizar(funcionId, escaneos);
+            return ResponseEntity.ok(resultados);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // Métodos auxiliares
+    private HttpStatus estadoHttp(ResultadoIngreso resultado) {
+        switch (resultado.getVeredicto()) {
+            case ADMITIDO:
+                return HttpStatus.OK;
+            case DUPLICADO:
+                return HttpStatus.CONFLICT;
+            default:
+                return HttpStatus.BAD_REQUEST;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.EstadisticasLimite;
+import com.utp.cinerama.cinerama.service.LimitadorTasaService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/limites")
+@CrossOrigin(origins = "*")
+public class LimiteTasaController {
+
+    public static final String CABECERA_ADMIN = "X-Cinerama-Admin";
+
+    @Autowired
+    private LimitadorTasaService limitadorTasaService;
+
+    // Sin token configurado las reglas no se pueden cambiar en caliente. No se confía en la dirección
+    // de origen: detrás de un proxy local todas las peticiones llegarían desde loopback.
+    @Value("${cinerama.limite.token-admin:}")
+    private String tokenAdmin;
+
+    // GET /api/limites - Reglas vigentes con las peticiones permitidas y rechazadas por cada una
+    @GetMapping
+    public ResponseEntity<EstadisticasLimite> obtenerEstadisticas() {
+        return ResponseEntity.ok(limitadorTasaService.obtenerEstadisticas());
+    }
+
+    // PUT /api/limites/reglas - Reemplazar las reglas sin reiniciar
+    // Cuerpo: ["asientos=GET /api/boletos/funcion/*/asiento/* 20 40", "api=* /api/** 100 200"]
+    // Requiere la cabecera X-Cinerama-Admin con cinerama.limite.token-admin
+    @PutMapping("/reglas")
+    public ResponseEntity<?> recargarReglas(@RequestBody List<String> reglas, HttpServletRequest request) {
+        if (tokenAdmin.isBlank()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("{\"error\": \"Configure cinerama.limite.token-admin para cambiar las reglas en caliente\"}");
+        }
+        if (!esAdministrador(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("{\"error\": \"No autorizado para cambiar las reglas de límite\"}");
+        }
+        try {
+            limitadorTasaService.recargarReglas(reglas);
+            return ResponseEntity.ok(limitadorTasaService.obtenerEstadisticas());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // Métodos auxiliares
+    private boolean esAdministrador(HttpServletRequest request) {
+        String token = request.getHeader(CABECERA_ADMIN);
+        return token != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                tokenAdmin.getBytes(StandardCharsets.UTF_8));
+    }
+}
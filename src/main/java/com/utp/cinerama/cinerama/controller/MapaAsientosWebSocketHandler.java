@@ -0,0 +1,75 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.service.BoletoService;
+import com.utp.cinerama.cinerama.service.EventosAsientosService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+// WS /ws/funciones/{funcionId}/asientos - Variante WebSocket de los eventos del mapa de asientos.
+// Cada mensaje tiene la forma {"evento": "mapa" | "ocupado" | "liberado", "datos": {...}}
+@Component
+public class MapaAsientosWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String ATRIBUTO_CANAL = "canalAsientos";
+    private static final String ATRIBUTO_FUNCION = "funcionId";
+
+    @Autowired
+    private BoletoService boletoService;
+
+    @Autowired
+    private EventosAsientosService eventosAsientosService;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        Long funcionId;
+        Supplier<String> mapaInicial;
+        try {
+            // La ruta es /ws/funciones/{funcionId}/asientos
+            String[] partes = session.getUri().getPath().split("/");
+            funcionId = Long.valueOf(partes[partes.length - 2]);
+            mapaInicial = boletoService.mapaAsientosInicial(funcionId);
+        } catch (RuntimeException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("Función no encontrada"));
+            return;
+        }
+
+        // Un cliente lento no bloquea la difusión: se le acumula hasta 256 KB o 5 s de envío
+        WebSocketSession sesion = new ConcurrentWebSocketSessionDecorator(session, 5000, 256 * 1024);
+        EventosAsientosService.Canal canal = new EventosAsientosService.Canal() {
+            @Override
+            public void enviar(String evento, String datos) throws IOException {
+                sesion.sendMessage(new TextMessage("{\"evento\": \"" + evento + "\", \"datos\": " + datos + "}"));
+            }
+
+            @Override
+            public void cerrar() {
+                try {
+                    sesion.close(CloseStatus.GOING_AWAY);
+                } catch (IOException e) {
+                    // La sesión ya estaba cerrada
+                }
+            }
+        };
+
+        session.getAttributes().put(ATRIBUTO_CANAL, canal);
+        session.getAttributes().put(ATRIBUTO_FUNCION, funcionId);
+        eventosAsientosService.suscribir(funcionId, canal, mapaInicial);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Object canal = session.getAttributes().get(ATRIBUTO_CANAL);
+        Object funcionId = session.getAttributes().get(ATRIBUTO_FUNCION);
+        if (canal != null && funcionId != null) {
+            eventosAsientosService.desuscribir((Long) funcionId, (EventosAsientosService.Canal) canal);
+        }
+    }
+}
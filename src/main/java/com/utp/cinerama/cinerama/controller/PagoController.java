@@ -2,14 +2,20 @@ package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Cliente;
 import com.utp.cinerama.cinerama.model.Pago;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
+import com.utp.cinerama.cinerama.model.ResumenHora;
+import com.utp.cinerama.cinerama.model.SolicitudPago;
 import com.utp.cinerama.cinerama.service.ClienteService;
 import com.utp.cinerama.cinerama.service.PagoService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -104,6 +110,7 @@ public class PagoController {
     }
 
     // POST /api/pagos/{id}/tarjeta - Procesar pago con tarjeta
+    // Responde 202 con el pago PENDIENTE; el resultado se consulta en GET /api/pagos/{id} o /api/pagos/{id}/eventos
     @PostMapping("/{id}/tarjeta")
     public ResponseEntity<?> procesarPagoTarjeta(
             @PathVariable Long id,
@@ -111,7 +118,9 @@ public class PagoController {
         
         try {
             Pago pago = pagoService.procesarPagoTarjeta(id, numeroTarjeta);
-            return ResponseEntity.ok(pago);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(pago);
+        } catch (PagoService.PagosSaturadosException e) {
+            return respuestaSaturado(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -122,12 +131,37 @@ public class PagoController {
     public ResponseEntity<?> procesarPagoApp(@PathVariable Long id) {
         try {
             Pago pago = pagoService.procesarPagoApp(id);
-            return ResponseEntity.ok(pago);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(pago);
+        } catch (PagoService.PagosSaturadosException e) {
+            return respuestaSaturado(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
+    // POST /api/pagos/lote - Procesar varios pagos pendientes
+    // Cuerpo: [{"pagoId": 1, "numeroTarjeta": "4111111111111111"}, {"pagoId": 2}] (sin tarjeta = app)
+    // Responde 202: los pagos aceptados siguen PENDIENTES hasta que responda la pasarela
+    @PostMapping("/lote")
+    public ResponseEntity<?> procesarPagosEnLote(@RequestBody List<SolicitudPago> solicitudes) {
+        if (solicitudes.isEmpty()) {
+            return ResponseEntity.badRequest().body("{\"error\": \"Debe indicar al menos un pago\"}");
+        }
+        ResultadoLote resultado = pagoService.procesarPagosEnLote(solicitudes);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(resultado);
+    }
+
+    // GET /api/pagos/{id}/eventos - Resultado del pago por Server-Sent Events
+    @GetMapping(value = "/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> suscribirResultado(@PathVariable Long id) {
+        try {
+            SseEmitter emitter = pagoService.suscribirResultado(id);
+            return ResponseEntity.ok(emitter);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     // GET /api/pagos/cliente/{clienteId} - Buscar pagos por cliente
     @GetMapping("/cliente/{clienteId}")
     public ResponseEntity<List<Pago>> buscarPagosPorCliente(@PathVariable Long clienteId) {
@@ -143,6 +177,32 @@ public class PagoController {
         return ResponseEntity.ok(pagos);
     }
 
+    // GET /api/pagos/rango?desde=2025-01-01&hasta=2025-01-31 - Buscar entre dos fechas (inclusive)
+    @GetMapping("/rango")
+    public ResponseEntity<?> buscarEntreFechas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            List<Pago> pagos = pagoService.buscarPagosEntreFechas(desde, hasta);
+            return ResponseEntity.ok(pagos);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/pagos/reporte/horas?desde=2025-01-01&hasta=2025-01-01 - Cantidad y total vendido por hora
+    @GetMapping("/reporte/horas")
+    public ResponseEntity<?> obtenerVentasPorHora(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            List<ResumenHora> resumen = pagoService.calcularVentasPorHora(desde, hasta != null ? hasta : desde);
+            return ResponseEntity.ok(resumen);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
     // GET /api/pagos/estado/{estado} - Buscar pagos por estado
     @GetMapping("/estado/{estado}")
     public ResponseEntity<List<Pago>> buscarPagosPorEstado(@PathVariable Pago.EstadoPago estado) {
@@ -157,4 +217,12 @@ public class PagoController {
         BigDecimal total = pagoService.calcularTotalVentasPorFecha(fecha);
         return ResponseEntity.ok(total);
     }
-}
\ No newline at end of file
+
+    // Métodos auxiliares
+    private ResponseEntity<?> respuestaSaturado(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"error\": \"" + e.getMessage() + "\"}");
+    }
+}
@@ -1,12 +1,20 @@
 package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Pelicula;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
+import com.utp.cinerama.cinerama.service.CacheRespuestasService;
 import com.utp.cinerama.cinerama.service.PeliculaService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
+import com.utp.cinerama.cinerama.service.LectorImportacion;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,16 +26,33 @@ public class PeliculaController {
     @Autowired
     private PeliculaService peliculaService;
 
+    @Autowired
+    private LectorImportacion lectorImportacion;
+
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
     // GET /api/peliculas - Obtener todas las películas
     @GetMapping
-    public ResponseEntity<List<Pelicula>> obtenerTodasLasPeliculas() {
-        List<Pelicula> peliculas = peliculaService.obtenerTodasLasPeliculas();
-        return ResponseEntity.ok(peliculas);
+    public ResponseEntity<byte[]> obtenerTodasLasPeliculas(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+            WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, peliculaService.versionColeccion(), aceptaCodificacion)) {
+            return null;
+        }
+        return RespuestasCacheadas.responder(
+                cacheRespuestasService.obtener(CacheRespuestasService.CLAVE_PELICULAS,
+                        peliculaService::obtenerTodasLasPeliculas),
+                aceptaCodificacion);
     }
 
     // GET /api/peliculas/{id} - Obtener película por ID
     @GetMapping("/{id}")
-    public ResponseEntity<Pelicula> obtenerPeliculaPorId(@PathVariable Long id) {
+    public ResponseEntity<Pelicula> obtenerPeliculaPorId(@PathVariable Long id, WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, peliculaService.versionDe(id))) {
+            return null;
+        }
+
         Optional<Pelicula> pelicula = peliculaService.obtenerPeliculaPorId(id);
         
         if (pelicula.isPresent()) {
@@ -48,33 +73,51 @@ public class PeliculaController {
         }
     }
 
-    // PUT /api/peliculas/{id} - Actualizar película completa
+    // POST /api/peliculas/importar - Importación masiva (CSV con cabecera o NDJSON, un registro por línea)
+    @PostMapping(value = "/importar", consumes = {"text/csv", "application/x-ndjson", "text/plain"})
+    public ResponseEntity<?> importarPeliculas(HttpServletRequest request) {
+        try {
+            ResultadoImportacion resultado = lectorImportacion.importar(request.getReader(),
+                    LectorImportacion.esCsv(request.getContentType()), Pelicula.class, peliculaService::importarPeliculas);
+            return ResponseEntity.ok(resultado);
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // PUT /api/peliculas/{id} - Actualizar película completa (acepta If-Match)
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarPelicula(@PathVariable Long id, @RequestBody Pelicula pelicula) {
+    public ResponseEntity<?> actualizarPelicula(@PathVariable Long id, @RequestBody Pelicula pelicula,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Pelicula> peliculaActualizada = peliculaService.actualizarPelicula(id, pelicula);
+            Optional<Pelicula> peliculaActualizada = peliculaService.actualizarPelicula(id, pelicula, ContadorVersiones.versionEsperada(ifMatch));
             
             if (peliculaActualizada.isPresent()) {
                 return ResponseEntity.ok(peliculaActualizada.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
-    // PATCH /api/peliculas/{id} - Actualización parcial
+    // PATCH /api/peliculas/{id} - Actualización parcial (acepta If-Match)
     @PatchMapping("/{id}")
-    public ResponseEntity<?> actualizarPeliculaParcial(@PathVariable Long id, @RequestBody Pelicula peliculaParcial) {
+    public ResponseEntity<?> actualizarPeliculaParcial(@PathVariable Long id, @RequestBody Pelicula peliculaParcial,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Pelicula> peliculaActualizada = peliculaService.actualizarPeliculaParcial(id, peliculaParcial);
+            Optional<Pelicula> peliculaActualizada = peliculaService.actualizarPeliculaParcial(id, peliculaParcial, ContadorVersiones.versionEsperada(ifMatch));
             
             if (peliculaActualizada.isPresent()) {
                 return ResponseEntity.ok(peliculaActualizada.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
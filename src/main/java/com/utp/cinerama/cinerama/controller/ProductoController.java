@@ -1,14 +1,24 @@
 package com.utp.cinerama.cinerama.controller;
 
+import com.utp.cinerama.cinerama.model.AjusteStock;
 import com.utp.cinerama.cinerama.model.Producto;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
 import com.utp.cinerama.cinerama.model.Producto.CategoriaProducto;
+import com.utp.cinerama.cinerama.service.CacheRespuestasService;
 import com.utp.cinerama.cinerama.service.ProductoService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
+import com.utp.cinerama.cinerama.service.LectorImportacion;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,16 +30,29 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private LectorImportacion lectorImportacion;
+
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
     // GET /api/productos - Obtener todos los productos
     @GetMapping
-    public ResponseEntity<List<Producto>> obtenerTodosLosProductos() {
+    public ResponseEntity<List<Producto>> obtenerTodosLosProductos(WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, productoService.versionColeccion())) {
+            return null;
+        }
         List<Producto> productos = productoService.obtenerTodosLosProductos();
         return ResponseEntity.ok(productos);
     }
 
     // GET /api/productos/{id} - Obtener producto por ID
     @GetMapping("/{id}")
-    public ResponseEntity<Producto> obtenerProductoPorId(@PathVariable Long id) {
+    public ResponseEntity<Producto> obtenerProductoPorId(@PathVariable Long id, WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, productoService.versionDe(id))) {
+            return null;
+        }
+
         Optional<Producto> producto = productoService.obtenerProductoPorId(id);
         
         if (producto.isPresent()) {
@@ -50,33 +73,51 @@ public class ProductoController {
         }
     }
 
-    // PUT /api/productos/{id} - Actualizar producto completo
+    // POST /api/productos/importar - Importación masiva (CSV con cabecera o NDJSON, un registro por línea)
+    @PostMapping(value = "/importar", consumes = {"text/csv", "application/x-ndjson", "text/plain"})
+    public ResponseEntity<?> importarProductos(HttpServletRequest request) {
+        try {
+            ResultadoImportacion resultado = lectorImportacion.importar(request.getReader(),
+                    LectorImportacion.esCsv(request.getContentType()), Producto.class, productoService::importarProductos);
+            return ResponseEntity.ok(resultado);
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // PUT /api/productos/{id} - Actualizar producto completo (acepta If-Match)
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarProducto(@PathVariable Long id, @RequestBody Producto producto) {
+    public ResponseEntity<?> actualizarProducto(@PathVariable Long id, @RequestBody Producto producto,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Producto> productoActualizado = productoService.actualizarProducto(id, producto);
+            Optional<Producto> productoActualizado = productoService.actualizarProducto(id, producto, ContadorVersiones.versionEsperada(ifMatch));
             
             if (productoActualizado.isPresent()) {
                 return ResponseEntity.ok(productoActualizado.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
-    // PATCH /api/productos/{id} - Actualización parcial
+    // PATCH /api/productos/{id} - Actualización parcial (acepta If-Match)
     @PatchMapping("/{id}")
-    public ResponseEntity<?> actualizarProductoParcial(@PathVariable Long id, @RequestBody Producto productoParcial) {
+    public ResponseEntity<?> actualizarProductoParcial(@PathVariable Long id, @RequestBody Producto productoParcial,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Producto> productoActualizado = productoService.actualizarProductoParcial(id, productoParcial);
+            Optional<Producto> productoActualizado = productoService.actualizarProductoParcial(id, productoParcial, ContadorVersiones.versionEsperada(ifMatch));
             
             if (productoActualizado.isPresent()) {
                 return ResponseEntity.ok(productoActualizado.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -126,9 +167,16 @@ public class ProductoController {
 
     // GET /api/productos/activos - Obtener solo productos activos
     @GetMapping("/activos")
-    public ResponseEntity<List<Producto>> obtenerProductosActivos() {
-        List<Producto> productos = productoService.buscarProductosActivos();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<byte[]> obtenerProductosActivos(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+            WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, productoService.versionColeccion(), aceptaCodificacion)) {
+            return null;
+        }
+        return RespuestasCacheadas.responder(
+                cacheRespuestasService.obtener(CacheRespuestasService.CLAVE_PRODUCTOS_ACTIVOS,
+                        productoService::buscarProductosActivos),
+                aceptaCodificacion);
     }
 
     // GET /api/productos/con-stock - Obtener solo productos con stock
@@ -153,6 +201,17 @@ public class ProductoController {
         }
     }
 
+    // POST /api/productos/stock/lote - Aplicar varios ajustes de stock (FIJAR, AUMENTAR o REDUCIR)
+    // Cuerpo: [{"productoId": 1, "operacion": "AUMENTAR", "cantidad": 24}, ...]
+    @PostMapping("/stock/lote")
+    public ResponseEntity<?> ajustarStockEnLote(@RequestBody List<AjusteStock> ajustes) {
+        if (ajustes.isEmpty()) {
+            return ResponseEntity.badRequest().body("{\"error\": \"Debe indicar al menos un ajuste\"}");
+        }
+        ResultadoLote resultado = productoService.ajustarStockEnLote(ajustes);
+        return ResponseEntity.ok(resultado);
+    }
+
     // POST /api/productos/{id}/reducir-stock - Reducir stock (para ventas)
     @PostMapping("/{id}/reducir-stock")
     public ResponseEntity<?> reducirStock(
@@ -0,0 +1,22 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.EstadoReplicacion;
+import com.utp.cinerama.cinerama.service.ReplicacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/replicacion")
+@CrossOrigin(origins = "*")
+public class ReplicacionController {
+
+    @Autowired
+    private ReplicacionService replicacionService;
+
+    // GET /api/replicacion/estado - Rol del nodo, secuencias del log y retraso de la réplica
+    @GetMapping("/estado")
+    public ResponseEntity<EstadoReplicacion> obtenerEstado() {
+        return ResponseEntity.ok(replicacionService.obtenerEstado());
+    }
+}
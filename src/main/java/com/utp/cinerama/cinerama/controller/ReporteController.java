@@ -0,0 +1,83 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.ReporteMultidimensional;
+import com.utp.cinerama.cinerama.model.ResumenVentas;
+import com.utp.cinerama.cinerama.service.MotorReportesService;
+import com.utp.cinerama.cinerama.service.ResumenVentasService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reportes")
+@CrossOrigin(origins = "*") // Permitir solicitudes de cualquier origen
+public class ReporteController {
+
+    @Autowired
+    private ResumenVentasService resumenVentasService;
+
+    @Autowired
+    private MotorReportesService motorReportesService;
+
+    // GET /api/reportes/ventas?desde=2025-01-01&hasta=2025-01-31 - Resumen de ventas del período
+    @GetMapping("/ventas")
+    public ResponseEntity<?> obtenerResumenVentas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            ResumenVentas resumen = resumenVentasService.obtenerResumen(desde, hasta);
+            return ResponseEntity.ok(resumen);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/reportes/ventas/dia/{fecha} - Resumen de ventas de un día
+    @GetMapping("/ventas/dia/{fecha}")
+    public ResponseEntity<ResumenVentas> obtenerResumenDelDia(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        return ResponseEntity.ok(resumenVentasService.obtenerResumenDelDia(fecha));
+    }
+
+    // GET /api/reportes/ventas/mes-actual - Resumen desde el inicio del mes hasta hoy
+    @GetMapping("/ventas/mes-actual")
+    public ResponseEntity<ResumenVentas> obtenerResumenDelMes() {
+        return ResponseEntity.ok(resumenVentasService.obtenerResumenDelMes(LocalDate.now()));
+    }
+
+    // GET /api/reportes/{tabla}?dimensiones=pelicula,dia,sala&medidas=cantidad,ingreso,clientes - Reporte multidimensional
+    // Tablas: boletos, productos, pagos. Dimensiones: cualquier columna de texto, horaSemana o dia.
+    // Ejemplos:
+    //   /api/reportes/boletos?dimensiones=pelicula,dia&medidas=ingreso,clientes&estado=VENDIDO
+    //   /api/reportes/pagos?dimensiones=metodo&medidas=cantidad,ingreso&desde=2025-01-01&hasta=2025-01-31
+    // Cualquier otro parámetro se usa como filtro de igualdad sobre la columna del mismo nombre
+    @GetMapping("/{tabla}")
+    public ResponseEntity<?> generarReporte(
+            @PathVariable String tabla,
+            @RequestParam List<String> dimensiones,
+            @RequestParam(defaultValue = "cantidad,ingreso") List<String> medidas,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam Map<String, String> parametros) {
+
+        Map<String, String> filtros = new HashMap<>(parametros);
+        filtros.remove("dimensiones");
+        filtros.remove("medidas");
+        filtros.remove("desde");
+        filtros.remove("hasta");
+
+        try {
+            ReporteMultidimensional reporte = motorReportesService.generar(tabla, dimensiones, medidas, filtros, desde, hasta);
+            return ResponseEntity.ok(reporte);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+}
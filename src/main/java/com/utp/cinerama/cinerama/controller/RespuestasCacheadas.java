@@ -0,0 +1,50 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.service.CacheRespuestasService.Respuesta;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+// Arma la respuesta HTTP a partir de los bytes guardados en la caché, eligiendo la variante gzip
+// cuando el cliente la acepta, y resuelve los GET condicionales con la versión del servicio
+final class RespuestasCacheadas {
+
+    private RespuestasCacheadas() {
+    }
+
+    static ResponseEntity<byte[]> responder(Respuesta respuesta, String aceptaCodificacion) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (respuesta.tieneGzip() && aceptaGzip(aceptaCodificacion)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(respuesta.getGzip());
+        }
+        return builder.body(respuesta.getJson());
+    }
+
+    // Agrega ETag y Last-Modified a la respuesta; si el cliente ya tiene esa versión
+    // deja el estado en 304 y devuelve true, sin que haga falta leer ni serializar los datos
+    static boolean noModificado(WebRequest request, ContadorVersiones.Marca marca, String aceptaCodificacion) {
+        return request.checkNotModified(marca.etag(aceptaGzip(aceptaCodificacion)), marca.getUltimaModificacion());
+    }
+
+    static boolean noModificado(WebRequest request, ContadorVersiones.Marca marca) {
+        return request.checkNotModified(marca.etag(false), marca.getUltimaModificacion());
+    }
+
+    private static boolean aceptaGzip(String aceptaCodificacion) {
+        if (aceptaCodificacion == null) {
+            return false;
+        }
+        for (String codificacion : aceptaCodificacion.split(",")) {
+            String valor = codificacion.trim().toLowerCase();
+            if (valor.equals("gzip") || (valor.startsWith("gzip;") && !valor.replace(" ", "").endsWith("q=0"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
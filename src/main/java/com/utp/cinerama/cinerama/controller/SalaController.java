@@ -2,11 +2,15 @@ package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Sala;
 import com.utp.cinerama.cinerama.model.Sala.TipoSala;
+import com.utp.cinerama.cinerama.service.CacheRespuestasService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
 import com.utp.cinerama.cinerama.service.SalaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,16 +23,30 @@ public class SalaController {
     @Autowired
     private SalaService salaService;
 
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
     // GET /api/salas - Obtener todas las salas
     @GetMapping
-    public ResponseEntity<List<Sala>> obtenerTodasLasSalas() {
-        List<Sala> salas = salaService.obtenerTodasLasSalas();
-        return ResponseEntity.ok(salas);
+    public ResponseEntity<byte[]> obtenerTodasLasSalas(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceptaCodificacion,
+            WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, salaService.versionColeccion(), aceptaCodificacion)) {
+            return null;
+        }
+        return RespuestasCacheadas.responder(
+                cacheRespuestasService.obtener(CacheRespuestasService.CLAVE_SALAS,
+                        salaService::obtenerTodasLasSalas),
+                aceptaCodificacion);
     }
 
     // GET /api/salas/{id} - Obtener sala por ID
     @GetMapping("/{id}")
-    public ResponseEntity<Sala> obtenerSalaPorId(@PathVariable Long id) {
+    public ResponseEntity<Sala> obtenerSalaPorId(@PathVariable Long id, WebRequest request) {
+        if (RespuestasCacheadas.noModificado(request, salaService.versionDe(id))) {
+            return null;
+        }
+
         Optional<Sala> sala = salaService.obtenerSalaPorId(id);
         
         if (sala.isPresent()) {
@@ -49,33 +67,39 @@ public class SalaController {
         }
     }
 
-    // PUT /api/salas/{id} - Actualizar sala completa
+    // PUT /api/salas/{id} - Actualizar sala completa (acepta If-Match)
     @PutMapping("/{id}")
-    public ResponseEntity<?> actualizarSala(@PathVariable Long id, @RequestBody Sala sala) {
+    public ResponseEntity<?> actualizarSala(@PathVariable Long id, @RequestBody Sala sala,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Sala> salaActualizada = salaService.actualizarSala(id, sala);
+            Optional<Sala> salaActualizada = salaService.actualizarSala(id, sala, ContadorVersiones.versionEsperada(ifMatch));
             
             if (salaActualizada.isPresent()) {
                 return ResponseEntity.ok(salaActualizada.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
 
-    // PATCH /api/salas/{id} - Actualización parcial
+    // PATCH /api/salas/{id} - Actualización parcial (acepta If-Match)
     @PatchMapping("/{id}")
-    public ResponseEntity<?> actualizarSalaParcial(@PathVariable Long id, @RequestBody Sala salaParcial) {
+    public ResponseEntity<?> actualizarSalaParcial(@PathVariable Long id, @RequestBody Sala salaParcial,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Optional<Sala> salaActualizada = salaService.actualizarSalaParcial(id, salaParcial);
+            Optional<Sala> salaActualizada = salaService.actualizarSalaParcial(id, salaParcial, ContadorVersiones.versionEsperada(ifMatch));
             
             if (salaActualizada.isPresent()) {
                 return ResponseEntity.ok(salaActualizada.get());
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -0,0 +1,78 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.service.FuncionService;
+import com.utp.cinerama.cinerama.service.SalaEsperaService;
+import com.utp.cinerama.cinerama.service.SalaEsperaService.Turno;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/sala-espera")
+@CrossOrigin(origins = "*")
+public class SalaEsperaController {
+
+    @Autowired
+    private SalaEsperaService salaEsperaService;
+
+    @Autowired
+    private FuncionService funcionService;
+
+    // POST /api/sala-espera/funcion/{funcionId} - Tomar un turno en la fila de la función
+    // El token devuelto se envía en la cabecera X-Cinerama-Pase al reservar, una vez admitido
+    @PostMapping("/funcion/{funcionId}")
+    public ResponseEntity<?> entrar(@PathVariable Long funcionId) {
+        if (!salaEsperaService.estaHabilitada()) {
+            return ResponseEntity.badRequest().body("{\"error\": \"La sala de espera no está habilitada\"}");
+        }
+        if (funcionService.obtenerFuncionPorId(funcionId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Optional<Turno> turno = salaEsperaService.entrar(funcionId);
+        if (turno.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(salaEsperaService.esperaEstimadaSegundos(funcionId)))
+                    .body("{\"error\": \"La fila de esta función está llena, intente más tarde\"}");
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(salaEsperaService.estadoJson(turno.get()));
+    }
+
+    // GET /api/sala-espera/{token} - Posición en la fila o vigencia del pase
+    @GetMapping("/{token}")
+    public ResponseEntity<?> obtenerEstado(@PathVariable String token) {
+        Optional<Turno> turno = salaEsperaService.buscar(token);
+        if (turno.isPresent()) {
+            return ResponseEntity.ok(salaEsperaService.estadoJson(turno.get()));
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // GET /api/sala-espera/{token}/eventos - Seguir la posición en la fila (SSE)
+    // Envía eventos "posicion" cada segundo y un evento "admitido" cuando el pase ya sirve para reservar
+    @GetMapping(value = "/{token}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> suscribir(@PathVariable String token) {
+        Optional<Turno> turno = salaEsperaService.buscar(token);
+        if (turno.isPresent()) {
+            return ResponseEntity.ok(salaEsperaService.suscribir(turno.get()));
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // DELETE /api/sala-espera/{token} - Salir de la fila o renunciar al pase
+    @DeleteMapping("/{token}")
+    public ResponseEntity<?> abandonar(@PathVariable String token) {
+        if (salaEsperaService.abandonar(token)) {
+            return ResponseEntity.ok("{\"mensaje\": \"Turno liberado exitosamente\"}");
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.utp.cinerama.cinerama.controller;
 
 import com.utp.cinerama.cinerama.model.Cliente;
+import com.utp.cinerama.cinerama.model.ResumenHora;
 import com.utp.cinerama.cinerama.model.VentaProducto;
 import com.utp.cinerama.cinerama.service.ClienteService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
 import com.utp.cinerama.cinerama.service.VentaProductoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -35,13 +38,13 @@ public class VentaProductoController {
         return ResponseEntity.ok(ventas);
     }
 
-    // GET /api/ventas-productos/{id} - Obtener venta por ID
+    // GET /api/ventas-productos/{id} - Obtener venta por ID (el ETag sirve como If-Match al cambiar cantidades)
     @GetMapping("/{id}")
     public ResponseEntity<VentaProducto> obtenerVentaPorId(@PathVariable Long id) {
         Optional<VentaProducto> venta = ventaProductoService.obtenerVentaPorId(id);
         
         if (venta.isPresent()) {
-            return ResponseEntity.ok(venta.get());
+            return ResponseEntity.ok().eTag(etagVenta(venta.get())).body(venta.get());
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -99,16 +102,20 @@ public class VentaProductoController {
         }
     }
 
-    // PUT /api/ventas-productos/{id}/productos/{productoId} - Actualizar cantidad
+    // PUT /api/ventas-productos/{id}/productos/{productoId} - Actualizar cantidad (acepta If-Match)
     @PutMapping("/{id}/productos/{productoId}")
     public ResponseEntity<?> actualizarCantidadProducto(
             @PathVariable Long id,
             @PathVariable Long productoId,
-            @RequestParam Integer cantidad) {
+            @RequestParam Integer cantidad,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         
         try {
-            VentaProducto venta = ventaProductoService.actualizarCantidadProducto(id, productoId, cantidad);
-            return ResponseEntity.ok(venta);
+            VentaProducto venta = ventaProductoService.actualizarCantidadProducto(id, productoId, cantidad,
+                    ContadorVersiones.versionEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(etagVenta(venta)).body(venta);
+        } catch (ContadorVersiones.ConflictoVersionException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"error\": \"" + e.getMessage() + "\"}");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
         }
@@ -140,6 +147,32 @@ public class VentaProductoController {
         return ResponseEntity.ok(ventas);
     }
 
+    // GET /api/ventas-productos/rango?desde=2025-01-01&hasta=2025-01-31 - Buscar entre dos fechas (inclusive)
+    @GetMapping("/rango")
+    public ResponseEntity<?> buscarEntreFechas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            List<VentaProducto> ventas = ventaProductoService.buscarEntreFechas(desde, hasta);
+            return ResponseEntity.ok(ventas);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/ventas-productos/reporte/horas?desde=2025-01-01&hasta=2025-01-01 - Cantidad y total vendido por hora
+    @GetMapping("/reporte/horas")
+    public ResponseEntity<?> obtenerVentasPorHora(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            List<ResumenHora> resumen = ventaProductoService.calcularVentasPorHora(desde, hasta != null ? hasta : desde);
+            return ResponseEntity.ok(resumen);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage() + "\"}");
+        }
+    }
+
     // GET /api/ventas-productos/completadas - Obtener ventas completadas
     @GetMapping("/completadas")
     public ResponseEntity<List<VentaProducto>> obtenerVentasCompletadas() {
@@ -153,4 +186,10 @@ public class VentaProductoController {
         List<VentaProducto> ventas = ventaProductoService.buscarVentasPendientes();
         return ResponseEntity.ok(ventas);
     }
-}
\ No newline at end of file
+
+    // Métodos auxiliares
+    // Mismo formato que las etiquetas de ContadorVersiones, para que un ETag de otro arranque no coincida
+    private String etagVenta(VentaProducto venta) {
+        return "\"venta-" + ContadorVersiones.arranque() + "-" + venta.getVersion() + "\"";
+    }
+}
@@ -0,0 +1,31 @@
+package com.utp.cinerama.cinerama.model;
+
+// Un ajuste de stock dentro de un lote (reposición, venta o conteo de inventario)
+public class AjusteStock {
+    private Long productoId;
+    private Operacion operacion;
+    private Integer cantidad;
+
+    public enum Operacion {
+        FIJAR, AUMENTAR, REDUCIR
+    }
+
+    public AjusteStock() {
+    }
+
+    public AjusteStock(Long productoId, Operacion operacion, Integer cantidad) {
+        this.productoId = productoId;
+        this.operacion = operacion;
+        this.cantidad = cantidad;
+    }
+
+    // Getters y Setters
+    public Long getProductoId() { return productoId; }
+    public void setProductoId(Long productoId) { this.productoId = productoId; }
+
+    public Operacion getOperacion() { return operacion; }
+    public void setOperacion(Operacion operacion) { this.operacion = operacion; }
+
+    public Integer getCantidad() { return cantidad; }
+    public void setCantidad(Integer cantidad) { this.cantidad = cantidad; }
+}
@@ -11,6 +11,7 @@ public class Boleto {
     private EstadoBoleto estado;
     private LocalDateTime fechaCompra; 
     private Cliente cliente;
+    private long version;
 
     public enum EstadoBoleto {
         RESERVADO("Reservado"),
@@ -46,6 +47,9 @@ public class Boleto {
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public Funcion getFuncion() { return funcion; }
     public void setFuncion(Funcion funcion) { this.funcion = funcion; }
@@ -70,6 +74,11 @@ public class Boleto {
         return estado == EstadoBoleto.PAGADO || estado == EstadoBoleto.RESERVADO;
     }
 
+    // Un boleto usado sigue ocupando su asiento durante la función; solo un boleto cancelado lo libera
+    public boolean ocupaAsiento() {
+        return estado != null && estado != EstadoBoleto.CANCELADO;
+    }
+
     public void marcarComoUsado() {
         if (estado == EstadoBoleto.PAGADO) {
             this.estado = EstadoBoleto.USADO;
@@ -0,0 +1,92 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Funciones próximas agrupadas por día, luego por película y luego por sala y hora,
+// con los asientos disponibles de cada función
+public class Cartelera {
+    private LocalDate desde;
+    private List<Dia> dias;
+
+    public static class Dia {
+        private LocalDate fecha;
+        private List<PeliculaEnCartel> peliculas;
+
+        public Dia(LocalDate fecha, List<PeliculaEnCartel> peliculas) {
+            this.fecha = fecha;
+            this.peliculas = peliculas;
+        }
+
+        public LocalDate getFecha() { return fecha; }
+        public List<PeliculaEnCartel> getPeliculas() { return peliculas; }
+    }
+
+    public static class PeliculaEnCartel {
+        private Long peliculaId;
+        private String titulo;
+        private String genero;
+        private Integer duracion;
+        private String clasificacion;
+        private BigDecimal precio;
+        private List<Horario> horarios;
+
+        public PeliculaEnCartel(Long peliculaId, String titulo, String genero, Integer duracion,
+                                String clasificacion, BigDecimal precio, List<Horario> horarios) {
+            this.peliculaId = peliculaId;
+            this.titulo = titulo;
+            this.genero = genero;
+            this.duracion = duracion;
+            this.clasificacion = clasificacion;
+            this.precio = precio;
+            this.horarios = horarios;
+        }
+
+        public Long getPeliculaId() { return peliculaId; }
+        public String getTitulo() { return titulo; }
+        public String getGenero() { return genero; }
+        public Integer getDuracion() { return duracion; }
+        public String getClasificacion() { return clasificacion; }
+        public BigDecimal getPrecio() { return precio; }
+        public List<Horario> getHorarios() { return horarios; }
+    }
+
+    public static class Horario {
+        private Long funcionId;
+        private Long salaId;
+        private String sala;
+        private Sala.TipoSala tipoSala;
+        private LocalTime hora;
+        private Integer asientosDisponibles;
+        private Integer asientosTotales;
+
+        public Horario(Funcion funcion) {
+            this.funcionId = funcion.getId();
+            this.salaId = funcion.getSala().getId();
+            this.sala = funcion.getSala().getNombre();
+            this.tipoSala = funcion.getSala().getTipo();
+            this.hora = funcion.getHora();
+            this.asientosDisponibles = funcion.getAsientosDisponibles();
+            this.asientosTotales = funcion.getAsientosTotales();
+        }
+
+        public Long getFuncionId() { return funcionId; }
+        public Long getSalaId() { return salaId; }
+        public String getSala() { return sala; }
+        public Sala.TipoSala getTipoSala() { return tipoSala; }
+        public LocalTime getHora() { return hora; }
+        public Integer getAsientosDisponibles() { return asientosDisponibles; }
+        public Integer getAsientosTotales() { return asientosTotales; }
+    }
+
+    public Cartelera(LocalDate desde, List<Dia> dias) {
+        this.desde = desde;
+        this.dias = dias;
+    }
+
+    // Getters
+    public LocalDate getDesde() { return desde; }
+    public List<Dia> getDias() { return dias; }
+}
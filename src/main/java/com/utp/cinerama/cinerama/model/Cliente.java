@@ -8,6 +8,7 @@ public class Cliente {
     private String telefono;
     private String numeroDocumento;  
     private TipoDocumento tipoDocumento; 
+    private long version;
 
     // Enum para tipo de documento
     public enum TipoDocumento {
@@ -43,6 +44,9 @@ public class Cliente {
     // Getters y Setters originales
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = nombre; }
@@ -0,0 +1,23 @@
+package com.utp.cinerama.cinerama.model;
+
+// Valor y su cantidad estimada (ej: producto y unidades vendidas)
+public class ConteoEstimado {
+    private Long id;   // Id de la película o producto contado, si el valor es su nombre
+    private String valor;
+    private long cantidad;
+
+    public ConteoEstimado(String valor, long cantidad) {
+        this.valor = valor;
+        this.cantidad = cantidad;
+    }
+
+    public ConteoEstimado(Long id, String valor, long cantidad) {
+        this(valor, cantidad);
+        this.id = id;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getValor() { return valor; }
+    public long getCantidad() { return cantidad; }
+}
@@ -0,0 +1,61 @@
+package com.utp.cinerama.cinerama.model;
+
+// Disposición de los asientos de una sala: filas A-Z con hasta 20 asientos cada una.
+// El asiento "C7" ocupa el índice (2 * 20) + 6 en el mapa de asientos de la función.
+public final class DisposicionAsientos {
+
+    public static final int FILAS = 26;
+    public static final int ASIENTOS_POR_FILA = 20;
+    public static final int CAPACIDAD_MAXIMA = FILAS * ASIENTOS_POR_FILA;
+
+    private DisposicionAsientos() {
+    }
+
+    // Devuelve el índice del asiento o -1 si no pertenece a la disposición
+    public static int indice(String asiento) {
+        if (asiento == null || asiento.length() < 2) {
+            return -1;
+        }
+
+        char fila = asiento.charAt(0);
+        if (fila < 'A' || fila > 'Z') {
+            return -1;
+        }
+        // "A01" sería otro nombre para A1: el mapa lo tomaría como un asiento libre distinto
+        if (asiento.charAt(1) == '0') {
+            return -1;
+        }
+
+        int numero = 0;
+        for (int i = 1; i < asiento.length(); i++) {
+            char c = asiento.charAt(i);
+            if (c < '0' || c > '9' || numero > ASIENTOS_POR_FILA) {
+                return -1;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+
+        if (numero < 1 || numero > ASIENTOS_POR_FILA) {
+            return -1;
+        }
+        return (fila - 'A') * ASIENTOS_POR_FILA + (numero - 1);
+    }
+
+    public static String asiento(int indice) {
+        char fila = (char) ('A' + indice / ASIENTOS_POR_FILA);
+        return fila + String.valueOf(indice % ASIENTOS_POR_FILA + 1);
+    }
+
+    public static int fila(int indice) {
+        return indice / ASIENTOS_POR_FILA;
+    }
+
+    public static int columna(int indice) {
+        return indice % ASIENTOS_POR_FILA;
+    }
+
+    // Cantidad de filas usadas por una sala con la capacidad dada
+    public static int filasPara(int capacidad) {
+        return (Math.min(capacidad, CAPACIDAD_MAXIMA) + ASIENTOS_POR_FILA - 1) / ASIENTOS_POR_FILA;
+    }
+}
@@ -0,0 +1,24 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.time.LocalDateTime;
+
+// Escaneo hecho por un lector sin conexión, que lo envía al recuperarla
+public class EscaneoPendiente {
+    private String codigo;               // Id del boleto o código QR firmado
+    private LocalDateTime escaneadoEn;
+
+    public EscaneoPendiente() {
+    }
+
+    public EscaneoPendiente(String codigo, LocalDateTime escaneadoEn) {
+        this.codigo = codigo;
+        this.escaneadoEn = escaneadoEn;
+    }
+
+    // Getters y Setters
+    public String getCodigo() { return codigo; }
+    public void setCodigo(String codigo) { this.codigo = codigo; }
+
+    public LocalDateTime getEscaneadoEn() { return escaneadoEn; }
+    public void setEscaneadoEn(LocalDateTime escaneadoEn) { this.escaneadoEn = escaneadoEn; }
+}
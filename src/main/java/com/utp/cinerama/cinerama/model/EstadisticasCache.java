@@ -0,0 +1,35 @@
+package com.utp.cinerama.cinerama.model;
+
+// Métricas de la caché de respuestas desde el arranque
+public class EstadisticasCache {
+    private long aciertos;
+    private long fallos;
+    private double tasaAciertos;
+    private long desalojos;
+    private long invalidaciones;
+    private long entradas;
+    private long bytes;
+    private long maxBytes;
+
+    public EstadisticasCache(long aciertos, long fallos, double tasaAciertos, long desalojos,
+                             long invalidaciones, long entradas, long bytes, long maxBytes) {
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.tasaAciertos = tasaAciertos;
+        this.desalojos = desalojos;
+        this.invalidaciones = invalidaciones;
+        this.entradas = entradas;
+        this.bytes = bytes;
+        this.maxBytes = maxBytes;
+    }
+
+    // Getters
+    public long getAciertos() { return aciertos; }
+    public long getFallos() { return fallos; }
+    public double getTasaAciertos() { return tasaAciertos; }
+    public long getDesalojos() { return desalojos; }
+    public long getInvalidaciones() { return invalidaciones; }
+    public long getEntradas() { return entradas; }
+    public long getBytes() { return bytes; }
+    public long getMaxBytes() { return maxBytes; }
+}
@@ -0,0 +1,53 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.util.List;
+
+// Reglas vigentes del limitador de tasa y sus decisiones desde el arranque (o desde la última recarga)
+public class EstadisticasLimite {
+    private boolean habilitado;
+    private long cubetasActivas;
+    private long cubetasDesalojadas;
+    private List<Regla> reglas;
+
+    public static class Regla {
+        private String nombre;
+        private String metodo;
+        private String patron;
+        private double tasaPorSegundo;
+        private int rafaga;
+        private long permitidas;
+        private long rechazadas;
+
+        public Regla(String nombre, String metodo, String patron, double tasaPorSegundo, int rafaga,
+                     long permitidas, long rechazadas) {
+            this.nombre = nombre;
+            this.metodo = metodo;
+            this.patron = patron;
+            this.tasaPorSegundo = tasaPorSegundo;
+            this.rafaga = rafaga;
+            this.permitidas = permitidas;
+            this.rechazadas = rechazadas;
+        }
+
+        public String getNombre() { return nombre; }
+        public String getMetodo() { return metodo; }
+        public String getPatron() { return patron; }
+        public double getTasaPorSegundo() { return tasaPorSegundo; }
+        public int getRafaga() { return rafaga; }
+        public long getPermitidas() { return permitidas; }
+        public long getRechazadas() { return rechazadas; }
+    }
+
+    public EstadisticasLimite(boolean habilitado, long cubetasActivas, long cubetasDesalojadas, List<Regla> reglas) {
+        this.habilitado = habilitado;
+        this.cubetasActivas = cubetasActivas;
+        this.cubetasDesalojadas = cubetasDesalojadas;
+        this.reglas = reglas;
+    }
+
+    // Getters
+    public boolean isHabilitado() { return habilitado; }
+    public long getCubetasActivas() { return cubetasActivas; }
+    public long getCubetasDesalojadas() { return cubetasDesalojadas; }
+    public List<Regla> getReglas() { return reglas; }
+}
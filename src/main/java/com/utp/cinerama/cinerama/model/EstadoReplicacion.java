@@ -0,0 +1,40 @@
+package com.utp.cinerama.cinerama.model;
+
+// Estado de la replicación en este nodo. En el primario interesan la última secuencia del log y
+// las réplicas conectadas; en una réplica, lo aplicado y el retraso respecto del primario.
+public class EstadoReplicacion {
+    private String rol;
+    private String origen;              // Identificador del log del primario (cambia si el primario reinicia)
+    private boolean conectada;
+    private boolean sincronizada;       // La réplica ya recibió una instantánea completa
+    private long secuenciaAplicada;
+    private long secuenciaPrimario;
+    private long retrasoMs;             // -1 mientras la réplica no está sincronizada
+    private int replicasConectadas;
+    private long entradasEnLog;
+
+    public EstadoReplicacion(String rol, String origen, boolean conectada, boolean sincronizada,
+                             long secuenciaAplicada, long secuenciaPrimario, long retrasoMs,
+                             int replicasConectadas, long entradasEnLog) {
+        this.rol = rol;
+        this.origen = origen;
+        this.conectada = conectada;
+        this.sincronizada = sincronizada;
+        this.secuenciaAplicada = secuenciaAplicada;
+        this.secuenciaPrimario = secuenciaPrimario;
+        this.retrasoMs = retrasoMs;
+        this.replicasConectadas = replicasConectadas;
+        this.entradasEnLog = entradasEnLog;
+    }
+
+    // Getters
+    public String getRol() { return rol; }
+    public String getOrigen() { return origen; }
+    public boolean isConectada() { return conectada; }
+    public boolean isSincronizada() { return sincronizada; }
+    public long getSecuenciaAplicada() { return secuenciaAplicada; }
+    public long getSecuenciaPrimario() { return secuenciaPrimario; }
+    public long getRetrasoMs() { return retrasoMs; }
+    public int getReplicasConectadas() { return replicasConectadas; }
+    public long getEntradasEnLog() { return entradasEnLog; }
+}
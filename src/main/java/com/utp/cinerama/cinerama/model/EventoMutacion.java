@@ -0,0 +1,35 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.time.LocalDate;
+
+// Aviso publicado por un servicio del catálogo después de modificar una entidad.
+// Un id nulo indica que cambiaron varias entidades de ese tipo (ej: una importación masiva).
+public class EventoMutacion {
+
+    public enum Entidad {
+        PELICULA,
+        SALA,
+        PRODUCTO,
+        FUNCION,
+        BOLETO
+    }
+
+    private final Entidad entidad;
+    private final Long id;
+    private final LocalDate fecha; // Solo para funciones: el día afectado por el cambio
+
+    public EventoMutacion(Entidad entidad, Long id) {
+        this(entidad, id, null);
+    }
+
+    public EventoMutacion(Entidad entidad, Long id, LocalDate fecha) {
+        this.entidad = entidad;
+        this.id = id;
+        this.fecha = fecha;
+    }
+
+    // Getters
+    public Entidad getEntidad() { return entidad; }
+    public Long getId() { return id; }
+    public LocalDate getFecha() { return fecha; }
+}
@@ -11,6 +11,7 @@ public class Funcion {
     private LocalTime hora;
     private Integer asientosDisponibles;
     private Integer asientosTotales;
+    private long version;               // Cambia también al reservar o liberar asientos
 
     public Funcion() {
     }
@@ -29,6 +30,9 @@ public class Funcion {
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public Pelicula getPelicula() { return pelicula; }
     public void setPelicula(Pelicula pelicula) { this.pelicula = pelicula; }
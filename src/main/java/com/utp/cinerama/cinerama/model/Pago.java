@@ -2,6 +2,8 @@ package com.utp.cinerama.cinerama.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Pago {
     private Long id;
@@ -10,9 +12,13 @@ public class Pago {
     private Cliente cliente;          
     private MetodoPago metodo;        
     private String numeroTarjeta;     
-    private EstadoPago estado;        
+    // Lo modifican los hilos de trabajo de pagos mientras otros hilos lo consultan
+    private volatile EstadoPago estado;
     private LocalDateTime fechaPago;  
     private TipoComprobante tipoComprobante;  
+    private String codigoAutorizacion;  // Devuelto por la pasarela al aprobar
+    private String motivoRechazo;       // Devuelto por la pasarela al rechazar
+    private List<Long> boletosIds = new ArrayList<>();  // Boletos que se pagan (vacío en ventas de productos)
     
     // Tipos de métodos de pago disponibles
     public enum MetodoPago {
@@ -120,15 +126,30 @@ public class Pago {
     public TipoComprobante getTipoComprobante() { return tipoComprobante; }
     public void setTipoComprobante(TipoComprobante tipoComprobante) { this.tipoComprobante = tipoComprobante; }
     
+    public String getCodigoAutorizacion() { return codigoAutorizacion; }
+    public void setCodigoAutorizacion(String codigoAutorizacion) { this.codigoAutorizacion = codigoAutorizacion; }
+
+    public String getMotivoRechazo() { return motivoRechazo; }
+    public void setMotivoRechazo(String motivoRechazo) { this.motivoRechazo = motivoRechazo; }
+    
+    public List<Long> getBoletosIds() { return boletosIds; }
+    public void setBoletosIds(List<Long> boletosIds) { this.boletosIds = boletosIds; }
+    
     // Métodos básicos de negocio
     public void completarPago() {
-        this.estado = EstadoPago.COMPLETADO;
+        // El estado se escribe al final para que quien lo lea vea también la fecha
         this.fechaPago = LocalDateTime.now();
+        this.estado = EstadoPago.COMPLETADO;
     }
     
     public void rechazarPago() {
         this.estado = EstadoPago.RECHAZADO;
     }
+
+    public void rechazarPago(String motivo) {
+        this.motivoRechazo = motivo;
+        rechazarPago();
+    }
     
     public boolean estaPagado() {
         return estado == EstadoPago.COMPLETADO;
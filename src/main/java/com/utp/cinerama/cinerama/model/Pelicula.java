@@ -10,6 +10,7 @@ public class Pelicula {
     private String clasificacion;
     private String sinopsis;
     private BigDecimal precio;
+    private long version;
 
     
     public Pelicula() {
@@ -30,6 +31,9 @@ public class Pelicula {
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public String getTitulo() { return titulo; }
     public void setTitulo(String titulo) { this.titulo = titulo; }
@@ -49,6 +53,14 @@ public class Pelicula {
     public BigDecimal getPrecio() { return precio; }
     public void setPrecio(BigDecimal precio) { this.precio = precio; }
 
+    // Las instancias publicadas por PeliculaService no se modifican: para cambiar una película el
+    // servicio trabaja sobre una copia y la publica en su lugar
+    public Pelicula copia() {
+        Pelicula copia = new Pelicula(id, titulo, genero, duracion, clasificacion, sinopsis, precio);
+        copia.version = version;
+        return copia;
+    }
+
     // Método útil para mostrar duración formateada
     public String getDuracionFormateada() {
         if (duracion == null) return "0h 0m";
@@ -11,6 +11,7 @@ public class Producto {
     private Integer stock;
     private Boolean activo;
     private String imagenUrl;  // URL de la imagen del producto
+    private long version;
 
     public enum CategoriaProducto {
         PALOMITAS("Palomitas"),
@@ -48,6 +49,9 @@ public class Producto {
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = nombre; }
@@ -70,6 +74,13 @@ public class Producto {
     public String getImagenUrl() { return imagenUrl; }
     public void setImagenUrl(String imagenUrl) { this.imagenUrl = imagenUrl; }
 
+    // Los ajustes de stock y las ediciones se aplican sobre una copia, que luego reemplaza a la publicada
+    public Producto copia() {
+        Producto copia = new Producto(id, nombre, descripcion, categoria, precio, stock, activo, imagenUrl);
+        copia.version = version;
+        return copia;
+    }
+
     // Métodos de negocio
     public boolean tieneStock() {
         return stock != null && stock > 0;
@@ -0,0 +1,59 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reporte agrupado por una o más dimensiones (ej: película x día x sala) con las medidas pedidas.
+// Las medidas no solicitadas quedan en null.
+public class ReporteMultidimensional {
+    private String tabla;
+    private List<String> dimensiones;
+    private List<String> medidas;
+    private long filasRecorridas;
+    private int particiones;
+    private long duracionMicros;
+    private List<Fila> filas = new ArrayList<>();
+
+    // Valores de las dimensiones, en el mismo orden que 'dimensiones', y sus medidas
+    public static class Fila {
+        private List<String> valores;
+        private Long cantidad;
+        private BigDecimal ingreso;
+        private Long clientesDistintos;  // Estimado con HyperLogLog
+
+        public Fila(List<String> valores, Long cantidad, BigDecimal ingreso, Long clientesDistintos) {
+            this.valores = valores;
+            this.cantidad = cantidad;
+            this.ingreso = ingreso;
+            this.clientesDistintos = clientesDistintos;
+        }
+
+        public List<String> getValores() { return valores; }
+        public Long getCantidad() { return cantidad; }
+        public BigDecimal getIngreso() { return ingreso; }
+        public Long getClientesDistintos() { return clientesDistintos; }
+    }
+
+    public ReporteMultidimensional(String tabla, List<String> dimensiones, List<String> medidas) {
+        this.tabla = tabla;
+        this.dimensiones = dimensiones;
+        this.medidas = medidas;
+    }
+
+    // Getters y Setters
+    public String getTabla() { return tabla; }
+    public List<String> getDimensiones() { return dimensiones; }
+    public List<String> getMedidas() { return medidas; }
+
+    public long getFilasRecorridas() { return filasRecorridas; }
+    public void setFilasRecorridas(long filasRecorridas) { this.filasRecorridas = filasRecorridas; }
+
+    public int getParticiones() { return particiones; }
+    public void setParticiones(int particiones) { this.particiones = particiones; }
+
+    public long getDuracionMicros() { return duracionMicros; }
+    public void setDuracionMicros(long duracionMicros) { this.duracionMicros = duracionMicros; }
+
+    public List<Fila> getFilas() { return filas; }
+}
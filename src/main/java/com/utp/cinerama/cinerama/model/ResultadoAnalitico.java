@@ -0,0 +1,50 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de una consulta de agrupación sobre el almacén analítico
+public class ResultadoAnalitico {
+    private String tabla;
+    private String agruparPor;
+    private String sumar;
+    private long filasRecorridas;
+    private long duracionMicros;
+    private List<Grupo> grupos = new ArrayList<>();
+
+    // Un valor de la columna agrupada con su cantidad de filas y la suma de la columna pedida
+    public static class Grupo {
+        private String valor;
+        private long filas;
+        private long suma;
+
+        public Grupo(String valor, long filas, long suma) {
+            this.valor = valor;
+            this.filas = filas;
+            this.suma = suma;
+        }
+
+        public String getValor() { return valor; }
+        public long getFilas() { return filas; }
+        public long getSuma() { return suma; }
+    }
+
+    public ResultadoAnalitico(String tabla, String agruparPor, String sumar) {
+        this.tabla = tabla;
+        this.agruparPor = agruparPor;
+        this.sumar = sumar;
+    }
+
+    // Getters y Setters
+    public String getTabla() { return tabla; }
+    public String getAgruparPor() { return agruparPor; }
+    public String getSumar() { return sumar; }
+
+    public long getFilasRecorridas() { return filasRecorridas; }
+    public void setFilasRecorridas(long filasRecorridas) { this.filasRecorridas = filasRecorridas; }
+
+    public long getDuracionMicros() { return duracionMicros; }
+    public void setDuracionMicros(long duracionMicros) { this.duracionMicros = duracionMicros; }
+
+    public List<Grupo> getGrupos() { return grupos; }
+}
@@ -0,0 +1,69 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class ResultadoImportacion {
+    private long totalLineas;
+    private long importados;
+    private long duracionMs;
+    private List<ErrorLinea> errores = new ArrayList<>();
+
+    public static class ErrorLinea {
+        private long linea;
+        private String error;
+
+        public ErrorLinea() {
+        }
+
+        public ErrorLinea(long linea, String error) {
+            this.linea = linea;
+            this.error = error;
+        }
+
+        // Getters y Setters
+        public long getLinea() { return linea; }
+        public void setLinea(long linea) { this.linea = linea; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+
+    public ResultadoImportacion() {
+    }
+
+    // Métodos de negocio
+    public void registrarLinea() {
+        totalLineas++;
+    }
+
+    public void registrarImportado() {
+        importados++;
+    }
+
+    public void registrarError(long linea, String error) {
+        errores.add(new ErrorLinea(linea, error));
+    }
+
+    public void ordenarErrores() {
+        errores.sort(Comparator.comparingLong(ErrorLinea::getLinea));
+    }
+
+    // Getters y Setters
+    public long getTotalLineas() { return totalLineas; }
+    public void setTotalLineas(long totalLineas) { this.totalLineas = totalLineas; }
+
+    public long getImportados() { return importados; }
+    public void setImportados(long importados) { this.importados = importados; }
+
+    public long getDuracionMs() { return duracionMs; }
+    public void setDuracionMs(long duracionMs) { this.duracionMs = duracionMs; }
+
+    public List<ErrorLinea> getErrores() { return errores; }
+    public void setErrores(List<ErrorLinea> errores) { this.errores = errores; }
+
+    public long getRechazados() {
+        return errores.size();
+    }
+}
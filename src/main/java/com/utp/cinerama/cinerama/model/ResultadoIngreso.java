@@ -0,0 +1,68 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.time.LocalDateTime;
+
+// Respuesta al escanear un boleto en la puerta de la sala
+public class ResultadoIngreso {
+    private Veredicto veredicto;
+    private Long boletoId;
+    private Long funcionId;
+    private String asiento;
+    private LocalDateTime primerIngreso;   // Para ADMITIDO y DUPLICADO
+    private String mensaje;
+
+    public enum Veredicto {
+        ADMITIDO("Boleto válido, puede ingresar"),
+        DUPLICADO("El boleto ya fue usado"),
+        NO_PAGADO("El boleto está reservado pero no pagado"),
+        CANCELADO("El boleto fue cancelado"),
+        OTRA_FUNCION("El boleto es de otra función"),
+        NO_ENCONTRADO("Boleto no encontrado"),
+        CODIGO_INVALIDO("El código no es válido o su firma no coincide");
+
+        private final String descripcion;
+
+        Veredicto(String descripcion) {
+            this.descripcion = descripcion;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+    }
+
+    public ResultadoIngreso() {
+    }
+
+    public ResultadoIngreso(Veredicto veredicto, Long boletoId, Long funcionId, String asiento, LocalDateTime primerIngreso) {
+        this.veredicto = veredicto;
+        this.boletoId = boletoId;
+        this.funcionId = funcionId;
+        this.asiento = asiento;
+        this.primerIngreso = primerIngreso;
+        this.mensaje = veredicto.getDescripcion();
+    }
+
+    public boolean isAdmitido() {
+        return veredicto == Veredicto.ADMITIDO;
+    }
+
+    // Getters y Setters
+    public Veredicto getVeredicto() { return veredicto; }
+    public void setVeredicto(Veredicto veredicto) { this.veredicto = veredicto; }
+
+    public Long getBoletoId() { return boletoId; }
+    public void setBoletoId(Long boletoId) { this.boletoId = boletoId; }
+
+    public Long getFuncionId() { return funcionId; }
+    public void setFuncionId(Long funcionId) { this.funcionId = funcionId; }
+
+    public String getAsiento() { return asiento; }
+    public void setAsiento(String asiento) { this.asiento = asiento; }
+
+    public LocalDateTime getPrimerIngreso() { return primerIngreso; }
+    public void setPrimerIngreso(LocalDateTime primerIngreso) { this.primerIngreso = primerIngreso; }
+
+    public String getMensaje() { return mensaje; }
+    public void setMensaje(String mensaje) { this.mensaje = mensaje; }
+}
@@ -0,0 +1,60 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Resultado de una operación por lotes: un elemento por cada entrada recibida, en el mismo orden.
+// Cada entrada se resuelve por separado, así que un lote puede tener éxitos y errores a la vez.
+public class ResultadoLote {
+    private final List<Elemento> elementos;
+    private long duracionMs;
+
+    public static class Elemento {
+        private Long id;
+        private boolean exito;
+        private String detalle;   // Estado o valor resultante cuando la entrada se aplicó
+        private String error;
+
+        public Elemento(Long id, boolean exito, String detalle, String error) {
+            this.id = id;
+            this.exito = exito;
+            this.detalle = detalle;
+            this.error = error;
+        }
+
+        public Long getId() { return id; }
+        public boolean isExito() { return exito; }
+        public String getDetalle() { return detalle; }
+        public String getError() { return error; }
+    }
+
+    public ResultadoLote(int cantidad) {
+        this.elementos = new ArrayList<>(Collections.nCopies(cantidad, null));
+    }
+
+    // Métodos de negocio
+    // Las entradas pueden resolverse en otro orden (por ejemplo, agrupadas por función); la posición
+    // es la que tenían en la petición
+    public void registrarExito(int posicion, Long id, String detalle) {
+        elementos.set(posicion, new Elemento(id, true, detalle, null));
+    }
+
+    public void registrarError(int posicion, Long id, String error) {
+        elementos.set(posicion, new Elemento(id, false, null, error));
+    }
+
+    // Getters y Setters
+    public List<Elemento> getElementos() { return elementos; }
+
+    public long getDuracionMs() { return duracionMs; }
+    public void setDuracionMs(long duracionMs) { this.duracionMs = duracionMs; }
+
+    public long getExitosos() {
+        return elementos.stream().filter(elemento -> elemento != null && elemento.isExito()).count();
+    }
+
+    public long getFallidos() {
+        return elementos.size() - getExitosos();
+    }
+}
@@ -0,0 +1,29 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Cantidad y monto de las operaciones de una hora
+public class ResumenHora {
+    private LocalDateTime hora;
+    private long cantidad;
+    private BigDecimal total;
+
+    public ResumenHora(LocalDateTime hora) {
+        this.hora = hora;
+        this.cantidad = 0;
+        this.total = BigDecimal.ZERO;
+    }
+
+    public void registrar(BigDecimal monto) {
+        cantidad++;
+        if (monto != null) {
+            total = total.add(monto);
+        }
+    }
+
+    // Getters
+    public LocalDateTime getHora() { return hora; }
+    public long getCantidad() { return cantidad; }
+    public BigDecimal getTotal() { return total; }
+}
@@ -0,0 +1,62 @@
+package com.utp.cinerama.cinerama.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Ventas acumuladas de un período: boletos, productos y pagos, con el desglose por
+// sala, película, método de pago y categoría de producto
+public class ResumenVentas {
+    private LocalDate desde;
+    private LocalDate hasta;
+    private Detalle boletos;
+    private Detalle productos;
+    private Detalle pagos;
+    private Map<String, Detalle> porSala = new TreeMap<>();
+    private Map<String, Detalle> porPelicula = new TreeMap<>();
+    private Map<String, Detalle> porMetodoPago = new TreeMap<>();
+    private Map<String, Detalle> porCategoriaProducto = new TreeMap<>();
+
+    // Cantidad de unidades y monto total
+    public static class Detalle {
+        private long cantidad;
+        private BigDecimal total;
+
+        public Detalle(long cantidad, BigDecimal total) {
+            this.cantidad = cantidad;
+            this.total = total;
+        }
+
+        public long getCantidad() { return cantidad; }
+        public BigDecimal getTotal() { return total; }
+    }
+
+    public ResumenVentas(LocalDate desde, LocalDate hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    // Getters y Setters
+    public LocalDate getDesde() { return desde; }
+    public LocalDate getHasta() { return hasta; }
+
+    public Detalle getBoletos() { return boletos; }
+    public void setBoletos(Detalle boletos) { this.boletos = boletos; }
+
+    public Detalle getProductos() { return productos; }
+    public void setProductos(Detalle productos) { this.productos = productos; }
+
+    public Detalle getPagos() { return pagos; }
+    public void setPagos(Detalle pagos) { this.pagos = pagos; }
+
+    public Map<String, Detalle> getPorSala() { return porSala; }
+    public Map<String, Detalle> getPorPelicula() { return porPelicula; }
+    public Map<String, Detalle> getPorMetodoPago() { return porMetodoPago; }
+    public Map<String, Detalle> getPorCategoriaProducto() { return porCategoriaProducto; }
+
+    // Ingreso total del período (boletos + productos)
+    public BigDecimal getIngresoTotal() {
+        return boletos.getTotal().add(productos.getTotal());
+    }
+}
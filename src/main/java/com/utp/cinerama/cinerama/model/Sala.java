@@ -7,6 +7,7 @@ public class Sala {
     private Integer capacidadTotal;     // Cantidad total de asientos
     private TipoSala tipo;             // Tipo de sala 
     private Boolean estado;            // Activa/Inactiva
+    private long version;              // Control de concurrencia optimista
 
     public enum TipoSala {
         NORMAL("Normal"),
@@ -41,6 +42,9 @@ public class Sala {
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public String getNombre() { return nombre; }
     public void setNombre(String nombre) { this.nombre = nombre; }
@@ -57,6 +61,13 @@ public class Sala {
     public Boolean getEstado() { return estado; }
     public void setEstado(Boolean estado) { this.estado = estado; }
 
+    // Copia para modificar sin tocar la instancia que ya ven los lectores
+    public Sala copia() {
+        Sala copia = new Sala(id, nombre, descripcion, capacidadTotal, tipo, estado);
+        copia.version = version;
+        return copia;
+    }
+
     // Métodos de negocio
     public boolean estaActiva() {
         return estado != null && estado;
@@ -0,0 +1,22 @@
+package com.utp.cinerama.cinerama.model;
+
+// Un pago a procesar dentro de un lote; sin número de tarjeta se procesa como pago con app
+public class SolicitudPago {
+    private Long pagoId;
+    private String numeroTarjeta;
+
+    public SolicitudPago() {
+    }
+
+    public SolicitudPago(Long pagoId, String numeroTarjeta) {
+        this.pagoId = pagoId;
+        this.numeroTarjeta = numeroTarjeta;
+    }
+
+    // Getters y Setters
+    public Long getPagoId() { return pagoId; }
+    public void setPagoId(Long pagoId) { this.pagoId = pagoId; }
+
+    public String getNumeroTarjeta() { return numeroTarjeta; }
+    public void setNumeroTarjeta(String numeroTarjeta) { this.numeroTarjeta = numeroTarjeta; }
+}
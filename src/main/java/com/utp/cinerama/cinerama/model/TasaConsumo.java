@@ -0,0 +1,23 @@
+package com.utp.cinerama.cinerama.model;
+
+// Boletos de una película y cuántos de ellos fueron de clientes que compraron productos el mismo día
+public class TasaConsumo {
+    private String pelicula;
+    private long boletos;
+    private long boletosConConsumo;
+
+    public TasaConsumo(String pelicula, long boletos, long boletosConConsumo) {
+        this.pelicula = pelicula;
+        this.boletos = boletos;
+        this.boletosConConsumo = boletosConConsumo;
+    }
+
+    // Getters
+    public String getPelicula() { return pelicula; }
+    public long getBoletos() { return boletos; }
+    public long getBoletosConConsumo() { return boletosConConsumo; }
+
+    public double getTasa() {
+        return boletos > 0 ? (double) boletosConConsumo / boletos : 0.0;
+    }
+}
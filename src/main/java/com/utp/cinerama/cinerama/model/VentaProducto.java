@@ -13,6 +13,7 @@ public class VentaProducto {
     private Cliente cliente; // Opcional, puede ser null para ventas sin registro
     private String metodoPago; // "EFECTIVO", "TARJETA", etc.
     private Boolean completada;
+    private long version; // Sube con cada cambio de productos o de estado; se compara con If-Match
 
     public static class DetalleVentaProducto {
         private Producto producto;
@@ -125,6 +126,9 @@ public class VentaProducto {
     // Getters y Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     
     public List<DetalleVentaProducto> getDetalles() { return detalles; }
     public void setDetalles(List<DetalleVentaProducto> detalles) { 
@@ -0,0 +1,240 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.model.Pago;
+import com.utp.cinerama.cinerama.model.ResultadoAnalitico;
+import com.utp.cinerama.cinerama.model.TasaConsumo;
+import com.utp.cinerama.cinerama.model.VentaProducto;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Copia de las ventas cerradas en tablas columnares para consultas analíticas sobre todo el historial
+// (ocupación por hora de la semana, ingresos por género, consumo de productos por película, ...).
+// Cada boleto pagado agrega una fila VENDIDO y cada anulación una fila ANULADO con el monto negativo,
+// así la suma de 'centimos' es siempre el ingreso neto.
+@Service
+public class AlmacenAnaliticoService {
+
+    private static final int MINUTOS_POR_DIA = 24 * 60;
+
+    private final TablaColumnar boletos = new TablaColumnar("boletos",
+            new String[] {"pelicula", "genero", "sala", "cliente", "estado", "horaSemana", "minutoVenta", "minutoFuncion", "centimos"},
+            new TablaColumnar.Tipo[] {
+                    TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO,
+                    TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.HORA_SEMANA,
+                    TablaColumnar.Tipo.NUMERO, TablaColumnar.Tipo.NUMERO, TablaColumnar.Tipo.NUMERO});
+
+    private final TablaColumnar productos = new TablaColumnar("productos",
+            new String[] {"producto", "categoria", "cliente", "horaSemana", "minutoVenta", "cantidad", "centimos"},
+            new TablaColumnar.Tipo[] {
+                    TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO,
+                    TablaColumnar.Tipo.HORA_SEMANA, TablaColumnar.Tipo.NUMERO, TablaColumnar.Tipo.NUMERO,
+                    TablaColumnar.Tipo.NUMERO});
+
+    private final TablaColumnar pagos = new TablaColumnar("pagos",
+            new String[] {"metodo", "comprobante", "cliente", "horaSemana", "minutoVenta", "centimos"},
+            new TablaColumnar.Tipo[] {
+                    TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO, TablaColumnar.Tipo.TEXTO,
+                    TablaColumnar.Tipo.HORA_SEMANA, TablaColumnar.Tipo.NUMERO, TablaColumnar.Tipo.NUMERO});
+
+    // Boleto vendido (signo 1) o anulado (signo -1)
+    public void registrarBoleto(Boleto boleto, LocalDateTime fecha, int signo) {
+        Funcion funcion = boleto.getFuncion();
+        LocalDateTime inicioFuncion = funcion != null && funcion.getFecha() != null && funcion.getHora() != null
+                ? funcion.getFecha().atTime(funcion.getHora())
+                : fecha;
+
+        boletos.agregar(
+                funcion != null && funcion.getPelicula() != null ? funcion.getPelicula().getTitulo() : null,
+                funcion != null && funcion.getPelicula() != null ? funcion.getPelicula().getGenero() : null,
+                funcion != null && funcion.getSala() != null ? funcion.getSala().getNombre() : null,
+                boleto.getCliente() != null ? String.valueOf(boleto.getCliente().getId()) : null,
+                signo > 0 ? "VENDIDO" : "ANULADO",
+                TablaColumnar.horaSemana(inicioFuncion.getDayOfWeek(), inicioFuncion.getHour()),
+                minuto(fecha),
+                minuto(inicioFuncion),
+                signo * centimos(boleto.getPrecio()));
+    }
+
+    // Venta de productos completada: una fila por detalle
+    public void registrarVentaProductos(VentaProducto venta, LocalDateTime fecha) {
+        String cliente = venta.getCliente() != null ? String.valueOf(venta.getCliente().getId()) : null;
+        for (VentaProducto.DetalleVentaProducto detalle : venta.getDetalles()) {
+            productos.agregar(
+                    detalle.getProducto() != null ? detalle.getProducto().getNombre() : null,
+                    detalle.getProducto() != null && detalle.getProducto().getCategoria() != null
+                            ? detalle.getProducto().getCategoria().name() : null,
+                    cliente,
+                    TablaColumnar.horaSemana(fecha.getDayOfWeek(), fecha.getHour()),
+                    minuto(fecha),
+                    detalle.getCantidad(),
+                    centimos(detalle.getSubtotal()));
+        }
+    }
+
+    // Pago completado
+    public void registrarPago(Pago pago, LocalDateTime fecha) {
+        pagos.agregar(
+                pago.getMetodo() != null ? pago.getMetodo().name() : null,
+                pago.getTipoComprobante() != null ? pago.getTipoComprobante().name() : null,
+                pago.getCliente() != null ? String.valueOf(pago.getCliente().getId()) : null,
+                TablaColumnar.horaSemana(fecha.getDayOfWeek(), fecha.getHour()),
+                minuto(fecha),
+                centimos(pago.getMonto()));
+    }
+
+    // Agrupa una tabla por una columna; 'sumar' es opcional y los filtros son de igualdad.
+    // desde/hasta (inclusive) filtran por la fecha de venta.
+    public ResultadoAnalitico consultar(String nombreTabla, String agruparPor, String sumar,
+                                        Map<String, String> filtros, LocalDate desde, LocalDate hasta) {
+        TablaColumnar tabla = tabla(nombreTabla);
+        long inicio = System.nanoTime();
+        int filas = tabla.getFilas();
+
+        List<ResultadoAnalitico.Grupo> grupos = tabla.agrupar(agruparPor, sumar, filtros, "minutoVenta",
+                desde != null ? minuto(desde.atStartOfDay()) : null,
+                hasta != null ? minuto(hasta.plusDays(1).atStartOfDay()) - 1 : null);
+
+        ResultadoAnalitico resultado = new ResultadoAnalitico(tabla.getNombre(), agruparPor, sumar);
+        resultado.getGrupos().addAll(grupos);
+        resultado.setFilasRecorridas(filas);
+        resultado.setDuracionMicros((System.nanoTime() - inicio) / 1000);
+        return resultado;
+    }
+
+    // Por película: boletos vendidos y cuántos son de clientes que compraron productos ese mismo día
+    public List<TasaConsumo> calcularTasaConsumoPorPelicula(LocalDate desde, LocalDate hasta) {
+        int minutoDesde = desde != null ? minuto(desde.atStartOfDay()) : Integer.MIN_VALUE;
+        int minutoHasta = hasta != null ? minuto(hasta.plusDays(1).atStartOfDay()) - 1 : Integer.MAX_VALUE;
+
+        TablaColumnar.Vista vistaProductos = productos.vista();
+        TablaColumnar.Vista vistaBoletos = boletos.vista();
+
+        // Claves (cliente, día) de las compras de productos, con el cliente traducido al código de la tabla de boletos
+        int filasProductos = vistaProductos.getFilas();
+        int[] clientesProducto = vistaProductos.columna("cliente");
+        int[] minutosProducto = vistaProductos.columna("minutoVenta");
+        int[] traduccion = new int[vistaProductos.cardinalidad("cliente")];
+        for (int codigo = 0; codigo < traduccion.length; codigo++) {
+            traduccion[codigo] = vistaBoletos.codigo("cliente", vistaProductos.etiqueta("cliente", codigo));
+        }
+        ConjuntoLong clientesConConsumo = new ConjuntoLong(filasProductos);
+        for (int i = 0; i < filasProductos; i++) {
+            int cliente = traduccion[clientesProducto[i]];
+            if (cliente >= 0) {
+                clientesConConsumo.agregar(clave(cliente, minutosProducto[i]));
+            }
+        }
+
+        int filasBoletos = vistaBoletos.getFilas();
+        int[] peliculas = vistaBoletos.columna("pelicula");
+        int[] clientes = vistaBoletos.columna("cliente");
+        int[] estados = vistaBoletos.columna("estado");
+        int[] minutos = vistaBoletos.columna("minutoVenta");
+        int vendido = vistaBoletos.codigo("estado", "VENDIDO");
+        int cantidadPeliculas = vistaBoletos.cardinalidad("pelicula");
+
+        long[] totales = new long[cantidadPeliculas];
+        long[] conConsumo = new long[cantidadPeliculas];
+        for (int i = 0; i < filasBoletos; i++) {
+            if (estados[i] != vendido || minutos[i] < minutoDesde || minutos[i] > minutoHasta) {
+                continue;
+            }
+            totales[peliculas[i]]++;
+            if (clientesConConsumo.contiene(clave(clientes[i], minutos[i]))) {
+                conConsumo[peliculas[i]]++;
+            }
+        }
+
+        List<TasaConsumo> resultado = new ArrayList<>();
+        for (int pelicula = 0; pelicula < cantidadPeliculas; pelicula++) {
+            if (totales[pelicula] > 0) {
+                resultado.add(new TasaConsumo(vistaBoletos.etiqueta("pelicula", pelicula), totales[pelicula], conConsumo[pelicula]));
+            }
+        }
+        return resultado;
+    }
+
+    public long contarFilas(String nombreTabla) {
+        return tabla(nombreTabla).getFilas();
+    }
+
+    public TablaColumnar.Vista vista(String nombreTabla) {
+        return tabla(nombreTabla).vista();
+    }
+
+    // Minuto desde 1970-01-01 usado en la columna minutoVenta
+    public static int minuto(LocalDateTime fecha) {
+        return (int) (fecha.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    // Métodos auxiliares
+    private TablaColumnar tabla(String nombre) {
+        switch (nombre) {
+            case "boletos":
+                return boletos;
+            case "productos":
+                return productos;
+            case "pagos":
+                return pagos;
+            default:
+                throw new RuntimeException("Tabla desconocida: " + nombre);
+        }
+    }
+
+    private static int centimos(BigDecimal monto) {
+        return monto != null ? monto.movePointRight(2).intValue() : 0;
+    }
+
+    private static long clave(int cliente, int minuto) {
+        return ((long) cliente << 32) | Math.floorDiv(minuto, MINUTOS_POR_DIA);
+    }
+
+    // Conjunto de long con direccionamiento abierto, sin objetos por elemento
+    private static class ConjuntoLong {
+        private static final long VACIO = Long.MIN_VALUE;
+        private final long[] claves;
+        private final int mascara;
+
+        private ConjuntoLong(int elementosEsperados) {
+            int capacidad = Integer.highestOneBit(Math.max(16, elementosEsperados * 2) - 1) << 1;
+            claves = new long[capacidad];
+            Arrays.fill(claves, VACIO);
+            mascara = capacidad - 1;
+        }
+
+        private void agregar(long clave) {
+            int i = posicion(clave);
+            while (claves[i] != VACIO && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            claves[i] = clave;
+        }
+
+        private boolean contiene(long clave) {
+            int i = posicion(clave);
+            while (claves[i] != VACIO) {
+                if (claves[i] == clave) {
+                    return true;
+                }
+                i = (i + 1) & mascara;
+            }
+            return false;
+        }
+
+        private int posicion(long clave) {
+            long h = clave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+    }
+}
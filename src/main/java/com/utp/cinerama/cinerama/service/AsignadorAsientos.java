@@ -0,0 +1,88 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.DisposicionAsientos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Busca el mejor grupo de N asientos libres en una misma fila de un mapa de asientos.
+// Primero cuenta que estén juntos: un grupo separado solo se elige si no queda ningún bloque continuo
+// del tamaño pedido en toda la sala, y entre separados gana el de menos huecos. A igual cantidad de
+// huecos se prefiere el más cercano al centro de la fila y a la fila ideal (a 2/3 de la pantalla).
+// Debe llamarse con el cerrojo del mapa tomado para que el resultado pueda reservarse sin cambios de por medio.
+public final class AsignadorAsientos {
+
+    private static final double POSICION_FILA_IDEAL = 2.0 / 3.0;
+    private static final double PESO_FILA = 1.5;
+    private static final double PESO_CENTRO = 1.0;
+
+    private AsignadorAsientos() {
+    }
+
+    // Devuelve los asientos elegidos (ej: [F8, F9, F10]) o una lista vacía si no hay lugar en una sola fila
+    public static List<String> buscarMejoresAsientos(MapaAsientos mapa, int cantidad) {
+        int capacidad = mapa.getCapacidad();
+        int filas = DisposicionAsientos.filasPara(capacidad);
+        if (cantidad <= 0 || cantidad > DisposicionAsientos.ASIENTOS_POR_FILA) {
+            return new ArrayList<>();
+        }
+
+        double filaIdeal = (filas - 1) * POSICION_FILA_IDEAL;
+        int menosHuecos = Integer.MAX_VALUE;
+        double mejorPuntaje = Double.MAX_VALUE;
+        int mejorFila = -1;
+        int mejorInicio = -1;
+        int[] libres = new int[DisposicionAsientos.ASIENTOS_POR_FILA];
+
+        for (int fila = 0; fila < filas; fila++) {
+            int inicioFila = fila * DisposicionAsientos.ASIENTOS_POR_FILA;
+            int asientosEnFila = Math.min(DisposicionAsientos.ASIENTOS_POR_FILA, capacidad - inicioFila);
+            double centroFila = (asientosEnFila - 1) / 2.0;
+
+            // Columnas libres de la fila, en orden
+            int totalLibres = 0;
+            for (int columna = 0; columna < asientosEnFila; columna++) {
+                if (!mapa.estaOcupado(inicioFila + columna)) {
+                    libres[totalLibres++] = columna;
+                }
+            }
+
+            // Ventanas de 'cantidad' asientos libres consecutivos en la lista de libres
+            for (int i = 0; i + cantidad <= totalLibres; i++) {
+                int primera = libres[i];
+                int ultima = libres[i + cantidad - 1];
+                int huecos = (ultima - primera + 1) - cantidad;
+                double centroBloque = (primera + ultima) / 2.0;
+
+                double puntaje = Math.abs(fila - filaIdeal) * PESO_FILA
+                        + Math.abs(centroBloque - centroFila) * PESO_CENTRO;
+
+                if (huecos < menosHuecos || (huecos == menosHuecos && puntaje < mejorPuntaje)) {
+                    menosHuecos = huecos;
+                    mejorPuntaje = puntaje;
+                    mejorFila = fila;
+                    mejorInicio = i;
+                }
+            }
+        }
+
+        List<String> asientos = new ArrayList<>(cantidad);
+        if (mejorFila < 0) {
+            return asientos;
+        }
+
+        // Se recalculan las columnas libres de la fila ganadora
+        int inicioFila = mejorFila * DisposicionAsientos.ASIENTOS_POR_FILA;
+        int asientosEnFila = Math.min(DisposicionAsientos.ASIENTOS_POR_FILA, capacidad - inicioFila);
+        int posicion = 0;
+        for (int columna = 0; columna < asientosEnFila && asientos.size() < cantidad; columna++) {
+            if (!mapa.estaOcupado(inicioFila + columna)) {
+                if (posicion >= mejorInicio) {
+                    asientos.add(DisposicionAsientos.asiento(inicioFila + columna));
+                }
+                posicion++;
+            }
+        }
+        return asientos;
+    }
+}
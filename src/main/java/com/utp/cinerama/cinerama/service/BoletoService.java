@@ -3,30 +3,75 @@ package com.utp.cinerama.cinerama.service;
 import com.utp.cinerama.cinerama.model.Boleto;
 import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
 import com.utp.cinerama.cinerama.model.Cliente;
+import com.utp.cinerama.cinerama.model.DisposicionAsientos;
+import com.utp.cinerama.cinerama.model.EventoMutacion;
 import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class BoletoService {
 
+    // Transiciones que se pueden aplicar a un lote de boletos
+    public enum AccionLote {
+        PAGAR, CANCELAR, USAR
+    }
+
     @Autowired
     private FuncionService funcionService;
     
     @Autowired
     private ClienteService clienteService;
 
-    private List<Boleto> boletos = new ArrayList<>();
+    @Autowired
+    private EventosAsientosService eventosAsientosService;
+
+    @Autowired
+    private ResumenVentasService resumenVentasService;
+
+    @Autowired
+    private AlmacenAnaliticoService almacenAnaliticoService;
+
+    @Autowired
+    private EstimadoresVentasService estimadoresVentasService;
+
+    // Genera ids que identifican al nodo que los creó (ver TopologiaCluster)
+    @Autowired
+    private TopologiaCluster topologiaCluster;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    // Serializa las modificaciones de cada función en su propio buzón
+    @Autowired
+    private EjecutorPorFuncion ejecutorPorFuncion;
+
+    // Boletos ordenados por id; admite lecturas y escrituras concurrentes de distintas funciones
+    private Map<Long, Boleto> boletos = new ConcurrentSkipListMap<>();
     private AtomicLong contador = new AtomicLong(1);
 
+    // Ocupación de asientos por función; las modificaciones de cada función toman el cerrojo de su mapa
+    private final Map<Long, MapaAsientos> mapasAsientos = new ConcurrentHashMap<>();
+
     public BoletoService() {
         // Los datos de prueba se inicializan después de la inyección de dependencias
     }
@@ -38,6 +83,7 @@ public class BoletoService {
             List<Cliente> clientes = clienteService.obtenerTodosLosClientes();
             if (!funciones.isEmpty() && !clientes.isEmpty()) {
                 crearBoletosPrueba(funciones, clientes);
+                publicarCambio(null);
             }
         }
     }
@@ -45,84 +91,127 @@ public class BoletoService {
     // Métodos CRUD
     public List<Boleto> obtenerTodosLosBoletos() {
         inicializarDatosPrueba(); // Asegurar que hay datos
-        return new ArrayList<>(boletos);
+        return new ArrayList<>(boletos.values());
     }
 
     public Optional<Boleto> obtenerBoletoPorId(Long id) {
-        return boletos.stream()
-                .filter(boleto -> boleto.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(id != null ? boletos.get(id) : null);
     }
 
     public Boleto crearBoleto(Boleto boleto) {
         validarBoleto(boleto);
-        
-        // Verificar que el asiento no esté ocupado en esa función
-        boolean asientoOcupado = boletos.stream()
-                .anyMatch(b -> b.getFuncion().getId().equals(boleto.getFuncion().getId()) &&
-                          b.getAsiento().equals(boleto.getAsiento()) &&
-                          b.esValido());
-        
-        if (asientoOcupado) {
-            throw new RuntimeException("El asiento " + boleto.getAsiento() + " ya está ocupado para esta función");
-        }
-
-        // Verificar que la función tenga asientos disponibles
-        if (!boleto.getFuncion().hayAsientosDisponibles()) {
-            throw new RuntimeException("No hay asientos disponibles para esta función");
-        }
-
-        // Reservar asiento en la función
-        funcionService.reservarAsiento(boleto.getFuncion().getId());
+        Funcion funcion = obtenerFuncion(boleto.getFuncion().getId());
+        boleto.setFuncion(funcion);
+
+        MapaAsientos mapa = mapaDe(funcion);
+        validarAsientoEnSala(mapa, boleto.getAsiento());
+
+        return ejecutorPorFuncion.ejecutar(funcion.getId(), () -> {
+            mapa.bloquear();
+            try {
+                return registrarBoletoNuevo(funcion, mapa, boleto);
+            } finally {
+                mapa.desbloquear();
+            }
+        });
+    }
 
-        boleto.setId(contador.getAndIncrement());
-        boleto.setFechaCompra(LocalDateTime.now());
-        
-        // Si no se especifica estado, por defecto es RESERVADO
-        if (boleto.getEstado() == null) {
-            boleto.setEstado(EstadoBoleto.RESERVADO);
-        }
+    // Reserva todos los asientos indicados en una sola operación: si alguno ya está ocupado no se reserva ninguno
+    public List<Boleto> reservarAsientos(Long funcionId, List<String> asientos, Cliente cliente) {
+        Funcion funcion = obtenerFuncion(funcionId);
+        MapaAsientos mapa = mapaDe(funcion);
+
+        return ejecutorPorFuncion.ejecutar(funcionId, () -> {
+            mapa.bloquear();
+            try {
+                return reservarGrupo(funcion, mapa, asientos, cliente);
+            } finally {
+                mapa.desbloquear();
+            }
+        });
+    }
 
-        boletos.add(boleto);
-        return boleto;
+    // Elige y reserva el mejor grupo de asientos juntos; la búsqueda y la reserva ocurren
+    // con el mapa bloqueado, así que ningún asiento del grupo puede ocuparse entre ambas
+    public List<Boleto> reservarMejoresAsientos(Long funcionId, int cantidad, Cliente cliente) {
+        Funcion funcion = obtenerFuncion(funcionId);
+        MapaAsientos mapa = mapaDe(funcion);
+
+        return ejecutorPorFuncion.ejecutar(funcionId, () -> {
+            mapa.bloquear();
+            try {
+                List<String> asientos = AsignadorAsientos.buscarMejoresAsientos(mapa, cantidad);
+                if (asientos.isEmpty()) {
+                    throw new RuntimeException("No hay " + cantidad + " asientos juntos disponibles para esta función");
+                }
+                return reservarGrupo(funcion, mapa, asientos, cliente);
+            } finally {
+                mapa.desbloquear();
+            }
+        });
     }
 
-    public Optional<Boleto> actualizarBoleto(Long id, Boleto boletoActualizado) {
+    // Con versionEsperada (If-Match) la verificación se hace con el mapa de la función bloqueado,
+    // el mismo bloqueo que toman las reservas, pagos y cancelaciones del boleto
+    public Optional<Boleto> actualizarBoleto(Long id, Boleto boletoActualizado, Long versionEsperada) {
         Optional<Boleto> boletoExistente = obtenerBoletoPorId(id);
         
         if (boletoExistente.isPresent()) {
             Boleto boleto = boletoExistente.get();
-            
-            // Verificar si se cambia el asiento
-            if (!boleto.getAsiento().equals(boletoActualizado.getAsiento()) ||
-                !boleto.getFuncion().getId().equals(boletoActualizado.getFuncion().getId())) {
-                
-                // Verificar que el nuevo asiento no esté ocupado
-                boolean asientoOcupado = boletos.stream()
-                        .anyMatch(b -> !b.getId().equals(id) &&
-                                  b.getFuncion().getId().equals(boletoActualizado.getFuncion().getId()) &&
-                                  b.getAsiento().equals(boletoActualizado.getAsiento()) &&
-                                  b.esValido());
-                
-                if (asientoOcupado) {
-                    throw new RuntimeException("El asiento " + boletoActualizado.getAsiento() + " ya está ocupado");
+            validarBoleto(boletoActualizado);
+
+            Funcion funcionNueva = obtenerFuncion(boletoActualizado.getFuncion().getId());
+            MapaAsientos mapaAnterior = mapaDe(boleto.getFuncion());
+            MapaAsientos mapaNuevo = mapaDe(funcionNueva);
+            validarAsientoEnSala(mapaNuevo, boletoActualizado.getAsiento());
+
+            return conMapas(mapaAnterior, mapaNuevo, () -> {
+                ContadorVersiones.verificarVersion(boleto.getVersion(), versionEsperada);
+                boolean cambiaFuncion = !boleto.getFuncion().getId().equals(funcionNueva.getId());
+
+                // Verificar si se cambia el asiento
+                if (cambiaFuncion || !boleto.getAsiento().equals(boletoActualizado.getAsiento())) {
+
+                    // Verificar que el nuevo asiento no esté ocupado
+                    Optional<Boleto> ocupante = mapaNuevo.boletoEn(boletoActualizado.getAsiento());
+                    if (ocupante.isPresent() && ocupante.get() != boleto) {
+                        throw new RuntimeException("El asiento " + boletoActualizado.getAsiento() + " ya está ocupado");
+                    }
+
+                    // Liberar asiento anterior si se cambia de función
+                    if (cambiaFuncion) {
+                        funcionService.liberarAsiento(boleto.getFuncion().getId());
+                        funcionService.reservarAsiento(funcionNueva.getId());
+                    }
                 }
 
-                // Liberar asiento anterior si se cambia de función
-                if (!boleto.getFuncion().getId().equals(boletoActualizado.getFuncion().getId())) {
-                    funcionService.liberarAsiento(boleto.getFuncion().getId());
-                    funcionService.reservarAsiento(boletoActualizado.getFuncion().getId());
+                liberarAsiento(mapaAnterior, boleto);
+
+                // Los resúmenes de ventas se corrigen anulando el boleto anterior y registrando el nuevo
+                boolean vendidoAntes = estaVendido(boleto);
+                if (vendidoAntes) {
+                    registrarVenta(boleto, -1);
                 }
-            }
 
-            boleto.setFuncion(boletoActualizado.getFuncion());
-            boleto.setAsiento(boletoActualizado.getAsiento());
-            boleto.setPrecio(boletoActualizado.getPrecio());
-            boleto.setEstado(boletoActualizado.getEstado());
-            boleto.setCliente(boletoActualizado.getCliente());
-            
-            validarBoleto(boleto);
-            return Optional.of(boleto);
+                boleto.setFuncion(funcionNueva);
+                boleto.setAsiento(boletoActualizado.getAsiento());
+                boleto.setPrecio(boletoActualizado.getPrecio());
+                boleto.setEstado(boletoActualizado.getEstado());
+                boleto.setCliente(boletoActualizado.getCliente());
+
+                if (boleto.ocupaAsiento()) {
+                    ocuparAsiento(mapaNuevo, boleto);
+                }
+                // Editar un boleto ya vendido no es otra venta: los estimadores no lo vuelven a contar
+                if (vendidoAntes && estaVendido(boleto)) {
+                    registrarVenta(boleto, 1);
+                } else if (estaVendido(boleto)) {
+                    boleto.setFechaCompra(LocalDateTime.now());
+                    registrarNuevaVenta(boleto);
+                }
+                nuevaVersion(boleto);
+                return Optional.of(boleto);
+            });
         }
         
         return Optional.empty();
@@ -131,11 +220,28 @@ public class BoletoService {
     public boolean eliminarBoleto(Long id) {
         Optional<Boleto> boleto = obtenerBoletoPorId(id);
         if (boleto.isPresent()) {
-            // Liberar asiento si el boleto es válido
-            if (boleto.get().esValido()) {
-                funcionService.liberarAsiento(boleto.get().getFuncion().getId());
-            }
-            return boletos.removeIf(b -> b.getId().equals(id));
+            MapaAsientos mapa = mapaDe(boleto.get().getFuncion());
+            return ejecutorPorFuncion.ejecutar(mapa.getFuncionId(), () -> {
+                mapa.bloquear();
+                try {
+                    if (!boletos.containsKey(id)) {
+                        return false; // Otro comando de la función ya lo eliminó
+                    }
+                    // Liberar asiento si el boleto es válido
+                    if (boleto.get().esValido()) {
+                        funcionService.liberarAsiento(boleto.get().getFuncion().getId());
+                    }
+                    liberarAsiento(mapa, boleto.get());
+                    if (estaVendido(boleto.get())) {
+                        registrarVenta(boleto.get(), -1);
+                    }
+                    boletos.remove(id);
+                    publicarCambio(id);
+                    return true;
+                } finally {
+                    mapa.desbloquear();
+                }
+            });
         }
         return false;
     }
@@ -143,78 +249,275 @@ public class BoletoService {
     // Métodos de negocio específicos
     public boolean pagarBoleto(Long id) {
         Optional<Boleto> boleto = obtenerBoletoPorId(id);
-        if (boleto.isPresent() && boleto.get().getEstado() == EstadoBoleto.RESERVADO) {
-            boleto.get().setEstado(EstadoBoleto.PAGADO);
-            return true;
+        if (boleto.isPresent()) {
+            MapaAsientos mapa = mapaDe(boleto.get().getFuncion());
+            return ejecutorPorFuncion.ejecutar(mapa.getFuncionId(), () -> {
+                mapa.bloquear();
+                try {
+                    return pagar(boleto.get());
+                } finally {
+                    mapa.desbloquear();
+                }
+            });
         }
         return false;
     }
 
+    // Marca como pagados todos los boletos de un pago, o ninguno si alguno ya no está reservado.
+    // Se bloquea una sola vez el mapa de cada función involucrada.
+    public boolean confirmarPagoBoletos(List<Long> boletosIds) {
+        List<Boleto> lista = obtenerBoletos(boletosIds);
+        return enFuncionDe(lista, () -> conMapasDe(lista, () -> {
+            for (Boleto boleto : lista) {
+                if (boleto.getEstado() != EstadoBoleto.RESERVADO) {
+                    return false;
+                }
+            }
+            LocalDateTime ahora = LocalDateTime.now();
+            for (Boleto boleto : lista) {
+                boleto.setEstado(EstadoBoleto.PAGADO);
+                boleto.setFechaCompra(ahora);
+                registrarNuevaVenta(boleto);
+                nuevaVersion(boleto);
+            }
+            return true;
+        }));
+    }
+
+    // Compensación de una compra fallida: cancela los boletos que sigan reservados y libera sus asientos.
+    // Un boleto que ya se eliminó se salta; fallar por él dejaría retenidos los asientos de los demás.
+    public int liberarBoletos(List<Long> boletosIds) {
+        List<Boleto> lista = new ArrayList<>(boletosIds.size());
+        boletosIds.forEach(id -> obtenerBoletoPorId(id).ifPresent(lista::add));
+        if (lista.isEmpty()) {
+            return 0;
+        }
+        return enFuncionDe(lista, () -> conMapasDe(lista, () -> {
+            int liberados = 0;
+            for (Boleto boleto : lista) {
+                if (boleto.getEstado() == EstadoBoleto.RESERVADO) {
+                    boleto.cancelar();
+                    funcionService.liberarAsiento(boleto.getFuncion().getId());
+                    liberarAsiento(mapaDe(boleto.getFuncion()), boleto);
+                    nuevaVersion(boleto);
+                    liberados++;
+                }
+            }
+            return liberados;
+        }));
+    }
+
     public boolean cancelarBoleto(Long id) {
         Optional<Boleto> boleto = obtenerBoletoPorId(id);
-        if (boleto.isPresent() && boleto.get().puedeSerCancelado()) {
-            boleto.get().cancelar();
-            // Liberar asiento en la función
-            funcionService.liberarAsiento(boleto.get().getFuncion().getId());
-            return true;
+        if (boleto.isPresent()) {
+            MapaAsientos mapa = mapaDe(boleto.get().getFuncion());
+            return ejecutorPorFuncion.ejecutar(mapa.getFuncionId(), () -> {
+                mapa.bloquear();
+                try {
+                    return cancelar(boleto.get(), mapa);
+                } finally {
+                    mapa.desbloquear();
+                }
+            });
         }
         return false;
     }
 
     public boolean marcarBoletoComoUsado(Long id) {
         Optional<Boleto> boleto = obtenerBoletoPorId(id);
-        if (boleto.isPresent() && boleto.get().getEstado() == EstadoBoleto.PAGADO) {
-            boleto.get().marcarComoUsado();
-            return true;
+        if (boleto.isPresent()) {
+            MapaAsientos mapa = mapaDe(boleto.get().getFuncion());
+            return ejecutorPorFuncion.ejecutar(mapa.getFuncionId(), () -> {
+                mapa.bloquear();
+                try {
+                    return usar(boleto.get());
+                } finally {
+                    mapa.desbloquear();
+                }
+            });
         }
         return false;
     }
 
+    // Aplica la misma transición a varios boletos. Se agrupan por función y cada grupo pasa una sola
+    // vez por el buzón de su función y toma su mapa una sola vez; los grupos de funciones distintas
+    // avanzan en paralelo. Un boleto que no admite la transición no detiene a los demás.
+    public ResultadoLote aplicarEnLote(AccionLote accion, List<Long> boletosIds) {
+        long inicio = System.nanoTime();
+        ResultadoLote resultado = new ResultadoLote(boletosIds.size());
+        Boleto[] encontrados = new Boleto[boletosIds.size()];
+        Map<Long, List<Integer>> porFuncion = new LinkedHashMap<>();
+        for (int i = 0; i < boletosIds.size(); i++) {
+            Long id = boletosIds.get(i);
+            encontrados[i] = id != null ? boletos.get(id) : null;
+            if (encontrados[i] == null) {
+                resultado.registrarError(i, id, "Boleto no encontrado");
+            } else {
+                porFuncion.computeIfAbsent(encontrados[i].getFuncion().getId(), f -> new ArrayList<>()).add(i);
+            }
+        }
+
+        CountDownLatch pendientes = new CountDownLatch(porFuncion.size());
+        porFuncion.forEach((funcionId, posiciones) -> ejecutorPorFuncion.enviar(funcionId, () -> {
+            try {
+                MapaAsientos mapa = mapaDe(encontrados[posiciones.get(0)].getFuncion());
+                mapa.bloquear();
+                try {
+                    for (int posicion : posiciones) {
+                        aplicarAccion(accion, encontrados[posicion], mapa, resultado, posicion);
+                    }
+                } finally {
+                    mapa.desbloquear();
+                }
+            } catch (RuntimeException e) {
+                for (int posicion : posiciones) {
+                    if (resultado.getElementos().get(posicion) == null) {
+                        resultado.registrarError(posicion, boletosIds.get(posicion), e.getMessage());
+                    }
+                }
+            } finally {
+                pendientes.countDown();
+            }
+        }));
+
+        try {
+            pendientes.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Se interrumpió la espera del lote de boletos");
+        }
+        resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        return resultado;
+    }
+
+    // Aplica en una réplica el boleto recibido del primario (null = eliminado) y mantiene su mapa
+    // de asientos. Los asientos disponibles de la función llegan con la réplica de la función y los
+    // resúmenes de ventas no se recalculan aquí.
+    public void aplicarReplica(Long id, Boleto datos) {
+        Boleto existente = boletos.get(id);
+        if (datos == null) {
+            if (existente != null) {
+                MapaAsientos mapa = mapaDe(existente.getFuncion());
+                mapa.bloquear();
+                try {
+                    liberarAsiento(mapa, existente);
+                    boletos.remove(id);
+                    publicarCambio(id);
+                } finally {
+                    mapa.desbloquear();
+                }
+            }
+            return;
+        }
+
+        Optional<Funcion> funcion = datos.getFuncion() != null
+                ? funcionService.obtenerFuncionPorId(datos.getFuncion().getId()) : Optional.empty();
+        if (funcion.isEmpty()) {
+            return; // La función todavía no llegó o ya se eliminó; el boleto no tiene dónde ubicarse
+        }
+        MapaAsientos mapaNuevo = mapaDe(funcion.get());
+        MapaAsientos mapaAnterior = existente != null ? mapaDe(existente.getFuncion()) : mapaNuevo;
+        Cliente cliente = datos.getCliente() == null ? null
+                : clienteService.obtenerClientePorId(datos.getCliente().getId()).orElse(datos.getCliente());
+
+        conMapas(mapaAnterior, mapaNuevo, () -> {
+            boolean mismoAsiento = existente != null
+                    && existente.getFuncion().getId().equals(funcion.get().getId())
+                    && existente.getAsiento().equals(datos.getAsiento())
+                    && existente.ocupaAsiento() == datos.ocupaAsiento();
+            if (existente != null && !mismoAsiento) {
+                liberarAsiento(mapaAnterior, existente);
+            }
+
+            Boleto boleto = existente != null ? existente : datos;
+            boleto.setId(id);
+            boleto.setFuncion(funcion.get());
+            boleto.setAsiento(datos.getAsiento());
+            boleto.setPrecio(datos.getPrecio());
+            boleto.setEstado(datos.getEstado());
+            boleto.setFechaCompra(datos.getFechaCompra());
+            boleto.setCliente(cliente);
+            boleto.setVersion(datos.getVersion());
+            boletos.put(id, boleto);
+
+            if (!mismoAsiento && boleto.ocupaAsiento()) {
+                ocuparAsiento(mapaNuevo, boleto);
+            }
+            contador.accumulateAndGet(topologiaCluster.secuenciaDeId(id) + 1, Math::max);
+            publicarCambio(id);
+            return null;
+        });
+    }
+
     // Métodos de búsqueda específicos
     public List<Boleto> buscarPorCliente(Long clienteId) {
-        return boletos.stream()
+        return boletos.values().stream()
                 .filter(boleto -> boleto.getCliente() != null && 
                                  boleto.getCliente().getId().equals(clienteId))
                 .collect(Collectors.toList());
     }
 
     public List<Boleto> buscarPorFuncion(Long funcionId) {
-        return boletos.stream()
+        return boletos.values().stream()
                 .filter(boleto -> boleto.getFuncion().getId().equals(funcionId))
                 .collect(Collectors.toList());
     }
 
     public List<Boleto> buscarPorEstado(EstadoBoleto estado) {
-        return boletos.stream()
+        return boletos.values().stream()
                 .filter(boleto -> boleto.getEstado() == estado)
                 .collect(Collectors.toList());
     }
 
     public List<Boleto> buscarBoletosValidos() {
-        return boletos.stream()
+        return boletos.values().stream()
                 .filter(Boleto::esValido)
                 .collect(Collectors.toList());
     }
 
     public Optional<Boleto> buscarPorFuncionYAsiento(Long funcionId, String asiento) {
-        return boletos.stream()
-                .filter(boleto -> boleto.getFuncion().getId().equals(funcionId) &&
-                                 boleto.getAsiento().equals(asiento) &&
-                                 boleto.esValido())
-                .findFirst();
+        MapaAsientos mapa = mapasAsientos.get(funcionId);
+        return mapa != null ? mapa.boletoEn(asiento) : Optional.empty();
     }
 
     public List<String> obtenerAsientosOcupados(Long funcionId) {
-        return boletos.stream()
-                .filter(boleto -> boleto.getFuncion().getId().equals(funcionId) &&
-                                 boleto.esValido())
-                .map(Boleto::getAsiento)
-                .collect(Collectors.toList());
+        MapaAsientos mapa = mapasAsientos.get(funcionId);
+        return mapa != null ? mapa.asientosOcupados() : new ArrayList<>();
+    }
+
+    // Versión actual del mapa de asientos; cambia con cada asiento ocupado o liberado
+    public long obtenerVersionMapaAsientos(Long funcionId) {
+        return mapaDe(obtenerFuncion(funcionId)).getVersion();
+    }
+
+    public MapaAsientos.Foto obtenerMapaAsientos(Long funcionId) {
+        return mapaDe(obtenerFuncion(funcionId)).foto();
+    }
+
+    // Foto del mapa de asientos en JSON; 'ocupados' es el bitmap de la disposición en base64
+    public String obtenerMapaAsientosJson(Long funcionId) {
+        return mapaAsientosJson(funcionId, obtenerMapaAsientos(funcionId));
+    }
+
+    public String mapaAsientosJson(Long funcionId, MapaAsientos.Foto foto) {
+        return "{" +
+                "\"funcionId\": " + funcionId + "," +
+                "\"version\": " + foto.getVersion() + "," +
+                "\"capacidad\": " + foto.getCapacidad() + "," +
+                "\"asientosPorFila\": " + DisposicionAsientos.ASIENTOS_POR_FILA + "," +
+                "\"ocupados\": \"" + foto.getBitmapBase64() + "\"" +
+                "}";
+    }
+
+    public Supplier<String> mapaAsientosInicial(Long funcionId) {
+        inicializarDatosPrueba(); // Asegurar que hay datos
+        obtenerFuncion(funcionId); // Verifica que la función exista antes de suscribir
+        return () -> obtenerMapaAsientosJson(funcionId);
     }
 
     // Métodos de estadísticas
     public BigDecimal calcularIngresosPorFuncion(Long funcionId) {
-        return boletos.stream()
+        return boletos.values().stream()
                 .filter(boleto -> boleto.getFuncion().getId().equals(funcionId) &&
                                  boleto.getEstado() == EstadoBoleto.PAGADO)
                 .map(Boleto::getPrecio)
@@ -222,15 +525,282 @@ public class BoletoService {
     }
 
     public long contarBoletosVendidos(Long funcionId) {
-        return boletos.stream()
+        return boletos.values().stream()
                 .filter(boleto -> boleto.getFuncion().getId().equals(funcionId) &&
                                  boleto.getEstado() == EstadoBoleto.PAGADO)
                 .count();
     }
 
     // Métodos auxiliares
+    // Avisa a los suscriptores (por ejemplo, la replicación) que el boleto cambió; null = varios boletos
+    private void publicarCambio(Long id) {
+        if (eventos != null) {
+            eventos.publishEvent(new EventoMutacion(EventoMutacion.Entidad.BOLETO, id));
+        }
+    }
+
+    // Para las modificaciones de un boleto existente; el mapa de su función debe estar bloqueado
+    private void nuevaVersion(Boleto boleto) {
+        boleto.setVersion(boleto.getVersion() + 1);
+        publicarCambio(boleto.getId());
+    }
+
+    // Transiciones de un boleto; se llaman con el mapa de su función bloqueado
+    private boolean pagar(Boleto boleto) {
+        if (boleto.getEstado() == EstadoBoleto.RESERVADO) {
+            boleto.setEstado(EstadoBoleto.PAGADO);
+            boleto.setFechaCompra(LocalDateTime.now());
+            registrarNuevaVenta(boleto);
+            nuevaVersion(boleto);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean cancelar(Boleto boleto, MapaAsientos mapa) {
+        if (boleto.puedeSerCancelado()) {
+            if (estaVendido(boleto)) {
+                registrarVenta(boleto, -1);
+            }
+            boleto.cancelar();
+            // Liberar asiento en la función
+            funcionService.liberarAsiento(boleto.getFuncion().getId());
+            liberarAsiento(mapa, boleto);
+            nuevaVersion(boleto);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean usar(Boleto boleto) {
+        if (boleto.getEstado() == EstadoBoleto.PAGADO) {
+            boleto.marcarComoUsado();
+            nuevaVersion(boleto);
+            return true;
+        }
+        return false;
+    }
+
+    private void aplicarAccion(AccionLote accion, Boleto boleto, MapaAsientos mapa, ResultadoLote resultado, int posicion) {
+        EstadoBoleto anterior = boleto.getEstado();
+        boolean aplicado = switch (accion) {
+            case PAGAR -> pagar(boleto);
+            case CANCELAR -> cancelar(boleto, mapa);
+            case USAR -> usar(boleto);
+        };
+        if (aplicado) {
+            resultado.registrarExito(posicion, boleto.getId(), boleto.getEstado().name());
+        } else {
+            resultado.registrarError(posicion, boleto.getId(), "No se puede " + accion.name().toLowerCase()
+                    + " un boleto en estado " + anterior);
+        }
+    }
+
+    private Funcion obtenerFuncion(Long funcionId) {
+        return funcionService.obtenerFuncionPorId(funcionId)
+                .orElseThrow(() -> new RuntimeException("Función no encontrada: " + funcionId));
+    }
+
+    private MapaAsientos mapaDe(Funcion funcion) {
+        return mapasAsientos.computeIfAbsent(funcion.getId(),
+                id -> new MapaAsientos(id, funcion.getAsientosTotales() != null
+                        ? funcion.getAsientosTotales() : DisposicionAsientos.CAPACIDAD_MAXIMA));
+    }
+
+    // Debe llamarse con el mapa bloqueado
+    private Boleto registrarBoletoNuevo(Funcion funcion, MapaAsientos mapa, Boleto boleto) {
+        // Verificar que el asiento no esté ocupado en esa función
+        if (mapa.estaOcupado(boleto.getAsiento())) {
+            throw new RuntimeException("El asiento " + boleto.getAsiento() + " ya está ocupado para esta función");
+        }
+
+        // Verificar que la función tenga asientos disponibles
+        if (!funcion.hayAsientosDisponibles()) {
+            throw new RuntimeException("No hay asientos disponibles para esta función");
+        }
+
+        // Reservar asiento en la función
+        funcionService.reservarAsiento(funcion.getId());
+
+        boleto.setId(topologiaCluster.siguienteId(contador));
+        boleto.setVersion(0);
+        boleto.setFechaCompra(LocalDateTime.now());
+
+        // Si no se especifica estado, por defecto es RESERVADO
+        if (boleto.getEstado() == null) {
+            boleto.setEstado(EstadoBoleto.RESERVADO);
+        }
+
+        boletos.put(boleto.getId(), boleto);
+        ocuparAsiento(mapa, boleto);
+        if (estaVendido(boleto)) {
+            registrarNuevaVenta(boleto);
+        }
+        publicarCambio(boleto.getId());
+        return boleto;
+    }
+
+    // Debe llamarse con el mapa bloqueado
+    private List<Boleto> reservarGrupo(Funcion funcion, MapaAsientos mapa, List<String> asientos, Cliente cliente) {
+        if (cliente == null) {
+            throw new RuntimeException("El cliente es obligatorio");
+        }
+        if (asientos == null || asientos.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos un asiento");
+        }
+        if (asientos.stream().distinct().count() != asientos.size()) {
+            throw new RuntimeException("Hay asientos repetidos en la solicitud");
+        }
+
+        // Se valida el grupo completo antes de tocar el estado
+        for (String asiento : asientos) {
+            validarAsientoEnSala(mapa, asiento);
+            if (mapa.estaOcupado(asiento)) {
+                throw new RuntimeException("El asiento " + asiento + " ya está ocupado para esta función");
+            }
+        }
+        if (funcion.getAsientosDisponibles() == null || funcion.getAsientosDisponibles() < asientos.size()) {
+            throw new RuntimeException("No hay asientos disponibles para esta función");
+        }
+
+        List<Boleto> reservados = new ArrayList<>(asientos.size());
+        LocalDateTime ahora = LocalDateTime.now();
+        for (String asiento : asientos) {
+            funcionService.reservarAsiento(funcion.getId());
+
+            Boleto boleto = new Boleto(topologiaCluster.siguienteId(contador), funcion, asiento,
+                    funcion.getPelicula().getPrecio(), EstadoBoleto.RESERVADO, ahora, cliente);
+            boletos.put(boleto.getId(), boleto);
+            ocuparAsiento(mapa, boleto);
+            publicarCambio(boleto.getId());
+            reservados.add(boleto);
+        }
+        return reservados;
+    }
+
+    private void validarAsientoEnSala(MapaAsientos mapa, String asiento) {
+        if (!mapa.existeAsiento(asiento)) {
+            throw new RuntimeException("El asiento " + asiento + " no existe en la sala de esta función");
+        }
+    }
+
+    // Debe llamarse con el mapa bloqueado
+    private void ocuparAsiento(MapaAsientos mapa, Boleto boleto) {
+        long version = mapa.ocupar(boleto.getAsiento(), boleto);
+        publicarCambioAsiento(mapa, "ocupado", boleto.getAsiento(), version);
+    }
+
+    // Debe llamarse con el mapa bloqueado
+    private void liberarAsiento(MapaAsientos mapa, Boleto boleto) {
+        if (mapa.liberar(boleto.getAsiento(), boleto)) {
+            publicarCambioAsiento(mapa, "liberado", boleto.getAsiento(), mapa.getVersion());
+        }
+    }
+
+    private void publicarCambioAsiento(MapaAsientos mapa, String evento, String asiento, long version) {
+        eventosAsientosService.publicar(mapa.getFuncionId(), evento, "{" +
+                "\"asiento\": \"" + asiento + "\"," +
+                "\"indice\": " + DisposicionAsientos.indice(asiento) + "," +
+                "\"version\": " + version +
+                "}");
+    }
+
+    // Ejecuta la acción con los mapas de ambas funciones bloqueados, siempre en el mismo orden
+    private <T> T conMapas(MapaAsientos a, MapaAsientos b, Supplier<T> accion) {
+        if (a == b) {
+            a.bloquear();
+            try {
+                return accion.get();
+            } finally {
+                a.desbloquear();
+            }
+        }
+        MapaAsientos primero = a.getFuncionId() < b.getFuncionId() ? a : b;
+        MapaAsientos segundo = primero == a ? b : a;
+        primero.bloquear();
+        try {
+            segundo.bloquear();
+            try {
+                return accion.get();
+            } finally {
+                segundo.desbloquear();
+            }
+        } finally {
+            primero.desbloquear();
+        }
+    }
+
+    // Si todos los boletos son de la misma función (lo habitual en una compra), la acción se encola
+    // en el buzón de esa función; si son de varias, se ejecuta aquí y la protegen los mapas bloqueados
+    private <T> T enFuncionDe(List<Boleto> lista, Supplier<T> accion) {
+        Set<Long> funciones = lista.stream()
+                .map(boleto -> boleto.getFuncion().getId())
+                .collect(Collectors.toSet());
+        return funciones.size() == 1
+                ? ejecutorPorFuncion.ejecutar(funciones.iterator().next(), accion)
+                : accion.get();
+    }
+
+    // Ejecuta la acción con los mapas de todas las funciones de los boletos bloqueados,
+    // tomados en orden de id de función para no bloquearse con otra operación
+    private <T> T conMapasDe(List<Boleto> lista, Supplier<T> accion) {
+        List<MapaAsientos> mapas = lista.stream()
+                .map(boleto -> mapaDe(boleto.getFuncion()))
+                .distinct()
+                .sorted(Comparator.comparing(MapaAsientos::getFuncionId))
+                .collect(Collectors.toList());
+        return conMapasOrdenados(mapas, 0, accion);
+    }
+
+    private <T> T conMapasOrdenados(List<MapaAsientos> mapas, int desde, Supplier<T> accion) {
+        if (desde == mapas.size()) {
+            return accion.get();
+        }
+        MapaAsientos mapa = mapas.get(desde);
+        mapa.bloquear();
+        try {
+            return conMapasOrdenados(mapas, desde + 1, accion);
+        } finally {
+            mapa.desbloquear();
+        }
+    }
+
+    // Un boleto cuenta como vendido mientras está pagado o ya fue usado
+    private static boolean estaVendido(Boleto boleto) {
+        return boleto.getEstado() == EstadoBoleto.PAGADO || boleto.getEstado() == EstadoBoleto.USADO;
+    }
+
+    // Venta (1) o anulación (-1) del boleto en el resumen del día y el almacén analítico. Ambas caen en
+    // el día y el minuto de fechaCompra (que se actualiza al pagar), así que cancelar un boleto vendido
+    // otro día descuenta de ese día y no del de hoy.
+    private void registrarVenta(Boleto boleto, int signo) {
+        LocalDateTime fecha = fechaDeVenta(boleto);
+        resumenVentasService.registrarBoleto(boleto, fecha.toLocalDate(), signo);
+        almacenAnaliticoService.registrarBoleto(boleto, fecha, signo);
+    }
+
+    // Solo para la venta en sí (boleto creado pagado o que pasa de RESERVADO a PAGADO): los estimadores
+    // de clientes distintos y más vendidos no admiten restas, así que las correcciones no pasan por aquí
+    private void registrarNuevaVenta(Boleto boleto) {
+        registrarVenta(boleto, 1);
+        estimadoresVentasService.registrarBoleto(boleto, fechaDeVenta(boleto));
+    }
+
+    private static LocalDateTime fechaDeVenta(Boleto boleto) {
+        return boleto.getFechaCompra() != null ? boleto.getFechaCompra() : LocalDateTime.now();
+    }
+
+    private List<Boleto> obtenerBoletos(List<Long> boletosIds) {
+        List<Boleto> lista = new ArrayList<>(boletosIds.size());
+        for (Long id : boletosIds) {
+            lista.add(obtenerBoletoPorId(id)
+                    .orElseThrow(() -> new RuntimeException("Boleto no encontrado: " + id)));
+        }
+        return lista;
+    }
+
     private void validarBoleto(Boleto boleto) {
-        if (boleto.getFuncion() == null) {
+        if (boleto.getFuncion() == null || boleto.getFuncion().getId() == null) {
             throw new RuntimeException("La función es obligatoria");
         }
         
@@ -256,7 +826,7 @@ public class BoletoService {
         if (funciones.size() >= 2 && clientes.size() >= 2) {
             // Boleto 1
             Boleto boleto1 = new Boleto();
-            boleto1.setId(contador.getAndIncrement());
+            boleto1.setId(topologiaCluster.siguienteId(contador));
             boleto1.setFuncion(funciones.get(0)); // Primera función
             boleto1.setAsiento("A1");
             boleto1.setPrecio(funciones.get(0).getPelicula().getPrecio());
@@ -266,7 +836,7 @@ public class BoletoService {
 
             // Boleto 2
             Boleto boleto2 = new Boleto();
-            boleto2.setId(contador.getAndIncrement());
+            boleto2.setId(topologiaCluster.siguienteId(contador));
             boleto2.setFuncion(funciones.get(0)); // Primera función
             boleto2.setAsiento("A2");
             boleto2.setPrecio(funciones.get(0).getPelicula().getPrecio());
@@ -276,7 +846,7 @@ public class BoletoService {
 
             // Boleto 3
             Boleto boleto3 = new Boleto();
-            boleto3.setId(contador.getAndIncrement());
+            boleto3.setId(topologiaCluster.siguienteId(contador));
             boleto3.setFuncion(funciones.get(1)); // Segunda función
             boleto3.setAsiento("B1");
             boleto3.setPrecio(funciones.get(1).getPelicula().getPrecio());
@@ -284,9 +854,21 @@ public class BoletoService {
             boleto3.setFechaCompra(LocalDateTime.now().minusMinutes(30));
             boleto3.setCliente(clientes.get(0)); // Primer cliente
 
-            boletos.add(boleto1);
-            boletos.add(boleto2);
-            boletos.add(boleto3);
+            for (Boleto boleto : List.of(boleto1, boleto2, boleto3)) {
+                boletos.put(boleto.getId(), boleto);
+                if (estaVendido(boleto)) {
+                    resumenVentasService.registrarBoleto(boleto, boleto.getFechaCompra().toLocalDate(), 1);
+                    almacenAnaliticoService.registrarBoleto(boleto, boleto.getFechaCompra(), 1);
+                    estimadoresVentasService.registrarBoleto(boleto, boleto.getFechaCompra());
+                }
+                MapaAsientos mapa = mapaDe(boleto.getFuncion());
+                mapa.bloquear();
+                try {
+                    ocuparAsiento(mapa, boleto);
+                } finally {
+                    mapa.desbloquear();
+                }
+            }
 
             // Actualizar asientos disponibles en las funciones
             funcionService.reservarAsiento(funciones.get(0).getId()); // Para boleto1
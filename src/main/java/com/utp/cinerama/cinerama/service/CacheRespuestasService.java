@@ -0,0 +1,193 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.utp.cinerama.cinerama.model.EstadisticasCache;
+import com.utp.cinerama.cinerama.model.EventoMutacion;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Caché de las respuestas del catálogo ya serializadas a JSON (y comprimidas con gzip).
+// El tamaño se limita en bytes y Caffeine decide qué desalojar con W-TinyLFU.
+// Las entradas se invalidan con los EventoMutacion que publican los servicios dueños de los datos.
+@Service
+public class CacheRespuestasService {
+
+    public static final String CLAVE_PELICULAS = "peliculas";
+    public static final String CLAVE_SALAS = "salas";
+    public static final String CLAVE_PRODUCTOS_ACTIVOS = "productos:activos";
+    public static final String CLAVE_FUNCIONES_DISPONIBLES = "funciones:disponibles";
+
+    private static final String PREFIJO_PRODUCTOS = "productos:";
+    private static final String PREFIJO_FUNCIONES = "funciones:";
+    private static final String PREFIJO_FUNCIONES_FECHA = "funciones:fecha:";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cinerama.cache.respuestas.max-bytes:16777216}")
+    private long maxBytes;
+
+    private Cache<String, Respuesta> cache;
+
+    // Generación por grupo de claves (lo que va antes del primer ':'). Una respuesta calculada
+    // mientras se invalidaba su grupo se descarta, para no guardar datos anteriores al cambio.
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    // Cuerpo de una respuesta serializado una sola vez
+    public static class Respuesta {
+        private final byte[] json;
+        private final byte[] gzip; // null si comprimir no reduce el tamaño
+
+        private Respuesta(byte[] json, byte[] gzip) {
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public byte[] getJson() { return json; }
+        public byte[] getGzip() { return gzip; }
+
+        public boolean tieneGzip() {
+            return gzip != null;
+        }
+
+        private int peso() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String clave, Respuesta respuesta) -> clave.length() * 2 + respuesta.peso())
+                .recordStats()
+                .build();
+    }
+
+    public static String claveFuncionesPorFecha(LocalDate fecha) {
+        return PREFIJO_FUNCIONES_FECHA + fecha;
+    }
+
+    // Devuelve la respuesta guardada o la genera, serializa y guarda. Si varios hilos piden
+    // la misma clave a la vez, solo uno la genera.
+    public Respuesta obtener(String clave, Supplier<?> generador) {
+        AtomicLong generacionGrupo = generacion(clave);
+        long[] generacionInicial = {-1};
+
+        Respuesta respuesta = cache.get(clave, k -> {
+            generacionInicial[0] = generacionGrupo.get();
+            return serializar(generador.get());
+        });
+
+        if (generacionInicial[0] >= 0 && generacionGrupo.get() != generacionInicial[0]) {
+            cache.asMap().remove(clave, respuesta);
+        }
+        return respuesta;
+    }
+
+    @EventListener
+    public void alModificarCatalogo(EventoMutacion evento) {
+        switch (evento.getEntidad()) {
+            case PELICULA:
+                // Las funciones incluyen la película completa en su JSON
+                invalidar(CLAVE_PELICULAS);
+                invalidarPrefijo(PREFIJO_FUNCIONES);
+                break;
+            case SALA:
+                invalidar(CLAVE_SALAS);
+                invalidarPrefijo(PREFIJO_FUNCIONES);
+                break;
+            case PRODUCTO:
+                invalidarPrefijo(PREFIJO_PRODUCTOS);
+                break;
+            case FUNCION:
+                if (evento.getFecha() != null) {
+                    invalidar(CLAVE_FUNCIONES_DISPONIBLES);
+                    invalidar(claveFuncionesPorFecha(evento.getFecha()));
+                } else {
+                    invalidarPrefijo(PREFIJO_FUNCIONES);
+                }
+                break;
+        }
+    }
+
+    // Para vistas derivadas que se invalidan a sí mismas (ej: la cartelera)
+    public void invalidarPrefijo(String prefijo) {
+        generacion(prefijo).incrementAndGet();
+        Iterator<String> claves = cache.asMap().keySet().iterator();
+        while (claves.hasNext()) {
+            if (claves.next().startsWith(prefijo)) {
+                claves.remove();
+                invalidaciones.increment();
+            }
+        }
+    }
+
+    public void invalidarTodo() {
+        generaciones.values().forEach(AtomicLong::incrementAndGet);
+        invalidaciones.add(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    public EstadisticasCache obtenerEstadisticas() {
+        CacheStats stats = cache.stats();
+        long bytes = cache.policy().eviction()
+                .map(eviccion -> eviccion.weightedSize().orElse(0))
+                .orElse(0L);
+        return new EstadisticasCache(stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), invalidaciones.sum(), cache.estimatedSize(), bytes, maxBytes);
+    }
+
+    // Métodos auxiliares
+    private void invalidar(String clave) {
+        generacion(clave).incrementAndGet();
+        if (cache.asMap().remove(clave) != null) {
+            invalidaciones.increment();
+        }
+    }
+
+    private AtomicLong generacion(String clave) {
+        int separador = clave.indexOf(':');
+        String grupo = separador < 0 ? clave : clave.substring(0, separador);
+        return generaciones.computeIfAbsent(grupo, g -> new AtomicLong());
+    }
+
+    private Respuesta serializar(Object valor) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(valor);
+            byte[] gzip = comprimir(json);
+            return new Respuesta(json, gzip.length < json.length ? gzip : null);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar la respuesta: " + e.getOriginalMessage());
+        }
+    }
+
+    private static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo comprimir la respuesta");
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,184 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Cartelera;
+import com.utp.cinerama.cinerama.model.EventoMutacion;
+import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.model.Pelicula;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Vista materializada de la cartelera: las funciones indexadas por día y, por cada día, la foto ya
+// agrupada por película y sala/hora. Los EventoMutacion de funciones (incluidos los cambios de
+// asientos que hace BoletoService a través de FuncionService), películas y salas marcan los días
+// afectados; esos días se vuelven a armar en la siguiente lectura.
+// Los eventos se publican con los monitores de FuncionService y de los mapas de asientos tomados, así
+// que el listener no bloquea: solo anota los ids en conjuntos concurrentes. El índice se actualiza
+// al leer, con el monitor de este servicio, que nunca se toma desde dentro de esos otros.
+@Service
+public class CarteleraService {
+
+    public static final String PREFIJO_CACHE = "cartelera:";
+
+    private static final Comparator<Funcion> POR_SALA_Y_HORA = Comparator
+            .comparing((Funcion f) -> f.getSala().getNombre(), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Funcion::getHora);
+
+    @Autowired
+    private FuncionService funcionService;
+
+    @Autowired
+    private CacheRespuestasService cacheRespuestasService;
+
+    private final ContadorVersiones versiones = new ContadorVersiones("cartelera");
+
+    // Cambios anotados por el listener sin bloquear; los consume actualizar()
+    private final Set<Long> funcionesModificadas = ConcurrentHashMap.newKeySet();
+    private volatile boolean recargar = true;
+    private volatile boolean nombresModificados;
+
+    // Índice de funciones por día; protegido por el monitor del servicio
+    private final NavigableMap<LocalDate, Map<Long, Funcion>> funcionesPorDia = new TreeMap<>();
+    private final Map<Long, LocalDate> diaPorFuncion = new HashMap<>();
+    private final NavigableMap<LocalDate, Cartelera.Dia> dias = new TreeMap<>();
+    private final Set<LocalDate> diasPendientes = new HashSet<>();
+
+    // Foto publicada para los lectores; solo se reemplaza completa
+    private volatile NavigableMap<LocalDate, Cartelera.Dia> vista = Collections.emptyNavigableMap();
+    private volatile boolean desactualizada = true;
+
+    // Cambia con cada evento; el controlador la lee antes que la cartelera para el ETag
+    public ContadorVersiones.Marca version() {
+        return versiones.coleccion().combinar(LocalDate.now().toString());
+    }
+
+    // Días desde hoy en adelante
+    public Cartelera obtenerCartelera() {
+        if (desactualizada) {
+            actualizar();
+        }
+        LocalDate hoy = LocalDate.now();
+        return new Cartelera(hoy, new ArrayList<>(vista.tailMap(hoy, true).values()));
+    }
+
+    @EventListener
+    public void alModificarCatalogo(EventoMutacion evento) {
+        switch (evento.getEntidad()) {
+            case FUNCION:
+                if (evento.getId() == null) {
+                    recargar = true;
+                } else {
+                    funcionesModificadas.add(evento.getId());
+                }
+                break;
+            case PELICULA:
+            case SALA:
+                nombresModificados = true;
+                break;
+            default:
+                return;
+        }
+        // Después de anotar el cambio: un lector que ya vio el flag en false lo encontrará pendiente
+        desactualizada = true;
+        versiones.registrarCambio(null);
+        cacheRespuestasService.invalidarPrefijo(PREFIJO_CACHE);
+    }
+
+    // Métodos auxiliares
+    private synchronized void actualizar() {
+        if (!desactualizada) {
+            return;
+        }
+        // Se baja antes de consumir los cambios; los que lleguen mientras tanto lo vuelven a subir
+        desactualizada = false;
+        if (recargar) {
+            recargar = false;
+            List<Funcion> funciones = funcionService.obtenerTodasLasFunciones();
+            funcionesPorDia.clear();
+            diaPorFuncion.clear();
+            dias.clear();
+            funciones.forEach(this::indexar);
+            diasPendientes.addAll(funcionesPorDia.keySet());
+        }
+        for (Iterator<Long> ids = funcionesModificadas.iterator(); ids.hasNext(); ) {
+            Long funcionId = ids.next();
+            ids.remove();
+            reindexar(funcionId);
+        }
+        if (nombresModificados) {
+            // Los títulos y nombres de sala aparecen en cualquier día
+            nombresModificados = false;
+            diasPendientes.addAll(funcionesPorDia.keySet());
+        }
+
+        for (LocalDate dia : diasPendientes) {
+            Map<Long, Funcion> funciones = funcionesPorDia.get(dia);
+            if (funciones == null || funciones.isEmpty()) {
+                funcionesPorDia.remove(dia);
+                dias.remove(dia);
+            } else {
+                dias.put(dia, armarDia(dia, funciones.values()));
+            }
+        }
+        diasPendientes.clear();
+
+        vista = Collections.unmodifiableNavigableMap(new TreeMap<>(dias));
+    }
+
+    private void reindexar(Long funcionId) {
+        LocalDate anterior = diaPorFuncion.remove(funcionId);
+        if (anterior != null) {
+            funcionesPorDia.get(anterior).remove(funcionId);
+            diasPendientes.add(anterior);
+        }
+        funcionService.obtenerFuncionPorId(funcionId).ifPresent(this::indexar);
+    }
+
+    private void indexar(Funcion funcion) {
+        if (funcion.getFecha() == null || funcion.getPelicula() == null || funcion.getSala() == null) {
+            return;
+        }
+        funcionesPorDia.computeIfAbsent(funcion.getFecha(), d -> new HashMap<>()).put(funcion.getId(), funcion);
+        diaPorFuncion.put(funcion.getId(), funcion.getFecha());
+        diasPendientes.add(funcion.getFecha());
+    }
+
+    private Cartelera.Dia armarDia(LocalDate dia, Iterable<Funcion> funciones) {
+        Map<Long, List<Funcion>> porPelicula = new LinkedHashMap<>();
+        Map<Long, Pelicula> peliculas = new HashMap<>();
+        for (Funcion funcion : funciones) {
+            porPelicula.computeIfAbsent(funcion.getPelicula().getId(), id -> new ArrayList<>()).add(funcion);
+            peliculas.putIfAbsent(funcion.getPelicula().getId(), funcion.getPelicula());
+        }
+
+        List<Cartelera.PeliculaEnCartel> enCartel = new ArrayList<>(porPelicula.size());
+        for (Map.Entry<Long, List<Funcion>> entrada : porPelicula.entrySet()) {
+            List<Funcion> delDia = entrada.getValue();
+            delDia.sort(POR_SALA_Y_HORA);
+            List<Cartelera.Horario> horarios = new ArrayList<>(delDia.size());
+            for (Funcion funcion : delDia) {
+                horarios.add(new Cartelera.Horario(funcion));
+            }
+            Pelicula pelicula = peliculas.get(entrada.getKey());
+            enCartel.add(new Cartelera.PeliculaEnCartel(pelicula.getId(), pelicula.getTitulo(), pelicula.getGenero(),
+                    pelicula.getDuracion(), pelicula.getClasificacion(), pelicula.getPrecio(), horarios));
+        }
+        enCartel.sort(Comparator.comparing(Cartelera.PeliculaEnCartel::getTitulo, String.CASE_INSENSITIVE_ORDER));
+        return new Cartelera.Dia(dia, enCartel);
+    }
+}
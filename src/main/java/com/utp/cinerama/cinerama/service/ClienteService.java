@@ -1,20 +1,33 @@
 package com.utp.cinerama.cinerama.service;
 
 import com.utp.cinerama.cinerama.model.Cliente;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class ClienteService {
 
+    public static final int LIMITE_BUSQUEDA_POR_DEFECTO = 10;
+
     private List<Cliente> clientes = new ArrayList<>();
     private AtomicLong contador = new AtomicLong(1);
 
+    // Índice por prefijo de nombre, apellido y nombre completo para el autocompletado
+    private final IndicePrefijos<Cliente> indiceNombres = new IndicePrefijos<>();
+
+    // Índices por id y por email (en minúsculas) para búsquedas y unicidad sin recorrer la lista
+    private final Map<Long, Cliente> clientesPorId = new ConcurrentHashMap<>();
+    private final Map<String, Cliente> clientesPorEmail = new ConcurrentHashMap<>();
+
     public ClienteService() {
         inicializarDatosPrueba();
     }
@@ -25,57 +38,87 @@ public class ClienteService {
     }
 
     public Optional<Cliente> obtenerClientePorId(Long id) {
-        return clientes.stream()
-                .filter(cliente -> cliente.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(id != null ? clientesPorId.get(id) : null);
     }
 
-    public Cliente crearCliente(Cliente cliente) {
+    public synchronized Cliente crearCliente(Cliente cliente) {
         // Verificar email único
-        boolean existeEmail = clientes.stream()
-                .anyMatch(c -> c.getEmail().equalsIgnoreCase(cliente.getEmail()));
-        
-        if (existeEmail) {
+        if (existeEmail(cliente.getEmail())) {
             throw new RuntimeException("Ya existe un cliente con ese email: " + cliente.getEmail());
         }
 
         cliente.setId(contador.getAndIncrement());
+        cliente.setVersion(0);
         validarCliente(cliente);
-        clientes.add(cliente);
+        agregarCliente(cliente);
         return cliente;
     }
 
-    public Optional<Cliente> actualizarCliente(Long id, Cliente clienteActualizado) {
+    // Importación masiva: valida el lote en paralelo con las mismas reglas de crearCliente
+    // y luego verifica la unicidad del email contra el índice al insertar
+    public void importarClientes(List<LectorImportacion.Linea<Cliente>> lote, ResultadoImportacion resultado) {
+        String[] errores = new String[lote.size()];
+        IntStream.range(0, lote.size()).parallel().forEach(i -> {
+            try {
+                validarCliente(lote.get(i).getValor());
+            } catch (RuntimeException e) {
+                errores[i] = e.getMessage();
+            }
+        });
+
+        synchronized (this) {
+            for (int i = 0; i < lote.size(); i++) {
+                LectorImportacion.Linea<Cliente> linea = lote.get(i);
+                Cliente cliente = linea.getValor();
+
+                if (errores[i] == null && existeEmail(cliente.getEmail())) {
+                    errores[i] = "Ya existe un cliente con ese email: " + cliente.getEmail();
+                }
+                if (errores[i] != null) {
+                    resultado.registrarError(linea.getNumero(), errores[i]);
+                    continue;
+                }
+
+                cliente.setId(contador.getAndIncrement());
+                cliente.setVersion(0);
+                agregarCliente(cliente);
+                resultado.registrarImportado();
+            }
+        }
+    }
+
+    // Si se indica versionEsperada y el cliente cambió desde entonces, lanza ConflictoVersionException
+    public synchronized Optional<Cliente> actualizarCliente(Long id, Cliente clienteActualizado, Long versionEsperada) {
         Optional<Cliente> clienteExistente = obtenerClientePorId(id);
         
         if (clienteExistente.isPresent()) {
             Cliente cliente = clienteExistente.get();
+            ContadorVersiones.verificarVersion(cliente.getVersion(), versionEsperada);
             
             // Verificar email único (excluyendo el cliente actual)
-            boolean existeOtroEmail = clientes.stream()
-                    .anyMatch(c -> !c.getId().equals(id) && 
-                             c.getEmail().equalsIgnoreCase(clienteActualizado.getEmail()));
-            
-            if (existeOtroEmail) {
+            if (existeOtroEmail(id, clienteActualizado.getEmail())) {
                 throw new RuntimeException("Ya existe otro cliente con ese email: " + clienteActualizado.getEmail());
             }
 
             cliente.setNombre(clienteActualizado.getNombre());
-            cliente.setEmail(clienteActualizado.getEmail());
+            cambiarEmail(cliente, clienteActualizado.getEmail());
             cliente.setTelefono(clienteActualizado.getTelefono());
             
             validarCliente(cliente);
+            indexarNombre(cliente);
+            cliente.setVersion(cliente.getVersion() + 1);
             return Optional.of(cliente);
         }
         
         return Optional.empty();
     }
 
-    public Optional<Cliente> actualizarClienteParcial(Long id, Cliente clienteParcial) {
+    public synchronized Optional<Cliente> actualizarClienteParcial(Long id, Cliente clienteParcial, Long versionEsperada) {
         Optional<Cliente> clienteExistente = obtenerClientePorId(id);
         
         if (clienteExistente.isPresent()) {
             Cliente cliente = clienteExistente.get();
+            ContadorVersiones.verificarVersion(cliente.getVersion(), versionEsperada);
             
             if (clienteParcial.getNombre() != null) {
                 cliente.setNombre(clienteParcial.getNombre());
@@ -83,14 +126,10 @@ public class ClienteService {
             
             if (clienteParcial.getEmail() != null) {
                 // Verificar email único
-                boolean existeOtroEmail = clientes.stream()
-                        .anyMatch(c -> !c.getId().equals(id) && 
-                                 c.getEmail().equalsIgnoreCase(clienteParcial.getEmail()));
-                
-                if (existeOtroEmail) {
+                if (existeOtroEmail(id, clienteParcial.getEmail())) {
                     throw new RuntimeException("Ya existe otro cliente con ese email: " + clienteParcial.getEmail());
                 }
-                cliente.setEmail(clienteParcial.getEmail());
+                cambiarEmail(cliente, clienteParcial.getEmail());
             }
             
             if (clienteParcial.getTelefono() != null) {
@@ -98,28 +137,34 @@ public class ClienteService {
             }
             
             validarCliente(cliente);
+            indexarNombre(cliente);
+            cliente.setVersion(cliente.getVersion() + 1);
             return Optional.of(cliente);
         }
         
         return Optional.empty();
     }
 
-    public boolean eliminarCliente(Long id) {
-        return clientes.removeIf(cliente -> cliente.getId().equals(id));
+    public synchronized boolean eliminarCliente(Long id) {
+        Cliente cliente = clientesPorId.remove(id);
+        if (cliente == null) {
+            return false;
+        }
+        clientes.remove(cliente);
+        clientesPorEmail.remove(claveEmail(cliente.getEmail()), cliente);
+        indiceNombres.quitar(id);
+        return true;
     }
 
     // Métodos de búsqueda específicos
     public Optional<Cliente> buscarPorEmail(String email) {
-        return clientes.stream()
-                .filter(cliente -> cliente.getEmail().equalsIgnoreCase(email))
-                .findFirst();
+        return Optional.ofNullable(clientesPorEmail.get(claveEmail(email)));
     }
 
-    public List<Cliente> buscarPorNombre(String nombre) {
-        return clientes.stream()
-                .filter(cliente -> cliente.getNombre().toLowerCase()
-                        .contains(nombre.toLowerCase()))
-                .collect(Collectors.toList());
+    // Autocompletado: coincidencias por prefijo (sin distinguir tildes ni mayúsculas)
+    // sobre el nombre, el apellido o el nombre completo
+    public List<Cliente> buscarPorNombre(String nombre, int limite) {
+        return indiceNombres.buscar(nombre, limite);
     }
 
     public Optional<Cliente> buscarPorTelefono(String telefono) {
@@ -129,8 +174,7 @@ public class ClienteService {
     }
 
     public boolean existeEmail(String email) {
-        return clientes.stream()
-                .anyMatch(cliente -> cliente.getEmail().equalsIgnoreCase(email));
+        return clientesPorEmail.containsKey(claveEmail(email));
     }
 
     public boolean existeTelefono(String telefono) {
@@ -139,6 +183,38 @@ public class ClienteService {
     }
 
     // Métodos auxiliares
+    private void agregarCliente(Cliente cliente) {
+        clientes.add(cliente);
+        clientesPorId.put(cliente.getId(), cliente);
+        clientesPorEmail.put(claveEmail(cliente.getEmail()), cliente);
+        indexarNombre(cliente);
+    }
+
+    private boolean existeOtroEmail(Long id, String email) {
+        Cliente otro = clientesPorEmail.get(claveEmail(email));
+        return otro != null && !otro.getId().equals(id);
+    }
+
+    private synchronized void cambiarEmail(Cliente cliente, String email) {
+        clientesPorEmail.remove(claveEmail(cliente.getEmail()), cliente);
+        cliente.setEmail(email);
+        clientesPorEmail.put(claveEmail(email), cliente);
+    }
+
+    private String claveEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void indexarNombre(Cliente cliente) {
+        List<String> textos = new ArrayList<>();
+        textos.add(cliente.getNombre());
+        if (cliente.getApellido() != null) {
+            textos.add(cliente.getApellido());
+            textos.add(cliente.getNombreCompleto());
+        }
+        indiceNombres.agregar(cliente.getId(), cliente, textos);
+    }
+
     private void validarCliente(Cliente cliente) {
         if (cliente.getNombre() == null || cliente.getNombre().trim().isEmpty()) {
             throw new RuntimeException("El nombre es obligatorio");
@@ -180,8 +256,8 @@ public class ClienteService {
         cliente3.setEmail("carlos.celis@email.com");
         cliente3.setTelefono("987654323");
 
-        clientes.add(cliente1);
-        clientes.add(cliente2);
-        clientes.add(cliente3);
+        agregarCliente(cliente1);
+        agregarCliente(cliente2);
+        agregarCliente(cliente3);
     }
 }
\ No newline at end of file
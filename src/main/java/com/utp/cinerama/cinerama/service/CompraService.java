@@ -0,0 +1,86 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Cliente;
+import com.utp.cinerama.cinerama.model.Pago;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Compra de boletos en una sola operación: reserva los asientos, crea el pago y lo envía a autorizar.
+// Al aprobarse el pago los boletos pasan a PAGADO (PagoService); si cualquier paso falla o el pago es
+// rechazado, los boletos reservados se cancelan y los asientos vuelven a quedar libres.
+@Service
+public class CompraService {
+
+    @Autowired
+    private BoletoService boletoService;
+
+    @Autowired
+    private PagoService pagoService;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    // Si no se indican asientos se eligen los mejores 'cantidad' asientos juntos
+    public Pago comprarBoletos(Long funcionId, Long clienteId, List<String> asientos, Integer cantidad,
+                               Pago.MetodoPago metodoPago, Pago.TipoComprobante tipoComprobante,
+                               String numeroTarjeta) {
+
+        Cliente cliente = clienteService.obtenerClientePorId(clienteId)
+                .orElseThrow(() -> new RuntimeException("Cliente no encontrado"));
+        validarMetodoPago(metodoPago, numeroTarjeta);
+
+        // Todos los asientos se reservan con el mapa de la función bloqueado una sola vez
+        List<Boleto> boletos;
+        if (asientos != null && !asientos.isEmpty()) {
+            boletos = boletoService.reservarAsientos(funcionId, asientos, cliente);
+        } else if (cantidad != null) {
+            boletos = boletoService.reservarMejoresAsientos(funcionId, cantidad, cliente);
+        } else {
+            throw new RuntimeException("Debe indicar la cantidad o los asientos");
+        }
+        List<Long> boletosIds = boletos.stream().map(Boleto::getId).collect(Collectors.toList());
+
+        Pago pago;
+        try {
+            pago = pagoService.crearPagoParaBoletos(boletosIds, cliente, metodoPago, tipoComprobante);
+            if (esTarjeta(metodoPago)) {
+                pagoService.procesarPagoTarjeta(pago.getId(), numeroTarjeta);
+            } else {
+                pagoService.procesarPagoApp(pago.getId());
+            }
+        } catch (RuntimeException e) {
+            boletoService.liberarBoletos(boletosIds);
+            throw e;
+        }
+
+        // Compensación: si el pago no se completa, los asientos se liberan
+        pagoService.resultadoDe(pago.getId()).thenAccept(resultado -> {
+            if (!resultado.estaPagado()) {
+                boletoService.liberarBoletos(boletosIds);
+            }
+        });
+        return pago;
+    }
+
+    // Métodos auxiliares
+    private void validarMetodoPago(Pago.MetodoPago metodoPago, String numeroTarjeta) {
+        if (metodoPago == null) {
+            throw new RuntimeException("El método de pago es obligatorio");
+        }
+        if (metodoPago == Pago.MetodoPago.EFECTIVO) {
+            throw new RuntimeException("El pago en efectivo solo está disponible en boletería");
+        }
+        if (esTarjeta(metodoPago) && (numeroTarjeta == null || numeroTarjeta.isBlank())) {
+            throw new RuntimeException("El número de tarjeta es obligatorio");
+        }
+    }
+
+    private boolean esTarjeta(Pago.MetodoPago metodoPago) {
+        return metodoPago == Pago.MetodoPago.TARJETA_CREDITO || metodoPago == Pago.MetodoPago.TARJETA_DEBITO;
+    }
+}
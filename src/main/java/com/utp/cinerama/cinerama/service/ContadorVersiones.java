@@ -0,0 +1,146 @@
+package com.utp.cinerama.cinerama.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Versión monótona de una colección y de cada una de sus entidades, para responder GET condicionales.
+// El servicio dueño llama a registrarCambio después de cada modificación y el controlador lee la marca
+// antes de leer los datos, así una respuesta nunca queda etiquetada con una versión posterior a su contenido.
+// La marca de cada entidad lleva la versión propia de la entidad, de modo que el ETag de un GET sirve
+// como If-Match en un PUT/PATCH posterior.
+public class ContadorVersiones {
+
+    // Distingue las versiones de distintos arranques, ya que los contadores vuelven a empezar
+    private static final String ARRANQUE = Long.toString(System.currentTimeMillis(), 36);
+
+    private final String nombre;
+    private final long creacion = System.currentTimeMillis();
+    private final AtomicReference<Marca> coleccion;
+    private final Map<Long, Marca> porEntidad = new ConcurrentHashMap<>();
+
+    // Versión en un instante: etiqueta para el ETag y fecha para Last-Modified
+    public static class Marca {
+        private final String etiqueta;
+        private final long version;
+        private final long ultimaModificacion;
+
+        private Marca(String etiqueta, long version, long ultimaModificacion) {
+            this.etiqueta = etiqueta;
+            this.version = version;
+            this.ultimaModificacion = ultimaModificacion;
+        }
+
+        // Para respuestas que incluyen datos de otra colección (ej: una función con su película)
+        public Marca combinar(Marca otra) {
+            return new Marca(etiqueta + "." + otra.etiqueta, version,
+                    Math.max(ultimaModificacion, otra.ultimaModificacion));
+        }
+
+        // Para respuestas que además dependen de otro valor (ej: el día actual)
+        public Marca combinar(String parte) {
+            return new Marca(etiqueta + "." + parte, version, ultimaModificacion);
+        }
+
+        // ETag fuerte; la variante gzip es otra representación y lleva su propia etiqueta
+        public String etag(boolean gzip) {
+            return "\"" + etiqueta + (gzip ? "-gz" : "") + "\"";
+        }
+
+        public long getVersion() { return version; }
+        public long getUltimaModificacion() { return ultimaModificacion; }
+    }
+
+    // La modificación se pidió sobre una versión que ya no es la vigente
+    public static class ConflictoVersionException extends RuntimeException {
+        public ConflictoVersionException(long vigente) {
+            super("La entidad fue modificada por otra petición; la versión vigente es " + vigente);
+        }
+    }
+
+    // Para las versiones que se llevan fuera de esta clase (ej: el mapa de asientos) y también vuelven a cero
+    public static String arranque() {
+        return ARRANQUE;
+    }
+
+    // Debe llamarse con el bloqueo de escritura tomado, justo antes de modificar la entidad.
+    // Sin versión esperada (no se envió If-Match) la modificación no es condicional.
+    public static void verificarVersion(long vigente, Long esperada) {
+        if (esperada != null && esperada != vigente) {
+            throw new ConflictoVersionException(vigente);
+        }
+    }
+
+    // Versión que pide el If-Match: el ETag de la entidad (con o sin -gz, en las funciones la primera
+    // parte) o el número de versión entre comillas. "*" o la cabecera ausente no exigen versión;
+    // un ETag de otro arranque o con otro formato no coincide con ninguna.
+    public static Long versionEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+        int punto = valor.indexOf('.');
+        if (punto >= 0) {
+            valor = valor.substring(0, punto);
+        }
+        if (valor.endsWith("-gz")) {
+            valor = valor.substring(0, valor.length() - 3);
+        }
+
+        String[] partes = valor.split("-");
+        try {
+            if (partes.length == 1) {
+                return Long.parseLong(partes[0]);
+            }
+            if (partes.length == 3 && partes[1].equals(ARRANQUE)) {
+                return Long.parseLong(partes[2]);
+            }
+        } catch (NumberFormatException e) {
+            // Se trata como una versión que no existe
+        }
+        return -1L;
+    }
+
+    public ContadorVersiones(String nombre) {
+        this.nombre = nombre;
+        this.coleccion = new AtomicReference<>(marca(0, creacion));
+    }
+
+    // Un id nulo indica que cambiaron varias entidades; solo avanza la versión de la colección.
+    // Con versionEntidad nula (entidad eliminada) se descarta la marca de la entidad.
+    public void registrarCambio(Long id, Long versionEntidad) {
+        long ahora = System.currentTimeMillis();
+        Marca nueva = coleccion.updateAndGet(actual ->
+                marca(actual.version + 1, Math.max(ahora, actual.ultimaModificacion)));
+        if (id == null) {
+            return;
+        }
+        if (versionEntidad == null) {
+            porEntidad.remove(id);
+        } else {
+            porEntidad.put(id, marca(versionEntidad, nueva.ultimaModificacion));
+        }
+    }
+
+    public void registrarCambio(Long id) {
+        registrarCambio(id, null);
+    }
+
+    public Marca coleccion() {
+        return coleccion.get();
+    }
+
+    public Marca entidad(Long id) {
+        Marca marca = porEntidad.get(id);
+        return marca != null ? marca : marca(0, creacion);
+    }
+
+    // Métodos auxiliares
+    private Marca marca(long version, long ultimaModificacion) {
+        return new Marca(nombre + "-" + ARRANQUE + "-" + version, version, ultimaModificacion);
+    }
+}
@@ -0,0 +1,68 @@
+package com.utp.cinerama.cinerama.service;
+
+// Frecuencia aproximada de elementos con memoria fija (profundidad x ancho contadores).
+// Nunca subestima; sobrestima como máximo en total * e / ancho con probabilidad 1 - e^-profundidad.
+// Dos sketches de las mismas dimensiones se combinan sumando sus contadores.
+public class CountMinSketch {
+
+    private final int profundidad;
+    private final int ancho;
+    private final long[][] contadores;
+    private long total;
+
+    public CountMinSketch(int profundidad, int ancho) {
+        if (Integer.bitCount(ancho) != 1) {
+            throw new RuntimeException("El ancho debe ser una potencia de 2");
+        }
+        this.profundidad = profundidad;
+        this.ancho = ancho;
+        this.contadores = new long[profundidad][ancho];
+    }
+
+    public void agregar(String elemento, long cantidad) {
+        long hash = hash(elemento);
+        for (int fila = 0; fila < profundidad; fila++) {
+            contadores[fila][columna(hash, fila)] += cantidad;
+        }
+        total += cantidad;
+    }
+
+    public long estimar(String elemento) {
+        long hash = hash(elemento);
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < profundidad; fila++) {
+            minimo = Math.min(minimo, contadores[fila][columna(hash, fila)]);
+        }
+        return minimo;
+    }
+
+    public void combinar(CountMinSketch otro) {
+        if (otro.profundidad != profundidad || otro.ancho != ancho) {
+            throw new RuntimeException("No se pueden combinar sketches de distintas dimensiones");
+        }
+        for (int fila = 0; fila < profundidad; fila++) {
+            for (int columna = 0; columna < ancho; columna++) {
+                contadores[fila][columna] += otro.contadores[fila][columna];
+            }
+        }
+        total += otro.total;
+    }
+
+    public long getTotal() { return total; }
+
+    // Métodos auxiliares
+    private int columna(long hash, int fila) {
+        // Doble hashing: h1 + fila * h2
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + fila * h2) & (ancho - 1);
+    }
+
+    private static long hash(String elemento) {
+        long h = elemento.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,155 @@
+package com.utp.cinerama.cinerama.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Un buzón por función: los comandos que modifican los boletos y asientos de una función se
+// ejecutan de a uno, en orden de llegada, en un hilo virtual que solo atiende a esa función.
+// Funciones distintas avanzan en paralelo y una función muy concurrida no frena a las demás.
+// Cuando llegan ráfagas, el hilo procesa hasta loteMaximo comandos seguidos antes de ceder.
+// Si el buzón está libre, quien envía un comando y espera su resultado lo atiende él mismo en lugar
+// de pasarlo a otro hilo y quedarse bloqueado; solo cuando hay cola el comando espera su turno.
+// Los buzones vacíos se retiran del mapa para no acumular uno por cada función que existió.
+@Component
+public class EjecutorPorFuncion {
+
+    @Value("${cinerama.boletos.ejecutor-por-funcion:true}")
+    private boolean habilitado;
+
+    @Value("${cinerama.boletos.lote-maximo:32}")
+    private int loteMaximo;
+
+    private final Map<Long, Buzon> buzones = new ConcurrentHashMap<>();
+    // Un hilo virtual por tarea (el pom fija Java 21)
+    private final ExecutorService hilos =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("funcion-", 1).factory());
+
+    // Función cuyo buzón está atendiendo el hilo actual (para comandos que llaman a otros comandos)
+    private static final ThreadLocal<Long> funcionEnCurso = new ThreadLocal<>();
+
+    @PreDestroy
+    public void detener() {
+        hilos.shutdownNow();
+    }
+
+    // Ejecuta el comando en el buzón de la función y espera su resultado.
+    // Las excepciones del comando se relanzan tal cual en el hilo que lo envió.
+    public <T> T ejecutar(Long funcionId, Supplier<T> comando) {
+        if (!habilitado || funcionId == null || funcionId.equals(funcionEnCurso.get())) {
+            return comando.get();
+        }
+
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Buzon buzon = encolar(funcionId, () -> {
+            try {
+                resultado.complete(comando.get());
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        buzon.atenderHasta(resultado);
+
+        try {
+            return resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Encola el comando sin esperar a que termine; el comando debe manejar sus propias excepciones
+    public void enviar(Long funcionId, Runnable comando) {
+        if (!habilitado || funcionId == null || funcionId.equals(funcionEnCurso.get())) {
+            comando.run();
+            return;
+        }
+        encolar(funcionId, comando).programar();
+    }
+
+    // El comando se agrega dentro de compute para que no caiga en un buzón que se está retirando
+    private Buzon encolar(Long funcionId, Runnable comando) {
+        return buzones.compute(funcionId, (id, buzon) -> {
+            Buzon destino = buzon != null ? buzon : new Buzon(id);
+            destino.cola.add(comando);
+            return destino;
+        });
+    }
+
+    private class Buzon {
+        private final Long funcionId;
+        private final Queue<Runnable> cola = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+
+        Buzon(Long funcionId) {
+            this.funcionId = funcionId;
+        }
+
+        // Solo un hilo a la vez atiende el buzón
+        void programar() {
+            if (programado.compareAndSet(false, true)) {
+                hilos.execute(() -> atender(null));
+            }
+        }
+
+        // Si nadie atiende el buzón, el hilo que espera el resultado lo atiende hasta ejecutar su
+        // comando (los que estaban antes en la cola van primero) y deja el resto a un hilo virtual
+        void atenderHasta(CompletableFuture<?> resultado) {
+            if (programado.compareAndSet(false, true)) {
+                atender(resultado);
+            }
+        }
+
+        private void atender(CompletableFuture<?> propio) {
+            Long anterior = funcionEnCurso.get();
+            funcionEnCurso.set(funcionId);
+            try {
+                int procesados = 0;
+                Runnable comando;
+                while (procesados < loteMaximo && (propio == null || !propio.isDone())
+                        && (comando = cola.poll()) != null) {
+                    try {
+                        comando.run();
+                    } catch (RuntimeException e) {
+                        // Un comando de enviar() que no manejó su error no debe caerle a quien atiende el buzón
+                    }
+                    procesados++;
+                }
+            } finally {
+                if (anterior != null) {
+                    funcionEnCurso.set(anterior);
+                } else {
+                    funcionEnCurso.remove();
+                }
+                liberar();
+            }
+        }
+
+        // Se retira del mapa mientras todavía lo atiende este hilo: así nadie más puede encolar en él
+        // y el próximo comando de la función crea un buzón nuevo. Si quedan comandos (lote completo,
+        // o llegaron al terminar) se sigue en otro hilo.
+        private void liberar() {
+            buzones.computeIfPresent(funcionId, (id, buzon) -> buzon == this && cola.isEmpty() ? null : buzon);
+            programado.set(false);
+            if (!cola.isEmpty()) {
+                programar();
+            }
+        }
+    }
+}
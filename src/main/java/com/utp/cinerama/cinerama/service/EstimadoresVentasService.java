@@ -0,0 +1,231 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.ConteoEstimado;
+import com.utp.cinerama.cinerama.model.Pelicula;
+import com.utp.cinerama.cinerama.model.Producto;
+import com.utp.cinerama.cinerama.model.VentaProducto;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+// Estimadores de memoria constante actualizados en cada venta: clientes distintos (HyperLogLog) por
+// película, función y día, y los más vendidos (Count-Min + montículo) entre películas y productos,
+// por día y por hora. Las ventanas de varios días u horas se combinan al consultar.
+// Las anulaciones no se descuentan: los estimadores reflejan las ventas realizadas.
+// Películas y productos se cuentan por id, que no cambia con un renombre; el título o nombre
+// se busca al responder.
+@Service
+public class EstimadoresVentasService {
+
+    private static final int PRECISION_CLIENTES = 10;
+    private static final int K = 20;
+    private static final int PROFUNDIDAD = 4;
+    private static final int ANCHO = 256;
+
+    @Value("${cinerama.estimadores.dias-retencion:90}")
+    private int diasRetencion;
+
+    @Autowired
+    private PeliculaService peliculaService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    private final ConcurrentSkipListMap<LocalDate, VentanaDia> dias = new ConcurrentSkipListMap<>();
+
+    // Último título o nombre visto, para responder aunque la película o el producto ya no exista
+    private final Map<Long, String> titulosPelicula = new ConcurrentHashMap<>();
+    private final Map<Long, String> nombresProducto = new ConcurrentHashMap<>();
+
+    public void registrarBoleto(Boleto boleto, LocalDateTime fecha) {
+        Pelicula datosPelicula = boleto.getFuncion() != null ? boleto.getFuncion().getPelicula() : null;
+        Long pelicula = datosPelicula != null ? datosPelicula.getId() : null;
+        if (pelicula != null && datosPelicula.getTitulo() != null) {
+            titulosPelicula.put(pelicula, datosPelicula.getTitulo());
+        }
+        Long funcionId = boleto.getFuncion() != null ? boleto.getFuncion().getId() : null;
+        Long clienteId = boleto.getCliente() != null ? boleto.getCliente().getId() : null;
+
+        VentanaDia dia = ventana(fecha.toLocalDate());
+        synchronized (dia) {
+            if (clienteId != null) {
+                dia.clientes.agregar(clienteId);
+                if (pelicula != null) {
+                    dia.clientesPorPelicula.computeIfAbsent(pelicula, p -> nuevoEstimadorClientes()).agregar(clienteId);
+                }
+                if (funcionId != null) {
+                    dia.clientesPorFuncion.computeIfAbsent(funcionId, f -> nuevoEstimadorClientes()).agregar(clienteId);
+                }
+            }
+            if (pelicula != null) {
+                dia.peliculas.agregar(pelicula.toString(), 1);
+                dia.hora(fecha.getHour()).peliculas.agregar(pelicula.toString(), 1);
+            }
+        }
+    }
+
+    public void registrarVentaProductos(VentaProducto venta, LocalDateTime fecha) {
+        Long clienteId = venta.getCliente() != null ? venta.getCliente().getId() : null;
+
+        VentanaDia dia = ventana(fecha.toLocalDate());
+        synchronized (dia) {
+            if (clienteId != null) {
+                dia.clientes.agregar(clienteId);
+            }
+            VentanaHora hora = dia.hora(fecha.getHour());
+            for (VentaProducto.DetalleVentaProducto detalle : venta.getDetalles()) {
+                Producto producto = detalle.getProducto();
+                if (producto != null && producto.getId() != null) {
+                    if (producto.getNombre() != null) {
+                        nombresProducto.put(producto.getId(), producto.getNombre());
+                    }
+                    dia.productos.agregar(producto.getId().toString(), detalle.getCantidad());
+                    hora.productos.agregar(producto.getId().toString(), detalle.getCantidad());
+                }
+            }
+        }
+    }
+
+    // Clientes distintos del período; si se indica película o función, solo los de sus boletos
+    public long estimarClientesDistintos(LocalDate desde, LocalDate hasta, Long pelicula, Long funcionId) {
+        HyperLogLog union = nuevoEstimadorClientes();
+        for (VentanaDia dia : rango(desde, hasta)) {
+            synchronized (dia) {
+                HyperLogLog estimador = funcionId != null ? dia.clientesPorFuncion.get(funcionId)
+                        : pelicula != null ? dia.clientesPorPelicula.get(pelicula)
+                        : dia.clientes;
+                if (estimador != null) {
+                    union.combinar(estimador);
+                }
+            }
+        }
+        return union.estimar();
+    }
+
+    // Clientes distintos de cada película en el período
+    public List<ConteoEstimado> estimarClientesPorPelicula(LocalDate desde, LocalDate hasta) {
+        Map<Long, HyperLogLog> uniones = new HashMap<>();
+        for (VentanaDia dia : rango(desde, hasta)) {
+            synchronized (dia) {
+                dia.clientesPorPelicula.forEach((pelicula, estimador) ->
+                        uniones.computeIfAbsent(pelicula, p -> nuevoEstimadorClientes()).combinar(estimador));
+            }
+        }
+
+        List<ConteoEstimado> resultado = new ArrayList<>();
+        uniones.forEach((pelicula, estimador) -> resultado.add(new ConteoEstimado(pelicula,
+                tituloDePelicula(pelicula), estimador.estimar())));
+        resultado.sort((a, b) -> Long.compare(b.getCantidad(), a.getCantidad()));
+        return resultado;
+    }
+
+    // Películas con más boletos; con 'hora' solo cuenta esa hora de cada día
+    public List<ConteoEstimado> obtenerTopPeliculas(LocalDate desde, LocalDate hasta, Integer hora, int limite) {
+        return top(desde, hasta, hora, limite, true);
+    }
+
+    // Productos con más unidades vendidas; con 'hora' solo cuenta esa hora de cada día
+    public List<ConteoEstimado> obtenerTopProductos(LocalDate desde, LocalDate hasta, Integer hora, int limite) {
+        return top(desde, hasta, hora, limite, false);
+    }
+
+    public int getMaximoTop() { return K; }
+
+    // Métodos auxiliares
+    private List<ConteoEstimado> top(LocalDate desde, LocalDate hasta, Integer hora, int limite, boolean peliculas) {
+        if (hora != null && (hora < 0 || hora > 23)) {
+            throw new RuntimeException("La hora debe estar entre 0 y 23");
+        }
+
+        TopK union = nuevoTopK();
+        for (VentanaDia dia : rango(desde, hasta)) {
+            synchronized (dia) {
+                if (hora == null) {
+                    union.combinar(peliculas ? dia.peliculas : dia.productos);
+                } else if (dia.horas[hora] != null) {
+                    union.combinar(peliculas ? dia.horas[hora].peliculas : dia.horas[hora].productos);
+                }
+            }
+        }
+        // Los candidatos son ids; se muestran con el título o nombre vigente
+        return union.primeros(Math.min(limite, K)).stream()
+                .map(conteo -> {
+                    Long id = Long.valueOf(conteo.getValor());
+                    String nombre = peliculas ? tituloDePelicula(id) : nombreDeProducto(id);
+                    return new ConteoEstimado(id, nombre, conteo.getCantidad());
+                })
+                .collect(Collectors.toList());
+    }
+
+    private String tituloDePelicula(Long id) {
+        return peliculaService.obtenerPeliculaPorId(id).map(Pelicula::getTitulo)
+                .or(() -> Optional.ofNullable(titulosPelicula.get(id)))
+                .orElse("Película " + id);
+    }
+
+    private String nombreDeProducto(Long id) {
+        return productoService.obtenerProductoPorId(id).map(Producto::getNombre)
+                .or(() -> Optional.ofNullable(nombresProducto.get(id)))
+                .orElse("Producto " + id);
+    }
+
+    private Iterable<VentanaDia> rango(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha final no puede ser anterior a la inicial");
+        }
+        return dias.subMap(desde, true, hasta, true).values();
+    }
+
+    private VentanaDia ventana(LocalDate dia) {
+        VentanaDia ventana = dias.get(dia);
+        if (ventana == null) {
+            ventana = dias.computeIfAbsent(dia, d -> new VentanaDia());
+            // Se descartan los días fuera del período de retención
+            dias.headMap(LocalDate.now().minusDays(diasRetencion)).clear();
+        }
+        return ventana;
+    }
+
+    private static HyperLogLog nuevoEstimadorClientes() {
+        return new HyperLogLog(PRECISION_CLIENTES);
+    }
+
+    private static TopK nuevoTopK() {
+        return new TopK(K, PROFUNDIDAD, ANCHO);
+    }
+
+    // Estimadores de un día; se modifican y leen sincronizando sobre la ventana
+    private static class VentanaDia {
+        private final HyperLogLog clientes = nuevoEstimadorClientes();
+        private final Map<Long, HyperLogLog> clientesPorPelicula = new HashMap<>();
+        private final Map<Long, HyperLogLog> clientesPorFuncion = new HashMap<>();
+        private final TopK peliculas = nuevoTopK();
+        private final TopK productos = nuevoTopK();
+        private final VentanaHora[] horas = new VentanaHora[24];
+
+        private VentanaHora hora(int hora) {
+            if (horas[hora] == null) {
+                horas[hora] = new VentanaHora();
+            }
+            return horas[hora];
+        }
+    }
+
+    private static class VentanaHora {
+        private final TopK peliculas = nuevoTopK();
+        private final TopK productos = nuevoTopK();
+    }
+}
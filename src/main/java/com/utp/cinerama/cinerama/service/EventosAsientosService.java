@@ -0,0 +1,191 @@
+package com.utp.cinerama.cinerama.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Difunde los cambios del mapa de asientos de cada función a los navegadores suscritos (SSE o WebSocket).
+// Las conexiones no ocupan un hilo: un único hilo de difusión reparte los eventos, en el orden en que se
+// publican, a una cola acotada por suscriptor, y cada cola se vacía aparte en el pool de envío. Así un
+// navegador lento solo se atrasa él; si su cola se llena o un envío suyo tarda más de timeout-envio-ms,
+// se le cierra la conexión (el cliente reconecta y recibe el mapa completo).
+@Service
+public class EventosAsientosService {
+
+    private static final long TIMEOUT_SSE_MS = 30 * 60 * 1000L;
+
+    @Value("${cinerama.asientos.eventos-pendientes:256}")
+    private int eventosPendientes;
+
+    @Value("${cinerama.asientos.timeout-envio-ms:5000}")
+    private long timeoutEnvioMs;
+
+    // Destino de los eventos de una conexión
+    public interface Canal {
+        void enviar(String evento, String datos) throws IOException;
+
+        void cerrar();
+    }
+
+    // Un canal suscrito con los eventos que todavía no se le enviaron
+    private final class Suscripcion {
+        final Long funcionId;
+        final Canal canal;
+        final BlockingQueue<String[]> pendientes = new ArrayBlockingQueue<>(eventosPendientes);
+        final AtomicBoolean programada = new AtomicBoolean();
+        volatile long enviandoDesde;   // 0 = ningún envío en curso
+        volatile boolean cerrada;
+
+        Suscripcion(Long funcionId, Canal canal) {
+            this.funcionId = funcionId;
+            this.canal = canal;
+        }
+    }
+
+    private final Map<Long, Map<Canal, Suscripcion>> suscriptores = new ConcurrentHashMap<>();
+
+    private final ExecutorService difusion = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "difusion-asientos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Un hilo virtual por vaciado: un envío trabado en un cliente lento no demora a los demás y
+    // tampoco retiene un hilo del sistema mientras espera
+    private final ExecutorService envios = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("envio-asientos-", 1).factory());
+
+    public SseEmitter suscribirSse(Long funcionId, Supplier<String> mapaInicial) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_SSE_MS);
+        Canal canal = new Canal() {
+            @Override
+            public void enviar(String evento, String datos) throws IOException {
+                emitter.send(SseEmitter.event().name(evento).data(datos));
+            }
+
+            @Override
+            public void cerrar() {
+                emitter.complete();
+            }
+        };
+
+        emitter.onCompletion(() -> desuscribir(funcionId, canal));
+        emitter.onTimeout(() -> desuscribir(funcionId, canal));
+        emitter.onError(e -> desuscribir(funcionId, canal));
+
+        suscribir(funcionId, canal, mapaInicial);
+        return emitter;
+    }
+
+    // El mapa inicial se calcula en el hilo de difusión, después de registrar el canal: así ningún
+    // cambio se pierde entre la foto inicial y los eventos siguientes (el cliente descarta los de
+    // versión menor o igual a la del mapa)
+    public void suscribir(Long funcionId, Canal canal, Supplier<String> mapaInicial) {
+        difusion.execute(() -> {
+            Suscripcion suscripcion = new Suscripcion(funcionId, canal);
+            suscriptores.computeIfAbsent(funcionId, id -> new ConcurrentHashMap<>()).put(canal, suscripcion);
+            encolar(suscripcion, "mapa", mapaInicial.get());
+        });
+    }
+
+    public void desuscribir(Long funcionId, Canal canal) {
+        Map<Canal, Suscripcion> canales = suscriptores.get(funcionId);
+        if (canales != null) {
+            Suscripcion suscripcion = canales.remove(canal);
+            if (suscripcion != null) {
+                suscripcion.cerrada = true;
+                suscripcion.pendientes.clear();
+            }
+        }
+    }
+
+    public void publicar(Long funcionId, String evento, String datos) {
+        difusion.execute(() -> {
+            Map<Canal, Suscripcion> canales = suscriptores.get(funcionId);
+            if (canales == null) {
+                return;
+            }
+            for (Suscripcion suscripcion : canales.values()) {
+                encolar(suscripcion, evento, datos);
+            }
+        });
+    }
+
+    public int contarSuscriptores(Long funcionId) {
+        Map<Canal, Suscripcion> canales = suscriptores.get(funcionId);
+        return canales != null ? canales.size() : 0;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        difusion.shutdownNow();
+        envios.shutdownNow();
+        suscriptores.values().forEach(canales -> canales.keySet().forEach(Canal::cerrar));
+        suscriptores.clear();
+    }
+
+    // Métodos auxiliares
+    // Nunca bloquea al hilo de difusión
+    private void encolar(Suscripcion suscripcion, String evento, String datos) {
+        if (suscripcion.cerrada) {
+            return;
+        }
+        long desde = suscripcion.enviandoDesde;
+        boolean trabado = desde != 0 && System.currentTimeMillis() - desde > timeoutEnvioMs;
+        if (trabado || !suscripcion.pendientes.offer(new String[]{evento, datos})) {
+            descartar(suscripcion);
+            return;
+        }
+        programar(suscripcion);
+    }
+
+    // Cada suscripción se vacía en una sola tarea a la vez, para conservar el orden de sus eventos
+    private void programar(Suscripcion suscripcion) {
+        if (suscripcion.programada.compareAndSet(false, true)) {
+            envios.execute(() -> vaciar(suscripcion));
+        }
+    }
+
+    private void vaciar(Suscripcion suscripcion) {
+        try {
+            String[] evento;
+            while (!suscripcion.cerrada && (evento = suscripcion.pendientes.poll()) != null) {
+                suscripcion.enviandoDesde = System.currentTimeMillis();
+                try {
+                    suscripcion.canal.enviar(evento[0], evento[1]);
+                } catch (IOException | IllegalStateException e) {
+                    // La conexión se cerró del lado del cliente
+                    descartar(suscripcion);
+                } finally {
+                    suscripcion.enviandoDesde = 0;
+                }
+            }
+        } finally {
+            suscripcion.programada.set(false);
+        }
+        // Un evento encolado justo después del último poll no debe quedar esperando al siguiente
+        if (!suscripcion.cerrada && !suscripcion.pendientes.isEmpty()) {
+            programar(suscripcion);
+        }
+    }
+
+    private void descartar(Suscripcion suscripcion) {
+        desuscribir(suscripcion.funcionId, suscripcion.canal);
+        try {
+            suscripcion.canal.cerrar();
+        } catch (RuntimeException e) {
+            // La conexión ya estaba cerrada
+        }
+    }
+}
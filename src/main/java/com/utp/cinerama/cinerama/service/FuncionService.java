@@ -1,14 +1,18 @@
 package com.utp.cinerama.cinerama.service;
 
+import com.utp.cinerama.cinerama.model.EventoMutacion;
 import com.utp.cinerama.cinerama.model.Funcion;
 import com.utp.cinerama.cinerama.model.Pelicula;
 import com.utp.cinerama.cinerama.model.Sala;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
@@ -23,8 +27,15 @@ public class FuncionService {
     @Autowired
     private SalaService salaService;
 
-    private List<Funcion> funciones = new ArrayList<>();
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    // La lista se publica como instantánea inmutable (altas y bajas). Cada función sigue siendo mutable
+    // porque los boletos la referencian y sus asientos disponibles cambian con cada reserva; esos
+    // cambios se hacen con la función sincronizada.
+    private volatile Instantanea<Funcion> funciones = Instantanea.de(List.of(), Funcion::getId);
     private AtomicLong contador = new AtomicLong(1);
+    private final ContadorVersiones versiones = new ContadorVersiones("funciones");
 
     public FuncionService() {
         // Los datos de prueba se inicializan después de que se inyecte PeliculaService y SalaService
@@ -32,32 +43,48 @@ public class FuncionService {
 
     // Método para inicializar datos después de la inyección
     public void inicializarDatosPrueba() {
-        if (funciones.isEmpty() && peliculaService != null && salaService != null) {
+        if (!funciones.elementos().isEmpty() || peliculaService == null || salaService == null) {
+            return;
+        }
+        synchronized (this) {
             List<Pelicula> peliculas = peliculaService.obtenerTodasLasPeliculas();
             List<Sala> salas = salaService.obtenerTodasLasSalas();
-            if (!peliculas.isEmpty() && !salas.isEmpty()) {
+            if (funciones.elementos().isEmpty() && !peliculas.isEmpty() && !salas.isEmpty()) {
                 crearFuncionesPrueba(peliculas, salas);
+                publicarCambio(null, null);
             }
         }
     }
 
+    // Versiones para responder GET condicionales. Cada función incluye su película y su sala,
+    // así que la marca también cambia cuando se modifica alguna de esas colecciones.
+    public ContadorVersiones.Marca versionColeccion() {
+        return versiones.coleccion()
+                .combinar(peliculaService.versionColeccion())
+                .combinar(salaService.versionColeccion());
+    }
+
+    public ContadorVersiones.Marca versionDe(Long id) {
+        return versiones.entidad(id)
+                .combinar(peliculaService.versionColeccion())
+                .combinar(salaService.versionColeccion());
+    }
+
     // Métodos CRUD
     public List<Funcion> obtenerTodasLasFunciones() {
         inicializarDatosPrueba(); // Asegurar que hay datos
-        return new ArrayList<>(funciones);
+        return funciones.elementos();
     }
 
     public Optional<Funcion> obtenerFuncionPorId(Long id) {
-        return funciones.stream()
-                .filter(funcion -> funcion.getId().equals(id))
-                .findFirst();
+        return funciones.buscar(id);
     }
 
-    public Funcion crearFuncion(Funcion funcion) {
+    public synchronized Funcion crearFuncion(Funcion funcion) {
         validarFuncion(funcion);
         
         // Verificar que no hay conflicto de horario en la misma sala
-        boolean hayConflicto = funciones.stream()
+        boolean hayConflicto = funciones.elementos().stream()
                 .anyMatch(f -> f.getSala().getId().equals(funcion.getSala().getId()) &&
                           f.getFecha().equals(funcion.getFecha()) &&
                           Math.abs(f.getHora().toSecondOfDay() - funcion.getHora().toSecondOfDay()) < 7200); // 2 horas
@@ -67,80 +94,138 @@ public class FuncionService {
         }
 
         funcion.setId(contador.getAndIncrement());
-        funciones.add(funcion);
+        funcion.setVersion(0);
+        funciones = funciones.con(funcion);
+        publicarCambio(funcion.getId(), funcion.getFecha());
         return funcion;
     }
 
-    public Optional<Funcion> actualizarFuncion(Long id, Funcion funcionActualizada) {
+    // Se bloquea la función (no el servicio), igual que al reservar o liberar asientos, para que la
+    // versión comparada con If-Match no cambie entre la verificación y la escritura.
+    // Los datos nuevos se validan antes de tocar la función compartida: un rechazo no deja
+    // valores a medio aplicar que los demás hilos verían sin cambio de versión.
+    public Optional<Funcion> actualizarFuncion(Long id, Funcion funcionActualizada, Long versionEsperada) {
         Optional<Funcion> funcionExistente = obtenerFuncionPorId(id);
         
         if (funcionExistente.isPresent()) {
             Funcion funcion = funcionExistente.get();
+            validarFuncion(funcionActualizada);
+            synchronized (funcion) {
+                ContadorVersiones.verificarVersion(funcion.getVersion(), versionEsperada);
+                LocalDate fechaAnterior = funcion.getFecha();
             
-            // Verificar conflicto de horario (excluyendo la función actual)
-            boolean hayConflicto = funciones.stream()
-                    .anyMatch(f -> !f.getId().equals(id) &&
-                              f.getSala().getId().equals(funcionActualizada.getSala().getId()) &&
-                              f.getFecha().equals(funcionActualizada.getFecha()) &&
-                              Math.abs(f.getHora().toSecondOfDay() - funcionActualizada.getHora().toSecondOfDay()) < 7200);
+                // Verificar conflicto de horario (excluyendo la función actual)
+                boolean hayConflicto = funciones.elementos().stream()
+                        .anyMatch(f -> !f.getId().equals(id) &&
+                                  f.getSala().getId().equals(funcionActualizada.getSala().getId()) &&
+                                  f.getFecha().equals(funcionActualizada.getFecha()) &&
+                                  Math.abs(f.getHora().toSecondOfDay() - funcionActualizada.getHora().toSecondOfDay()) < 7200);
             
-            if (hayConflicto) {
-                throw new RuntimeException("Ya existe una función en esa sala y horario cercano");
-            }
+                if (hayConflicto) {
+                    throw new RuntimeException("Ya existe una función en esa sala y horario cercano");
+                }
 
-            funcion.setPelicula(funcionActualizada.getPelicula());
-            funcion.setSala(funcionActualizada.getSala());
-            funcion.setFecha(funcionActualizada.getFecha());
-            funcion.setHora(funcionActualizada.getHora());
-            funcion.setAsientosDisponibles(funcionActualizada.getAsientosDisponibles());
-            funcion.setAsientosTotales(funcionActualizada.getAsientosTotales());
-            
-            validarFuncion(funcion);
-            return Optional.of(funcion);
+                funcion.setPelicula(funcionActualizada.getPelicula());
+                funcion.setSala(funcionActualizada.getSala());
+                funcion.setFecha(funcionActualizada.getFecha());
+                funcion.setHora(funcionActualizada.getHora());
+                funcion.setAsientosDisponibles(funcionActualizada.getAsientosDisponibles());
+                funcion.setAsientosTotales(funcionActualizada.getAsientosTotales());
+                funcion.setVersion(funcion.getVersion() + 1);
+                publicarCambio(id, fechaAnterior);
+                if (!fechaAnterior.equals(funcion.getFecha())) {
+                    publicarCambio(id, funcion.getFecha());
+                }
+                return Optional.of(funcion);
+            }
         }
         
         return Optional.empty();
     }
 
-    public boolean eliminarFuncion(Long id) {
-        return funciones.removeIf(funcion -> funcion.getId().equals(id));
+    public synchronized boolean eliminarFuncion(Long id) {
+        Optional<Funcion> funcion = obtenerFuncionPorId(id);
+        if (funcion.isPresent()) {
+            funciones = funciones.sin(id);
+            publicarCambio(id, funcion.get().getFecha());
+            return true;
+        }
+        return false;
+    }
+
+    // Réplica: aplica la función enviada por el primario (null = eliminada). La película y la sala
+    // se enlazan con las instancias locales vigentes, igual que en alModificarCatalogo.
+    public synchronized void aplicarReplica(Long id, Funcion datos) {
+        Optional<Funcion> existente = obtenerFuncionPorId(id);
+        if (datos == null) {
+            if (existente.isPresent()) {
+                funciones = funciones.sin(id);
+                publicarCambio(id, existente.get().getFecha());
+            }
+            return;
+        }
+
+        Pelicula pelicula = datos.getPelicula() == null ? null
+                : peliculaService.obtenerPeliculaPorId(datos.getPelicula().getId()).orElse(datos.getPelicula());
+        Sala sala = datos.getSala() == null ? null
+                : salaService.obtenerSalaPorId(datos.getSala().getId()).orElse(datos.getSala());
+
+        Funcion funcion = existente.orElse(datos);
+        LocalDate fechaAnterior = existente.map(Funcion::getFecha).orElse(null);
+        funcion.setId(id);
+        funcion.setPelicula(pelicula);
+        funcion.setSala(sala);
+        funcion.setFecha(datos.getFecha());
+        funcion.setHora(datos.getHora());
+        funcion.setAsientosDisponibles(datos.getAsientosDisponibles());
+        funcion.setAsientosTotales(datos.getAsientosTotales());
+        funcion.setVersion(datos.getVersion());
+        if (existente.isEmpty()) {
+            funciones = funciones.con(funcion);
+            contador.accumulateAndGet(id + 1, Math::max);
+        }
+
+        if (fechaAnterior != null && !fechaAnterior.equals(funcion.getFecha())) {
+            publicarCambio(id, fechaAnterior);
+        }
+        publicarCambio(id, funcion.getFecha());
     }
 
     // Métodos de búsqueda específicos
     public List<Funcion> buscarPorPelicula(Long peliculaId) {
-        return funciones.stream()
+        return funciones.elementos().stream()
                 .filter(funcion -> funcion.getPelicula() != null && 
                                  funcion.getPelicula().getId().equals(peliculaId))
                 .collect(Collectors.toList());
     }
 
     public List<Funcion> buscarPorFecha(LocalDate fecha) {
-        return funciones.stream()
+        return funciones.elementos().stream()
                 .filter(funcion -> funcion.getFecha().equals(fecha))
                 .collect(Collectors.toList());
     }
 
     public List<Funcion> buscarPorSala(Long salaId) {
-        return funciones.stream()
+        return funciones.elementos().stream()
                 .filter(funcion -> funcion.getSala().getId().equals(salaId))
                 .collect(Collectors.toList());
     }
 
     public List<Funcion> buscarPorNombreSala(String nombreSala) {
-        return funciones.stream()
+        return funciones.elementos().stream()
                 .filter(funcion -> funcion.getSala().getNombre().equalsIgnoreCase(nombreSala))
                 .collect(Collectors.toList());
     }
 
     public List<Funcion> buscarPorFechaYSala(LocalDate fecha, Long salaId) {
-        return funciones.stream()
+        return funciones.elementos().stream()
                 .filter(funcion -> funcion.getFecha().equals(fecha) && 
                                  funcion.getSala().getId().equals(salaId))
                 .collect(Collectors.toList());
     }
 
     public List<Funcion> buscarFuncionesDisponibles() {
-        return funciones.stream()
+        return funciones.elementos().stream()
                 .filter(Funcion::hayAsientosDisponibles)
                 .collect(Collectors.toList());
     }
@@ -149,7 +234,14 @@ public class FuncionService {
     public boolean reservarAsiento(Long funcionId) {
         Optional<Funcion> funcion = obtenerFuncionPorId(funcionId);
         if (funcion.isPresent()) {
-            return funcion.get().reservarAsiento();
+            synchronized (funcion.get()) {
+                boolean reservado = funcion.get().reservarAsiento();
+                if (reservado) {
+                    funcion.get().setVersion(funcion.get().getVersion() + 1);
+                    publicarCambio(funcionId, funcion.get().getFecha());
+                }
+                return reservado;
+            }
         }
         return false;
     }
@@ -157,13 +249,47 @@ public class FuncionService {
     public boolean liberarAsiento(Long funcionId) {
         Optional<Funcion> funcion = obtenerFuncionPorId(funcionId);
         if (funcion.isPresent()) {
-            funcion.get().liberarAsiento();
-            return true;
+            synchronized (funcion.get()) {
+                funcion.get().liberarAsiento();
+                funcion.get().setVersion(funcion.get().getVersion() + 1);
+                publicarCambio(funcionId, funcion.get().getFecha());
+                return true;
+            }
         }
         return false;
     }
 
+    // Películas y salas se publican como instancias nuevas en cada cambio: las funciones que las usan
+    // se enlazan con la vigente antes de que la caché y la cartelera reaccionen al mismo evento
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void alModificarCatalogo(EventoMutacion evento) {
+        boolean esPelicula = evento.getEntidad() == EventoMutacion.Entidad.PELICULA;
+        if (!esPelicula && evento.getEntidad() != EventoMutacion.Entidad.SALA) {
+            return;
+        }
+        for (Funcion funcion : funciones.elementos()) {
+            synchronized (funcion) {
+                if (esPelicula && funcion.getPelicula() != null
+                        && (evento.getId() == null || evento.getId().equals(funcion.getPelicula().getId()))) {
+                    peliculaService.obtenerPeliculaPorId(funcion.getPelicula().getId()).ifPresent(funcion::setPelicula);
+                } else if (!esPelicula && funcion.getSala() != null
+                        && (evento.getId() == null || evento.getId().equals(funcion.getSala().getId()))) {
+                    salaService.obtenerSalaPorId(funcion.getSala().getId()).ifPresent(funcion::setSala);
+                }
+            }
+        }
+    }
+
     // Métodos auxiliares
+    // Sin fecha se entiende que cambiaron funciones de varios días
+    private void publicarCambio(Long id, LocalDate fecha) {
+        versiones.registrarCambio(id, id == null ? null : obtenerFuncionPorId(id).map(Funcion::getVersion).orElse(null));
+        if (eventos != null) {
+            eventos.publishEvent(new EventoMutacion(EventoMutacion.Entidad.FUNCION, id, fecha));
+        }
+    }
+
     private void validarFuncion(Funcion funcion) {
         if (funcion.getPelicula() == null) {
             throw new RuntimeException("La película es obligatoria");
@@ -228,9 +354,7 @@ public class FuncionService {
             funcion3.setAsientosTotales(salas.get(0).getCapacidadTotal());
             funcion3.setAsientosDisponibles(salas.get(0).getCapacidadTotal()); // Sin ocupar
 
-            funciones.add(funcion1);
-            funciones.add(funcion2);
-            funciones.add(funcion3);
+            funciones = Instantanea.de(List.of(funcion1, funcion2, funcion3), Funcion::getId);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.utp.cinerama.cinerama.service;
+
+// Estimador de cantidad de elementos distintos con memoria fija (2^precision bytes).
+// El error típico es 1.04 / sqrt(2^precision): con precisión 12, alrededor de 1.6%.
+// Dos estimadores de la misma precisión se pueden combinar para obtener el de la unión.
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registros;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new RuntimeException("La precisión debe estar entre 4 y 18");
+        }
+        this.precision = precision;
+        this.registros = new byte[1 << precision];
+    }
+
+    public void agregar(long valor) {
+        long hash = mezclar(valor);
+        int registro = (int) (hash >>> (64 - precision));
+        // Posición del primer bit en 1 del resto del hash (1 = primer bit)
+        int rango = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rango > registros[registro]) {
+            registros[registro] = (byte) rango;
+        }
+    }
+
+    public void combinar(HyperLogLog otro) {
+        if (otro.precision != precision) {
+            throw new RuntimeException("No se pueden combinar estimadores de distinta precisión");
+        }
+        for (int i = 0; i < registros.length; i++) {
+            if (otro.registros[i] > registros[i]) {
+                registros[i] = otro.registros[i];
+            }
+        }
+    }
+
+    public long estimar() {
+        int m = registros.length;
+        double suma = 0;
+        int vacios = 0;
+        for (byte registro : registros) {
+            suma += 1.0 / (1L << registro);
+            if (registro == 0) {
+                vacios++;
+            }
+        }
+
+        double estimacion = alfa(m) * m * m / suma;
+        // Con pocos elementos el conteo lineal es más preciso
+        if (estimacion <= 2.5 * m && vacios > 0) {
+            estimacion = m * Math.log((double) m / vacios);
+        }
+        return Math.round(estimacion);
+    }
+
+    public int getPrecision() { return precision; }
+
+    // Métodos auxiliares
+    private static double alfa(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    // Mezcla de bits (finalizador de MurmurHash3) para que valores consecutivos den hashes independientes
+    private static long mezclar(long valor) {
+        long h = valor;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87c5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
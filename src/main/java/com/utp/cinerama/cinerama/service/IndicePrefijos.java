@@ -0,0 +1,109 @@
+package com.utp.cinerama.cinerama.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+// Índice ordenado de textos normalizados (sin tildes y en minúsculas) para
+// búsquedas por prefijo. Las lecturas no bloquean; las escrituras se serializan.
+public class IndicePrefijos<T> {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    // Clave normalizada -> (id -> valor), ordenado para recorrer rangos de prefijo
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListMap<Long, T>> entradas = new ConcurrentSkipListMap<>();
+
+    // Claves registradas por cada id, para poder quitarlas al actualizar o eliminar
+    private final Map<Long, Set<String>> clavesPorId = new ConcurrentHashMap<>();
+
+    public synchronized void agregar(Long id, T valor, Collection<String> textos) {
+        quitar(id);
+
+        Set<String> claves = new LinkedHashSet<>();
+        for (String texto : textos) {
+            String normalizado = normalizar(texto);
+            if (normalizado.isEmpty()) {
+                continue;
+            }
+            // Se indexa el texto completo y cada una de sus palabras
+            claves.add(normalizado);
+            for (String palabra : normalizado.split(" ")) {
+                claves.add(palabra);
+            }
+        }
+
+        for (String clave : claves) {
+            entradas.computeIfAbsent(clave, k -> new ConcurrentSkipListMap<>()).put(id, valor);
+        }
+        clavesPorId.put(id, claves);
+    }
+
+    public synchronized void quitar(Long id) {
+        Set<String> claves = clavesPorId.remove(id);
+        if (claves == null) {
+            return;
+        }
+
+        for (String clave : claves) {
+            ConcurrentSkipListMap<Long, T> valores = entradas.get(clave);
+            if (valores != null) {
+                valores.remove(id);
+                if (valores.isEmpty()) {
+                    entradas.remove(clave);
+                }
+            }
+        }
+    }
+
+    // Devuelve hasta 'limite' valores cuya clave empieza con el prefijo, en orden alfabético
+    public List<T> buscar(String prefijo, int limite) {
+        String normalizado = normalizar(prefijo);
+        if (normalizado.isEmpty() || limite <= 0) {
+            return new ArrayList<>();
+        }
+
+        NavigableMap<String, ConcurrentSkipListMap<Long, T>> rango =
+                entradas.subMap(normalizado, true, normalizado + Character.MAX_VALUE, false);
+
+        Map<Long, T> resultado = new LinkedHashMap<>();
+        for (ConcurrentSkipListMap<Long, T> valores : rango.values()) {
+            for (Map.Entry<Long, T> entrada : valores.entrySet()) {
+                resultado.putIfAbsent(entrada.getKey(), entrada.getValue());
+                if (resultado.size() >= limite) {
+                    return new ArrayList<>(resultado.values());
+                }
+            }
+        }
+        return new ArrayList<>(resultado.values());
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = esAscii(texto)
+                ? texto
+                : MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinTildes.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package com.utp.cinerama.cinerama.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Índice de registros agrupados por hora (horas desde 1970-01-01). Las consultas por día o por
+// rango de fechas solo recorren las horas del rango. Las lecturas no bloquean; las escrituras se serializan.
+public class IndiceTemporal<T> {
+
+    private static final int HORAS_POR_DIA = 24;
+
+    // Hora -> (id -> valor)
+    private final ConcurrentSkipListMap<Long, ConcurrentSkipListMap<Long, T>> registrosPorHora = new ConcurrentSkipListMap<>();
+
+    // Hora en la que está registrado cada id, para moverlo si su fecha cambia
+    private final Map<Long, Long> horaPorId = new ConcurrentHashMap<>();
+
+    // Registra o mueve el valor a la hora de la fecha indicada
+    public synchronized void registrar(Long id, T valor, LocalDateTime fecha) {
+        quitar(id);
+        if (fecha == null) {
+            return;
+        }
+
+        long hora = hora(fecha);
+        registrosPorHora.computeIfAbsent(hora, h -> new ConcurrentSkipListMap<>()).put(id, valor);
+        horaPorId.put(id, hora);
+    }
+
+    public synchronized void quitar(Long id) {
+        Long hora = horaPorId.remove(id);
+        if (hora == null) {
+            return;
+        }
+
+        ConcurrentSkipListMap<Long, T> registros = registrosPorHora.get(hora);
+        if (registros != null) {
+            registros.remove(id);
+            if (registros.isEmpty()) {
+                registrosPorHora.remove(hora);
+            }
+        }
+    }
+
+    public List<T> delDia(LocalDate dia) {
+        return entre(dia, dia);
+    }
+
+    // Registros entre ambas fechas (inclusive), en orden cronológico por hora
+    public List<T> entre(LocalDate desde, LocalDate hasta) {
+        List<T> resultado = new ArrayList<>();
+        for (ConcurrentSkipListMap<Long, T> registros : rango(desde, hasta).values()) {
+            resultado.addAll(registros.values());
+        }
+        return resultado;
+    }
+
+    // Registros de cada hora con datos entre ambas fechas (inclusive)
+    public NavigableMap<LocalDateTime, List<T>> porHora(LocalDate desde, LocalDate hasta) {
+        NavigableMap<LocalDateTime, List<T>> resultado = new TreeMap<>();
+        for (Map.Entry<Long, ConcurrentSkipListMap<Long, T>> entrada : rango(desde, hasta).entrySet()) {
+            List<T> registros = new ArrayList<>(entrada.getValue().values());
+            if (!registros.isEmpty()) {
+                resultado.put(inicioDeHora(entrada.getKey()), registros);
+            }
+        }
+        return resultado;
+    }
+
+    // Métodos auxiliares
+    private NavigableMap<Long, ConcurrentSkipListMap<Long, T>> rango(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha final no puede ser anterior a la inicial");
+        }
+        return registrosPorHora.subMap(desde.toEpochDay() * HORAS_POR_DIA, true,
+                (hasta.toEpochDay() + 1) * HORAS_POR_DIA, false);
+    }
+
+    private static long hora(LocalDateTime fecha) {
+        return fecha.toLocalDate().toEpochDay() * HORAS_POR_DIA + fecha.getHour();
+    }
+
+    private static LocalDateTime inicioDeHora(long hora) {
+        return LocalDate.ofEpochDay(Math.floorDiv(hora, HORAS_POR_DIA))
+                .atTime(Math.floorMod(hora, HORAS_POR_DIA), 0);
+    }
+}
@@ -0,0 +1,414 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
+import com.utp.cinerama.cinerama.model.EscaneoPendiente;
+import com.utp.cinerama.cinerama.model.EventoMutacion;
+import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.model.ResultadoIngreso;
+import com.utp.cinerama.cinerama.model.ResultadoIngreso.Veredicto;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Control de ingreso en la puerta de la sala. Los boletos de cada función próxima se precargan en una
+// TablaIngreso; validar un escaneo es una búsqueda en esa tabla y la admisión se decide con un
+// compareAndSet PAGADO→USADO, de modo que un boleto repetido se rechaza sin esperar a nadie. Solo
+// las admisiones llegan a BoletoService, que tiene la última palabra. Los lectores pueden enviar
+// un id o el código QR firmado (HMAC) del boleto, y los que trabajaron sin conexión sincronizan sus
+// escaneos en lote. Las tablas se mantienen al día con los eventos de mutación de los boletos.
+@Service
+public class IngresoService {
+
+    private static final String PREFIJO_CODIGO = "CIN1";
+    private static final int BYTES_FIRMA = 16;
+
+    @Autowired
+    private BoletoService boletoService;
+
+    @Autowired
+    private FuncionService funcionService;
+
+    @Autowired
+    private TopologiaCluster topologiaCluster;
+
+    // Debe ser la misma en todos los nodos; vacía = clave aleatoria (los códigos vencen al reiniciar).
+    // Con el cluster habilitado es obligatoria: cada nodo sortearía la suya y rechazaría los códigos del otro.
+    @Value("${cinerama.ingreso.clave-codigos:}")
+    private String claveConfigurada;
+
+    @Value("${cinerama.ingreso.anticipacion-minutos:120}")
+    private long anticipacionMinutos;
+
+    @Value("${cinerama.ingreso.retencion-minutos:240}")
+    private long retencionMinutos;
+
+    private final Map<Long, TablaIngreso> tablas = new ConcurrentHashMap<>();
+    private SecretKeySpec clave;
+    private ThreadLocal<Mac> firmadores;
+    private ScheduledExecutorService reloj;
+
+    // Código leído por el lector; funcionId es null si solo traía el id del boleto
+    private static class Codigo {
+        private final Long funcionId;
+        private final Long boletoId;
+
+        private Codigo(Long funcionId, Long boletoId) {
+            this.funcionId = funcionId;
+            this.boletoId = boletoId;
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        byte[] bytesClave;
+        if (claveConfigurada.isBlank() && topologiaCluster.estaHabilitado()) {
+            throw new RuntimeException("Con el cluster habilitado hay que configurar cinerama.ingreso.clave-codigos");
+        }
+        if (claveConfigurada.isBlank()) {
+            bytesClave = new byte[32];
+            new SecureRandom().nextBytes(bytesClave);
+        } else {
+            bytesClave = claveConfigurada.getBytes(StandardCharsets.UTF_8);
+        }
+        clave = new SecretKeySpec(bytesClave, "HmacSHA256");
+        // Mac no es seguro entre hilos; cada hilo usa el suyo
+        firmadores = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(clave);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 no disponible", e);
+            }
+        });
+
+        reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "precarga-ingreso");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        reloj.scheduleWithFixedDelay(this::precargarProximas, 1, 60, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        reloj.shutdownNow();
+    }
+
+    // Código para imprimir en el QR del boleto: CIN1.<funcionId>.<boletoId>.<firma>
+    public String codigoDe(Long boletoId) {
+        Boleto boleto = boletoService.obtenerBoletoPorId(boletoId)
+                .orElseThrow(() -> new RuntimeException("Boleto no encontrado: " + boletoId));
+        String datos = PREFIJO_CODIGO + "." + boleto.getFuncion().getId() + "." + boletoId;
+        return datos + "." + firmaTexto(datos);
+    }
+
+    // Escaneo en línea en la puerta de una función
+    public ResultadoIngreso registrarIngreso(Long funcionId, String codigo) {
+        Codigo leido = interpretar(codigo);
+        if (leido == null) {
+            return rechazar(funcionId, new ResultadoIngreso(Veredicto.CODIGO_INVALIDO, null, funcionId, null, null));
+        }
+        return admitir(funcionId, leido, System.currentTimeMillis());
+    }
+
+    // Para POST /api/boletos/{id}/usar, que no indica la función
+    public ResultadoIngreso registrarIngreso(Long boletoId) {
+        Optional<Boleto> boleto = boletoService.obtenerBoletoPorId(boletoId);
+        if (boleto.isEmpty()) {
+            return new ResultadoIngreso(Veredicto.NO_ENCONTRADO, boletoId, null, null, null);
+        }
+        return admitir(boleto.get().getFuncion().getId(), new Codigo(null, boletoId), System.currentTimeMillis());
+    }
+
+    // Escaneos que un lector hizo sin conexión. Se aplican por orden de escaneo (si dos lectores
+    // admitieron el mismo boleto, gana el primero) y todas las admisiones pasan juntas a los boletos
+    // con un solo lote. El resultado trae un elemento por escaneo, en el orden recibido.
+    public List<ResultadoIngreso> sincronizar(Long funcionId, List<EscaneoPendiente> escaneos) {
+        ResultadoIngreso[] resultados = new ResultadoIngreso[escaneos.size()];
+        Integer[] orden = new Integer[escaneos.size()];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, Comparator.comparing((Integer i) -> escaneos.get(i).getEscaneadoEn(),
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        TablaIngreso tabla = tablaDe(funcionId);
+        List<Integer> admitidos = new ArrayList<>();
+        List<Long> boletosAdmitidos = new ArrayList<>();
+        for (int i : orden) {
+            EscaneoPendiente escaneo = escaneos.get(i);
+            Codigo leido = interpretar(escaneo.getCodigo());
+            if (leido == null) {
+                resultados[i] = rechazar(funcionId, new ResultadoIngreso(Veredicto.CODIGO_INVALIDO, null, funcionId, null, null));
+                continue;
+            }
+            long instante = escaneo.getEscaneadoEn() != null
+                    ? escaneo.getEscaneadoEn().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+            int posicion = leido.funcionId == null || leido.funcionId.equals(funcionId)
+                    ? tabla.posicion(leido.boletoId) : -1;
+            if (posicion >= 0 && tabla.admitir(posicion, instante)) {
+                resultados[i] = new ResultadoIngreso(Veredicto.ADMITIDO, leido.boletoId, funcionId,
+                        tabla.asiento(posicion), aFecha(instante));
+                admitidos.add(i);
+                boletosAdmitidos.add(leido.boletoId);
+            } else {
+                resultados[i] = clasificar(funcionId, tabla, posicion, leido);
+            }
+        }
+
+        if (!boletosAdmitidos.isEmpty()) {
+            ResultadoLote lote = boletoService.aplicarEnLote(BoletoService.AccionLote.USAR, boletosAdmitidos);
+            for (int j = 0; j < admitidos.size(); j++) {
+                if (lote.getElementos().get(j).isExito()) {
+                    tabla.contadores().admitidos.increment();
+                } else {
+                    int i = admitidos.get(j);
+                    resultados[i] = corregir(funcionId, tabla, boletosAdmitidos.get(j));
+                }
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    // Carga (o vuelve a cargar) los boletos de la función
+    public void precargar(Long funcionId) {
+        funcionService.obtenerFuncionPorId(funcionId)
+                .orElseThrow(() -> new RuntimeException("Función no encontrada: " + funcionId));
+        recargar(funcionId);
+    }
+
+    public boolean estaPrecargada(Long funcionId) {
+        return tablas.containsKey(funcionId);
+    }
+
+    public String obtenerEstadisticasJson(Long funcionId) {
+        TablaIngreso tabla = tablas.get(funcionId);
+        if (tabla == null) {
+            return "{\"funcionId\": " + funcionId + ",\"precargada\": false}";
+        }
+        return "{" +
+                "\"funcionId\": " + funcionId + "," +
+                "\"precargada\": true," +
+                "\"boletos\": " + tabla.tamano() + "," +
+                "\"porIngresar\": " + tabla.contar(EstadoBoleto.PAGADO) + "," +
+                "\"ingresados\": " + tabla.contar(EstadoBoleto.USADO) + "," +
+                "\"admitidos\": " + tabla.contadores().admitidos.sum() + "," +
+                "\"duplicados\": " + tabla.contadores().duplicados.sum() + "," +
+                "\"rechazados\": " + tabla.contadores().rechazados.sum() +
+                "}";
+    }
+
+    // Mantiene las tablas al día con los pagos, cancelaciones y demás cambios de boletos. Un boleto
+    // vendido después de la precarga no se agrega aquí (sería recorrer la función en cada venta):
+    // la tabla se recarga la primera vez que alguien lo escanea.
+    @EventListener
+    public void alModificarBoleto(EventoMutacion evento) {
+        if (evento.getEntidad() != EventoMutacion.Entidad.BOLETO || tablas.isEmpty()) {
+            return;
+        }
+        if (evento.getId() == null) {
+            // Cambiaron muchos boletos a la vez: se recargan en el próximo escaneo o precarga
+            tablas.clear();
+            return;
+        }
+
+        Long boletoId = evento.getId();
+        Optional<Boleto> boleto = boletoService.obtenerBoletoPorId(boletoId);
+        Long funcionId = boleto.map(b -> b.getFuncion().getId()).orElse(null);
+        tablas.forEach((id, tabla) -> {
+            if (!id.equals(funcionId)) {
+                tabla.retirar(boletoId);
+            }
+        });
+        TablaIngreso tabla = funcionId != null ? tablas.get(funcionId) : null;
+        if (tabla != null) {
+            int posicion = tabla.posicion(boletoId);
+            if (posicion >= 0) {
+                tabla.sincronizar(posicion, boleto.get().getEstado());
+            }
+        }
+    }
+
+    // Métodos auxiliares
+    private ResultadoIngreso admitir(Long funcionId, Codigo leido, long instante) {
+        TablaIngreso tabla = tablaDe(funcionId);
+        int posicion = leido.funcionId == null || leido.funcionId.equals(funcionId)
+                ? tabla.posicion(leido.boletoId) : -1;
+        if (posicion < 0 || !tabla.admitir(posicion, instante)) {
+            return clasificar(funcionId, tabla, posicion, leido);
+        }
+        if (!boletoService.marcarBoletoComoUsado(leido.boletoId)) {
+            // El boleto cambió (por ejemplo, se canceló) antes de que la tabla se enterara
+            return corregir(funcionId, tabla, leido.boletoId);
+        }
+        tabla.contadores().admitidos.increment();
+        return new ResultadoIngreso(Veredicto.ADMITIDO, leido.boletoId, funcionId, tabla.asiento(posicion), aFecha(instante));
+    }
+
+    // Motivo por el que no se admitió un boleto que no estaba PAGADO en la tabla
+    private ResultadoIngreso clasificar(Long funcionId, TablaIngreso tabla, int posicion, Codigo leido) {
+        if (posicion < 0) {
+            // No está en la tabla: el boleto es de otra función, no existe o es tan nuevo que la tabla
+            // todavía no lo tiene
+            if (leido.funcionId != null && !leido.funcionId.equals(funcionId)) {
+                return rechazar(funcionId, new ResultadoIngreso(Veredicto.OTRA_FUNCION, leido.boletoId, leido.funcionId, null, null));
+            }
+            Optional<Boleto> boleto = boletoService.obtenerBoletoPorId(leido.boletoId);
+            if (boleto.isEmpty()) {
+                return rechazar(funcionId, new ResultadoIngreso(Veredicto.NO_ENCONTRADO, leido.boletoId, funcionId, null, null));
+            }
+            if (!boleto.get().getFuncion().getId().equals(funcionId)) {
+                return rechazar(funcionId, new ResultadoIngreso(Veredicto.OTRA_FUNCION, leido.boletoId,
+                        boleto.get().getFuncion().getId(), boleto.get().getAsiento(), null));
+            }
+            return corregir(funcionId, recargar(funcionId), leido.boletoId);
+        }
+
+        EstadoBoleto estado = tabla.estado(posicion);
+        if (estado == EstadoBoleto.USADO) {
+            tabla.contadores().duplicados.increment();
+            long ingreso = tabla.ingreso(posicion);
+            return new ResultadoIngreso(Veredicto.DUPLICADO, leido.boletoId, funcionId, tabla.asiento(posicion),
+                    ingreso > 0 ? aFecha(ingreso) : null);
+        }
+        return rechazar(funcionId, new ResultadoIngreso(estado == EstadoBoleto.RESERVADO ? Veredicto.NO_PAGADO : Veredicto.CANCELADO,
+                leido.boletoId, funcionId, tabla.asiento(posicion), null));
+    }
+
+    // La tabla admitió un boleto que BoletoService no pudo marcar como usado: se copia el estado real
+    // del boleto y se responde según ese estado
+    private ResultadoIngreso corregir(Long funcionId, TablaIngreso tabla, Long boletoId) {
+        int posicion = tabla.posicion(boletoId);
+        Optional<Boleto> boleto = boletoService.obtenerBoletoPorId(boletoId);
+        if (posicion < 0 || boleto.isEmpty()) {
+            return rechazar(funcionId, new ResultadoIngreso(Veredicto.NO_ENCONTRADO, boletoId, funcionId, null, null));
+        }
+        tabla.sincronizar(posicion, boleto.get().getEstado());
+        if (tabla.admitir(posicion, System.currentTimeMillis()) && boletoService.marcarBoletoComoUsado(boletoId)) {
+            // Era un boleto recién vendido que la tabla aún no conocía
+            tabla.contadores().admitidos.increment();
+            return new ResultadoIngreso(Veredicto.ADMITIDO, boletoId, funcionId, tabla.asiento(posicion), aFecha(tabla.ingreso(posicion)));
+        }
+        tabla.sincronizar(posicion, boletoService.obtenerBoletoPorId(boletoId).map(Boleto::getEstado).orElse(EstadoBoleto.CANCELADO));
+        return clasificar(funcionId, tabla, posicion, new Codigo(funcionId, boletoId));
+    }
+
+    private ResultadoIngreso rechazar(Long funcionId, ResultadoIngreso resultado) {
+        TablaIngreso tabla = tablas.get(funcionId);
+        if (tabla != null) {
+            tabla.contadores().rechazados.increment();
+        }
+        return resultado;
+    }
+
+    private TablaIngreso tablaDe(Long funcionId) {
+        TablaIngreso tabla = tablas.get(funcionId);
+        if (tabla == null) {
+            precargar(funcionId);
+            tabla = tablas.get(funcionId);
+        }
+        return tabla;
+    }
+
+    private TablaIngreso recargar(Long funcionId) {
+        return tablas.compute(funcionId,
+                (id, anterior) -> TablaIngreso.de(id, boletoService.buscarPorFuncion(id), anterior));
+    }
+
+    // Precarga las funciones que empiezan pronto y descarta las que terminaron hace rato
+    private void precargarProximas() {
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            LocalDateTime desde = ahora.minusMinutes(retencionMinutos);
+            LocalDateTime hasta = ahora.plusMinutes(anticipacionMinutos);
+            List<Funcion> candidatas = new ArrayList<>(funcionService.buscarPorFecha(LocalDate.now()));
+            if (!desde.toLocalDate().equals(ahora.toLocalDate())) {
+                candidatas.addAll(funcionService.buscarPorFecha(desde.toLocalDate()));
+            }
+            if (!hasta.toLocalDate().equals(ahora.toLocalDate())) {
+                candidatas.addAll(funcionService.buscarPorFecha(hasta.toLocalDate()));
+            }
+            for (Funcion funcion : candidatas) {
+                if (funcion.getHora() == null) {
+                    continue;
+                }
+                LocalDateTime inicio = LocalDateTime.of(funcion.getFecha(), funcion.getHora());
+                if (!inicio.isBefore(desde) && !inicio.isAfter(hasta) && !tablas.containsKey(funcion.getId())) {
+                    recargar(funcion.getId());
+                }
+            }
+
+            tablas.keySet().removeIf(funcionId -> funcionService.obtenerFuncionPorId(funcionId)
+                    .map(funcion -> funcion.getHora() != null
+                            && LocalDateTime.of(funcion.getFecha(), funcion.getHora()).isBefore(desde))
+                    .orElse(true));
+        } catch (RuntimeException e) {
+            // Se reintenta en la próxima pasada
+        }
+    }
+
+    // Acepta el id del boleto o CIN1.<funcionId>.<boletoId>.<firma>; null si no es ninguno de los dos
+    private Codigo interpretar(String codigo) {
+        if (codigo == null || codigo.isBlank()) {
+            return null;
+        }
+        String limpio = codigo.trim();
+        try {
+            if (limpio.chars().allMatch(Character::isDigit)) {
+                return new Codigo(null, Long.parseLong(limpio));
+            }
+            String[] partes = limpio.split("\\.");
+            if (partes.length != 4 || !partes[0].equals(PREFIJO_CODIGO)) {
+                return null;
+            }
+            // Se compara el texto y no los bytes decodificados: el último carácter Base64 tiene bits
+            // que el decodificador ignora, y dos textos distintos no deben valer como la misma firma
+            String esperada = firmaTexto(partes[0] + "." + partes[1] + "." + partes[2]);
+            if (!MessageDigest.isEqual(partes[3].getBytes(StandardCharsets.US_ASCII),
+                    esperada.getBytes(StandardCharsets.US_ASCII))) {
+                return null;
+            }
+            return new Codigo(Long.parseLong(partes[1]), Long.parseLong(partes[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String firmaTexto(String datos) {
+        byte[] firma = firmadores.get().doFinal(datos.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(firma, BYTES_FIRMA));
+    }
+
+    private static LocalDateTime aFecha(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+}
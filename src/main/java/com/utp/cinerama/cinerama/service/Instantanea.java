@@ -0,0 +1,102 @@
+package com.utp.cinerama.cinerama.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Estado de una colección en un instante: la lista (en orden de alta) y un índice por id, ambos de
+// solo lectura. El servicio dueño guarda la instantánea vigente en un campo volatile y cada escritura
+// publica una nueva, así los lectores la recorren sin copiarla ni bloquear y nunca ven un estado a
+// medias. Salvo que el servicio indique otra cosa, las entidades tampoco se modifican una vez
+// publicadas: el que escribe publica una copia.
+final class Instantanea<T> {
+
+    private final List<T> elementos;
+    private final Map<Long, T> porId;
+    private final Function<T, Long> idDe;
+
+    private Instantanea(List<T> elementos, Map<Long, T> porId, Function<T, Long> idDe) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.porId = porId;
+        this.idDe = idDe;
+    }
+
+    static <T> Instantanea<T> de(List<T> elementos, Function<T, Long> idDe) {
+        Map<Long, T> porId = new HashMap<>();
+        for (T elemento : elementos) {
+            porId.put(idDe.apply(elemento), elemento);
+        }
+        return new Instantanea<>(new ArrayList<>(elementos), porId, idDe);
+    }
+
+    List<T> elementos() {
+        return elementos;
+    }
+
+    Optional<T> buscar(Long id) {
+        return Optional.ofNullable(id != null ? porId.get(id) : null);
+    }
+
+    // Reemplaza al elemento con el mismo id en su posición, o lo agrega al final si no estaba
+    Instantanea<T> con(T elemento) {
+        Long id = idDe.apply(elemento);
+        List<T> nuevos = new ArrayList<>(elementos.size() + 1);
+        if (porId.containsKey(id)) {
+            for (T actual : elementos) {
+                nuevos.add(id.equals(idDe.apply(actual)) ? elemento : actual);
+            }
+        } else {
+            nuevos.addAll(elementos);
+            nuevos.add(elemento);
+        }
+        Map<Long, T> nuevoIndice = new HashMap<>(porId);
+        nuevoIndice.put(id, elemento);
+        return new Instantanea<>(nuevos, nuevoIndice, idDe);
+    }
+
+    // Igual que con(), pero para un lote entero con una sola copia (importaciones, ajustes en lote)
+    Instantanea<T> conTodos(List<T> lote) {
+        if (lote.isEmpty()) {
+            return this;
+        }
+        Map<Long, T> nuevoIndice = new HashMap<>(porId);
+        Map<Long, T> reemplazos = new HashMap<>();
+        List<T> agregados = new ArrayList<>();
+        for (T elemento : lote) {
+            Long id = idDe.apply(elemento);
+            if (porId.containsKey(id)) {
+                reemplazos.put(id, elemento);
+            } else if (!nuevoIndice.containsKey(id)) {
+                agregados.add(elemento);
+            }
+            nuevoIndice.put(id, elemento);
+        }
+        List<T> nuevos = new ArrayList<>(elementos.size() + agregados.size());
+        for (T actual : elementos) {
+            nuevos.add(reemplazos.isEmpty() ? actual : reemplazos.getOrDefault(idDe.apply(actual), actual));
+        }
+        for (T agregado : agregados) {
+            nuevos.add(nuevoIndice.get(idDe.apply(agregado)));
+        }
+        return new Instantanea<>(nuevos, nuevoIndice, idDe);
+    }
+
+    Instantanea<T> sin(Long id) {
+        if (!porId.containsKey(id)) {
+            return this;
+        }
+        List<T> nuevos = new ArrayList<>(elementos.size());
+        for (T actual : elementos) {
+            if (!id.equals(idDe.apply(actual))) {
+                nuevos.add(actual);
+            }
+        }
+        Map<Long, T> nuevoIndice = new HashMap<>(porId);
+        nuevoIndice.remove(id);
+        return new Instantanea<>(nuevos, nuevoIndice, idDe);
+    }
+}
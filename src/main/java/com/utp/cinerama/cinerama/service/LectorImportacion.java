@@ -0,0 +1,142 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lee un cuerpo CSV (con cabecera) o NDJSON línea por línea, sin cargarlo completo en memoria,
+// y entrega los registros convertidos en lotes al servicio que los importa
+@Service
+public class LectorImportacion {
+
+    public static final int TAMANO_LOTE = 2000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Registro leído junto con su número de línea en el cuerpo original
+    public static class Linea<T> {
+        private final long numero;
+        private final T valor;
+
+        public Linea(long numero, T valor) {
+            this.numero = numero;
+            this.valor = valor;
+        }
+
+        public long getNumero() { return numero; }
+        public T getValor() { return valor; }
+    }
+
+    @FunctionalInterface
+    public interface ProcesadorLote<T> {
+        void procesar(List<Linea<T>> lote, ResultadoImportacion resultado);
+    }
+
+    public <T> ResultadoImportacion importar(Reader cuerpo, boolean esCsv, Class<T> tipo,
+                                             ProcesadorLote<T> procesador) {
+        long inicio = System.currentTimeMillis();
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<Linea<T>> lote = new ArrayList<>(TAMANO_LOTE);
+
+        try (BufferedReader lector = new BufferedReader(cuerpo, 64 * 1024)) {
+            String[] cabecera = null;
+            long numero = 0;
+            String texto;
+
+            while ((texto = lector.readLine()) != null) {
+                numero++;
+                if (texto.isBlank()) {
+                    continue;
+                }
+                if (esCsv && cabecera == null) {
+                    cabecera = separarCsv(texto).toArray(new String[0]);
+                    continue;
+                }
+
+                resultado.registrarLinea();
+                try {
+                    T valor = esCsv
+                            ? objectMapper.convertValue(aMapa(cabecera, separarCsv(texto)), tipo)
+                            : objectMapper.readValue(texto, tipo);
+                    lote.add(new Linea<>(numero, valor));
+                } catch (IOException | IllegalArgumentException e) {
+                    resultado.registrarError(numero, "Formato inválido: " + e.getMessage());
+                }
+
+                if (lote.size() >= TAMANO_LOTE) {
+                    procesador.procesar(lote, resultado);
+                    lote = new ArrayList<>(TAMANO_LOTE);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el cuerpo de la importación: " + e.getMessage());
+        }
+
+        if (!lote.isEmpty()) {
+            procesador.procesar(lote, resultado);
+        }
+
+        resultado.ordenarErrores();
+        resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    public static boolean esCsv(String contentType) {
+        return contentType != null && contentType.toLowerCase().contains("csv");
+    }
+
+    // Métodos auxiliares
+    private Map<String, String> aMapa(String[] cabecera, List<String> valores) {
+        if (valores.size() > cabecera.length) {
+            throw new IllegalArgumentException("La línea tiene más columnas que la cabecera");
+        }
+        Map<String, String> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < valores.size(); i++) {
+            // Las celdas vacías se dejan como null para que apliquen los valores por defecto
+            if (!valores.get(i).isEmpty()) {
+                mapa.put(cabecera[i].trim(), valores.get(i));
+            }
+        }
+        return mapa;
+    }
+
+    // Separa una línea CSV respetando los campos entre comillas ("a,b" y "" como comilla escapada)
+    private static List<String> separarCsv(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString().trim());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString().trim());
+        return campos;
+    }
+}
@@ -0,0 +1,164 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.utp.cinerama.cinerama.model.EstadisticasLimite;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Limitador de tasa por cliente y por clase de endpoint. Cada regla define una tasa sostenida y una
+// ráfaga; cada par (regla, cliente) tiene su cubeta. La cubeta guarda un solo long, el instante
+// teórico en que vuelve a estar llena (algoritmo GCRA, equivalente a una cubeta de fichas), y se
+// actualiza con compareAndSet, sin bloqueos. Las cubetas inactivas se desalojan para acotar la memoria.
+// Las reglas se leen de cinerama.limite.reglas y se pueden reemplazar en caliente.
+@Service
+public class LimitadorTasaService {
+
+    @Value("${cinerama.limite.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${cinerama.limite.reglas:}")
+    private String[] reglasConfiguradas;
+
+    @Value("${cinerama.limite.max-cubetas:100000}")
+    private long maxCubetas;
+
+    @Value("${cinerama.limite.inactividad-segundos:300}")
+    private long inactividadSegundos;
+
+    private final AntPathMatcher rutas = new AntPathMatcher();
+    private final AtomicReference<List<Regla>> reglas = new AtomicReference<>(List.of());
+    private Cache<String, AtomicLong> cubetas;
+
+    // Regla ya interpretada, con sus contadores
+    private static class Regla {
+        private final String nombre;
+        private final String metodo;      // "*" = cualquiera
+        private final String patron;
+        private final double tasaPorSegundo;
+        private final int rafaga;
+        private final long intervaloNanos;  // Tiempo en que se repone una ficha
+        private final long toleranciaNanos; // Cuánto puede adelantarse el cliente (ráfaga - 1 fichas)
+        private final LongAdder permitidas = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+
+        private Regla(String nombre, String metodo, String patron, double tasaPorSegundo, int rafaga) {
+            this.nombre = nombre;
+            this.metodo = metodo;
+            this.patron = patron;
+            this.tasaPorSegundo = tasaPorSegundo;
+            this.rafaga = rafaga;
+            this.intervaloNanos = (long) (1_000_000_000L / tasaPorSegundo);
+            this.toleranciaNanos = intervaloNanos * (rafaga - 1);
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        cubetas = Caffeine.newBuilder()
+                .maximumSize(maxCubetas)
+                .expireAfterAccess(Duration.ofSeconds(inactividadSegundos))
+                .recordStats()
+                .build();
+        reglas.set(interpretar(List.of(reglasConfiguradas)));
+    }
+
+    public boolean estaHabilitado() {
+        return habilitado;
+    }
+
+    // Reemplaza todas las reglas; si alguna no es válida no se cambia nada.
+    // Las cubetas se descartan porque su estado depende de la tasa y la ráfaga anteriores.
+    public void recargarReglas(List<String> definiciones) {
+        reglas.set(interpretar(definiciones));
+        cubetas.invalidateAll();
+    }
+
+    // Devuelve 0 si la petición se permite, o los nanosegundos que faltan para que se permita.
+    // Se aplica la primera regla que coincide; sin regla, la petición no se limita.
+    public long esperaParaPermitir(String metodo, String ruta, String cliente) {
+        Regla regla = buscarRegla(metodo, ruta);
+        if (regla == null) {
+            return 0;
+        }
+
+        AtomicLong cubeta = cubetas.get(regla.nombre + '|' + cliente, clave -> new AtomicLong(Long.MIN_VALUE));
+        long ahora = System.nanoTime();
+        while (true) {
+            long llena = cubeta.get();
+            long base = llena == Long.MIN_VALUE || llena - ahora < 0 ? ahora : llena;
+            long adelanto = base - ahora;
+            if (adelanto > regla.toleranciaNanos) {
+                regla.rechazadas.increment();
+                return adelanto - regla.toleranciaNanos;
+            }
+            if (cubeta.compareAndSet(llena, base + regla.intervaloNanos)) {
+                regla.permitidas.increment();
+                return 0;
+            }
+        }
+    }
+
+    public EstadisticasLimite obtenerEstadisticas() {
+        List<EstadisticasLimite.Regla> detalle = reglas.get().stream()
+                .map(regla -> new EstadisticasLimite.Regla(regla.nombre, regla.metodo, regla.patron,
+                        regla.tasaPorSegundo, regla.rafaga, regla.permitidas.sum(), regla.rechazadas.sum()))
+                .collect(Collectors.toList());
+        return new EstadisticasLimite(habilitado, cubetas.estimatedSize(),
+                cubetas.stats().evictionCount(), detalle);
+    }
+
+    // Métodos auxiliares
+    private Regla buscarRegla(String metodo, String ruta) {
+        for (Regla regla : reglas.get()) {
+            if ((regla.metodo.equals("*") || regla.metodo.equalsIgnoreCase(metodo))
+                    && rutas.match(regla.patron, ruta)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    // Formato de cada regla: nombre=MÉTODO patrón tasaPorSegundo ráfaga
+    // Ej: asientos=GET /api/boletos/funcion/*/asiento/* 20 40
+    private static List<Regla> interpretar(List<String> definiciones) {
+        List<Regla> resultado = new ArrayList<>();
+        for (String definicion : definiciones) {
+            if (definicion == null || definicion.isBlank()) {
+                continue;
+            }
+            String[] nombreYResto = definicion.trim().split("=", 2);
+            String[] partes = nombreYResto.length == 2 ? nombreYResto[1].trim().split("\\s+") : new String[0];
+            if (partes.length != 4 || nombreYResto[0].isBlank()) {
+                throw new RuntimeException("Regla de límite no válida: '" + definicion
+                        + "' (formato: nombre=MÉTODO patrón tasaPorSegundo ráfaga)");
+            }
+            try {
+                double tasa = Double.parseDouble(partes[2]);
+                int rafaga = Integer.parseInt(partes[3]);
+                if (tasa <= 0 || rafaga < 1) {
+                    throw new RuntimeException("La tasa y la ráfaga de la regla '" + nombreYResto[0].trim() + "' deben ser positivas");
+                }
+                // La cubeta suma instantes en nanosegundos; con una tasa ínfima el intervalo por la ráfaga
+                // desbordaría el long y la regla rechazaría (o dejaría pasar) todo
+                if (1_000_000_000.0 / tasa * rafaga > Long.MAX_VALUE / 4) {
+                    throw new RuntimeException("La tasa de la regla '" + nombreYResto[0].trim() + "' es demasiado baja");
+                }
+                resultado.add(new Regla(nombreYResto[0].trim(), partes[0].toUpperCase(), partes[1], tasa, rafaga));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Tasa o ráfaga no numérica en la regla: '" + definicion + "'");
+            }
+        }
+        return List.copyOf(resultado);
+    }
+}
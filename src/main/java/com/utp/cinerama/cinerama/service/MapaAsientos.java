@@ -0,0 +1,188 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.DisposicionAsientos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ocupación de los asientos de una función. Quien modifica el mapa debe tomar su cerrojo (bloquear /
+// desbloquear) durante toda la operación; cada cambio incrementa la versión, que sirve para ordenar
+// los eventos enviados a los clientes. Es un ReentrantLock y no el monitor del objeto porque los
+// comandos corren en hilos virtuales, que un bloque synchronized dejaría fijos a su hilo portador.
+public class MapaAsientos {
+
+    private final Long funcionId;
+    private final int capacidad;
+    private final BitSet ocupados;
+    private final Map<String, Boleto> boletosPorAsiento = new HashMap<>();
+    private long version;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    // Última foto codificada; se reutiliza mientras la versión no cambie
+    private Foto fotoCacheada;
+
+    // Ocupación codificada en una versión concreta del mapa
+    public static class Foto {
+        private final long version;
+        private final int capacidad;
+        private final byte[] bitmap;
+        private final String bitmapBase64;
+
+        private Foto(long version, int capacidad, byte[] bitmap) {
+            this.version = version;
+            this.capacidad = capacidad;
+            this.bitmap = bitmap;
+            this.bitmapBase64 = Base64.getEncoder().encodeToString(bitmap);
+        }
+
+        public long getVersion() { return version; }
+        public int getCapacidad() { return capacidad; }
+        public byte[] getBitmap() { return bitmap.clone(); }
+        public String getBitmapBase64() { return bitmapBase64; }
+    }
+
+    public MapaAsientos(Long funcionId, int capacidad) {
+        this.funcionId = funcionId;
+        this.capacidad = Math.min(capacidad, DisposicionAsientos.CAPACIDAD_MAXIMA);
+        this.ocupados = new BitSet(this.capacidad);
+    }
+
+    public Long getFuncionId() { return funcionId; }
+    public int getCapacidad() { return capacidad; }
+
+    // Reentrante: los métodos del mapa lo vuelven a tomar sin problema dentro de una operación
+    public void bloquear() {
+        cerrojo.lock();
+    }
+
+    public void desbloquear() {
+        cerrojo.unlock();
+    }
+
+    public long getVersion() {
+        cerrojo.lock();
+        try {
+            return version;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public boolean existeAsiento(String asiento) {
+        int indice = DisposicionAsientos.indice(asiento);
+        return indice >= 0 && indice < capacidad;
+    }
+
+    public boolean estaOcupado(String asiento) {
+        cerrojo.lock();
+        try {
+            return boletosPorAsiento.containsKey(asiento);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public boolean estaOcupado(int indice) {
+        cerrojo.lock();
+        try {
+            return ocupados.get(indice);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public Optional<Boleto> boletoEn(String asiento) {
+        cerrojo.lock();
+        try {
+            return Optional.ofNullable(boletosPorAsiento.get(asiento));
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public long ocupar(String asiento, Boleto boleto) {
+        cerrojo.lock();
+        try {
+            boletosPorAsiento.put(asiento, boleto);
+            int indice = DisposicionAsientos.indice(asiento);
+            if (indice >= 0 && indice < capacidad) {
+                ocupados.set(indice);
+            }
+            return ++version;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Libera el asiento solo si sigue asignado a ese boleto
+    public boolean liberar(String asiento, Boleto boleto) {
+        cerrojo.lock();
+        try {
+            if (!boletosPorAsiento.remove(asiento, boleto)) {
+                return false;
+            }
+            int indice = DisposicionAsientos.indice(asiento);
+            if (indice >= 0 && indice < capacidad) {
+                ocupados.clear(indice);
+            }
+            version++;
+            return true;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    public int cantidadOcupados() {
+        cerrojo.lock();
+        try {
+            return boletosPorAsiento.size();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Asientos ocupados en el orden de la disposición (A1, A2, ..., B1, ...)
+    public List<String> asientosOcupados() {
+        cerrojo.lock();
+        try {
+            List<String> asientos = new ArrayList<>(boletosPorAsiento.size());
+            for (int i = ocupados.nextSetBit(0); i >= 0; i = ocupados.nextSetBit(i + 1)) {
+                asientos.add(DisposicionAsientos.asiento(i));
+            }
+            return asientos;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Un bit por asiento (bit i del byte i / 8, empezando por el menos significativo)
+    public byte[] bitmap() {
+        cerrojo.lock();
+        try {
+            return Arrays.copyOf(ocupados.toByteArray(), (capacidad + 7) / 8);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Solo recalcula el bitmap si el mapa cambió desde la última foto
+    public Foto foto() {
+        cerrojo.lock();
+        try {
+            if (fotoCacheada == null || fotoCacheada.version != version) {
+                fotoCacheada = new Foto(version, capacidad, bitmap());
+            }
+            return fotoCacheada;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.ReporteMultidimensional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Reportes multidimensionales sobre las tablas del almacén analítico (boletos, productos, pagos).
+// Las filas se dividen en particiones que se agregan en paralelo (fork-join) en resultados parciales
+// combinables: cantidad, ingreso en céntimos y un HyperLogLog de clientes por combinación de dimensiones.
+// En la tabla de boletos una anulación es una fila ANULADO con monto negativo: la cantidad la descuenta
+// igual que el ingreso, y no cuenta como cliente (el HyperLogLog no admite restas).
+@Service
+public class MotorReportesService {
+
+    public static final String DIMENSION_DIA = "dia";
+    public static final List<String> MEDIDAS = List.of("cantidad", "ingreso", "clientes");
+
+    private static final int MAXIMO_DIMENSIONES = 4;
+    private static final int MINUTOS_POR_DIA = 24 * 60;
+    private static final int FILAS_MINIMAS_POR_PARTICION = 1 << 15;
+    private static final int PRECISION_CLIENTES = 10;
+
+    @Autowired
+    private AlmacenAnaliticoService almacenAnaliticoService;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // Las dimensiones son columnas de texto u hora de la semana de la tabla, o "dia" (fecha de venta).
+    // Los filtros son de igualdad; desde/hasta (inclusive) filtran por fecha de venta.
+    public ReporteMultidimensional generar(String tabla, List<String> dimensiones, List<String> medidas,
+                                           Map<String, String> filtros, LocalDate desde, LocalDate hasta) {
+        long inicio = System.nanoTime();
+        validar(dimensiones, medidas);
+        TablaColumnar.Vista vista = almacenAnaliticoService.vista(tabla);
+
+        Consulta consulta = new Consulta(vista, dimensiones, medidas.contains("clientes"), filtros, desde, hasta);
+        ReporteMultidimensional reporte = new ReporteMultidimensional(tabla, dimensiones, medidas);
+        reporte.setFilasRecorridas(vista.getFilas());
+
+        if (!consulta.sinResultados && vista.getFilas() > 0) {
+            int filasPorParticion = Math.max(FILAS_MINIMAS_POR_PARTICION,
+                    vista.getFilas() / (pool.getParallelism() * 8));
+            AtomicInteger particiones = new AtomicInteger();
+            Parcial total = pool.invoke(new Agregacion(consulta, 0, vista.getFilas(), filasPorParticion, particiones));
+
+            reporte.setParticiones(particiones.get());
+            reporte.getFilas().addAll(filas(consulta, total, medidas));
+        }
+
+        reporte.setDuracionMicros((System.nanoTime() - inicio) / 1000);
+        return reporte;
+    }
+
+    // Métodos auxiliares
+    private void validar(List<String> dimensiones, List<String> medidas) {
+        if (dimensiones == null || dimensiones.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos una dimensión");
+        }
+        if (dimensiones.size() > MAXIMO_DIMENSIONES) {
+            throw new RuntimeException("Se admiten como máximo " + MAXIMO_DIMENSIONES + " dimensiones");
+        }
+        if (medidas == null || medidas.isEmpty()) {
+            throw new RuntimeException("Debe indicar al menos una medida");
+        }
+        for (String medida : medidas) {
+            if (!MEDIDAS.contains(medida)) {
+                throw new RuntimeException("Medida desconocida: " + medida + " (use " + String.join(", ", MEDIDAS) + ")");
+            }
+        }
+    }
+
+    private List<ReporteMultidimensional.Fila> filas(Consulta consulta, Parcial total, List<String> medidas) {
+        boolean conCantidad = medidas.contains("cantidad");
+        boolean conIngreso = medidas.contains("ingreso");
+        boolean conClientes = medidas.contains("clientes");
+
+        List<Long> combinaciones = new ArrayList<>();
+        for (long clave : total.claves) {
+            if (clave != Parcial.VACIA) {
+                combinaciones.add(clave);
+            }
+        }
+        combinaciones.sort(consulta::comparar);
+
+        List<ReporteMultidimensional.Fila> filas = new ArrayList<>(combinaciones.size());
+        for (long clave : combinaciones) {
+            int i = total.celda(clave);
+            filas.add(new ReporteMultidimensional.Fila(
+                    consulta.etiquetas(clave),
+                    conCantidad ? total.cuentas[i] : null,
+                    conIngreso ? BigDecimal.valueOf(total.sumas[i], 2) : null,
+                    conClientes ? total.clientes[i].estimar() : null));
+        }
+        return filas;
+    }
+
+    // Columnas ya resueltas de una consulta; cada combinación de dimensiones se codifica en un long
+    // (base mixta con la cardinalidad de cada dimensión)
+    private static class Consulta {
+        private final TablaColumnar.Vista vista;
+        private final List<String> dimensiones;
+        private final int[][] columnasDimension;  // null en la dimensión "dia"
+        private final long[] multiplicadores;
+        private final int[] cardinalidades;
+        private final int diaBase;
+        private final int[] minutos;
+        private final int[] centimos;
+        private final int[] clientes;
+        private final int[] estados;       // null en las tablas sin anulaciones
+        private final int codigoAnulado;
+        private final int[][] columnasFiltro;
+        private final int[] codigosFiltro;
+        private final int minutoDesde;
+        private final int minutoHasta;
+        private boolean sinResultados;
+
+        private Consulta(TablaColumnar.Vista vista, List<String> dimensiones, boolean conClientes,
+                         Map<String, String> filtros, LocalDate desde, LocalDate hasta) {
+            this.vista = vista;
+            this.dimensiones = dimensiones;
+            this.minutos = vista.columna("minutoVenta");
+            this.centimos = vista.columna("centimos");
+            this.clientes = conClientes ? vista.columna("cliente") : null;
+            this.estados = vista.tieneColumna("estado") ? vista.columna("estado") : null;
+            this.codigoAnulado = estados != null ? vista.codigo("estado", "ANULADO") : -1;
+            this.minutoDesde = desde != null ? AlmacenAnaliticoService.minuto(desde.atStartOfDay()) : Integer.MIN_VALUE;
+            this.minutoHasta = hasta != null ? AlmacenAnaliticoService.minuto(hasta.plusDays(1).atStartOfDay()) - 1 : Integer.MAX_VALUE;
+
+            // Rango de días presentes en los datos (o el pedido), para la dimensión "dia"
+            int primerDia = 0;
+            int ultimoDia = 0;
+            if (dimensiones.contains(DIMENSION_DIA)) {
+                primerDia = Integer.MAX_VALUE;
+                ultimoDia = Integer.MIN_VALUE;
+                for (int i = 0; i < vista.getFilas(); i++) {
+                    if (minutos[i] >= minutoDesde && minutos[i] <= minutoHasta) {
+                        int dia = Math.floorDiv(minutos[i], MINUTOS_POR_DIA);
+                        primerDia = Math.min(primerDia, dia);
+                        ultimoDia = Math.max(ultimoDia, dia);
+                    }
+                }
+                if (primerDia > ultimoDia) {
+                    sinResultados = true;
+                    primerDia = 0;
+                    ultimoDia = 0;
+                }
+            }
+            this.diaBase = primerDia;
+
+            this.columnasDimension = new int[dimensiones.size()][];
+            this.cardinalidades = new int[dimensiones.size()];
+            this.multiplicadores = new long[dimensiones.size()];
+            long multiplicador = 1;
+            for (int d = dimensiones.size() - 1; d >= 0; d--) {
+                String dimension = dimensiones.get(d);
+                if (DIMENSION_DIA.equals(dimension)) {
+                    cardinalidades[d] = ultimoDia - primerDia + 1;
+                } else {
+                    if (!vista.esAgrupable(dimension)) {
+                        throw new RuntimeException("No se puede agrupar por la columna numérica " + dimension);
+                    }
+                    columnasDimension[d] = vista.columna(dimension);
+                    cardinalidades[d] = Math.max(1, vista.cardinalidad(dimension));
+                }
+                multiplicadores[d] = multiplicador;
+                multiplicador = Math.multiplyExact(multiplicador, cardinalidades[d]);
+            }
+
+            int cantidadFiltros = filtros != null ? filtros.size() : 0;
+            this.columnasFiltro = new int[cantidadFiltros][];
+            this.codigosFiltro = new int[cantidadFiltros];
+            int f = 0;
+            if (filtros != null) {
+                for (Map.Entry<String, String> filtro : filtros.entrySet()) {
+                    columnasFiltro[f] = vista.columna(filtro.getKey());
+                    codigosFiltro[f] = vista.codigo(filtro.getKey(), filtro.getValue());
+                    if (codigosFiltro[f] < 0) {
+                        sinResultados = true;
+                    }
+                    f++;
+                }
+            }
+        }
+
+        private int codigo(long clave, int dimension) {
+            return (int) ((clave / multiplicadores[dimension]) % cardinalidades[dimension]);
+        }
+
+        private List<String> etiquetas(long clave) {
+            List<String> valores = new ArrayList<>(dimensiones.size());
+            for (int d = 0; d < dimensiones.size(); d++) {
+                valores.add(columnasDimension[d] == null
+                        ? LocalDate.ofEpochDay(diaBase + codigo(clave, d)).toString()
+                        : vista.etiqueta(dimensiones.get(d), codigo(clave, d)));
+            }
+            return valores;
+        }
+
+        // Textos en orden alfabético; días y horas de la semana en orden cronológico
+        private int comparar(long a, long b) {
+            for (int d = 0; d < dimensiones.size(); d++) {
+                int codigoA = codigo(a, d);
+                int codigoB = codigo(b, d);
+                if (codigoA == codigoB) {
+                    continue;
+                }
+                if (columnasDimension[d] != null && vista.tipo(dimensiones.get(d)) == TablaColumnar.Tipo.TEXTO) {
+                    return vista.etiqueta(dimensiones.get(d), codigoA).compareTo(vista.etiqueta(dimensiones.get(d), codigoB));
+                }
+                return Integer.compare(codigoA, codigoB);
+            }
+            return 0;
+        }
+
+        // Agrega las filas [inicio, fin) en un resultado parcial
+        private Parcial agregar(int inicio, int fin) {
+            Parcial parcial = new Parcial(clientes != null);
+            int dimensionesConsulta = columnasDimension.length;
+
+            filas:
+            for (int i = inicio; i < fin; i++) {
+                int minuto = minutos[i];
+                if (minuto < minutoDesde || minuto > minutoHasta) {
+                    continue;
+                }
+                for (int j = 0; j < codigosFiltro.length; j++) {
+                    if (columnasFiltro[j][i] != codigosFiltro[j]) {
+                        continue filas;
+                    }
+                }
+
+                long clave = 0;
+                for (int d = 0; d < dimensionesConsulta; d++) {
+                    int codigo = columnasDimension[d] != null
+                            ? columnasDimension[d][i]
+                            : Math.floorDiv(minuto, MINUTOS_POR_DIA) - diaBase;
+                    clave += codigo * multiplicadores[d];
+                }
+
+                boolean anulacion = estados != null && estados[i] == codigoAnulado;
+                int celda = parcial.celda(clave);
+                parcial.cuentas[celda] += anulacion ? -1 : 1;
+                parcial.sumas[celda] += centimos[i];
+                if (clientes != null && !anulacion) {
+                    parcial.clientes[celda].agregar(clientes[i]);
+                }
+            }
+            return parcial;
+        }
+    }
+
+    private static class Agregacion extends RecursiveTask<Parcial> {
+        private final Consulta consulta;
+        private final int inicio;
+        private final int fin;
+        private final int filasPorParticion;
+        private final AtomicInteger particiones;
+
+        private Agregacion(Consulta consulta, int inicio, int fin, int filasPorParticion, AtomicInteger particiones) {
+            this.consulta = consulta;
+            this.inicio = inicio;
+            this.fin = fin;
+            this.filasPorParticion = filasPorParticion;
+            this.particiones = particiones;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (fin - inicio <= filasPorParticion) {
+                particiones.incrementAndGet();
+                return consulta.agregar(inicio, fin);
+            }
+
+            int medio = (inicio + fin) >>> 1;
+            Agregacion izquierda = new Agregacion(consulta, inicio, medio, filasPorParticion, particiones);
+            izquierda.fork();
+            Parcial derecha = new Agregacion(consulta, medio, fin, filasPorParticion, particiones).compute();
+            return izquierda.join().combinar(derecha);
+        }
+    }
+
+    // Resultado parcial: tabla hash abierta de combinación -> (cantidad, céntimos, clientes)
+    private static class Parcial {
+        private static final long VACIA = -1;
+
+        private final boolean conClientes;
+        private long[] claves;
+        private long[] cuentas;
+        private long[] sumas;
+        private HyperLogLog[] clientes;
+        private int ocupadas;
+
+        private Parcial(boolean conClientes) {
+            this.conClientes = conClientes;
+            reservar(64);
+        }
+
+        // Posición de la combinación, creándola si no existe
+        private int celda(long clave) {
+            int mascara = claves.length - 1;
+            int i = posicion(clave, mascara);
+            while (claves[i] != VACIA) {
+                if (claves[i] == clave) {
+                    return i;
+                }
+                i = (i + 1) & mascara;
+            }
+
+            if ((ocupadas + 1) * 2 > claves.length) {
+                crecer();
+                return celda(clave);
+            }
+            claves[i] = clave;
+            if (conClientes) {
+                clientes[i] = new HyperLogLog(PRECISION_CLIENTES);
+            }
+            ocupadas++;
+            return i;
+        }
+
+        // Combina el parcial más chico dentro del más grande
+        private Parcial combinar(Parcial otro) {
+            if (otro.ocupadas > ocupadas) {
+                return otro.combinar(this);
+            }
+            for (int j = 0; j < otro.claves.length; j++) {
+                if (otro.claves[j] == VACIA) {
+                    continue;
+                }
+                int i = celda(otro.claves[j]);
+                cuentas[i] += otro.cuentas[j];
+                sumas[i] += otro.sumas[j];
+                if (conClientes) {
+                    clientes[i].combinar(otro.clientes[j]);
+                }
+            }
+            return this;
+        }
+
+        private void crecer() {
+            long[] clavesAnteriores = claves;
+            long[] cuentasAnteriores = cuentas;
+            long[] sumasAnteriores = sumas;
+            HyperLogLog[] clientesAnteriores = clientes;
+
+            reservar(clavesAnteriores.length * 2);
+            int mascara = claves.length - 1;
+            for (int j = 0; j < clavesAnteriores.length; j++) {
+                if (clavesAnteriores[j] == VACIA) {
+                    continue;
+                }
+                int i = posicion(clavesAnteriores[j], mascara);
+                while (claves[i] != VACIA) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clavesAnteriores[j];
+                cuentas[i] = cuentasAnteriores[j];
+                sumas[i] = sumasAnteriores[j];
+                if (conClientes) {
+                    clientes[i] = clientesAnteriores[j];
+                }
+            }
+        }
+
+        private void reservar(int capacidad) {
+            claves = new long[capacidad];
+            Arrays.fill(claves, VACIA);
+            cuentas = new long[capacidad];
+            sumas = new long[capacidad];
+            clientes = conClientes ? new HyperLogLog[capacidad] : null;
+        }
+
+        private static int posicion(long clave, int mascara) {
+            long h = clave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+    }
+}
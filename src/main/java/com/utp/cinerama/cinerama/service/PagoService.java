@@ -2,23 +2,56 @@ package com.utp.cinerama.cinerama.service;
 
 import com.utp.cinerama.cinerama.model.Cliente;
 import com.utp.cinerama.cinerama.model.Pago;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
+import com.utp.cinerama.cinerama.model.ResumenHora;
+import com.utp.cinerama.cinerama.model.SolicitudPago;
 import com.utp.cinerama.cinerama.model.Boleto;
 import com.utp.cinerama.cinerama.model.VentaProducto;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+// Los pagos se autorizan de forma asíncrona: procesar un pago solo lo encola y responde con el
+// pago PENDIENTE; un grupo acotado de hilos de trabajo consulta la pasarela y completa o rechaza
+// el pago. El resultado se obtiene consultando el pago o suscribiéndose a sus eventos (SSE).
 @Service
 public class PagoService {
 
+    private static final long TIMEOUT_SSE_MS = 2 * 60 * 1000L;
+
+    // La cola de autorizaciones está llena; el cliente debe reintentar más tarde
+    public static class PagosSaturadosException extends RuntimeException {
+        public PagosSaturadosException() {
+            super("El sistema de pagos está saturado, intente nuevamente en unos segundos");
+        }
+    }
+
     @Autowired
     private ClienteService clienteService;
     
@@ -28,26 +61,84 @@ public class PagoService {
     @Autowired
     private VentaProductoService ventaProductoService;
 
-    private List<Pago> pagos = new ArrayList<>();
+    @Autowired
+    private PasarelaPago pasarelaPago;
+
+    @Autowired
+    private ResumenVentasService resumenVentasService;
+
+    @Autowired
+    private AlmacenAnaliticoService almacenAnaliticoService;
+
+    // Genera ids que identifican al nodo que los creó (ver TopologiaCluster)
+    @Autowired
+    private TopologiaCluster topologiaCluster;
+
+    @Value("${cinerama.pagos.trabajadores:4}")
+    private int trabajadores;
+
+    @Value("${cinerama.pagos.capacidad-cola:1000}")
+    private int capacidadCola;
+
+    @Value("${cinerama.pagos.intentos-anulacion:5}")
+    private int intentosAnulacion;
+
+    private final Map<Long, Pago> pagos = new ConcurrentSkipListMap<>();
     private AtomicLong contador = new AtomicLong(1);
 
+    // Pagos agrupados por la hora de fechaPago; se actualiza al crear y al completar cada pago
+    private final IndiceTemporal<Pago> indiceFechas = new IndiceTemporal<>();
+
+    // Resultado de cada pago PENDIENTE; se completa cuando la pasarela responde
+    private final Map<Long, CompletableFuture<Pago>> resultados = new ConcurrentHashMap<>();
+
+    // Pagos ya enviados a la pasarela, para no autorizar dos veces el mismo pago
+    private final Set<Long> enProceso = ConcurrentHashMap.newKeySet();
+
+    // Boleto -> pago PENDIENTE que lo cobra; un boleto no puede estar en dos pagos pendientes
+    private final Map<Long, Long> pagoPendientePorBoleto = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor procesadores;
+
+    // Reintentos de las anulaciones que la pasarela no confirmó
+    private final ScheduledExecutorService anulaciones = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "anulaciones-pagos");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
     public PagoService() {
         // Constructor vacío
     }
 
+    @PostConstruct
+    public void iniciarProcesadores() {
+        AtomicInteger numero = new AtomicInteger(1);
+        procesadores = new ThreadPoolExecutor(trabajadores, trabajadores, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), r -> {
+                    Thread hilo = new Thread(r, "procesador-pagos-" + numero.getAndIncrement());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    @PreDestroy
+    public void detenerProcesadores() {
+        procesadores.shutdownNow();
+        anulaciones.shutdownNow();
+    }
+
     // Métodos CRUD básicos
     public List<Pago> obtenerTodosLosPagos() {
-        return new ArrayList<>(pagos);
+        return new ArrayList<>(pagos.values());
     }
 
     public Optional<Pago> obtenerPagoPorId(Long id) {
-        return pagos.stream()
-                .filter(pago -> pago.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(pagos.get(id));
     }
     
     public Optional<Pago> obtenerPagoPorReferencia(String referencia) {
-        return pagos.stream()
+        return pagos.values().stream()
                 .filter(pago -> pago.getReferencia().equals(referencia))
                 .findFirst();
     }
@@ -64,6 +155,9 @@ public class PagoService {
             if (boletoOpt.isEmpty()) {
                 throw new RuntimeException("Boleto no encontrado: " + boletoId);
             }
+            if (boletoOpt.get().getEstado() != Boleto.EstadoBoleto.RESERVADO) {
+                throw new RuntimeException("El boleto " + boletoId + " no está reservado");
+            }
             boletos.add(boletoOpt.get());
         }
         
@@ -73,10 +167,22 @@ public class PagoService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
         
         // Crear pago
-        Pago pago = new Pago(contador.getAndIncrement(), montoTotal, cliente, 
+        Pago pago = new Pago(topologiaCluster.siguienteId(contador), montoTotal, cliente, 
                            metodoPago, null, tipoComprobante);
+        pago.setBoletosIds(new ArrayList<>(boletosIds));
+
+        // Dos pagos pendientes por los mismos boletos terminarían con dos cobros autorizados
+        List<Long> tomados = new ArrayList<>();
+        for (Long boletoId : boletosIds) {
+            Long otroPago = pagoPendientePorBoleto.putIfAbsent(boletoId, pago.getId());
+            if (otroPago != null && !otroPago.equals(pago.getId())) {
+                tomados.forEach(tomado -> pagoPendientePorBoleto.remove(tomado, pago.getId()));
+                throw new RuntimeException("El boleto " + boletoId + " ya tiene el pago pendiente " + otroPago);
+            }
+            tomados.add(boletoId);
+        }
         
-        pagos.add(pago);
+        registrarPendiente(pago);
         return pago;
     }
 
@@ -94,74 +200,146 @@ public class PagoService {
         VentaProducto venta = ventaOpt.get();
         
         // Crear pago
-        Pago pago = new Pago(contador.getAndIncrement(), venta.getTotal(), cliente, 
+        Pago pago = new Pago(topologiaCluster.siguienteId(contador), venta.getTotal(), cliente, 
                            metodoPago, null, tipoComprobante);
         
-        pagos.add(pago);
+        registrarPendiente(pago);
         return pago;
     }
 
-    // Procesar pago con tarjeta
+    // Procesar pago con tarjeta: se encola la autorización y se devuelve el pago aún PENDIENTE
     public Pago procesarPagoTarjeta(Long pagoId, String numeroTarjeta) {
-        Optional<Pago> pagoOpt = obtenerPagoPorId(pagoId);
-        
-        if (pagoOpt.isEmpty()) {
-            throw new RuntimeException("Pago no encontrado: " + pagoId);
-        }
-        
-        Pago pago = pagoOpt.get();
-        pago.setNumeroTarjeta(numeroTarjeta);
-        pago.completarPago();
-        
-        return pago;
+        return enviarAPasarela(pagoId, numeroTarjeta);
     }
 
-    // Procesar pago con apps (Yape/Plin)
+    // Procesar pago con apps (Yape/Plin): se encola la autorización y se devuelve el pago aún PENDIENTE
     public Pago procesarPagoApp(Long pagoId) {
-        Optional<Pago> pagoOpt = obtenerPagoPorId(pagoId);
-        
-        if (pagoOpt.isEmpty()) {
-            throw new RuntimeException("Pago no encontrado: " + pagoId);
+        return enviarAPasarela(pagoId, null);
+    }
+
+    // Procesa varios pagos: se validan todos de una pasada y cada aceptado se encola por separado,
+    // igual que un pago suelto, para que el lote comparta los trabajadores con los demás pagos en vez
+    // de ocuparlos todos. Los aceptados quedan PENDIENTES, como con procesarPagoTarjeta/App.
+    public ResultadoLote procesarPagosEnLote(List<SolicitudPago> solicitudes) {
+        long inicio = System.nanoTime();
+        ResultadoLote resultado = new ResultadoLote(solicitudes.size());
+        for (int i = 0; i < solicitudes.size(); i++) {
+            Long pagoId = solicitudes.get(i).getPagoId();
+            Pago pago = pagoId != null ? pagos.get(pagoId) : null;
+            if (pago == null) {
+                resultado.registrarError(i, pagoId, "Pago no encontrado");
+            } else if (pago.getEstado() != Pago.EstadoPago.PENDIENTE) {
+                resultado.registrarError(i, pagoId, "El pago ya fue procesado");
+            } else if (!enProceso.add(pagoId)) {
+                resultado.registrarError(i, pagoId, "El pago ya se está procesando");
+            } else {
+                if (solicitudes.get(i).getNumeroTarjeta() != null) {
+                    pago.setNumeroTarjeta(solicitudes.get(i).getNumeroTarjeta());
+                }
+                try {
+                    procesadores.execute(() -> autorizar(pago));
+                    resultado.registrarExito(i, pagoId, Pago.EstadoPago.PENDIENTE.name());
+                } catch (RejectedExecutionException e) {
+                    enProceso.remove(pagoId);
+                    resultado.registrarError(i, pagoId, new PagosSaturadosException().getMessage());
+                }
+            }
         }
-        
-        Pago pago = pagoOpt.get();
-        pago.completarPago();
-        
-        return pago;
+        resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        return resultado;
+    }
+
+    // Eventos del pago: "estado" con el pago actual y, si sigue pendiente, otro "estado" al resolverse.
+    // El futuro se toma antes de leer el estado: si el pago se resuelve entre ambos pasos, el callback
+    // igual se ejecuta (thenAccept sobre un futuro ya completo corre en el acto) y nunca se envía un
+    // PENDIENTE que no vaya seguido del estado final.
+    public SseEmitter suscribirResultado(Long pagoId) {
+        CompletableFuture<Pago> resultado = resultados.get(pagoId);
+        Pago pago = obtenerPagoPorId(pagoId)
+                .orElseThrow(() -> new RuntimeException("Pago no encontrado: " + pagoId));
+
+        SseEmitter emitter = new SseEmitter(TIMEOUT_SSE_MS);
+        if (resultado == null) {
+            enviarEstado(emitter, pago);
+            emitter.complete();
+            return emitter;
+        }
+        // Ambos envíos van bajo el monitor del emitter para que el estado actual salga primero
+        synchronized (emitter) {
+            resultado.thenAccept(resuelto -> {
+                synchronized (emitter) {
+                    enviarEstado(emitter, resuelto);
+                    emitter.complete();
+                }
+            });
+            if (!resultado.isDone()) {
+                enviarEstado(emitter, pago);
+            }
+        }
+        return emitter;
+    }
+
+    // Se completa cuando el pago deja de estar PENDIENTE
+    public CompletableFuture<Pago> resultadoDe(Long pagoId) {
+        Pago pago = obtenerPagoPorId(pagoId)
+                .orElseThrow(() -> new RuntimeException("Pago no encontrado: " + pagoId));
+        CompletableFuture<Pago> resultado = resultados.get(pagoId);
+        return resultado != null ? resultado : CompletableFuture.completedFuture(pago);
+    }
+
+    public int contarPagosEnCola() {
+        return procesadores.getQueue().size();
     }
 
     // Búsqueda de pagos por cliente
     public List<Pago> buscarPagosPorCliente(Long clienteId) {
-        return pagos.stream()
+        return pagos.values().stream()
                 .filter(pago -> pago.getCliente() != null && pago.getCliente().getId().equals(clienteId))
                 .collect(Collectors.toList());
     }
 
     // Búsqueda de pagos por fecha
     public List<Pago> buscarPagosPorFecha(LocalDate fecha) {
-        return pagos.stream()
-                .filter(pago -> pago.getFechaPago() != null &&
-                               pago.getFechaPago().toLocalDate().equals(fecha))
-                .collect(Collectors.toList());
+        return indiceFechas.delDia(fecha);
+    }
+
+    // Búsqueda de pagos entre dos fechas (inclusive)
+    public List<Pago> buscarPagosEntreFechas(LocalDate desde, LocalDate hasta) {
+        return indiceFechas.entre(desde, hasta);
     }
 
     // Búsqueda de pagos por estado
     public List<Pago> buscarPagosPorEstado(Pago.EstadoPago estado) {
-        return pagos.stream()
+        return pagos.values().stream()
                 .filter(pago -> pago.getEstado() == estado)
                 .collect(Collectors.toList());
     }
 
     // Reportes - Total de ventas por día
     public BigDecimal calcularTotalVentasPorFecha(LocalDate fecha) {
-        return pagos.stream()
-                .filter(pago -> pago.getEstado() == Pago.EstadoPago.COMPLETADO &&
-                              pago.getFechaPago() != null &&
-                              pago.getFechaPago().toLocalDate().equals(fecha))
+        return indiceFechas.delDia(fecha).stream()
+                .filter(pago -> pago.getEstado() == Pago.EstadoPago.COMPLETADO)
                 .map(Pago::getMonto)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
+    // Reportes - Pagos completados por hora entre dos fechas (solo horas con ventas)
+    public List<ResumenHora> calcularVentasPorHora(LocalDate desde, LocalDate hasta) {
+        List<ResumenHora> resumen = new ArrayList<>();
+        for (Map.Entry<LocalDateTime, List<Pago>> hora : indiceFechas.porHora(desde, hasta).entrySet()) {
+            ResumenHora resumenHora = new ResumenHora(hora.getKey());
+            for (Pago pago : hora.getValue()) {
+                if (pago.getEstado() == Pago.EstadoPago.COMPLETADO) {
+                    resumenHora.registrar(pago.getMonto());
+                }
+            }
+            if (resumenHora.getCantidad() > 0) {
+                resumen.add(resumenHora);
+            }
+        }
+        return resumen;
+    }
+
     // Datos de prueba
     public void inicializarDatosPrueba() {
         if (pagos.isEmpty() && clienteService != null) {
@@ -172,7 +350,7 @@ public class PagoService {
                 
                 // Pago con tarjeta
                 Pago pago1 = new Pago();
-                pago1.setId(contador.getAndIncrement());
+                pago1.setId(topologiaCluster.siguienteId(contador));
                 pago1.setCliente(cliente);
                 pago1.setMonto(new BigDecimal("63.00"));
                 pago1.setMetodo(Pago.MetodoPago.TARJETA_CREDITO);
@@ -182,16 +360,128 @@ public class PagoService {
                 
                 // Pago con Yape
                 Pago pago2 = new Pago();
-                pago2.setId(contador.getAndIncrement());
+                pago2.setId(topologiaCluster.siguienteId(contador));
                 pago2.setCliente(cliente);
                 pago2.setMonto(new BigDecimal("33.00"));
                 pago2.setMetodo(Pago.MetodoPago.APP_YAPE);
                 pago2.setTipoComprobante(Pago.TipoComprobante.BOLETA);
                 pago2.completarPago();
                 
-                pagos.add(pago1);
-                pagos.add(pago2);
+                pagos.put(pago1.getId(), pago1);
+                pagos.put(pago2.getId(), pago2);
+                indiceFechas.registrar(pago1.getId(), pago1, pago1.getFechaPago());
+                indiceFechas.registrar(pago2.getId(), pago2, pago2.getFechaPago());
+                resumenVentasService.registrarPago(pago1, pago1.getFechaPago().toLocalDate());
+                resumenVentasService.registrarPago(pago2, pago2.getFechaPago().toLocalDate());
+                almacenAnaliticoService.registrarPago(pago1, pago1.getFechaPago());
+                almacenAnaliticoService.registrarPago(pago2, pago2.getFechaPago());
+            }
+        }
+    }
+
+    // Métodos auxiliares
+    private void registrarPendiente(Pago pago) {
+        resultados.put(pago.getId(), new CompletableFuture<>());
+        pagos.put(pago.getId(), pago);
+        indiceFechas.registrar(pago.getId(), pago, pago.getFechaPago());
+    }
+
+    private Pago enviarAPasarela(Long pagoId, String numeroTarjeta) {
+        Pago pago = obtenerPagoPorId(pagoId)
+                .orElseThrow(() -> new RuntimeException("Pago no encontrado: " + pagoId));
+
+        if (pago.getEstado() != Pago.EstadoPago.PENDIENTE) {
+            throw new RuntimeException("El pago ya fue procesado");
+        }
+        if (!enProceso.add(pagoId)) {
+            throw new RuntimeException("El pago ya se está procesando");
+        }
+
+        if (numeroTarjeta != null) {
+            pago.setNumeroTarjeta(numeroTarjeta);
+        }
+        try {
+            procesadores.execute(() -> autorizar(pago));
+        } catch (RejectedExecutionException e) {
+            enProceso.remove(pagoId);
+            throw new PagosSaturadosException();
+        }
+        return pago;
+    }
+
+    // Se ejecuta en un hilo de trabajo. Una autorización aprobada que no llega a confirmarse en los
+    // boletos (porque alguno ya no está reservado o porque la confirmación lanzó una excepción, por
+    // ejemplo si se eliminó un boleto) siempre se anula, para no dejar retenido el dinero del cliente.
+    private void autorizar(Pago pago) {
+        PasarelaPago.Resultado aprobado = null;   // Aprobado por la pasarela y todavía sin confirmar
+        try {
+            PasarelaPago.Resultado resultado = pasarelaPago.autorizar(pago);
+            if (!resultado.isAprobado()) {
+                pago.rechazarPago(resultado.getMotivoRechazo());
+                return;
+            }
+            aprobado = resultado;
+            if (!pago.getBoletosIds().isEmpty() && !boletoService.confirmarPagoBoletos(pago.getBoletosIds())) {
+                compensar(pago, aprobado, "Los boletos ya no están reservados");
+                return;
+            }
+            aprobado = null;
+            pago.setCodigoAutorizacion(resultado.getCodigoAutorizacion());
+            pago.completarPago();
+            // completarPago actualiza la fecha del pago
+            indiceFechas.registrar(pago.getId(), pago, pago.getFechaPago());
+            resumenVentasService.registrarPago(pago, pago.getFechaPago().toLocalDate());
+            almacenAnaliticoService.registrarPago(pago, pago.getFechaPago());
+        } catch (RuntimeException e) {
+            if (aprobado != null) {
+                compensar(pago, aprobado, "No se pudo confirmar el pago (" + e.getMessage() + ")");
+            } else if (pago.getEstado() == Pago.EstadoPago.PENDIENTE) {
+                pago.rechazarPago("Error en la pasarela: " + e.getMessage());
             }
+            // Si ya estaba COMPLETADO, el fallo fue en los resúmenes: el cobro y los boletos quedan firmes
+        } finally {
+            enProceso.remove(pago.getId());
+            pago.getBoletosIds().forEach(boletoId -> pagoPendientePorBoleto.remove(boletoId, pago.getId()));
+            CompletableFuture<Pago> pendiente = resultados.remove(pago.getId());
+            if (pendiente != null) {
+                pendiente.complete(pago);
+            }
+        }
+    }
+
+    private void compensar(Pago pago, PasarelaPago.Resultado aprobado, String causa) {
+        pago.rechazarPago(causa + "; se está anulando la autorización " + aprobado.getCodigoAutorizacion());
+        anular(pago, causa, aprobado.getCodigoAutorizacion(), 1);
+    }
+
+    // Paso de compensación: si la pasarela no confirma, se reintenta con espera creciente (1 s, 2 s,
+    // 4 s, ...) hasta intentos-anulacion veces; el motivo del rechazo refleja cómo terminó
+    private void anular(Pago pago, String causa, String codigoAutorizacion, int intento) {
+        try {
+            pasarelaPago.anular(pago, codigoAutorizacion);
+            pago.setMotivoRechazo(causa + "; la autorización fue anulada");
+        } catch (RuntimeException e) {
+            if (intento >= intentosAnulacion) {
+                pago.setMotivoRechazo(causa + "; no se pudo anular la autorización "
+                        + codigoAutorizacion + " (" + e.getMessage() + ")");
+                return;
+            }
+            try {
+                anulaciones.schedule(() -> anular(pago, causa, codigoAutorizacion, intento + 1),
+                        1000L << (intento - 1), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException apagando) {
+                pago.setMotivoRechazo(causa + "; la anulación de la autorización "
+                        + codigoAutorizacion + " quedó pendiente");
+            }
+        }
+    }
+
+    private void enviarEstado(SseEmitter emitter, Pago pago) {
+        try {
+            emitter.send(SseEmitter.event().name("estado").data(pago));
+        } catch (IOException | IllegalStateException e) {
+            // El cliente cerró la conexión
+            emitter.completeWithError(e);
         }
     }
-}
\ No newline at end of file
+}
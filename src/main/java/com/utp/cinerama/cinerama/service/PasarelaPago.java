@@ -0,0 +1,39 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Pago;
+
+// Autorizador externo de pagos (procesador de tarjetas, Yape, Plin).
+// Las implementaciones pueden bloquear: se invocan desde los hilos de trabajo de PagoService.
+public interface PasarelaPago {
+
+    Resultado autorizar(Pago pago);
+
+    // Libera una autorización aprobada que ya no se va a cobrar. Lanza RuntimeException si la
+    // pasarela no la confirma; anular dos veces la misma autorización no es un error.
+    void anular(Pago pago, String codigoAutorizacion);
+
+    // Respuesta de la pasarela a una solicitud de autorización
+    class Resultado {
+        private final boolean aprobado;
+        private final String codigoAutorizacion;
+        private final String motivoRechazo;
+
+        private Resultado(boolean aprobado, String codigoAutorizacion, String motivoRechazo) {
+            this.aprobado = aprobado;
+            this.codigoAutorizacion = codigoAutorizacion;
+            this.motivoRechazo = motivoRechazo;
+        }
+
+        public static Resultado aprobado(String codigoAutorizacion) {
+            return new Resultado(true, codigoAutorizacion, null);
+        }
+
+        public static Resultado rechazado(String motivo) {
+            return new Resultado(false, null, motivo);
+        }
+
+        public boolean isAprobado() { return aprobado; }
+        public String getCodigoAutorizacion() { return codigoAutorizacion; }
+        public String getMotivoRechazo() { return motivoRechazo; }
+    }
+}
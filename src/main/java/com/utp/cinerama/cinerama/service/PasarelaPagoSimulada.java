@@ -0,0 +1,62 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Pago;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Pasarela local para desarrollo y pruebas de carga: simula la latencia de una autorización real
+// y rechaza o falla una fracción configurable de los pagos.
+// Las tarjetas terminadas en 0000 se rechazan siempre, para poder probar el flujo de rechazo.
+@Component
+public class PasarelaPagoSimulada implements PasarelaPago {
+
+    @Value("${cinerama.pagos.simulador.latencia-min-ms:150}")
+    private long latenciaMinMs;
+
+    @Value("${cinerama.pagos.simulador.latencia-max-ms:600}")
+    private long latenciaMaxMs;
+
+    @Value("${cinerama.pagos.simulador.tasa-rechazo:0.05}")
+    private double tasaRechazo;
+
+    @Value("${cinerama.pagos.simulador.tasa-error:0.01}")
+    private double tasaError;
+
+    @Override
+    public Resultado autorizar(Pago pago) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        esperar(latenciaMaxMs > latenciaMinMs ? random.nextLong(latenciaMinMs, latenciaMaxMs + 1) : latenciaMinMs);
+
+        if (random.nextDouble() < tasaError) {
+            throw new RuntimeException("La pasarela no respondió");
+        }
+        if (pago.getNumeroTarjeta() != null && pago.getNumeroTarjeta().endsWith("0000")) {
+            return Resultado.rechazado("Tarjeta rechazada por el emisor");
+        }
+        if (random.nextDouble() < tasaRechazo) {
+            return Resultado.rechazado("Fondos insuficientes");
+        }
+        return Resultado.aprobado("AUT" + random.nextInt(100000, 1000000));
+    }
+
+    @Override
+    public void anular(Pago pago, String codigoAutorizacion) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        esperar(latenciaMinMs);
+        if (random.nextDouble() < tasaError) {
+            throw new RuntimeException("La pasarela no confirmó la anulación de " + codigoAutorizacion);
+        }
+    }
+
+    private void esperar(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Autorización interrumpida");
+        }
+    }
+}
@@ -1,61 +1,122 @@
 package com.utp.cinerama.cinerama.service;
 
+import com.utp.cinerama.cinerama.model.EventoMutacion;
 import com.utp.cinerama.cinerama.model.Pelicula;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class PeliculaService {
 
-    private List<Pelicula> peliculas = new ArrayList<>();
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    // Solo los métodos sincronizados publican una instantánea nueva; las lecturas usan la vigente
+    private volatile Instantanea<Pelicula> peliculas = Instantanea.de(List.of(), Pelicula::getId);
     private AtomicLong contador = new AtomicLong(1);
+    private final ContadorVersiones versiones = new ContadorVersiones("peliculas");
+
+    // Índice de título (en minúsculas) a id para verificar la unicidad sin recorrer la lista
+    private final Map<String, Long> peliculasPorTitulo = new ConcurrentHashMap<>();
 
     public PeliculaService() {
         inicializarDatosPrueba();
     }
 
+    // Versiones para responder GET condicionales (ETag / Last-Modified)
+    public ContadorVersiones.Marca versionColeccion() {
+        return versiones.coleccion();
+    }
+
+    public ContadorVersiones.Marca versionDe(Long id) {
+        return versiones.entidad(id);
+    }
+
     // Métodos CRUD
+    // Lista de solo lectura de la instantánea vigente, sin copiarla
     public List<Pelicula> obtenerTodasLasPeliculas() {
-        return new ArrayList<>(peliculas);
+        return peliculas.elementos();
     }
 
     public Optional<Pelicula> obtenerPeliculaPorId(Long id) {
-        return peliculas.stream()
-                .filter(pelicula -> pelicula.getId().equals(id))
-                .findFirst();
+        return peliculas.buscar(id);
     }
 
-    public Pelicula crearPelicula(Pelicula pelicula) {
-        boolean existeTitulo = peliculas.stream()
-                .anyMatch(p -> p.getTitulo().equalsIgnoreCase(pelicula.getTitulo()));
-        
-        if (existeTitulo) {
+    public synchronized Pelicula crearPelicula(Pelicula pelicula) {
+        if (peliculasPorTitulo.containsKey(claveTitulo(pelicula.getTitulo()))) {
             throw new RuntimeException("Ya existe una película con ese título: " + pelicula.getTitulo());
         }
 
         pelicula.setId(contador.getAndIncrement());
+        pelicula.setVersion(0);
         validarPelicula(pelicula);
-        peliculas.add(pelicula);
+        publicar(null, pelicula);
+        publicarCambio(pelicula.getId());
         return pelicula;
     }
 
-    public Optional<Pelicula> actualizarPelicula(Long id, Pelicula peliculaActualizada) {
+    // Importación masiva: valida el lote en paralelo con las mismas reglas de crearPelicula
+    // y luego verifica la unicidad del título contra el índice al insertar
+    public void importarPeliculas(List<LectorImportacion.Linea<Pelicula>> lote, ResultadoImportacion resultado) {
+        String[] errores = new String[lote.size()];
+        IntStream.range(0, lote.size()).parallel().forEach(i -> {
+            try {
+                validarPelicula(lote.get(i).getValor());
+            } catch (RuntimeException e) {
+                errores[i] = e.getMessage();
+            }
+        });
+
+        synchronized (this) {
+            List<Pelicula> nuevas = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                LectorImportacion.Linea<Pelicula> linea = lote.get(i);
+                Pelicula pelicula = linea.getValor();
+
+                if (errores[i] == null && peliculasPorTitulo.containsKey(claveTitulo(pelicula.getTitulo()))) {
+                    errores[i] = "Ya existe una película con ese título: " + pelicula.getTitulo();
+                }
+                if (errores[i] != null) {
+                    resultado.registrarError(linea.getNumero(), errores[i]);
+                    continue;
+                }
+
+                pelicula.setId(contador.getAndIncrement());
+                pelicula.setVersion(0);
+                peliculasPorTitulo.put(claveTitulo(pelicula.getTitulo()), pelicula.getId());
+                nuevas.add(pelicula);
+                resultado.registrarImportado();
+            }
+            // El lote completo se publica en una sola instantánea
+            peliculas = peliculas.conTodos(nuevas);
+        }
+        publicarCambio(null);
+    }
+
+    // Con versionEsperada (If-Match) solo se actualiza si nadie modificó la película desde esa versión.
+    // Los cambios se hacen sobre una copia que se valida antes de publicarla; si la validación falla,
+    // los lectores nunca ven la película a medio modificar.
+    public synchronized Optional<Pelicula> actualizarPelicula(Long id, Pelicula peliculaActualizada, Long versionEsperada) {
         Optional<Pelicula> peliculaExistente = obtenerPeliculaPorId(id);
         
         if (peliculaExistente.isPresent()) {
-            Pelicula pelicula = peliculaExistente.get();
-            
-            boolean existeOtroTitulo = peliculas.stream()
-                    .anyMatch(p -> !p.getId().equals(id) && 
-                             p.getTitulo().equalsIgnoreCase(peliculaActualizada.getTitulo()));
+            Pelicula pelicula = peliculaExistente.get().copia();
+            ContadorVersiones.verificarVersion(pelicula.getVersion(), versionEsperada);
             
-            if (existeOtroTitulo) {
+            if (existeOtroTitulo(id, peliculaActualizada.getTitulo())) {
                 throw new RuntimeException("Ya existe otra película con ese título: " + peliculaActualizada.getTitulo());
             }
 
@@ -67,24 +128,24 @@ public class PeliculaService {
             pelicula.setPrecio(peliculaActualizada.getPrecio());
             
             validarPelicula(pelicula);
+            pelicula.setVersion(pelicula.getVersion() + 1);
+            publicar(peliculaExistente.get(), pelicula);
+            publicarCambio(id);
             return Optional.of(pelicula);
         }
         
         return Optional.empty();
     }
 
-    public Optional<Pelicula> actualizarPeliculaParcial(Long id, Pelicula peliculaParcial) {
+    public synchronized Optional<Pelicula> actualizarPeliculaParcial(Long id, Pelicula peliculaParcial, Long versionEsperada) {
         Optional<Pelicula> peliculaExistente = obtenerPeliculaPorId(id);
         
         if (peliculaExistente.isPresent()) {
-            Pelicula pelicula = peliculaExistente.get();
+            Pelicula pelicula = peliculaExistente.get().copia();
+            ContadorVersiones.verificarVersion(pelicula.getVersion(), versionEsperada);
             
             if (peliculaParcial.getTitulo() != null) {
-                boolean existeOtroTitulo = peliculas.stream()
-                        .anyMatch(p -> !p.getId().equals(id) && 
-                                 p.getTitulo().equalsIgnoreCase(peliculaParcial.getTitulo()));
-                
-                if (existeOtroTitulo) {
+                if (existeOtroTitulo(id, peliculaParcial.getTitulo())) {
                     throw new RuntimeException("Ya existe otra película con ese título: " + peliculaParcial.getTitulo());
                 }
                 pelicula.setTitulo(peliculaParcial.getTitulo());
@@ -111,36 +172,90 @@ public class PeliculaService {
             }
             
             validarPelicula(pelicula);
+            pelicula.setVersion(pelicula.getVersion() + 1);
+            publicar(peliculaExistente.get(), pelicula);
+            publicarCambio(id);
             return Optional.of(pelicula);
         }
         
         return Optional.empty();
     }
 
-    public boolean eliminarPelicula(Long id) {
-        return peliculas.removeIf(pelicula -> pelicula.getId().equals(id));
+    public synchronized boolean eliminarPelicula(Long id) {
+        Optional<Pelicula> pelicula = obtenerPeliculaPorId(id);
+        if (pelicula.isPresent()) {
+            peliculasPorTitulo.remove(claveTitulo(pelicula.get().getTitulo()), id);
+            peliculas = peliculas.sin(id);
+            publicarCambio(id);
+            return true;
+        }
+        return false;
+    }
+
+    // Aplica en una réplica el estado recibido del primario (null = eliminada), sin validar de nuevo.
+    // La película recibida reemplaza a la local; FuncionService vuelve a enlazar sus funciones con el evento.
+    public synchronized void aplicarReplica(Long id, Pelicula datos) {
+        Optional<Pelicula> existente = obtenerPeliculaPorId(id);
+        if (datos == null) {
+            existente.ifPresent(pelicula -> {
+                peliculasPorTitulo.remove(claveTitulo(pelicula.getTitulo()), id);
+                peliculas = peliculas.sin(id);
+            });
+        } else {
+            datos.setId(id);
+            publicar(existente.orElse(null), datos);
+            contador.accumulateAndGet(id + 1, Math::max);
+        }
+        publicarCambio(id);
     }
 
     public List<Pelicula> buscarPorGenero(String genero) {
-        return peliculas.stream()
+        return peliculas.elementos().stream()
                 .filter(pelicula -> pelicula.getGenero().equalsIgnoreCase(genero))
                 .collect(Collectors.toList());
     }
 
     public List<Pelicula> buscarPorTitulo(String titulo) {
-        return peliculas.stream()
+        return peliculas.elementos().stream()
                 .filter(pelicula -> pelicula.getTitulo().toLowerCase()
                         .contains(titulo.toLowerCase()))
                 .collect(Collectors.toList());
     }
 
     public List<Pelicula> buscarPorClasificacion(String clasificacion) {
-        return peliculas.stream()
+        return peliculas.elementos().stream()
                 .filter(pelicula -> pelicula.getClasificacion().equalsIgnoreCase(clasificacion))
                 .collect(Collectors.toList());
     }
 
     // Métodos auxiliares
+    // Notifica el cambio para invalidar las respuestas cacheadas que incluyen la película
+    private void publicarCambio(Long id) {
+        versiones.registrarCambio(id, id == null ? null : obtenerPeliculaPorId(id).map(Pelicula::getVersion).orElse(null));
+        if (eventos != null) {
+            eventos.publishEvent(new EventoMutacion(EventoMutacion.Entidad.PELICULA, id));
+        }
+    }
+
+    // Publica la película nueva (o la copia modificada en lugar de 'anterior'); debe llamarse con el
+    // servicio sincronizado
+    private void publicar(Pelicula anterior, Pelicula nueva) {
+        if (anterior != null) {
+            peliculasPorTitulo.remove(claveTitulo(anterior.getTitulo()), anterior.getId());
+        }
+        peliculasPorTitulo.put(claveTitulo(nueva.getTitulo()), nueva.getId());
+        peliculas = peliculas.con(nueva);
+    }
+
+    private boolean existeOtroTitulo(Long id, String titulo) {
+        Long otra = peliculasPorTitulo.get(claveTitulo(titulo));
+        return otra != null && !otra.equals(id);
+    }
+
+    private String claveTitulo(String titulo) {
+        return titulo == null ? "" : titulo.trim().toLowerCase(Locale.ROOT);
+    }
+
     private void validarPelicula(Pelicula pelicula) {
         if (pelicula.getTitulo() == null || pelicula.getTitulo().trim().isEmpty()) {
             throw new RuntimeException("El título es obligatorio");
@@ -187,8 +302,8 @@ public class PeliculaService {
         pelicula3.setSinopsis("La saga de una familia mafiosa en Nueva York.");
         pelicula3.setPrecio(new BigDecimal("11.00"));
 
-        peliculas.add(pelicula1);
-        peliculas.add(pelicula2);
-        peliculas.add(pelicula3);
+        publicar(null, pelicula1);
+        publicar(null, pelicula2);
+        publicar(null, pelicula3);
     }
 }
\ No newline at end of file
@@ -1,64 +1,124 @@
 package com.utp.cinerama.cinerama.service;
 
+import com.utp.cinerama.cinerama.model.AjusteStock;
+import com.utp.cinerama.cinerama.model.EventoMutacion;
 import com.utp.cinerama.cinerama.model.Producto;
 import com.utp.cinerama.cinerama.model.Producto.CategoriaProducto;
+import com.utp.cinerama.cinerama.model.ResultadoImportacion;
+import com.utp.cinerama.cinerama.model.ResultadoLote;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class ProductoService {
 
-    private List<Producto> productos = new ArrayList<>();
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    // Instantánea publicada: los lectores la usan tal cual y las escrituras (sincronizadas) la reemplazan
+    private volatile Instantanea<Producto> productos = Instantanea.de(List.of(), Producto::getId);
     private AtomicLong contador = new AtomicLong(1);
+    private final ContadorVersiones versiones = new ContadorVersiones("productos");
+
+    // Índice de nombre (en minúsculas) a id para verificar la unicidad sin recorrer la lista
+    private final Map<String, Long> productosPorNombre = new ConcurrentHashMap<>();
 
     public ProductoService() {
         inicializarDatosPrueba();
     }
 
+    // Versiones para responder GET condicionales (ETag / Last-Modified)
+    public ContadorVersiones.Marca versionColeccion() {
+        return versiones.coleccion();
+    }
+
+    public ContadorVersiones.Marca versionDe(Long id) {
+        return versiones.entidad(id);
+    }
+
     // Métodos CRUD
     public List<Producto> obtenerTodosLosProductos() {
-        return new ArrayList<>(productos);
+        return productos.elementos();
     }
 
     public Optional<Producto> obtenerProductoPorId(Long id) {
-        return productos.stream()
-                .filter(producto -> producto.getId().equals(id))
-                .findFirst();
+        return productos.buscar(id);
     }
 
-    public Producto crearProducto(Producto producto) {
+    public synchronized Producto crearProducto(Producto producto) {
         // Verificar nombre único
-        boolean existeNombre = productos.stream()
-                .anyMatch(p -> p.getNombre().equalsIgnoreCase(producto.getNombre()));
-        
-        if (existeNombre) {
+        if (productosPorNombre.containsKey(claveNombre(producto.getNombre()))) {
             throw new RuntimeException("Ya existe un producto con ese nombre: " + producto.getNombre());
         }
 
         producto.setId(contador.getAndIncrement());
+        producto.setVersion(0);
         validarProducto(producto);
-        productos.add(producto);
+        publicar(null, producto);
+        publicarCambio(producto.getId());
         return producto;
     }
 
-    public Optional<Producto> actualizarProducto(Long id, Producto productoActualizado) {
+    // Importación masiva: valida el lote en paralelo con las mismas reglas de crearProducto
+    // y luego verifica la unicidad del nombre contra el índice al insertar
+    public void importarProductos(List<LectorImportacion.Linea<Producto>> lote, ResultadoImportacion resultado) {
+        String[] errores = new String[lote.size()];
+        IntStream.range(0, lote.size()).parallel().forEach(i -> {
+            try {
+                validarProducto(lote.get(i).getValor());
+            } catch (RuntimeException e) {
+                errores[i] = e.getMessage();
+            }
+        });
+
+        synchronized (this) {
+            List<Producto> nuevos = new ArrayList<>();
+            for (int i = 0; i < lote.size(); i++) {
+                LectorImportacion.Linea<Producto> linea = lote.get(i);
+                Producto producto = linea.getValor();
+
+                if (errores[i] == null && productosPorNombre.containsKey(claveNombre(producto.getNombre()))) {
+                    errores[i] = "Ya existe un producto con ese nombre: " + producto.getNombre();
+                }
+                if (errores[i] != null) {
+                    resultado.registrarError(linea.getNumero(), errores[i]);
+                    continue;
+                }
+
+                producto.setId(contador.getAndIncrement());
+                producto.setVersion(0);
+                productosPorNombre.put(claveNombre(producto.getNombre()), producto.getId());
+                nuevos.add(producto);
+                resultado.registrarImportado();
+            }
+            productos = productos.conTodos(nuevos);
+        }
+        publicarCambio(null);
+    }
+
+    // El control de versión evita pisar un cambio de stock o de precio hecho por otra petición
+    public synchronized Optional<Producto> actualizarProducto(Long id, Producto productoActualizado, Long versionEsperada) {
         Optional<Producto> productoExistente = obtenerProductoPorId(id);
         
         if (productoExistente.isPresent()) {
-            Producto producto = productoExistente.get();
+            Producto producto = productoExistente.get().copia();
+            ContadorVersiones.verificarVersion(producto.getVersion(), versionEsperada);
             
             // Verificar nombre único (excluyendo el producto actual)
-            boolean existeOtroNombre = productos.stream()
-                    .anyMatch(p -> !p.getId().equals(id) && 
-                             p.getNombre().equalsIgnoreCase(productoActualizado.getNombre()));
-            
-            if (existeOtroNombre) {
+            if (existeOtroNombre(id, productoActualizado.getNombre())) {
                 throw new RuntimeException("Ya existe otro producto con ese nombre: " + productoActualizado.getNombre());
             }
 
@@ -71,25 +131,25 @@ public class ProductoService {
             producto.setImagenUrl(productoActualizado.getImagenUrl());
             
             validarProducto(producto);
+            producto.setVersion(producto.getVersion() + 1);
+            publicar(productoExistente.get(), producto);
+            publicarCambio(id);
             return Optional.of(producto);
         }
         
         return Optional.empty();
     }
 
-    public Optional<Producto> actualizarProductoParcial(Long id, Producto productoParcial) {
+    public synchronized Optional<Producto> actualizarProductoParcial(Long id, Producto productoParcial, Long versionEsperada) {
         Optional<Producto> productoExistente = obtenerProductoPorId(id);
         
         if (productoExistente.isPresent()) {
-            Producto producto = productoExistente.get();
+            Producto producto = productoExistente.get().copia();
+            ContadorVersiones.verificarVersion(producto.getVersion(), versionEsperada);
             
             if (productoParcial.getNombre() != null) {
                 // Verificar nombre único
-                boolean existeOtroNombre = productos.stream()
-                        .anyMatch(p -> !p.getId().equals(id) && 
-                                 p.getNombre().equalsIgnoreCase(productoParcial.getNombre()));
-                
-                if (existeOtroNombre) {
+                if (existeOtroNombre(id, productoParcial.getNombre())) {
                     throw new RuntimeException("Ya existe otro producto con ese nombre: " + productoParcial.getNombre());
                 }
                 producto.setNombre(productoParcial.getNombre());
@@ -120,76 +180,203 @@ public class ProductoService {
             }
             
             validarProducto(producto);
+            producto.setVersion(producto.getVersion() + 1);
+            publicar(productoExistente.get(), producto);
+            publicarCambio(id);
             return Optional.of(producto);
         }
         
         return Optional.empty();
     }
 
-    public boolean eliminarProducto(Long id) {
-        return productos.removeIf(producto -> producto.getId().equals(id));
+    public synchronized boolean eliminarProducto(Long id) {
+        Optional<Producto> producto = obtenerProductoPorId(id);
+        if (producto.isPresent()) {
+            productosPorNombre.remove(claveNombre(producto.get().getNombre()), id);
+            productos = productos.sin(id);
+            publicarCambio(id);
+            return true;
+        }
+        return false;
+    }
+
+    // Publica en una réplica el producto enviado por el primario; null significa que se eliminó
+    public synchronized void aplicarReplica(Long id, Producto datos) {
+        Optional<Producto> existente = obtenerProductoPorId(id);
+        if (datos == null) {
+            existente.ifPresent(producto -> {
+                productosPorNombre.remove(claveNombre(producto.getNombre()), id);
+                productos = productos.sin(id);
+            });
+        } else {
+            datos.setId(id);
+            publicar(existente.orElse(null), datos);
+            contador.accumulateAndGet(id + 1, Math::max);
+        }
+        publicarCambio(id);
     }
 
     // Métodos de búsqueda específicos
     public List<Producto> buscarPorCategoria(CategoriaProducto categoria) {
-        return productos.stream()
+        return productos.elementos().stream()
                 .filter(producto -> producto.getCategoria() == categoria)
                 .collect(Collectors.toList());
     }
 
     public List<Producto> buscarPorNombre(String nombre) {
-        return productos.stream()
+        return productos.elementos().stream()
                 .filter(producto -> producto.getNombre().toLowerCase().contains(nombre.toLowerCase()))
                 .collect(Collectors.toList());
     }
 
     public List<Producto> buscarProductosActivos() {
-        return productos.stream()
+        return productos.elementos().stream()
                 .filter(Producto::getActivo)
                 .collect(Collectors.toList());
     }
 
     public List<Producto> buscarProductosConStock() {
-        return productos.stream()
+        return productos.elementos().stream()
                 .filter(Producto::tieneStock)
                 .collect(Collectors.toList());
     }
 
     public List<Producto> buscarPorRangoPrecio(BigDecimal precioMin, BigDecimal precioMax) {
-        return productos.stream()
+        return productos.elementos().stream()
                 .filter(producto -> producto.getPrecio().compareTo(precioMin) >= 0 &&
                                   producto.getPrecio().compareTo(precioMax) <= 0)
                 .collect(Collectors.toList());
     }
 
     // Métodos de inventario
-    public boolean actualizarStock(Long id, int cantidad) {
+    // Cada ajuste de stock es una modificación más del producto y avanza su versión
+    public synchronized boolean actualizarStock(Long id, int cantidad) {
         Optional<Producto> producto = obtenerProductoPorId(id);
         if (producto.isPresent()) {
-            producto.get().setStock(cantidad);
+            Producto copia = producto.get().copia();
+            copia.setStock(cantidad);
+            nuevaVersion(copia);
             return true;
         }
         return false;
     }
 
-    public boolean reducirStock(Long id, int cantidad) {
+    public synchronized boolean reducirStock(Long id, int cantidad) {
         Optional<Producto> producto = obtenerProductoPorId(id);
         if (producto.isPresent()) {
-            return producto.get().reducirStock(cantidad);
+            Producto copia = producto.get().copia();
+            boolean reducido = copia.reducirStock(cantidad);
+            if (reducido) {
+                nuevaVersion(copia);
+            }
+            return reducido;
         }
         return false;
     }
 
-    public boolean aumentarStock(Long id, int cantidad) {
+    public synchronized boolean aumentarStock(Long id, int cantidad) {
         Optional<Producto> producto = obtenerProductoPorId(id);
         if (producto.isPresent()) {
-            producto.get().aumentarStock(cantidad);
+            Producto copia = producto.get().copia();
+            copia.aumentarStock(cantidad);
+            nuevaVersion(copia);
             return true;
         }
         return false;
     }
 
+    // Aplica varios ajustes tomando el servicio una sola vez y publicando una sola instantánea con
+    // todos los productos modificados. Cada ajuste se resuelve por separado; si un producto aparece
+    // varias veces, sus ajustes se encadenan en el orden recibido y avanza una sola versión.
+    public synchronized ResultadoLote ajustarStockEnLote(List<AjusteStock> ajustes) {
+        long inicio = System.nanoTime();
+        ResultadoLote resultado = new ResultadoLote(ajustes.size());
+        Map<Long, Producto> copias = new LinkedHashMap<>();
+        for (int i = 0; i < ajustes.size(); i++) {
+            AjusteStock ajuste = ajustes.get(i);
+            Long id = ajuste.getProductoId();
+            Producto copia = copias.get(id);
+            if (copia == null) {
+                Optional<Producto> producto = obtenerProductoPorId(id);
+                if (producto.isEmpty()) {
+                    resultado.registrarError(i, id, "Producto no encontrado");
+                    continue;
+                }
+                copia = producto.get().copia();
+            }
+
+            String error = aplicarAjuste(copia, ajuste);
+            if (error != null) {
+                resultado.registrarError(i, id, error);
+                continue;
+            }
+            copias.put(id, copia);
+            resultado.registrarExito(i, id, String.valueOf(copia.getStock()));
+        }
+
+        if (!copias.isEmpty()) {
+            copias.values().forEach(copia -> copia.setVersion(copia.getVersion() + 1));
+            productos = productos.conTodos(new ArrayList<>(copias.values()));
+            copias.keySet().forEach(this::publicarCambio);
+        }
+        resultado.setDuracionMs((System.nanoTime() - inicio) / 1_000_000);
+        return resultado;
+    }
+
     // Métodos auxiliares
+    // Devuelve el motivo si el ajuste no se puede aplicar; la copia solo cambia si se aplica
+    private String aplicarAjuste(Producto copia, AjusteStock ajuste) {
+        if (ajuste.getOperacion() == null || ajuste.getCantidad() == null) {
+            return "La operación y la cantidad son obligatorias";
+        }
+        if (ajuste.getCantidad() < 0) {
+            return "La cantidad no puede ser negativa";
+        }
+        switch (ajuste.getOperacion()) {
+            case FIJAR -> copia.setStock(ajuste.getCantidad());
+            case AUMENTAR -> copia.aumentarStock(ajuste.getCantidad());
+            case REDUCIR -> {
+                if (!copia.reducirStock(ajuste.getCantidad())) {
+                    return "Stock insuficiente: quedan " + copia.getStock();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Un id nulo indica que cambiaron varios productos (importación)
+    private void publicarCambio(Long id) {
+        versiones.registrarCambio(id, id == null ? null : obtenerProductoPorId(id).map(Producto::getVersion).orElse(null));
+        if (eventos != null) {
+            eventos.publishEvent(new EventoMutacion(EventoMutacion.Entidad.PRODUCTO, id));
+        }
+    }
+
+    // Publica la copia con el stock ajustado; el nombre no cambia, así que el índice sigue igual
+    private void nuevaVersion(Producto copia) {
+        copia.setVersion(copia.getVersion() + 1);
+        productos = productos.con(copia);
+        publicarCambio(copia.getId());
+    }
+
+    // Agrega el producto o lo pone en lugar de 'anterior'; se llama con el servicio sincronizado
+    private void publicar(Producto anterior, Producto nuevo) {
+        if (anterior != null) {
+            productosPorNombre.remove(claveNombre(anterior.getNombre()), anterior.getId());
+        }
+        productosPorNombre.put(claveNombre(nuevo.getNombre()), nuevo.getId());
+        productos = productos.con(nuevo);
+    }
+
+    private boolean existeOtroNombre(Long id, String nombre) {
+        Long otro = productosPorNombre.get(claveNombre(nombre));
+        return otro != null && !otro.equals(id);
+    }
+
+    private String claveNombre(String nombre) {
+        return nombre == null ? "" : nombre.trim().toLowerCase(Locale.ROOT);
+    }
+
     private void validarProducto(Producto producto) {
         if (producto.getNombre() == null || producto.getNombre().trim().isEmpty()) {
             throw new RuntimeException("El nombre es obligatorio");
@@ -268,10 +455,10 @@ public class ProductoService {
         producto5.setActivo(true);
         producto5.setImagenUrl("/img/combo-familiar.jpg");
 
-        productos.add(producto1);
-        productos.add(producto2);
-        productos.add(producto3);
-        productos.add(producto4);
-        productos.add(producto5);
+        publicar(null, producto1);
+        publicar(null, producto2);
+        publicar(null, producto3);
+        publicar(null, producto4);
+        publicar(null, producto5);
     }
 }
\ No newline at end of file
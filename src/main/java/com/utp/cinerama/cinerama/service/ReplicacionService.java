@@ -0,0 +1,619 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.EstadoReplicacion;
+import com.utp.cinerama.cinerama.model.EventoMutacion;
+import com.utp.cinerama.cinerama.model.EventoMutacion.Entidad;
+import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.model.Pelicula;
+import com.utp.cinerama.cinerama.model.Producto;
+import com.utp.cinerama.cinerama.model.Sala;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// Replicación primario/réplica del catálogo (películas, salas, productos, funciones) y de los boletos,
+// para repartir las lecturas del catálogo y de los mapas de asientos entre varios nodos.
+// El primario guarda cada cambio en un log acotado (una línea JSON por cambio, con el estado completo
+// de la entidad) y lo transmite por TCP a las réplicas. Una réplica nueva, o que se quedó atrás más
+// de lo que guarda el log, recibe primero una instantánea completa y luego las entradas siguientes.
+// Las réplicas aplican los cambios en orden con los métodos aplicarReplica de cada servicio, que
+// vuelven a publicar los EventoMutacion locales (caché de respuestas, versiones y cartelera).
+// El puerto escucha solo en la dirección configurada (loopback por defecto). Al conectarse, el primario
+// manda un desafío aleatorio y la réplica lo devuelve firmado con el secreto compartido; sin firma
+// válida no se envía nada. Fuera de loopback el secreto es obligatorio.
+@Service
+public class ReplicacionService {
+
+    public enum Rol {
+        NINGUNO,
+        PRIMARIO,
+        REPLICA
+    }
+
+    private static final String INSTANTANEA_INICIO = "INSTANTANEA_INICIO";
+    private static final String INSTANTANEA_FIN = "INSTANTANEA_FIN";
+    private static final String LATIDO = "LATIDO";
+    private static final String DESAFIO = "DESAFIO";
+
+    // Tiempo que tiene una réplica para responder el desafío
+    private static final int TIMEOUT_SALUDO_MS = 5000;
+
+    // Entradas que el hilo de registro agrega al log de una vez
+    private static final int MAX_LOTE_REGISTRO = 512;
+
+    @Autowired
+    private PeliculaService peliculaService;
+
+    @Autowired
+    private SalaService salaService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private FuncionService funcionService;
+
+    @Autowired
+    private BoletoService boletoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${cinerama.replicacion.rol:NINGUNO}")
+    private String rolConfigurado;
+
+    @Value("${cinerama.replicacion.puerto:9090}")
+    private int puerto;
+
+    @Value("${cinerama.replicacion.direccion:127.0.0.1}")
+    private String direccion;
+
+    @Value("${cinerama.replicacion.secreto:}")
+    private String secreto;
+
+    @Value("${cinerama.replicacion.primario:localhost:9090}")
+    private String primario;
+
+    @Value("${cinerama.replicacion.capacidad-log:100000}")
+    private int capacidadLog;
+
+    @Value("${cinerama.replicacion.latido-ms:500}")
+    private long latidoMs;
+
+    @Value("${cinerama.replicacion.max-retraso-ms:5000}")
+    private long maxRetrasoMs;
+
+    private Rol rol = Rol.NINGUNO;
+    private volatile boolean activo;
+
+    // Primario: log circular de las últimas capacidadLog entradas; la entrada con secuencia s
+    // está en la posición s % capacidadLog. Se protege con el propio arreglo.
+    private final String origen = Long.toString(System.currentTimeMillis(), 36);
+    private String[] log;
+    private long ultimaSecuencia;
+    private ServerSocket servidor;
+    private final Set<Socket> conexiones = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger numeroConexion = new AtomicInteger(1);
+
+    // Cambios avisados por los servicios y todavía no escritos en el log
+    private final Queue<EventoMutacion> cambiosPendientes = new ConcurrentLinkedQueue<>();
+    private volatile Thread hiloRegistro;
+
+    // Réplica: lo último aplicado y la hora del primario hasta la que la réplica está al día
+    private volatile Socket conexionPrimario;
+    private volatile boolean conectada;
+    private volatile boolean sincronizada;
+    private volatile String origenPrimario = "";
+    private volatile long secuenciaAplicada;
+    private volatile long secuenciaPrimario;
+    private volatile long marcaPrimario;
+    private Map<Entidad, Set<Long>> vistosEnInstantanea;
+
+    @PostConstruct
+    public void iniciar() {
+        try {
+            rol = Rol.valueOf(rolConfigurado.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Rol de replicación no válido: " + rolConfigurado
+                    + " (use NINGUNO, PRIMARIO o REPLICA)");
+        }
+        if (rol == Rol.NINGUNO) {
+            return;
+        }
+
+        activo = true;
+        if (rol == Rol.PRIMARIO) {
+            log = new String[capacidadLog];
+            try {
+                InetAddress escucha = InetAddress.getByName(direccion.trim());
+                if (secreto.isBlank() && !escucha.isLoopbackAddress()) {
+                    throw new RuntimeException("Para escuchar en " + direccion
+                            + " hay que configurar cinerama.replicacion.secreto");
+                }
+                servidor = new ServerSocket(puerto, 50, escucha);
+            } catch (IOException e) {
+                throw new RuntimeException("No se pudo abrir el puerto de replicación " + direccion + ":" + puerto, e);
+            }
+            hiloRegistro = iniciarHilo("replicacion-registro", this::registrarCambios);
+            iniciarHilo("replicacion-servidor", this::aceptarReplicas);
+        } else {
+            iniciarHilo("replicacion-cliente", this::seguirPrimario);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        cerrar(servidor);
+        cerrar(conexionPrimario);
+        conexiones.forEach(ReplicacionService::cerrar);
+        LockSupport.unpark(hiloRegistro);
+        if (log != null) {
+            synchronized (log) {
+                log.notifyAll();
+            }
+        }
+    }
+
+    public boolean esReplica() {
+        return rol == Rol.REPLICA;
+    }
+
+    // Una réplica sirve lecturas solo si ya tiene una instantánea y no se atrasó demasiado
+    public boolean puedeServirLecturas() {
+        return sincronizada && retrasoMs() <= maxRetrasoMs;
+    }
+
+    public long retrasoMs() {
+        return sincronizada ? Math.max(0, System.currentTimeMillis() - marcaPrimario) : -1;
+    }
+
+    public EstadoReplicacion obtenerEstado() {
+        if (rol == Rol.PRIMARIO) {
+            synchronized (log) {
+                return new EstadoReplicacion(rol.name(), origen, true, true, ultimaSecuencia, ultimaSecuencia,
+                        0, conexiones.size(), Math.min(ultimaSecuencia, capacidadLog));
+            }
+        }
+        return new EstadoReplicacion(rol.name(), rol == Rol.REPLICA ? origenPrimario : null, conectada,
+                sincronizada, secuenciaAplicada, secuenciaPrimario, retrasoMs(), 0, 0);
+    }
+
+    // Primario: el evento se publica dentro del bloqueo de la reserva o del pago que lo produjo, así que
+    // aquí solo se encola; leer la entidad, serializarla y escribirla en el log lo hace el hilo de registro
+    @EventListener
+    public void alModificar(EventoMutacion evento) {
+        if (rol != Rol.PRIMARIO || !activo) {
+            return;
+        }
+        cambiosPendientes.add(evento);
+        LockSupport.unpark(hiloRegistro);
+    }
+
+    // ---------------------------------------------------------------- Primario
+
+    // Cada entrada lleva el estado de la entidad al momento de leerla, que nunca es anterior al cambio
+    // que la originó. Si se lee a mitad de otra modificación, el evento de esa modificación está detrás
+    // en la cola y su entrada trae el estado final, así que la réplica termina igual al primario.
+    private void registrarCambios() {
+        List<String> lineas = new ArrayList<>();
+        while (activo) {
+            long secuencia = ultimaSecuencia; // Solo este hilo la incrementa
+            EventoMutacion evento;
+            while (lineas.size() < MAX_LOTE_REGISTRO && (evento = cambiosPendientes.poll()) != null) {
+                try {
+                    // Un id nulo (importación o datos de prueba) se registra como una entrada por entidad
+                    List<Long> ids = evento.getId() != null
+                            ? List.of(evento.getId())
+                            : todos(evento.getEntidad()).stream().map(this::idDe).collect(Collectors.toList());
+                    for (Long id : ids) {
+                        Object entidad = buscar(evento.getEntidad(), id).orElse(null);
+                        lineas.add(entrada(secuencia + lineas.size() + 1, evento.getEntidad(), id, entidad));
+                    }
+                } catch (RuntimeException e) {
+                    // La entidad no se pudo serializar; el próximo cambio suyo volverá a intentarlo
+                }
+            }
+            if (lineas.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            synchronized (log) {
+                for (String linea : lineas) {
+                    ultimaSecuencia++;
+                    log[(int) (ultimaSecuencia % capacidadLog)] = linea;
+                }
+                log.notifyAll();
+            }
+            lineas.clear();
+        }
+    }
+
+    private void aceptarReplicas() {
+        while (activo) {
+            try {
+                Socket socket = servidor.accept();
+                conexiones.add(socket);
+                iniciarHilo("replicacion-envio-" + numeroConexion.getAndIncrement(), () -> atenderReplica(socket));
+            } catch (IOException e) {
+                if (!activo) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void atenderReplica(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer salida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            // Una conexión que no completa el saludo a tiempo no retiene el hilo
+            String desafio = nuevoDesafio();
+            escribir(salida, saludo(desafio));
+            salida.flush();
+            socket.setSoTimeout(TIMEOUT_SALUDO_MS);
+            String solicitud = entrada.readLine();
+            if (solicitud == null) {
+                return;
+            }
+            JsonNode pedido = objectMapper.readTree(solicitud);
+            long desde = pedido.path("desde").asLong(0);
+            String origenPedido = pedido.path("origen").asText();
+            String esperada = firmar(desafio, desde, origenPedido);
+            if (!MessageDigest.isEqual(esperada.getBytes(StandardCharsets.US_ASCII),
+                    pedido.path("firma").asText().getBytes(StandardCharsets.US_ASCII))) {
+                return;
+            }
+            socket.setSoTimeout(0);
+
+            // Se reanuda desde el log si es del mismo primario y todavía guarda lo que falta
+            long siguiente;
+            synchronized (log) {
+                boolean puedeReanudar = origen.equals(origenPedido)
+                        && desde >= ultimaSecuencia - capacidadLog && desde <= ultimaSecuencia;
+                siguiente = puedeReanudar ? desde + 1 : -1;
+            }
+            if (siguiente < 0) {
+                siguiente = enviarInstantanea(salida) + 1;
+            }
+
+            while (activo) {
+                List<String> pendientes = new ArrayList<>();
+                long secuenciaActual;
+                synchronized (log) {
+                    if (ultimaSecuencia < siguiente) {
+                        log.wait(latidoMs);
+                    }
+                    if (siguiente <= ultimaSecuencia - capacidadLog) {
+                        return; // La réplica se quedó atrás del log; al reconectar recibirá una instantánea
+                    }
+                    for (; siguiente <= ultimaSecuencia; siguiente++) {
+                        pendientes.add(log[(int) (siguiente % capacidadLog)]);
+                    }
+                    secuenciaActual = ultimaSecuencia;
+                }
+
+                if (pendientes.isEmpty()) {
+                    escribir(salida, control(LATIDO, secuenciaActual));
+                } else {
+                    for (String linea : pendientes) {
+                        salida.write(linea);
+                        salida.write('\n');
+                    }
+                }
+                salida.flush();
+            }
+        } catch (IOException e) {
+            // La réplica se desconectó; volverá a conectarse por su cuenta
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            conexiones.remove(socket);
+        }
+    }
+
+    // Envía el estado completo y devuelve la secuencia del log a partir de la cual continuar.
+    // La secuencia se toma antes de leer las entidades: un cambio ocurrido durante la instantánea
+    // puede llegar dos veces (en la instantánea y en el log), lo que es inofensivo porque cada
+    // entrada trae el estado completo de la entidad.
+    private long enviarInstantanea(Writer salida) throws IOException {
+        funcionService.obtenerTodasLasFunciones(); // Fuerza la carga de los datos de prueba
+        boletoService.obtenerTodosLosBoletos();
+
+        long secuencia;
+        synchronized (log) {
+            secuencia = ultimaSecuencia;
+        }
+        escribir(salida, control(INSTANTANEA_INICIO, secuencia));
+        for (Entidad tipo : List.of(Entidad.PELICULA, Entidad.SALA, Entidad.PRODUCTO, Entidad.FUNCION, Entidad.BOLETO)) {
+            for (Object entidad : todos(tipo)) {
+                escribir(salida, entrada(0, tipo, idDe(entidad), entidad));
+            }
+        }
+        escribir(salida, control(INSTANTANEA_FIN, secuencia));
+        salida.flush();
+        return secuencia;
+    }
+
+    private String entrada(long secuencia, Entidad tipo, Long id, Object entidad) {
+        ObjectNode nodo = objectMapper.createObjectNode();
+        nodo.put("seq", secuencia);
+        nodo.put("ts", System.currentTimeMillis());
+        nodo.put("tipo", tipo.name());
+        nodo.put("id", id);
+        nodo.set("datos", entidad != null ? objectMapper.valueToTree(entidad) : null);
+        return nodo.toString();
+    }
+
+    private String control(String tipo, long secuencia) {
+        ObjectNode nodo = objectMapper.createObjectNode();
+        nodo.put("seq", secuencia);
+        nodo.put("ts", System.currentTimeMillis());
+        nodo.put("tipo", tipo);
+        nodo.put("origen", origen);
+        return nodo.toString();
+    }
+
+    private String saludo(String desafio) {
+        ObjectNode nodo = objectMapper.createObjectNode();
+        nodo.put("tipo", DESAFIO);
+        nodo.put("desafio", desafio);
+        return nodo.toString();
+    }
+
+    private static String nuevoDesafio() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    // HMAC del desafío y de lo que pide la réplica; sin secreto (solo en loopback) no se exige firma
+    private String firmar(String desafio, long desde, String origenPedido) {
+        if (secreto.isBlank()) {
+            return "";
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] firma = mac.doFinal((desafio + "|" + desde + "|" + origenPedido).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(firma);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+
+    // ---------------------------------------------------------------- Réplica
+
+    private void seguirPrimario() {
+        String[] partes = primario.trim().split(":");
+        String host = partes[0];
+        int puertoPrimario = partes.length > 1 ? Integer.parseInt(partes[1]) : puerto;
+
+        while (activo) {
+            try (Socket socket = new Socket()) {
+                conexionPrimario = socket;
+                socket.connect(new InetSocketAddress(host, puertoPrimario), 2000);
+                socket.setSoTimeout((int) Math.max(2000, latidoMs * 4));
+                conectada = true;
+
+                BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer salida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                String saludo = entrada.readLine();
+                if (saludo == null) {
+                    throw new IOException("El primario cerró la conexión antes del saludo");
+                }
+                JsonNode desafio = objectMapper.readTree(saludo);
+                if (!DESAFIO.equals(desafio.path("tipo").asText())) {
+                    throw new IOException("Saludo de replicación inesperado");
+                }
+
+                long desde = secuenciaAplicada;
+                String origenConocido = origenPrimario;
+                ObjectNode pedido = objectMapper.createObjectNode();
+                pedido.put("desde", desde);
+                pedido.put("origen", origenConocido);
+                pedido.put("firma", firmar(desafio.path("desafio").asText(), desde, origenConocido));
+                escribir(salida, pedido.toString());
+                salida.flush();
+
+                String linea;
+                while (activo && (linea = entrada.readLine()) != null) {
+                    aplicar(objectMapper.readTree(linea));
+                }
+            } catch (IOException e) {
+                // Primario caído o sin respuesta: se reintenta
+            } catch (RuntimeException e) {
+                // No se pudo aplicar una entrada; se pide una instantánea nueva para no quedar inconsistente
+                // y hasta que termine de llegar la réplica deja de atender lecturas
+                sincronizada = false;
+                origenPrimario = "";
+            } finally {
+                conectada = false;
+            }
+            esperar(1000);
+        }
+    }
+
+    private void aplicar(JsonNode mensaje) throws IOException {
+        String tipo = mensaje.path("tipo").asText();
+        long secuencia = mensaje.path("seq").asLong();
+        long ts = mensaje.path("ts").asLong();
+
+        switch (tipo) {
+            case INSTANTANEA_INICIO:
+                // Mientras llega la instantánea los datos locales mezclan el estado viejo y el nuevo
+                sincronizada = false;
+                origenPrimario = mensaje.path("origen").asText();
+                vistosEnInstantanea = new EnumMap<>(Entidad.class);
+                return;
+            case INSTANTANEA_FIN:
+                eliminarNoVistos();
+                vistosEnInstantanea = null;
+                secuenciaAplicada = secuencia;
+                secuenciaPrimario = secuencia;
+                marcaPrimario = ts;
+                sincronizada = true;
+                return;
+            case LATIDO:
+                secuenciaPrimario = secuencia;
+                if (secuenciaAplicada >= secuencia) {
+                    marcaPrimario = ts;
+                }
+                return;
+            default:
+                break;
+        }
+
+        Entidad entidad = Entidad.valueOf(tipo);
+        Long id = mensaje.path("id").asLong();
+        JsonNode datos = mensaje.path("datos");
+        aplicarEntidad(entidad, id, datos.isObject() ? datos : null);
+
+        if (vistosEnInstantanea != null) {
+            vistosEnInstantanea.computeIfAbsent(entidad, e -> new HashSet<>()).add(id);
+        } else {
+            secuenciaAplicada = secuencia;
+            secuenciaPrimario = Math.max(secuenciaPrimario, secuencia);
+            marcaPrimario = Math.max(marcaPrimario, ts);
+        }
+    }
+
+    private void aplicarEntidad(Entidad entidad, Long id, JsonNode datos) throws IOException {
+        switch (entidad) {
+            case PELICULA:
+                peliculaService.aplicarReplica(id, datos != null ? objectMapper.treeToValue(datos, Pelicula.class) : null);
+                break;
+            case SALA:
+                salaService.aplicarReplica(id, datos != null ? objectMapper.treeToValue(datos, Sala.class) : null);
+                break;
+            case PRODUCTO:
+                productoService.aplicarReplica(id, datos != null ? objectMapper.treeToValue(datos, Producto.class) : null);
+                break;
+            case FUNCION:
+                funcionService.aplicarReplica(id, datos != null ? objectMapper.treeToValue(datos, Funcion.class) : null);
+                break;
+            case BOLETO:
+                boletoService.aplicarReplica(id, datos != null ? objectMapper.treeToValue(datos, Boleto.class) : null);
+                break;
+        }
+    }
+
+    // Al terminar una instantánea se eliminan las entidades locales que el primario ya no tiene,
+    // primero las que dependen de otras
+    private void eliminarNoVistos() throws IOException {
+        for (Entidad tipo : List.of(Entidad.BOLETO, Entidad.FUNCION, Entidad.PRODUCTO, Entidad.SALA, Entidad.PELICULA)) {
+            Set<Long> vistos = vistosEnInstantanea.getOrDefault(tipo, Set.of());
+            for (Object entidad : todos(tipo)) {
+                Long id = idDe(entidad);
+                if (!vistos.contains(id)) {
+                    aplicarEntidad(tipo, id, null);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- Auxiliares
+
+    private List<?> todos(Entidad entidad) {
+        switch (entidad) {
+            case PELICULA: return peliculaService.obtenerTodasLasPeliculas();
+            case SALA: return salaService.obtenerTodasLasSalas();
+            case PRODUCTO: return productoService.obtenerTodosLosProductos();
+            case FUNCION: return funcionService.obtenerTodasLasFunciones();
+            case BOLETO: return boletoService.obtenerTodosLosBoletos();
+            default: return List.of();
+        }
+    }
+
+    private Optional<?> buscar(Entidad entidad, Long id) {
+        switch (entidad) {
+            case PELICULA: return peliculaService.obtenerPeliculaPorId(id);
+            case SALA: return salaService.obtenerSalaPorId(id);
+            case PRODUCTO: return productoService.obtenerProductoPorId(id);
+            case FUNCION: return funcionService.obtenerFuncionPorId(id);
+            case BOLETO: return boletoService.obtenerBoletoPorId(id);
+            default: return Optional.empty();
+        }
+    }
+
+    private Long idDe(Object entidad) {
+        if (entidad instanceof Pelicula pelicula) return pelicula.getId();
+        if (entidad instanceof Sala sala) return sala.getId();
+        if (entidad instanceof Producto producto) return producto.getId();
+        if (entidad instanceof Funcion funcion) return funcion.getId();
+        if (entidad instanceof Boleto boleto) return boleto.getId();
+        throw new IllegalArgumentException("Entidad no replicable: " + entidad);
+    }
+
+    private static void escribir(Writer salida, String linea) throws IOException {
+        salida.write(linea);
+        salida.write('\n');
+    }
+
+    private static Thread iniciarHilo(String nombre, Runnable tarea) {
+        Thread hilo = new Thread(tarea, nombre);
+        hilo.setDaemon(true);
+        hilo.start();
+        return hilo;
+    }
+
+    private static void esperar(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void cerrar(Closeable recurso) {
+        if (recurso != null) {
+            try {
+                recurso.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+    }
+}
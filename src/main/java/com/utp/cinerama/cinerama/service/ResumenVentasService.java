@@ -0,0 +1,210 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Pago;
+import com.utp.cinerama.cinerama.model.Pelicula;
+import com.utp.cinerama.cinerama.model.ResumenVentas;
+import com.utp.cinerama.cinerama.model.Sala;
+import com.utp.cinerama.cinerama.model.VentaProducto;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Totales de ventas por día, actualizados en el momento de cada venta, pago o anulación.
+// Un reporte de un período solo suma los acumulados de sus días, sin recorrer boletos ni pagos.
+// Los montos se guardan en céntimos para acumularlos sin bloqueos.
+// Salas y películas se acumulan por id: si se renombran, la anulación de un boleto vendido antes
+// del cambio descuenta del mismo acumulado. El nombre se pone recién al armar el reporte.
+@Service
+public class ResumenVentasService {
+
+    // Clave de los boletos cuya función no tiene sala o película con id
+    private static final long SIN_ID = 0L;
+
+    @Autowired
+    private SalaService salaService;
+
+    @Autowired
+    private PeliculaService peliculaService;
+
+    // Acumulados de cada día
+    private final ConcurrentSkipListMap<LocalDate, Dia> dias = new ConcurrentSkipListMap<>();
+
+    // Último nombre visto de cada sala y película, para las que se eliminaron después de vender
+    private final Map<Long, String> nombresSala = new ConcurrentHashMap<>();
+    private final Map<Long, String> titulosPelicula = new ConcurrentHashMap<>();
+
+    // Boleto vendido (signo 1) o anulado (signo -1) en el día indicado
+    public void registrarBoleto(Boleto boleto, LocalDate dia, int signo) {
+        long centimos = signo * centimos(boleto.getPrecio());
+        Dia acumulado = dia(dia);
+        acumulado.boletos.sumar(signo, centimos);
+
+        if (boleto.getFuncion() != null) {
+            Sala sala = boleto.getFuncion().getSala();
+            if (sala != null) {
+                long id = recordar(nombresSala, sala.getId(), sala.getNombre());
+                acumulado.acumulado(acumulado.porSala, id).sumar(signo, centimos);
+            }
+            Pelicula pelicula = boleto.getFuncion().getPelicula();
+            if (pelicula != null) {
+                long id = recordar(titulosPelicula, pelicula.getId(), pelicula.getTitulo());
+                acumulado.acumulado(acumulado.porPelicula, id).sumar(signo, centimos);
+            }
+        }
+    }
+
+    // Venta de productos completada
+    public void registrarVentaProductos(VentaProducto venta, LocalDate dia) {
+        Dia acumulado = dia(dia);
+        for (VentaProducto.DetalleVentaProducto detalle : venta.getDetalles()) {
+            long cantidad = detalle.getCantidad();
+            long centimos = centimos(detalle.getSubtotal());
+            acumulado.productos.sumar(cantidad, centimos);
+            if (detalle.getProducto() != null && detalle.getProducto().getCategoria() != null) {
+                acumulado.acumulado(acumulado.porCategoria, detalle.getProducto().getCategoria().name()).sumar(cantidad, centimos);
+            }
+        }
+    }
+
+    // Pago completado
+    public void registrarPago(Pago pago, LocalDate dia) {
+        long centimos = centimos(pago.getMonto());
+        Dia acumulado = dia(dia);
+        acumulado.pagos.sumar(1, centimos);
+        if (pago.getMetodo() != null) {
+            acumulado.acumulado(acumulado.porMetodoPago, pago.getMetodo().name()).sumar(1, centimos);
+        }
+    }
+
+    // Resumen entre ambas fechas (inclusive)
+    public ResumenVentas obtenerResumen(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha final no puede ser anterior a la inicial");
+        }
+
+        Suma boletos = new Suma();
+        Suma productos = new Suma();
+        Suma pagos = new Suma();
+        Map<Long, Suma> porSala = new HashMap<>();
+        Map<Long, Suma> porPelicula = new HashMap<>();
+        Map<String, Suma> porMetodoPago = new HashMap<>();
+        Map<String, Suma> porCategoria = new HashMap<>();
+
+        for (Dia dia : dias.subMap(desde, true, hasta, true).values()) {
+            boletos.sumar(dia.boletos);
+            productos.sumar(dia.productos);
+            pagos.sumar(dia.pagos);
+            sumarTodos(porSala, dia.porSala);
+            sumarTodos(porPelicula, dia.porPelicula);
+            sumarTodos(porMetodoPago, dia.porMetodoPago);
+            sumarTodos(porCategoria, dia.porCategoria);
+        }
+
+        ResumenVentas resumen = new ResumenVentas(desde, hasta);
+        resumen.setBoletos(boletos.detalle());
+        resumen.setProductos(productos.detalle());
+        resumen.setPagos(pagos.detalle());
+        porSala.forEach((id, suma) -> etiquetar(resumen.getPorSala(), id,
+                salaService.obtenerSalaPorId(id).map(Sala::getNombre), nombresSala, suma));
+        porPelicula.forEach((id, suma) -> etiquetar(resumen.getPorPelicula(), id,
+                peliculaService.obtenerPeliculaPorId(id).map(Pelicula::getTitulo), titulosPelicula, suma));
+        porMetodoPago.forEach((clave, suma) -> resumen.getPorMetodoPago().put(clave, suma.detalle()));
+        porCategoria.forEach((clave, suma) -> resumen.getPorCategoriaProducto().put(clave, suma.detalle()));
+        return resumen;
+    }
+
+    public ResumenVentas obtenerResumenDelDia(LocalDate dia) {
+        return obtenerResumen(dia, dia);
+    }
+
+    // Desde el primer día del mes hasta hoy
+    public ResumenVentas obtenerResumenDelMes(LocalDate hoy) {
+        return obtenerResumen(hoy.withDayOfMonth(1), hoy);
+    }
+
+    // Métodos auxiliares
+    private Dia dia(LocalDate dia) {
+        return dias.computeIfAbsent(dia != null ? dia : LocalDate.now(), d -> new Dia());
+    }
+
+    private static long centimos(BigDecimal monto) {
+        return monto != null ? monto.movePointRight(2).longValue() : 0;
+    }
+
+    private static long recordar(Map<Long, String> nombres, Long id, String nombre) {
+        if (id == null) {
+            return SIN_ID;
+        }
+        if (nombre != null) {
+            nombres.put(id, nombre);
+        }
+        return id;
+    }
+
+    // Nombre vigente, o el último conocido si ya no existe. Dos ids con el mismo nombre
+    // (dos películas con igual título) no se mezclan: el segundo lleva su id.
+    private static void etiquetar(Map<String, ResumenVentas.Detalle> destino, long id, Optional<String> vigente,
+                                  Map<Long, String> conocidos, Suma suma) {
+        String nombre = id == SIN_ID ? "SIN_DATO" : vigente.orElseGet(() -> conocidos.getOrDefault(id, "SIN_DATO"));
+        String clave = destino.containsKey(nombre) ? nombre + " #" + id : nombre;
+        destino.put(clave, suma.detalle());
+    }
+
+    private static <K> void sumarTodos(Map<K, Suma> destino, Map<K, Acumulado> origen) {
+        origen.forEach((clave, acumulado) -> destino.computeIfAbsent(clave, c -> new Suma()).sumar(acumulado));
+    }
+
+    // Contadores de un día; se actualizan sin bloqueos desde cualquier hilo
+    private static class Dia {
+        private final Acumulado boletos = new Acumulado();
+        private final Acumulado productos = new Acumulado();
+        private final Acumulado pagos = new Acumulado();
+        private final Map<Long, Acumulado> porSala = new ConcurrentHashMap<>();
+        private final Map<Long, Acumulado> porPelicula = new ConcurrentHashMap<>();
+        private final Map<String, Acumulado> porMetodoPago = new ConcurrentHashMap<>();
+        private final Map<String, Acumulado> porCategoria = new ConcurrentHashMap<>();
+
+        private Acumulado acumulado(Map<String, Acumulado> mapa, String clave) {
+            return mapa.computeIfAbsent(clave != null ? clave : "SIN_DATO", c -> new Acumulado());
+        }
+
+        private Acumulado acumulado(Map<Long, Acumulado> mapa, long id) {
+            return mapa.computeIfAbsent(id, c -> new Acumulado());
+        }
+    }
+
+    private static class Acumulado {
+        private final LongAdder cantidad = new LongAdder();
+        private final LongAdder centimos = new LongAdder();
+
+        private void sumar(long unidades, long monto) {
+            cantidad.add(unidades);
+            centimos.add(monto);
+        }
+    }
+
+    // Suma de varios días al armar un resumen
+    private static class Suma {
+        private long cantidad;
+        private long centimos;
+
+        private void sumar(Acumulado acumulado) {
+            cantidad += acumulado.cantidad.sum();
+            centimos += acumulado.centimos.sum();
+        }
+
+        private ResumenVentas.Detalle detalle() {
+            return new ResumenVentas.Detalle(cantidad, BigDecimal.valueOf(centimos, 2));
+        }
+    }
+}
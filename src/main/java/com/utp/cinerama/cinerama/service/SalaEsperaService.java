@@ -0,0 +1,325 @@
+package com.utp.cinerama.cinerama.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sala de espera virtual para las aperturas de venta: cada comprador toma un turno en la fila de
+// la función y se admite en orden de llegada a un ritmo fijo por función. Solo los turnos admitidos
+// reciben un pase con el que pueden reservar durante un tiempo limitado; el resto sigue su posición
+// por SSE. Así los admitidos reservan con latencia normal en lugar de competir todos a la vez.
+@Service
+public class SalaEsperaService {
+
+    private static final long TICK_MS = 100;
+    private static final long TIMEOUT_SSE_MS = 60 * 60 * 1000L;
+
+    @Value("${cinerama.sala-espera.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${cinerama.sala-espera.admisiones-por-segundo:10}")
+    private double admisionesPorSegundo;
+
+    @Value("${cinerama.sala-espera.validez-pase-segundos:600}")
+    private long validezPaseSegundos;
+
+    @Value("${cinerama.sala-espera.max-en-fila:10000}")
+    private int maxEnFila;
+
+    @Value("${cinerama.sala-espera.compras-por-pase:1}")
+    private int comprasPorPase;
+
+    public static class Turno {
+        private final String token;
+        private final Long funcionId;
+        private final long numero;
+        private volatile long admitidoEn;   // 0 mientras espera
+        private volatile boolean abandonado;
+        private volatile SseEmitter emitter;
+        private final AtomicInteger compras = new AtomicInteger();   // Reservas tomadas con el pase
+        // Un solo envío en curso por turno; si llega otro aviso mientras tanto se manda el estado más reciente
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private volatile boolean avisoPendiente;
+
+        private Turno(String token, Long funcionId, long numero) {
+            this.token = token;
+            this.funcionId = funcionId;
+            this.numero = numero;
+        }
+
+        public String getToken() { return token; }
+        public Long getFuncionId() { return funcionId; }
+        public long getNumero() { return numero; }
+        public boolean isAdmitido() { return admitidoEn > 0; }
+    }
+
+    // Fila de una función; solo el hilo del reloj admite turnos
+    private static class Fila {
+        private final AtomicLong emitidos = new AtomicLong();
+        private final Queue<Turno> esperando = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger enEspera = new AtomicInteger();
+        private volatile long ultimoAdmitido;
+        private double credito;
+    }
+
+    private final Map<Long, Fila> filas = new ConcurrentHashMap<>();
+    private final Map<String, Turno> turnos = new ConcurrentHashMap<>();
+    private final SecureRandom aleatorio = new SecureRandom();
+    private ScheduledExecutorService reloj;
+    private ExecutorService avisos;
+    private long ticks;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "sala-espera");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        // Los envíos SSE van en hilos virtuales: un cliente lento no atrasa las admisiones, y miles
+        // de turnos en espera no se convierten en miles de hilos del sistema
+        avisos = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sala-espera-avisos-", 1).factory());
+        reloj.scheduleAtFixedRate(this::avanzar, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (reloj != null) {
+            reloj.shutdownNow();
+        }
+        if (avisos != null) {
+            avisos.shutdownNow();
+        }
+    }
+
+    public boolean estaHabilitada() {
+        return habilitada;
+    }
+
+    // Entrega un turno en la fila de la función, o vacío si la fila está llena
+    public Optional<Turno> entrar(Long funcionId) {
+        Fila fila = filas.computeIfAbsent(funcionId, id -> new Fila());
+        if (fila.enEspera.incrementAndGet() > maxEnFila) {
+            fila.enEspera.decrementAndGet();
+            return Optional.empty();
+        }
+        byte[] bytes = new byte[16];
+        aleatorio.nextBytes(bytes);
+        Turno turno = new Turno(HexFormat.of().formatHex(bytes), funcionId, fila.emitidos.incrementAndGet());
+        turnos.put(turno.token, turno);
+        fila.esperando.add(turno);
+        return Optional.of(turno);
+    }
+
+    public Optional<Turno> buscar(String token) {
+        return Optional.ofNullable(token != null ? turnos.get(token) : null);
+    }
+
+    // Turnos que faltan admitir antes de este (0 si ya fue admitido)
+    public long posicion(Turno turno) {
+        if (turno.isAdmitido()) {
+            return 0;
+        }
+        Fila fila = filas.get(turno.funcionId);
+        return Math.max(1, turno.numero - fila.ultimoAdmitido);
+    }
+
+    public long esperaEstimadaSegundos(Turno turno) {
+        return (long) Math.ceil(posicion(turno) / admisionesPorSegundo);
+    }
+
+    // Segundos sugeridos para reintentar a quien todavía no tiene un pase válido para la función
+    public long esperaEstimadaSegundos(Long funcionId) {
+        Fila fila = filas.get(funcionId);
+        int enEspera = fila != null ? fila.enEspera.get() : 0;
+        return Math.max(1, (long) Math.ceil(enEspera / admisionesPorSegundo));
+    }
+
+    public long expiraEnSegundos(Turno turno) {
+        if (!turno.isAdmitido()) {
+            return validezPaseSegundos;
+        }
+        return Math.max(0, (turno.admitidoEn + validezPaseSegundos * 1000 - System.currentTimeMillis()) / 1000);
+    }
+
+    // El pase sirve para reservar en su función mientras no venza y le queden compras
+    public boolean paseValido(String token, Long funcionId) {
+        Turno turno = token != null ? turnos.get(token) : null;
+        return turno != null && turno.isAdmitido() && !turno.abandonado
+                && (funcionId == null || turno.funcionId.equals(funcionId))
+                && System.currentTimeMillis() < turno.admitidoEn + validezPaseSegundos * 1000
+                && turno.compras.get() < comprasPorPase;
+    }
+
+    // Descuenta una compra del pase antes de reservar. Dos peticiones simultáneas con el mismo pase
+    // compiten por el incremento, así que nunca se usan más compras de las permitidas.
+    public boolean tomarPase(String token, Long funcionId) {
+        if (!paseValido(token, funcionId)) {
+            return false;
+        }
+        Turno turno = turnos.get(token);
+        if (turno == null) {
+            return false;
+        }
+        int usadas;
+        do {
+            usadas = turno.compras.get();
+            if (usadas >= comprasPorPase) {
+                return false;
+            }
+        } while (!turno.compras.compareAndSet(usadas, usadas + 1));
+        return true;
+    }
+
+    // La reserva no se concretó (asiento ocupado, datos inválidos...): la compra vuelve al pase
+    public void devolverPase(String token) {
+        Turno turno = token != null ? turnos.get(token) : null;
+        if (turno != null) {
+            turno.compras.updateAndGet(usadas -> Math.max(0, usadas - 1));
+        }
+    }
+
+    public boolean abandonar(String token) {
+        Turno turno = turnos.remove(token);
+        if (turno == null) {
+            return false;
+        }
+        turno.abandonado = true;
+        cerrarEmitter(turno);
+        return true;
+    }
+
+    // Envía la posición al suscribirse, cada segundo mientras espera y un evento 'admitido' al final
+    public SseEmitter suscribir(Turno turno) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_SSE_MS);
+        emitter.onCompletion(() -> turno.emitter = null);
+        emitter.onTimeout(() -> turno.emitter = null);
+        emitter.onError(e -> turno.emitter = null);
+        turno.emitter = emitter;
+        notificar(turno);
+        return emitter;
+    }
+
+    public String estadoJson(Turno turno) {
+        return "{" +
+                "\"token\": \"" + turno.token + "\"," +
+                "\"funcionId\": " + turno.funcionId + "," +
+                "\"turno\": " + turno.numero + "," +
+                "\"posicion\": " + posicion(turno) + "," +
+                "\"admitido\": " + turno.isAdmitido() + "," +
+                (turno.isAdmitido()
+                        ? "\"expiraEnSegundos\": " + expiraEnSegundos(turno)
+                        : "\"esperaEstimadaSegundos\": " + esperaEstimadaSegundos(turno)) +
+                "}";
+    }
+
+    // Métodos auxiliares
+    // Cada tick admite turnos según el crédito acumulado; una vez por segundo avisa las posiciones
+    // y descarta los pases vencidos
+    private void avanzar() {
+        try {
+            double porTick = admisionesPorSegundo * TICK_MS / 1000.0;
+            for (Fila fila : filas.values()) {
+                // El crédito no se acumula más de un segundo para no admitir de golpe tras un rato sin fila
+                fila.credito = Math.min(fila.credito + porTick, Math.max(1.0, admisionesPorSegundo));
+                Turno turno;
+                while (fila.credito >= 1 && (turno = fila.esperando.poll()) != null) {
+                    fila.enEspera.decrementAndGet();
+                    if (turno.abandonado) {
+                        continue;
+                    }
+                    turno.admitidoEn = System.currentTimeMillis();
+                    fila.ultimoAdmitido = turno.numero;
+                    fila.credito -= 1;
+                    notificar(turno);
+                }
+            }
+
+            if (++ticks % (1000 / TICK_MS) == 0) {
+                for (Fila fila : filas.values()) {
+                    fila.esperando.forEach(this::notificar);
+                }
+                long ahora = System.currentTimeMillis();
+                turnos.values().removeIf(turno -> turno.isAdmitido()
+                        && ahora >= turno.admitidoEn + validezPaseSegundos * 1000);
+            }
+        } catch (RuntimeException e) {
+            // Un error en un tick no debe detener el reloj
+        }
+    }
+
+    // Solo marca el aviso y lo encarga al pool; el reloj nunca escribe en la conexión
+    private void notificar(Turno turno) {
+        if (turno.emitter == null || avisos == null) {
+            return;
+        }
+        turno.avisoPendiente = true;
+        if (turno.enviando.compareAndSet(false, true)) {
+            try {
+                avisos.execute(() -> enviarAvisos(turno));
+            } catch (RejectedExecutionException e) {
+                turno.enviando.set(false);
+            }
+        }
+    }
+
+    // El estado se arma al enviar, así que varios avisos acumulados salen como uno solo y en orden
+    private void enviarAvisos(Turno turno) {
+        try {
+            while (turno.avisoPendiente) {
+                turno.avisoPendiente = false;
+                SseEmitter emitter = turno.emitter;
+                if (emitter == null) {
+                    return;
+                }
+                boolean admitido = turno.isAdmitido();
+                try {
+                    emitter.send(SseEmitter.event().name(admitido ? "admitido" : "posicion").data(estadoJson(turno)));
+                    if (admitido) {
+                        cerrarEmitter(turno);
+                        return;
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    turno.emitter = null;
+                    return;
+                }
+            }
+        } finally {
+            turno.enviando.set(false);
+        }
+        // Un aviso que llegó justo cuando este hilo terminaba
+        if (turno.avisoPendiente) {
+            notificar(turno);
+        }
+    }
+
+    private void cerrarEmitter(Turno turno) {
+        SseEmitter emitter = turno.emitter;
+        turno.emitter = null;
+        if (emitter != null) {
+            emitter.complete();
+        }
+    }
+}
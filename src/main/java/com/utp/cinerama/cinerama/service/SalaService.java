@@ -1,10 +1,12 @@
 package com.utp.cinerama.cinerama.service;
 
+import com.utp.cinerama.cinerama.model.EventoMutacion;
 import com.utp.cinerama.cinerama.model.Sala;
 import com.utp.cinerama.cinerama.model.Sala.TipoSala;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
@@ -13,27 +15,39 @@ import java.util.stream.Collectors;
 @Service
 public class SalaService {
 
-    private List<Sala> salas = new ArrayList<>();
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    // Instantánea inmutable de las salas; cada escritura sincronizada publica otra
+    private volatile Instantanea<Sala> salas = Instantanea.de(List.of(), Sala::getId);
     private AtomicLong contador = new AtomicLong(1);
+    private final ContadorVersiones versiones = new ContadorVersiones("salas");
 
     public SalaService() {
         inicializarDatosPrueba();
     }
 
+    // Versiones para responder GET condicionales (ETag / Last-Modified)
+    public ContadorVersiones.Marca versionColeccion() {
+        return versiones.coleccion();
+    }
+
+    public ContadorVersiones.Marca versionDe(Long id) {
+        return versiones.entidad(id);
+    }
+
     // Métodos CRUD
     public List<Sala> obtenerTodasLasSalas() {
-        return new ArrayList<>(salas);
+        return salas.elementos();
     }
 
     public Optional<Sala> obtenerSalaPorId(Long id) {
-        return salas.stream()
-                .filter(sala -> sala.getId().equals(id))
-                .findFirst();
+        return salas.buscar(id);
     }
 
-    public Sala crearSala(Sala sala) {
+    public synchronized Sala crearSala(Sala sala) {
         // Verificar nombre único
-        boolean existeNombre = salas.stream()
+        boolean existeNombre = salas.elementos().stream()
                 .anyMatch(s -> s.getNombre().equalsIgnoreCase(sala.getNombre()));
         
         if (existeNombre) {
@@ -41,19 +55,24 @@ public class SalaService {
         }
 
         sala.setId(contador.getAndIncrement());
+        sala.setVersion(0);
         validarSala(sala);
-        salas.add(sala);
+        salas = salas.con(sala);
+        publicarCambio(sala.getId());
         return sala;
     }
 
-    public Optional<Sala> actualizarSala(Long id, Sala salaActualizada) {
+    // Actualización condicional: si llega versionEsperada y la sala ya cambió, se rechaza con conflicto.
+    // Se modifica una copia y recién validada reemplaza a la publicada.
+    public synchronized Optional<Sala> actualizarSala(Long id, Sala salaActualizada, Long versionEsperada) {
         Optional<Sala> salaExistente = obtenerSalaPorId(id);
         
         if (salaExistente.isPresent()) {
-            Sala sala = salaExistente.get();
+            Sala sala = salaExistente.get().copia();
+            ContadorVersiones.verificarVersion(sala.getVersion(), versionEsperada);
             
             // Verificar nombre único (excluyendo la sala actual)
-            boolean existeOtroNombre = salas.stream()
+            boolean existeOtroNombre = salas.elementos().stream()
                     .anyMatch(s -> !s.getId().equals(id) && 
                              s.getNombre().equalsIgnoreCase(salaActualizada.getNombre()));
             
@@ -68,21 +87,25 @@ public class SalaService {
             sala.setEstado(salaActualizada.getEstado());
             
             validarSala(sala);
+            sala.setVersion(sala.getVersion() + 1);
+            salas = salas.con(sala);
+            publicarCambio(id);
             return Optional.of(sala);
         }
         
         return Optional.empty();
     }
 
-    public Optional<Sala> actualizarSalaParcial(Long id, Sala salaParcial) {
+    public synchronized Optional<Sala> actualizarSalaParcial(Long id, Sala salaParcial, Long versionEsperada) {
         Optional<Sala> salaExistente = obtenerSalaPorId(id);
         
         if (salaExistente.isPresent()) {
-            Sala sala = salaExistente.get();
+            Sala sala = salaExistente.get().copia();
+            ContadorVersiones.verificarVersion(sala.getVersion(), versionEsperada);
             
             if (salaParcial.getNombre() != null) {
                 // Verificar nombre único
-                boolean existeOtroNombre = salas.stream()
+                boolean existeOtroNombre = salas.elementos().stream()
                         .anyMatch(s -> !s.getId().equals(id) && 
                                  s.getNombre().equalsIgnoreCase(salaParcial.getNombre()));
                 
@@ -109,72 +132,110 @@ public class SalaService {
             }
             
             validarSala(sala);
+            sala.setVersion(sala.getVersion() + 1);
+            salas = salas.con(sala);
+            publicarCambio(id);
             return Optional.of(sala);
         }
         
         return Optional.empty();
     }
 
-    public boolean eliminarSala(Long id) {
-        return salas.removeIf(sala -> sala.getId().equals(id));
+    public synchronized boolean eliminarSala(Long id) {
+        if (obtenerSalaPorId(id).isEmpty()) {
+            return false;
+        }
+        salas = salas.sin(id);
+        publicarCambio(id);
+        return true;
+    }
+
+    // Estado de una sala recibido del primario (null = eliminada). La sala recibida reemplaza a la
+    // local y las funciones que la usan se vuelven a enlazar al publicarse el cambio.
+    public synchronized void aplicarReplica(Long id, Sala datos) {
+        if (datos == null) {
+            salas = salas.sin(id);
+        } else {
+            datos.setId(id);
+            salas = salas.con(datos);
+            contador.accumulateAndGet(id + 1, Math::max);
+        }
+        publicarCambio(id);
     }
 
     // Métodos de búsqueda específicos
     public Optional<Sala> buscarPorNombre(String nombre) {
-        return salas.stream()
+        return salas.elementos().stream()
                 .filter(sala -> sala.getNombre().equalsIgnoreCase(nombre))
                 .findFirst();
     }
 
     public List<Sala> buscarPorTipo(TipoSala tipo) {
-        return salas.stream()
+        return salas.elementos().stream()
                 .filter(sala -> sala.getTipo() == tipo)
                 .collect(Collectors.toList());
     }
 
     public List<Sala> buscarSalasActivas() {
-        return salas.stream()
+        return salas.elementos().stream()
                 .filter(Sala::estaActiva)
                 .collect(Collectors.toList());
     }
 
     public List<Sala> buscarSalas2D() {
-        return salas.stream()
+        return salas.elementos().stream()
                 .filter(Sala::es2D)
                 .collect(Collectors.toList());
     }
 
     public List<Sala> buscarPorCapacidadMinima(Integer capacidadMinima) {
-        return salas.stream()
+        return salas.elementos().stream()
                 .filter(sala -> sala.getCapacidadTotal() >= capacidadMinima)
                 .collect(Collectors.toList());
     }
 
     public boolean existeNombre(String nombre) {
-        return salas.stream()
+        return salas.elementos().stream()
                 .anyMatch(sala -> sala.getNombre().equalsIgnoreCase(nombre));
     }
 
     // Métodos de control de estado
-    public boolean activarSala(Long id) {
+    public synchronized boolean activarSala(Long id) {
         Optional<Sala> sala = obtenerSalaPorId(id);
         if (sala.isPresent()) {
-            sala.get().setEstado(true);
+            cambiarEstado(sala.get(), true);
+            publicarCambio(id);
             return true;
         }
         return false;
     }
 
-    public boolean desactivarSala(Long id) {
+    public synchronized boolean desactivarSala(Long id) {
         Optional<Sala> sala = obtenerSalaPorId(id);
         if (sala.isPresent()) {
-            sala.get().setEstado(false);
+            cambiarEstado(sala.get(), false);
+            publicarCambio(id);
             return true;
         }
         return false;
     }
 
     // Métodos auxiliares
+    // Debe llamarse con el servicio sincronizado
+    private void cambiarEstado(Sala actual, boolean estado) {
+        Sala sala = actual.copia();
+        sala.setEstado(estado);
+        sala.setVersion(sala.getVersion() + 1);
+        salas = salas.con(sala);
+    }
+
+    private void publicarCambio(Long id) {
+        versiones.registrarCambio(id, id == null ? null : obtenerSalaPorId(id).map(Sala::getVersion).orElse(null));
+        if (eventos != null) {
+            eventos.publishEvent(new EventoMutacion(EventoMutacion.Entidad.SALA, id));
+        }
+    }
+
     private void validarSala(Sala sala) {
         if (sala.getNombre() == null || sala.getNombre().trim().isEmpty()) {
             throw new RuntimeException("El nombre de la sala es obligatorio");
@@ -252,11 +313,6 @@ public class SalaService {
         sala6.setTipo(TipoSala.SALA_2D);
         sala6.setEstado(true);
 
-        salas.add(sala1);
-        salas.add(sala2);
-        salas.add(sala3);
-        salas.add(sala4);
-        salas.add(sala5);
-        salas.add(sala6);
+        salas = Instantanea.de(List.of(sala1, sala2, sala3, sala4, sala5, sala6), Sala::getId);
     }
 }
@@ -0,0 +1,298 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.ResultadoAnalitico;
+
+import java.time.DayOfWeek;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tabla de solo inserción guardada por columnas: cada columna es un int[] y los textos se codifican
+// con un diccionario (texto -> código). Las consultas recorren los arreglos primitivos sin crear objetos.
+// Las inserciones se serializan; las lecturas ven siempre un prefijo consistente de la tabla.
+public class TablaColumnar {
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final int HORAS_POR_SEMANA = 7 * 24;
+    private static final String[] ETIQUETAS_HORA_SEMANA = new String[HORAS_POR_SEMANA];
+
+    static {
+        Locale espanol = Locale.forLanguageTag("es");
+        for (int hora = 0; hora < HORAS_POR_SEMANA; hora++) {
+            ETIQUETAS_HORA_SEMANA[hora] = DayOfWeek.of(hora / 24 + 1).getDisplayName(TextStyle.SHORT, espanol)
+                    + " " + String.format("%02d:00", hora % 24);
+        }
+    }
+
+    public enum Tipo {
+        TEXTO,        // Codificada con diccionario; se puede agrupar y filtrar
+        NUMERO,       // Valor entero; se puede sumar
+        HORA_SEMANA   // 0 = lunes 00h ... 167 = domingo 23h; se puede agrupar y filtrar
+    }
+
+    private final String nombre;
+    private final String[] columnas;
+    private final Tipo[] tipos;
+    private final Map<String, Integer> posiciones = new HashMap<>();
+    private final Diccionario[] diccionarios;
+
+    // Se reemplazan al crecer; 'filas' se publica después de escribir los datos
+    private volatile int[][] datos;
+    private volatile int filas;
+
+    public TablaColumnar(String nombre, String[] columnas, Tipo[] tipos) {
+        this.nombre = nombre;
+        this.columnas = columnas;
+        this.tipos = tipos;
+        this.diccionarios = new Diccionario[columnas.length];
+        this.datos = new int[columnas.length][CAPACIDAD_INICIAL];
+        for (int i = 0; i < columnas.length; i++) {
+            posiciones.put(columnas[i], i);
+            if (tipos[i] == Tipo.TEXTO) {
+                diccionarios[i] = new Diccionario();
+            }
+        }
+    }
+
+    public String getNombre() { return nombre; }
+    public int getFilas() { return filas; }
+
+    // Los valores van en el orden de las columnas: String para TEXTO, Number para el resto
+    public synchronized void agregar(Object... valores) {
+        int fila = filas;
+        int[][] actuales = datos;
+        if (fila == actuales[0].length) {
+            int[][] ampliados = new int[actuales.length][];
+            for (int i = 0; i < actuales.length; i++) {
+                ampliados[i] = Arrays.copyOf(actuales[i], fila * 2);
+            }
+            actuales = ampliados;
+        }
+
+        for (int i = 0; i < columnas.length; i++) {
+            actuales[i][fila] = tipos[i] == Tipo.TEXTO
+                    ? diccionarios[i].codificar((String) valores[i])
+                    : ((Number) valores[i]).intValue();
+        }
+        datos = actuales;
+        filas = fila + 1;
+    }
+
+    // Agrupa por una columna TEXTO u HORA_SEMANA y cuenta filas y suma una columna NUMERO (opcional).
+    // Los filtros son de igualdad sobre columnas TEXTO u HORA_SEMANA; minutoDesde/minutoHasta acotan
+    // la columna 'columnaMinuto' (inclusive) cuando no son null.
+    public List<ResultadoAnalitico.Grupo> agrupar(String agruparPor, String sumar, Map<String, String> filtros,
+                               String columnaMinuto, Integer minutoDesde, Integer minutoHasta) {
+        int total = filas;
+        int[][] vista = datos;
+
+        int posicionGrupo = posicionAgrupable(agruparPor);
+        int[] grupos = vista[posicionGrupo];
+        int cardinalidad = cardinalidad(posicionGrupo);
+
+        int[] valores = null;
+        if (sumar != null) {
+            int posicionSuma = posicion(sumar);
+            if (tipos[posicionSuma] != Tipo.NUMERO) {
+                throw new RuntimeException("La columna " + sumar + " no es numérica");
+            }
+            valores = vista[posicionSuma];
+        }
+
+        // Filtros como pares (columna, código); un valor inexistente no puede coincidir con ninguna fila
+        int cantidadFiltros = filtros != null ? filtros.size() : 0;
+        int[][] columnasFiltro = new int[cantidadFiltros][];
+        int[] codigosFiltro = new int[cantidadFiltros];
+        int f = 0;
+        if (filtros != null) {
+            for (Map.Entry<String, String> filtro : filtros.entrySet()) {
+                int posicionFiltro = posicionAgrupable(filtro.getKey());
+                int codigo = codigo(posicionFiltro, filtro.getValue());
+                if (codigo < 0) {
+                    return new ArrayList<>();
+                }
+                columnasFiltro[f] = vista[posicionFiltro];
+                codigosFiltro[f] = codigo;
+                f++;
+            }
+        }
+
+        int[] minutos = columnaMinuto != null ? vista[posicion(columnaMinuto)] : null;
+        int desde = minutoDesde != null ? minutoDesde : Integer.MIN_VALUE;
+        int hasta = minutoHasta != null ? minutoHasta : Integer.MAX_VALUE;
+        boolean filtraMinutos = minutos != null && (minutoDesde != null || minutoHasta != null);
+
+        long[] cuentas = new long[cardinalidad];
+        long[] sumas = new long[cardinalidad];
+
+        if (cantidadFiltros == 0 && !filtraMinutos) {
+            // Caso sin filtros: recorrido lineal de dos arreglos
+            for (int i = 0; i < total; i++) {
+                cuentas[grupos[i]]++;
+            }
+            if (valores != null) {
+                for (int i = 0; i < total; i++) {
+                    sumas[grupos[i]] += valores[i];
+                }
+            }
+        } else {
+            filas:
+            for (int i = 0; i < total; i++) {
+                if (filtraMinutos && (minutos[i] < desde || minutos[i] > hasta)) {
+                    continue;
+                }
+                for (int j = 0; j < cantidadFiltros; j++) {
+                    if (columnasFiltro[j][i] != codigosFiltro[j]) {
+                        continue filas;
+                    }
+                }
+                cuentas[grupos[i]]++;
+                if (valores != null) {
+                    sumas[grupos[i]] += valores[i];
+                }
+            }
+        }
+
+        List<ResultadoAnalitico.Grupo> resultado = new ArrayList<>();
+        for (int codigo = 0; codigo < cardinalidad; codigo++) {
+            if (cuentas[codigo] > 0) {
+                resultado.add(new ResultadoAnalitico.Grupo(etiqueta(posicionGrupo, codigo), cuentas[codigo], sumas[codigo]));
+            }
+        }
+        return resultado;
+    }
+
+    // Foto de la tabla para recorridos propios (cruces entre tablas, reportes en paralelo)
+    public Vista vista() {
+        int total = filas;
+        return new Vista(total, datos);
+    }
+
+    // Las columnas de una vista no se copian: no deben modificarse y solo son válidas las primeras getFilas() filas
+    public class Vista {
+        private final int filasVisibles;
+        private final int[][] columnasVisibles;
+
+        private Vista(int filasVisibles, int[][] columnasVisibles) {
+            this.filasVisibles = filasVisibles;
+            this.columnasVisibles = columnasVisibles;
+        }
+
+        public int getFilas() { return filasVisibles; }
+
+        public int[] columna(String nombreColumna) {
+            return columnasVisibles[posicion(nombreColumna)];
+        }
+
+        public Tipo tipo(String nombreColumna) {
+            return tipos[posicion(nombreColumna)];
+        }
+
+        public boolean esAgrupable(String nombreColumna) {
+            return tipos[posicion(nombreColumna)] != Tipo.NUMERO;
+        }
+
+        public boolean tieneColumna(String nombreColumna) {
+            return posiciones.containsKey(nombreColumna);
+        }
+
+        // Código del valor en una columna TEXTO u HORA_SEMANA, o -1 si no existe
+        public int codigo(String nombreColumna, String valor) {
+            return TablaColumnar.this.codigo(posicionAgrupable(nombreColumna), valor);
+        }
+
+        public String etiqueta(String nombreColumna, int codigo) {
+            return TablaColumnar.this.etiqueta(posicionAgrupable(nombreColumna), codigo);
+        }
+
+        public int cardinalidad(String nombreColumna) {
+            return TablaColumnar.this.cardinalidad(posicionAgrupable(nombreColumna));
+        }
+    }
+
+    public static int horaSemana(DayOfWeek dia, int hora) {
+        return (dia.getValue() - 1) * 24 + hora;
+    }
+
+    // Métodos auxiliares
+    private int posicion(String nombreColumna) {
+        Integer posicion = posiciones.get(nombreColumna);
+        if (posicion == null) {
+            throw new RuntimeException("Columna desconocida en " + nombre + ": " + nombreColumna);
+        }
+        return posicion;
+    }
+
+    private int posicionAgrupable(String nombreColumna) {
+        int posicion = posicion(nombreColumna);
+        if (tipos[posicion] == Tipo.NUMERO) {
+            throw new RuntimeException("No se puede agrupar ni filtrar por la columna numérica " + nombreColumna);
+        }
+        return posicion;
+    }
+
+    private int cardinalidad(int posicion) {
+        return tipos[posicion] == Tipo.TEXTO ? diccionarios[posicion].tamano() : HORAS_POR_SEMANA;
+    }
+
+    private int codigo(int posicion, String valor) {
+        if (tipos[posicion] == Tipo.TEXTO) {
+            return diccionarios[posicion].buscar(valor);
+        }
+        try {
+            int hora = Integer.parseInt(valor);
+            return hora >= 0 && hora < HORAS_POR_SEMANA ? hora : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String etiqueta(int posicion, int codigo) {
+        if (tipos[posicion] == Tipo.TEXTO) {
+            return diccionarios[posicion].valor(codigo);
+        }
+        return ETIQUETAS_HORA_SEMANA[codigo];
+    }
+
+    // Texto <-> código denso (0, 1, 2, ...)
+    private static class Diccionario {
+        private final Map<String, Integer> codigos = new ConcurrentHashMap<>();
+        private volatile String[] valores = new String[16];
+        private volatile int tamano;
+
+        // Se llama con la tabla sincronizada
+        private int codificar(String valor) {
+            String clave = valor != null ? valor : "";
+            Integer codigo = codigos.get(clave);
+            if (codigo != null) {
+                return codigo;
+            }
+            int nuevo = tamano;
+            if (nuevo == valores.length) {
+                valores = Arrays.copyOf(valores, nuevo * 2);
+            }
+            valores[nuevo] = clave;
+            tamano = nuevo + 1;
+            codigos.put(clave, nuevo);
+            return nuevo;
+        }
+
+        private int buscar(String valor) {
+            Integer codigo = codigos.get(valor != null ? valor : "");
+            return codigo != null ? codigo : -1;
+        }
+
+        private String valor(int codigo) {
+            return valores[codigo];
+        }
+
+        private int tamano() {
+            return tamano;
+        }
+    }
+}
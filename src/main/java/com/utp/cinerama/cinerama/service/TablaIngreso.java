@@ -0,0 +1,135 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Boletos de una función preparados para el control en la puerta: los ids ordenados en un long[] y,
+// en arreglos paralelos, el asiento, el estado (ordinal de EstadoBoleto) y el instante del primer
+// ingreso. Buscar un boleto es una búsqueda binaria sobre memoria contigua y admitirlo es un
+// compareAndSet de PAGADO a USADO en su casilla, así que dos lectores que escanean el mismo boleto a
+// la vez nunca lo admiten dos veces. Los ids son fijos; si se vende otro boleto se arma una tabla nueva.
+final class TablaIngreso {
+
+    // El boleto ya no pertenece a esta función (se eliminó o se movió a otra)
+    static final int RETIRADO = -1;
+
+    private static final EstadoBoleto[] ESTADOS = EstadoBoleto.values();
+
+    private final Long funcionId;
+    private final long[] ids;
+    private final String[] asientos;
+    private final AtomicIntegerArray estados;
+    private final AtomicLongArray ingresos;   // Epoch en ms; 0 = todavía no ingresó
+    private final Contadores contadores;
+
+    // Se comparten entre las tablas sucesivas de una misma función
+    static final class Contadores {
+        final LongAdder admitidos = new LongAdder();
+        final LongAdder duplicados = new LongAdder();
+        final LongAdder rechazados = new LongAdder();
+    }
+
+    private TablaIngreso(Long funcionId, int tamano, Contadores contadores) {
+        this.funcionId = funcionId;
+        this.ids = new long[tamano];
+        this.asientos = new String[tamano];
+        this.estados = new AtomicIntegerArray(tamano);
+        this.ingresos = new AtomicLongArray(tamano);
+        this.contadores = contadores;
+    }
+
+    // Los estados salen de los boletos; de la tabla anterior se conservan los instantes de ingreso
+    static TablaIngreso de(Long funcionId, List<Boleto> boletos, TablaIngreso anterior) {
+        Boleto[] ordenados = boletos.toArray(new Boleto[0]);
+        Arrays.sort(ordenados, Comparator.comparing(Boleto::getId));
+        TablaIngreso tabla = new TablaIngreso(funcionId, ordenados.length,
+                anterior != null ? anterior.contadores : new Contadores());
+        for (int i = 0; i < ordenados.length; i++) {
+            Boleto boleto = ordenados[i];
+            tabla.ids[i] = boleto.getId();
+            tabla.asientos[i] = boleto.getAsiento();
+            tabla.estados.set(i, boleto.getEstado().ordinal());
+            if (anterior != null && boleto.getEstado() == EstadoBoleto.USADO) {
+                int previa = anterior.posicion(boleto.getId());
+                if (previa >= 0) {
+                    tabla.ingresos.set(i, anterior.ingresos.get(previa));
+                }
+            }
+        }
+        return tabla;
+    }
+
+    Long getFuncionId() {
+        return funcionId;
+    }
+
+    Contadores contadores() {
+        return contadores;
+    }
+
+    int tamano() {
+        return ids.length;
+    }
+
+    // Posición del boleto, o un número negativo si no está (o fue retirado)
+    int posicion(long boletoId) {
+        int posicion = Arrays.binarySearch(ids, boletoId);
+        return posicion >= 0 && estados.get(posicion) == RETIRADO ? -1 : posicion;
+    }
+
+    EstadoBoleto estado(int posicion) {
+        int estado = estados.get(posicion);
+        return estado == RETIRADO ? null : ESTADOS[estado];
+    }
+
+    String asiento(int posicion) {
+        return asientos[posicion];
+    }
+
+    long ingreso(int posicion) {
+        return ingresos.get(posicion);
+    }
+
+    // La única transición que se hace aquí primero y luego en el boleto
+    boolean admitir(int posicion, long instante) {
+        if (estados.compareAndSet(posicion, EstadoBoleto.PAGADO.ordinal(), EstadoBoleto.USADO.ordinal())) {
+            ingresos.set(posicion, instante);
+            return true;
+        }
+        return false;
+    }
+
+    // Copia el estado vigente del boleto (tras cualquier modificación, o si admitir no se pudo aplicar)
+    void sincronizar(int posicion, EstadoBoleto estado) {
+        estados.set(posicion, estado.ordinal());
+        if (estado == EstadoBoleto.USADO) {
+            ingresos.compareAndSet(posicion, 0, System.currentTimeMillis());
+        } else {
+            ingresos.set(posicion, 0);
+        }
+    }
+
+    void retirar(long boletoId) {
+        int posicion = Arrays.binarySearch(ids, boletoId);
+        if (posicion >= 0) {
+            estados.set(posicion, RETIRADO);
+        }
+    }
+
+    int contar(EstadoBoleto estado) {
+        int total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (estados.get(i) == estado.ordinal()) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
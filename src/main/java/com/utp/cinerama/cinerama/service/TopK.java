@@ -0,0 +1,70 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.ConteoEstimado;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Los k elementos más frecuentes de un flujo: un Count-Min Sketch estima las frecuencias y un
+// montículo de mínimos guarda los k candidatos con mayor estimación. No es seguro para varios hilos.
+public class TopK {
+
+    private final int k;
+    private final int profundidad;
+    private final int ancho;
+    private final CountMinSketch frecuencias;
+    private final Map<String, Long> candidatos = new HashMap<>();
+    private final PriorityQueue<Map.Entry<String, Long>> minimos =
+            new PriorityQueue<>(Comparator.comparingLong(Map.Entry::getValue));
+
+    public TopK(int k, int profundidad, int ancho) {
+        this.k = k;
+        this.profundidad = profundidad;
+        this.ancho = ancho;
+        this.frecuencias = new CountMinSketch(profundidad, ancho);
+    }
+
+    public void agregar(String elemento, long cantidad) {
+        frecuencias.agregar(elemento, cantidad);
+        considerar(elemento, frecuencias.estimar(elemento));
+    }
+
+    // Combina otro top-k: se suman los sketches y se reevalúan los candidatos de ambos
+    public void combinar(TopK otro) {
+        frecuencias.combinar(otro.frecuencias);
+        Set<String> elementos = new HashSet<>(candidatos.keySet());
+        elementos.addAll(otro.candidatos.keySet());
+        for (String elemento : elementos) {
+            considerar(elemento, frecuencias.estimar(elemento));
+        }
+    }
+
+    // Los 'limite' elementos más frecuentes, de mayor a menor
+    public List<ConteoEstimado> primeros(int limite) {
+        List<ConteoEstimado> resultado = new ArrayList<>();
+        candidatos.forEach((elemento, cantidad) -> resultado.add(new ConteoEstimado(elemento, cantidad)));
+        resultado.sort(Comparator.comparingLong(ConteoEstimado::getCantidad).reversed()
+                .thenComparing(ConteoEstimado::getValor));
+        return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+    }
+
+    // Métodos auxiliares
+    private void considerar(String elemento, long estimacion) {
+        if (candidatos.containsKey(elemento)) {
+            minimos.removeIf(entrada -> entrada.getKey().equals(elemento));
+        } else if (candidatos.size() >= k) {
+            if (estimacion <= minimos.peek().getValue()) {
+                return;
+            }
+            candidatos.remove(minimos.poll().getKey());
+        }
+        candidatos.put(elemento, estimacion);
+        minimos.add(Map.entry(elemento, estimacion));
+    }
+}
@@ -0,0 +1,209 @@
+package com.utp.cinerama.cinerama.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reparto de las funciones entre los nodos del cluster con un anillo de hashing consistente:
+// cada nodo ocupa varias posiciones virtuales y una función pertenece al primer nodo que aparece
+// en el anillo a partir del hash de su id. Agregar o quitar un nodo solo mueve ~1/N de las funciones.
+// Los boletos y pagos llevan en los bits altos del id un código fijo del nodo que los creó (derivado
+// de su URL, no de su posición en la lista), así que agregar o quitar nodos no cambia el dueño de
+// ningún id existente.
+// Con el cluster deshabilitado hay un solo nodo y todo es local.
+// Las peticiones que un nodo reenvía a otro van firmadas con el secreto compartido del cluster; así
+// el nodo que las recibe distingue un reenvío real de un cliente que se hace pasar por un nodo.
+@Component
+public class TopologiaCluster {
+
+    @Value("${cinerama.cluster.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${cinerama.cluster.nodos:}")
+    private String[] nodosConfigurados;
+
+    @Value("${cinerama.cluster.nodo-actual:}")
+    private String nodoActual;
+
+    @Value("${cinerama.cluster.nodos-virtuales:160}")
+    private int nodosVirtuales;
+
+    @Value("${cinerama.cluster.secreto:}")
+    private String secreto;
+
+    // id = código del nodo << BITS_SECUENCIA | secuencia. Con 13 bits de código y 40 de secuencia el
+    // id sigue siendo menor que 2^53 y el frontend lo lee sin perder precisión.
+    private static final int BITS_SECUENCIA = 40;
+    private static final long MASCARA_SECUENCIA = (1L << BITS_SECUENCIA) - 1;
+    private static final int CODIGOS_NODO = (1 << 13) - 1;
+
+    // Tolerancia para el instante de una firma de reenvío (incluye la diferencia entre relojes)
+    private static final long VIGENCIA_FIRMA_MS = 30_000;
+
+    private final List<String> nodos = new ArrayList<>();
+    private final TreeMap<Long, String> anillo = new TreeMap<>();
+    private final Map<Long, String> nodosPorCodigo = new HashMap<>();
+    private long codigoActual;
+    private ThreadLocal<Mac> firmadores;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        for (String nodo : nodosConfigurados) {
+            String normalizado = normalizar(nodo);
+            if (!normalizado.isEmpty() && !nodos.contains(normalizado)) {
+                nodos.add(normalizado);
+            }
+        }
+        nodoActual = normalizar(nodoActual);
+        if (!nodos.contains(nodoActual)) {
+            throw new RuntimeException("El nodo actual (" + nodoActual + ") no está en cinerama.cluster.nodos");
+        }
+        for (String nodo : nodos) {
+            String anterior = nodosPorCodigo.put(codigoDeNodo(nodo), nodo);
+            if (anterior != null) {
+                throw new RuntimeException("Los nodos " + anterior + " y " + nodo + " generan el mismo código de id");
+            }
+        }
+        codigoActual = codigoDeNodo(nodoActual);
+        if (secreto.isBlank()) {
+            throw new RuntimeException("Con el cluster habilitado hay que configurar cinerama.cluster.secreto");
+        }
+        SecretKeySpec clave = new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        firmadores = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(clave);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 no disponible", e);
+            }
+        });
+
+        for (String nodo : nodos) {
+            for (int i = 0; i < nodosVirtuales; i++) {
+                anillo.put(mezclar((nodo + "#" + i).hashCode()), nodo);
+            }
+        }
+    }
+
+    public boolean estaHabilitado() {
+        return habilitado;
+    }
+
+    public List<String> getNodos() {
+        return new ArrayList<>(nodos);
+    }
+
+    public String getNodoActual() {
+        return nodoActual;
+    }
+
+    public int cantidadNodos() {
+        return habilitado ? nodos.size() : 1;
+    }
+
+    // Nodo dueño del mapa de asientos y de los boletos de la función
+    public String nodoDeFuncion(long funcionId) {
+        if (!habilitado) {
+            return nodoActual;
+        }
+        Map.Entry<Long, String> entrada = anillo.ceilingEntry(mezclar(funcionId));
+        return entrada != null ? entrada.getValue() : anillo.firstEntry().getValue();
+    }
+
+    public boolean esFuncionLocal(long funcionId) {
+        return !habilitado || nodoDeFuncion(funcionId).equals(nodoActual);
+    }
+
+    // Nodo que creó un boleto o pago, según el id generado con siguienteId. Los ids de un nodo que ya
+    // no está en la configuración (o sin código) se buscan localmente y simplemente no se encuentran.
+    public String nodoDeId(long id) {
+        if (!habilitado || id <= 0) {
+            return nodoActual;
+        }
+        return nodosPorCodigo.getOrDefault(id >>> BITS_SECUENCIA, nodoActual);
+    }
+
+    // Con el cluster deshabilitado el id coincide con el contador
+    public long siguienteId(AtomicLong contador) {
+        long secuencia = contador.getAndIncrement();
+        return habilitado ? codigoActual << BITS_SECUENCIA | secuencia : secuencia;
+    }
+
+    // Parte del id que viene del contador, para adelantarlo cuando se guarda un id explícito
+    public long secuenciaDeId(long id) {
+        return habilitado ? id & MASCARA_SECUENCIA : id;
+    }
+
+    // Firma de una petición que este nodo reenvía: "<instante>.<hmac>". Cubre el nodo de origen, el
+    // método, la ruta con su consulta y el cliente original, para que no se pueda reutilizar con otros
+    public String firmarReenvio(String metodo, String ruta, String clienteOriginal) {
+        long instante = System.currentTimeMillis();
+        return instante + "." + hmac(nodoActual, metodo, ruta, clienteOriginal, instante);
+    }
+
+    // Solo un nodo del cluster, con el secreto compartido y hace menos de VIGENCIA_FIRMA_MS, puede
+    // haber generado la firma
+    public boolean esReenvioAutentico(String nodoOrigen, String metodo, String ruta, String clienteOriginal, String firma) {
+        if (!habilitado || nodoOrigen == null || firma == null || !nodos.contains(normalizar(nodoOrigen))) {
+            return false;
+        }
+        int punto = firma.indexOf('.');
+        if (punto <= 0) {
+            return false;
+        }
+        long instante;
+        try {
+            instante = Long.parseLong(firma.substring(0, punto));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Math.abs(System.currentTimeMillis() - instante) > VIGENCIA_FIRMA_MS) {
+            return false;
+        }
+        String esperada = hmac(normalizar(nodoOrigen), metodo, ruta, clienteOriginal, instante);
+        return MessageDigest.isEqual(esperada.getBytes(StandardCharsets.US_ASCII),
+                firma.substring(punto + 1).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Métodos auxiliares
+    private String hmac(String nodo, String metodo, String ruta, String clienteOriginal, long instante) {
+        String datos = nodo + "\n" + metodo + "\n" + ruta + "\n" + (clienteOriginal != null ? clienteOriginal : "") + "\n" + instante;
+        byte[] firma = firmadores.get().doFinal(datos.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(firma);
+    }
+
+    // Nunca 0, para que ningún id del cluster se confunda con uno de un nodo sin cluster
+    static long codigoDeNodo(String nodo) {
+        return Math.floorMod(mezclar(nodo.hashCode()), CODIGOS_NODO) + 1;
+    }
+
+    private static String normalizar(String nodo) {
+        String valor = nodo == null ? "" : nodo.trim();
+        return valor.endsWith("/") ? valor.substring(0, valor.length() - 1) : valor;
+    }
+
+    private static long mezclar(long valor) {
+        long h = valor * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -2,13 +2,17 @@ package com.utp.cinerama.cinerama.service;
 
 import com.utp.cinerama.cinerama.model.Cliente;
 import com.utp.cinerama.cinerama.model.Producto;
+import com.utp.cinerama.cinerama.model.ResumenHora;
 import com.utp.cinerama.cinerama.model.VentaProducto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -21,27 +25,38 @@ public class VentaProductoService {
     @Autowired
     private ClienteService clienteService;
 
-    private List<VentaProducto> ventas = new ArrayList<>();
+    @Autowired
+    private ResumenVentasService resumenVentasService;
+
+    @Autowired
+    private AlmacenAnaliticoService almacenAnaliticoService;
+
+    @Autowired
+    private EstimadoresVentasService estimadoresVentasService;
+
+    private Map<Long, VentaProducto> ventas = new ConcurrentSkipListMap<>();
     private AtomicLong contador = new AtomicLong(1);
 
+    // Ventas agrupadas por la hora de fechaVenta; se actualiza al crear y al completar cada venta
+    private final IndiceTemporal<VentaProducto> indiceFechas = new IndiceTemporal<>();
+
     public VentaProductoService() {
         // Los datos de prueba se inicializan después de la inyección
     }
 
     // Métodos CRUD
     public List<VentaProducto> obtenerTodasLasVentas() {
-        return new ArrayList<>(ventas);
+        return new ArrayList<>(ventas.values());
     }
 
     public Optional<VentaProducto> obtenerVentaPorId(Long id) {
-        return ventas.stream()
-                .filter(venta -> venta.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(ventas.get(id));
     }
 
     public VentaProducto crearVenta(Cliente cliente, String metodoPago) {
         VentaProducto venta = new VentaProducto(contador.getAndIncrement(), cliente, metodoPago);
-        ventas.add(venta);
+        ventas.put(venta.getId(), venta);
+        indiceFechas.registrar(venta.getId(), venta, venta.getFechaVenta());
         return venta;
     }
 
@@ -57,15 +72,18 @@ public class VentaProductoService {
         VentaProducto venta = ventaOpt.get();
         Producto producto = productoOpt.get();
         
-        if (venta.getCompletada()) {
-            throw new RuntimeException("No se puede modificar una venta completada");
-        }
-        
-        if (!producto.tieneStock() || producto.getStock() < cantidad) {
-            throw new RuntimeException("No hay suficiente stock para " + producto.getNombre());
+        synchronized (venta) {
+            if (venta.getCompletada()) {
+                throw new RuntimeException("No se puede modificar una venta completada");
+            }
+            
+            if (!producto.tieneStock() || producto.getStock() < cantidad) {
+                throw new RuntimeException("No hay suficiente stock para " + producto.getNombre());
+            }
+            
+            venta.agregarProducto(producto, cantidad);
+            venta.setVersion(venta.getVersion() + 1);
         }
-        
-        venta.agregarProducto(producto, cantidad);
         return venta;
     }
 
@@ -78,15 +96,20 @@ public class VentaProductoService {
         
         VentaProducto venta = ventaOpt.get();
         
-        if (venta.getCompletada()) {
-            throw new RuntimeException("No se puede modificar una venta completada");
+        synchronized (venta) {
+            if (venta.getCompletada()) {
+                throw new RuntimeException("No se puede modificar una venta completada");
+            }
+            
+            venta.eliminarProducto(productoId);
+            venta.setVersion(venta.getVersion() + 1);
         }
-        
-        venta.eliminarProducto(productoId);
         return venta;
     }
 
-    public VentaProducto actualizarCantidadProducto(Long ventaId, Long productoId, Integer nuevaCantidad) {
+    // Fija la cantidad (no la suma): dos cajas que editan la misma venta se pisarían, así que con
+    // versionEsperada (If-Match) solo se aplica si nadie la cambió desde que se leyó
+    public VentaProducto actualizarCantidadProducto(Long ventaId, Long productoId, Integer nuevaCantidad, Long versionEsperada) {
         Optional<VentaProducto> ventaOpt = obtenerVentaPorId(ventaId);
         Optional<Producto> productoOpt = productoService.obtenerProductoPorId(productoId);
         
@@ -97,15 +120,20 @@ public class VentaProductoService {
         VentaProducto venta = ventaOpt.get();
         Producto producto = productoOpt.get();
         
-        if (venta.getCompletada()) {
-            throw new RuntimeException("No se puede modificar una venta completada");
-        }
-        
-        if (nuevaCantidad > 0 && (producto.getStock() < nuevaCantidad)) {
-            throw new RuntimeException("No hay suficiente stock para " + producto.getNombre());
+        synchronized (venta) {
+            ContadorVersiones.verificarVersion(venta.getVersion(), versionEsperada);
+            
+            if (venta.getCompletada()) {
+                throw new RuntimeException("No se puede modificar una venta completada");
+            }
+            
+            if (nuevaCantidad > 0 && (producto.getStock() < nuevaCantidad)) {
+                throw new RuntimeException("No hay suficiente stock para " + producto.getNombre());
+            }
+            
+            venta.actualizarCantidadProducto(productoId, nuevaCantidad);
+            venta.setVersion(venta.getVersion() + 1);
         }
-        
-        venta.actualizarCantidadProducto(productoId, nuevaCantidad);
         return venta;
     }
 
@@ -119,50 +147,78 @@ public class VentaProductoService {
         
         VentaProducto venta = ventaOpt.get();
         
-        if (venta.getCompletada()) {
-            throw new RuntimeException("La venta ya está completada");
-        }
-        
-        if (venta.getDetalles().isEmpty()) {
-            throw new RuntimeException("No se puede completar una venta sin productos");
-        }
-        
-        // Verificar stock y actualizar inventario
-        for (VentaProducto.DetalleVentaProducto detalle : venta.getDetalles()) {
-            Producto producto = detalle.getProducto();
-            Integer cantidad = detalle.getCantidad();
+        // Con la venta bloqueada, dos pedidos de completar no descuentan el stock dos veces
+        synchronized (venta) {
+            if (venta.getCompletada()) {
+                throw new RuntimeException("La venta ya está completada");
+            }
             
-            if (!productoService.reducirStock(producto.getId(), cantidad)) {
-                throw new RuntimeException("No hay suficiente stock para " + producto.getNombre());
+            if (venta.getDetalles().isEmpty()) {
+                throw new RuntimeException("No se puede completar una venta sin productos");
+            }
+            
+            // Verificar stock y actualizar inventario
+            for (VentaProducto.DetalleVentaProducto detalle : venta.getDetalles()) {
+                Producto producto = detalle.getProducto();
+                Integer cantidad = detalle.getCantidad();
+                
+                if (!productoService.reducirStock(producto.getId(), cantidad)) {
+                    throw new RuntimeException("No hay suficiente stock para " + producto.getNombre());
+                }
             }
+            
+            venta.completarVenta();
+            venta.setVersion(venta.getVersion() + 1);
         }
-        
-        venta.completarVenta();
+        indiceFechas.registrar(venta.getId(), venta, venta.getFechaVenta());
+        resumenVentasService.registrarVentaProductos(venta, venta.getFechaVenta().toLocalDate());
+        almacenAnaliticoService.registrarVentaProductos(venta, venta.getFechaVenta());
+        estimadoresVentasService.registrarVentaProductos(venta, venta.getFechaVenta());
         return venta;
     }
 
     // Métodos de búsqueda
     public List<VentaProducto> buscarPorCliente(Long clienteId) {
-        return ventas.stream()
+        return ventas.values().stream()
                 .filter(venta -> venta.getCliente() != null && 
                                venta.getCliente().getId().equals(clienteId))
                 .collect(Collectors.toList());
     }
 
     public List<VentaProducto> buscarPorFecha(LocalDate fecha) {
-        return ventas.stream()
-                .filter(venta -> venta.getFechaVenta().toLocalDate().equals(fecha))
-                .collect(Collectors.toList());
+        return indiceFechas.delDia(fecha);
+    }
+
+    // Ventas entre dos fechas (inclusive)
+    public List<VentaProducto> buscarEntreFechas(LocalDate desde, LocalDate hasta) {
+        return indiceFechas.entre(desde, hasta);
+    }
+
+    // Ventas completadas por hora entre dos fechas (solo horas con ventas)
+    public List<ResumenHora> calcularVentasPorHora(LocalDate desde, LocalDate hasta) {
+        List<ResumenHora> resumen = new ArrayList<>();
+        for (Map.Entry<LocalDateTime, List<VentaProducto>> hora : indiceFechas.porHora(desde, hasta).entrySet()) {
+            ResumenHora resumenHora = new ResumenHora(hora.getKey());
+            for (VentaProducto venta : hora.getValue()) {
+                if (venta.getCompletada()) {
+                    resumenHora.registrar(venta.getTotal());
+                }
+            }
+            if (resumenHora.getCantidad() > 0) {
+                resumen.add(resumenHora);
+            }
+        }
+        return resumen;
     }
 
     public List<VentaProducto> buscarVentasCompletadas() {
-        return ventas.stream()
+        return ventas.values().stream()
                 .filter(VentaProducto::getCompletada)
                 .collect(Collectors.toList());
     }
 
     public List<VentaProducto> buscarVentasPendientes() {
-        return ventas.stream()
+        return ventas.values().stream()
                 .filter(venta -> !venta.getCompletada())
                 .collect(Collectors.toList());
     }
@@ -186,6 +242,10 @@ public class VentaProductoService {
             venta1.agregarProducto(productos.get(0), 2);  // 2 Palomitas grandes
             venta1.agregarProducto(productos.get(1), 2);  // 2 Coca-Cola grandes
             venta1.completarVenta();
+            indiceFechas.registrar(venta1.getId(), venta1, venta1.getFechaVenta());
+            resumenVentasService.registrarVentaProductos(venta1, venta1.getFechaVenta().toLocalDate());
+            almacenAnaliticoService.registrarVentaProductos(venta1, venta1.getFechaVenta());
+            estimadoresVentasService.registrarVentaProductos(venta1, venta1.getFechaVenta());
             
             // Venta 2 - Pendiente
             VentaProducto venta2 = crearVenta(clientes.get(1), "TARJETA");
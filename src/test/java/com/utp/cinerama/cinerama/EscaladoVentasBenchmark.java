@@ -0,0 +1,130 @@
+package com.utp.cinerama.cinerama;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Mide ventas de asientos por segundo contra uno o varios nodos ya levantados. No es una prueba de
+// surefire (no termina en Test): se ejecuta a mano, primero con un nodo y después con el cluster,
+// y se comparan las ventas por segundo.
+//
+//   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -Dhilos=64 -Dsegundos=20 -cp target/test-classes:$(cat target/cp.txt) \
+//       com.utp.cinerama.cinerama.EscaladoVentasBenchmark http://localhost:8080 http://localhost:8081
+//
+// Cada venta reserva un asiento (POST /api/boletos/grupo) en una función al azar y lo cancela
+// enseguida, para que los asientos no se agoten durante la medición. Las peticiones entran por
+// cualquier nodo, como detrás de un balanceador, así que el costo del reenvío al dueño se incluye.
+// Para que la medición signifique algo, cada nodo debe tener sus propios núcleos.
+public class EscaladoVentasBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.err.println("Uso: EscaladoVentasBenchmark http://nodo1 [http://nodo2 ...]");
+			System.exit(1);
+		}
+		int hilos = Integer.getInteger("hilos", 64);
+		int segundos = Integer.getInteger("segundos", 20);
+		int calentamiento = Integer.getInteger("calentamiento", 5);
+		List<String> nodos = Arrays.asList(args);
+
+		HttpClient cliente = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofSeconds(2))
+				.version(HttpClient.Version.HTTP_1_1)
+				.build();
+		List<Long> funciones = new ArrayList<>();
+		JsonNode lista = new ObjectMapper().readTree(cliente.send(
+				HttpRequest.newBuilder(URI.create(nodos.get(0) + "/api/funciones")).build(),
+				HttpResponse.BodyHandlers.ofString()).body());
+		lista.forEach(funcion -> funciones.add(funcion.path("id").asLong()));
+
+		ejecutar(cliente, nodos, funciones, hilos, calentamiento);
+		Resultado resultado = ejecutar(cliente, nodos, funciones, hilos, segundos);
+
+		long[] latencias = resultado.latenciasMicros;
+		Arrays.sort(latencias);
+		System.out.printf("nodos=%d hilos=%d funciones=%d%n", nodos.size(), hilos, funciones.size());
+		System.out.printf("ventas=%d fallidas=%d ventas/s=%.0f%n", resultado.ventas, resultado.fallidas,
+				resultado.ventas / (double) segundos);
+		if (latencias.length > 0) {
+			System.out.printf("reserva p50=%.2f ms p99=%.2f ms%n",
+					latencias[latencias.length / 2] / 1000.0,
+					latencias[Math.min(latencias.length - 1, (int) (latencias.length * 0.99))] / 1000.0);
+		}
+	}
+
+	private static class Resultado {
+		private long ventas;
+		private long fallidas;
+		private long[] latenciasMicros = new long[0];
+	}
+
+	private static Resultado ejecutar(HttpClient cliente, List<String> nodos, List<Long> funciones,
+									  int hilos, int segundos) throws Exception {
+		long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+		ExecutorService trabajadores = Executors.newFixedThreadPool(hilos);
+		List<Future<Resultado>> partes = new ArrayList<>();
+		for (int i = 0; i < hilos; i++) {
+			partes.add(trabajadores.submit(() -> vender(cliente, nodos, funciones, fin)));
+		}
+		Resultado total = new Resultado();
+		List<long[]> latencias = new ArrayList<>();
+		for (Future<Resultado> parte : partes) {
+			Resultado resultado = parte.get();
+			total.ventas += resultado.ventas;
+			total.fallidas += resultado.fallidas;
+			latencias.add(resultado.latenciasMicros);
+		}
+		trabajadores.shutdown();
+		total.latenciasMicros = latencias.stream().flatMapToLong(Arrays::stream).toArray();
+		return total;
+	}
+
+	private static Resultado vender(HttpClient cliente, List<String> nodos, List<Long> funciones, long fin) {
+		ObjectMapper mapper = new ObjectMapper();
+		ThreadLocalRandom azar = ThreadLocalRandom.current();
+		Resultado resultado = new Resultado();
+		long[] latencias = new long[1024];
+		int medidas = 0;
+		while (System.nanoTime() < fin) {
+			String entrada = nodos.get(azar.nextInt(nodos.size()));
+			long funcionId = funciones.get(azar.nextInt(funciones.size()));
+			try {
+				long inicio = System.nanoTime();
+				HttpResponse<String> reserva = cliente.send(HttpRequest.newBuilder(URI.create(
+								entrada + "/api/boletos/grupo?funcionId=" + funcionId + "&clienteId=1&cantidad=1"))
+						.POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+				long micros = (System.nanoTime() - inicio) / 1000;
+				if (reserva.statusCode() != 201) {
+					resultado.fallidas++;
+					continue;
+				}
+				resultado.ventas++;
+				if (medidas == latencias.length) {
+					latencias = Arrays.copyOf(latencias, medidas * 2);
+				}
+				latencias[medidas++] = micros;
+				long boletoId = mapper.readTree(reserva.body()).get(0).path("id").asLong();
+				cliente.send(HttpRequest.newBuilder(URI.create(entrada + "/api/boletos/" + boletoId + "/cancelar"))
+						.POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+			} catch (Exception e) {
+				resultado.fallidas++;
+			}
+		}
+		resultado.latenciasMicros = Arrays.copyOf(latencias, medidas);
+		return resultado;
+	}
+}
@@ -0,0 +1,66 @@
+package com.utp.cinerama.cinerama.controller;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.service.BoletoService;
+import com.utp.cinerama.cinerama.service.ContadorVersiones;
+import com.utp.cinerama.cinerama.service.MapaAsientos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoletoControllerTest {
+
+	private BoletoController controller;
+
+	@BeforeEach
+	void preparar() {
+		MapaAsientos mapa = new MapaAsientos(1L, 30);
+		Boleto boleto = new Boleto();
+		boleto.setId(1L);
+		boleto.setAsiento("A1");
+		mapa.ocupar("A1", boleto);
+
+		BoletoService boletoService = mock(BoletoService.class);
+		when(boletoService.obtenerVersionMapaAsientos(1L)).thenReturn(mapa.getVersion());
+		when(boletoService.obtenerMapaAsientos(1L)).thenReturn(mapa.foto());
+
+		controller = new BoletoController();
+		ReflectionTestUtils.setField(controller, "boletoService", boletoService);
+	}
+
+	@Test
+	void etagDelMapaIncluyeElArranque() {
+		ResponseEntity<?> respuesta = controller.obtenerMapaAsientos(1L, "binario", null);
+
+		assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+		String etag = respuesta.getHeaders().getETag();
+		assertTrue(etag.contains(ContadorVersiones.arranque()), etag);
+	}
+
+	@Test
+	void mismoEtagRespondeNoModificado() {
+		String etag = controller.obtenerMapaAsientos(1L, "binario", null).getHeaders().getETag();
+
+		ResponseEntity<?> respuesta = controller.obtenerMapaAsientos(1L, "binario", etag);
+
+		assertEquals(HttpStatus.NOT_MODIFIED, respuesta.getStatusCode());
+	}
+
+	@Test
+	void etagDeOtroArranqueConLaMismaVersionNoEsValido() {
+		String etag = controller.obtenerMapaAsientos(1L, "binario", null).getHeaders().getETag();
+		String deOtroArranque = etag.replace(ContadorVersiones.arranque(), "otroarranque");
+
+		// Tras un reinicio la versión vuelve a los mismos números; solo el arranque las distingue
+		ResponseEntity<?> respuesta = controller.obtenerMapaAsientos(1L, "binario", deOtroArranque);
+
+		assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+	}
+}
@@ -0,0 +1,40 @@
+package com.utp.cinerama.cinerama.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DisposicionAsientosTest {
+
+	@Test
+	void indiceRecorreLasFilasDeVeinteAsientos() {
+		assertEquals(0, DisposicionAsientos.indice("A1"));
+		assertEquals(19, DisposicionAsientos.indice("A20"));
+		assertEquals(20, DisposicionAsientos.indice("B1"));
+		assertEquals(2 * 20 + 6, DisposicionAsientos.indice("C7"));
+		assertEquals(DisposicionAsientos.CAPACIDAD_MAXIMA - 1, DisposicionAsientos.indice("Z20"));
+	}
+
+	@Test
+	void asientosFueraDeLaDisposicionDevuelvenMenosUno() {
+		for (String asiento : new String[]{null, "", "A", "A0", "A21", "a1", "[1", "A1x", "A-1", "A01", "A0001", "A99999999999"}) {
+			assertEquals(-1, DisposicionAsientos.indice(asiento), "asiento " + asiento);
+		}
+	}
+
+	@Test
+	void asientoEsLaInversaDeIndice() {
+		for (int i = 0; i < DisposicionAsientos.CAPACIDAD_MAXIMA; i++) {
+			assertEquals(i, DisposicionAsientos.indice(DisposicionAsientos.asiento(i)));
+		}
+	}
+
+	@Test
+	void filasParaRedondeaHaciaArribaYRespetaElMaximo() {
+		assertEquals(0, DisposicionAsientos.filasPara(0));
+		assertEquals(1, DisposicionAsientos.filasPara(1));
+		assertEquals(1, DisposicionAsientos.filasPara(20));
+		assertEquals(2, DisposicionAsientos.filasPara(21));
+		assertEquals(DisposicionAsientos.FILAS, DisposicionAsientos.filasPara(10_000));
+	}
+}
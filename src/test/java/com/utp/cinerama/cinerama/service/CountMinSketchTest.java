@@ -0,0 +1,65 @@
+package com.utp.cinerama.cinerama.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+	@Test
+	void nuncaSubestimaYLaSobreestimacionRespetaLaCota() {
+		CountMinSketch sketch = new CountMinSketch(4, 1024);
+		Map<String, Long> reales = new HashMap<>();
+		Random aleatorio = new Random(7);
+		for (int i = 0; i < 50_000; i++) {
+			// Distribución sesgada: unos pocos elementos concentran la mayoría de las apariciones
+			String elemento = "pelicula-" + (int) Math.pow(aleatorio.nextInt(2_000), 2) / 2_000;
+			sketch.agregar(elemento, 1);
+			reales.merge(elemento, 1L, Long::sum);
+		}
+
+		double cota = sketch.getTotal() * Math.E / 1024;
+		int fueraDeCota = 0;
+		for (Map.Entry<String, Long> real : reales.entrySet()) {
+			long estimado = sketch.estimar(real.getKey());
+			assertTrue(estimado >= real.getValue(), real.getKey());
+			if (estimado - real.getValue() > cota) {
+				fueraDeCota++;
+			}
+		}
+		// Con profundidad 4 la cota falla con probabilidad e^-4 (menos del 2%) por elemento
+		assertTrue(fueraDeCota <= reales.size() * 0.02, fueraDeCota + " de " + reales.size());
+		assertEquals(50_000, sketch.getTotal());
+	}
+
+	@Test
+	void unElementoNoVistoEnUnSketchVacioEstimaCero() {
+		assertEquals(0, new CountMinSketch(4, 256).estimar("nada"));
+	}
+
+	@Test
+	void combinarSumaLosContadores() {
+		CountMinSketch a = new CountMinSketch(4, 256);
+		CountMinSketch b = new CountMinSketch(4, 256);
+		a.agregar("Dune", 3);
+		b.agregar("Dune", 5);
+		b.agregar("Coco", 2);
+		a.combinar(b);
+		assertEquals(8, a.estimar("Dune"));
+		assertEquals(2, a.estimar("Coco"));
+		assertEquals(10, a.getTotal());
+	}
+
+	@Test
+	void rechazaAnchosQueNoSonPotenciaDeDosYCombinarDistintos() {
+		assertThrows(RuntimeException.class, () -> new CountMinSketch(4, 1000));
+		assertThrows(RuntimeException.class, () -> new CountMinSketch(4, 256).combinar(new CountMinSketch(5, 256)));
+		assertThrows(RuntimeException.class, () -> new CountMinSketch(4, 256).combinar(new CountMinSketch(4, 512)));
+	}
+}
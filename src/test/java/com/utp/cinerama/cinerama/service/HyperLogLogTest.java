@@ -0,0 +1,71 @@
+package com.utp.cinerama.cinerama.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+	private static void assertCerca(long esperado, long estimado, double tolerancia) {
+		double error = Math.abs(estimado - esperado) / (double) esperado;
+		assertTrue(error <= tolerancia, "estimado " + estimado + " para " + esperado + " (error " + error + ")");
+	}
+
+	@Test
+	void vacioEstimaCero() {
+		assertEquals(0, new HyperLogLog(12).estimar());
+	}
+
+	@Test
+	void losRepetidosNoCuentan() {
+		HyperLogLog hll = new HyperLogLog(12);
+		for (int vuelta = 0; vuelta < 50; vuelta++) {
+			for (long id = 1; id <= 100; id++) {
+				hll.agregar(id);
+			}
+		}
+		assertCerca(100, hll.estimar(), 0.02);
+	}
+
+	@Test
+	void conMuchosElementosElErrorQuedaDentroDeTresDesviaciones() {
+		HyperLogLog hll = new HyperLogLog(12);
+		for (long id = 1; id <= 200_000; id++) {
+			hll.agregar(id);
+		}
+		// Error típico 1.04 / sqrt(4096) = 1.6%
+		assertCerca(200_000, hll.estimar(), 3 * 0.0163);
+	}
+
+	@Test
+	void combinarEstimaLaUnion() {
+		HyperLogLog a = new HyperLogLog(12);
+		HyperLogLog b = new HyperLogLog(12);
+		for (long id = 0; id < 30_000; id++) {
+			a.agregar(id);
+		}
+		for (long id = 20_000; id < 50_000; id++) {
+			b.agregar(id);
+		}
+		a.combinar(b);
+		assertCerca(50_000, a.estimar(), 3 * 0.0163);
+	}
+
+	@Test
+	void valoresQueSoloDifierenEnLosBitsAltosSeCuentanAparte() {
+		HyperLogLog hll = new HyperLogLog(10);
+		for (long i = 0; i < 1000; i++) {
+			hll.agregar(i << 40);
+		}
+		assertCerca(1000, hll.estimar(), 0.1);
+	}
+
+	@Test
+	void rechazaPrecisionesFueraDeRangoYCombinarDistintas() {
+		assertThrows(RuntimeException.class, () -> new HyperLogLog(3));
+		assertThrows(RuntimeException.class, () -> new HyperLogLog(19));
+		assertThrows(RuntimeException.class, () -> new HyperLogLog(12).combinar(new HyperLogLog(14)));
+	}
+}
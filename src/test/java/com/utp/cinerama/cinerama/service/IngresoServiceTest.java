@@ -0,0 +1,127 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
+import com.utp.cinerama.cinerama.model.Funcion;
+import com.utp.cinerama.cinerama.model.ResultadoIngreso.Veredicto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngresoServiceTest {
+
+	private BoletoService boletoService;
+	private FuncionService funcionService;
+	private TopologiaCluster topologiaCluster;
+	private Boleto boleto;
+
+	@BeforeEach
+	void preparar() {
+		Funcion funcion = new Funcion();
+		funcion.setId(1L);
+		boleto = new Boleto();
+		boleto.setId(25L);
+		boleto.setFuncion(funcion);
+		boleto.setAsiento("C7");
+		boleto.setEstado(EstadoBoleto.PAGADO);
+
+		boletoService = mock(BoletoService.class);
+		when(boletoService.obtenerBoletoPorId(anyLong())).thenReturn(Optional.empty());
+		when(boletoService.obtenerBoletoPorId(25L)).thenReturn(Optional.of(boleto));
+		when(boletoService.buscarPorFuncion(1L)).thenReturn(List.of(boleto));
+		when(boletoService.buscarPorFuncion(2L)).thenReturn(List.of());
+		when(boletoService.marcarBoletoComoUsado(25L)).thenReturn(true);
+		funcionService = mock(FuncionService.class);
+		when(funcionService.obtenerFuncionPorId(anyLong())).thenReturn(Optional.of(funcion));
+		topologiaCluster = mock(TopologiaCluster.class);
+	}
+
+	private IngresoService ingreso(String clave) {
+		IngresoService ingreso = new IngresoService();
+		ReflectionTestUtils.setField(ingreso, "boletoService", boletoService);
+		ReflectionTestUtils.setField(ingreso, "funcionService", funcionService);
+		ReflectionTestUtils.setField(ingreso, "topologiaCluster", topologiaCluster);
+		ReflectionTestUtils.setField(ingreso, "claveConfigurada", clave);
+		ReflectionTestUtils.setField(ingreso, "anticipacionMinutos", 120L);
+		ReflectionTestUtils.setField(ingreso, "retencionMinutos", 240L);
+		ingreso.iniciar();
+		ingreso.detener(); // Sin la precarga periódica: cada prueba decide qué tablas existen
+		return ingreso;
+	}
+
+	private static Veredicto escanear(IngresoService ingreso, Long funcionId, String codigo) {
+		return ingreso.registrarIngreso(funcionId, codigo).getVeredicto();
+	}
+
+	@Test
+	void elCodigoFirmadoAdmiteUnaVezYLuegoEsDuplicado() {
+		IngresoService ingreso = ingreso("clave");
+		String codigo = ingreso.codigoDe(25L);
+		assertTrue(codigo.startsWith("CIN1.1.25."));
+
+		assertEquals(Veredicto.ADMITIDO, escanear(ingreso, 1L, codigo));
+		assertEquals(Veredicto.DUPLICADO, escanear(ingreso, 1L, codigo));
+		assertEquals(Veredicto.DUPLICADO, escanear(ingreso, 1L, " 25 "));
+		verify(boletoService, times(1)).marcarBoletoComoUsado(25L);
+	}
+
+	@Test
+	void unaFirmaAlteradaOUnCodigoMalFormadoSeRechazan() {
+		IngresoService ingreso = ingreso("clave");
+		String codigo = ingreso.codigoDe(25L);
+		String firma = codigo.substring(codigo.lastIndexOf('.') + 1);
+		char ultimo = firma.charAt(firma.length() - 1);
+		String base64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		// El último carácter de 16 bytes en Base64 lleva 4 bits que el decodificador descarta
+		char mismoValor = base64.charAt(base64.indexOf(ultimo) ^ 1);
+
+		for (String invalido : new String[]{
+				codigo.substring(0, codigo.length() - 1) + mismoValor,
+				"CIN1.1.26." + firma,                 // Otro boleto con la firma del 25
+				"CIN1.01.25." + firma,                // Los mismos números escritos de otra forma
+				"CIN2.1.25." + firma,
+				codigo + ".extra",
+				"CIN1.1.25",
+				"CIN1.1.x." + firma,
+				"", "   ", null, "25a", "99999999999999999999"}) {
+			assertEquals(Veredicto.CODIGO_INVALIDO, escanear(ingreso, 1L, invalido), "código " + invalido);
+		}
+		verify(boletoService, times(0)).marcarBoletoComoUsado(25L);
+	}
+
+	@Test
+	void soloOtroNodoConLaMismaClaveReconoceElCodigo() {
+		String codigo = ingreso("clave-compartida").codigoDe(25L);
+		assertEquals(Veredicto.CODIGO_INVALIDO, escanear(ingreso("otra-clave"), 1L, codigo));
+		assertEquals(Veredicto.CODIGO_INVALIDO, escanear(ingreso(""), 1L, codigo));
+		assertEquals(Veredicto.ADMITIDO, escanear(ingreso("clave-compartida"), 1L, codigo));
+	}
+
+	@Test
+	void unBoletoDeOtraFuncionNoEntraNiSeMarcaComoUsado() {
+		IngresoService ingreso = ingreso("clave");
+		assertEquals(Veredicto.OTRA_FUNCION, escanear(ingreso, 2L, ingreso.codigoDe(25L)));
+		assertEquals(Veredicto.OTRA_FUNCION, escanear(ingreso, 2L, "25"));
+		assertEquals(Veredicto.NO_ENCONTRADO, escanear(ingreso, 1L, "404"));
+		verify(boletoService, times(0)).marcarBoletoComoUsado(25L);
+	}
+
+	@Test
+	void conElClusterHabilitadoLaClaveEsObligatoria() {
+		when(topologiaCluster.estaHabilitado()).thenReturn(true);
+		assertThrows(RuntimeException.class, () -> ingreso(" "));
+		ingreso("clave");
+	}
+}
@@ -0,0 +1,123 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.EstadisticasLimite;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorTasaServiceTest {
+
+	private static LimitadorTasaService limitador(String... reglas) {
+		LimitadorTasaService limitador = new LimitadorTasaService();
+		ReflectionTestUtils.setField(limitador, "habilitado", true);
+		ReflectionTestUtils.setField(limitador, "reglasConfiguradas", reglas);
+		ReflectionTestUtils.setField(limitador, "maxCubetas", 1000L);
+		ReflectionTestUtils.setField(limitador, "inactividadSegundos", 300L);
+		limitador.iniciar();
+		return limitador;
+	}
+
+	@Test
+	void permiteLaRafagaYDespuesPideEsperarUnIntervalo() {
+		// Una ficha por segundo: los tiempos de la prueba son despreciables frente al intervalo
+		LimitadorTasaService limitador = limitador("reservas=POST /api/boletos/** 1 3");
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limitador.esperaParaPermitir("POST", "/api/boletos/grupo", "10.0.0.1"));
+		}
+		long espera = limitador.esperaParaPermitir("POST", "/api/boletos/grupo", "10.0.0.1");
+		assertTrue(espera > 900_000_000L && espera <= 1_000_000_000L, "espera " + espera);
+
+		EstadisticasLimite.Regla regla = limitador.obtenerEstadisticas().getReglas().get(0);
+		assertEquals(3, regla.getPermitidas());
+		assertEquals(1, regla.getRechazadas());
+	}
+
+	@Test
+	void cadaClienteYCadaReglaTienenSuPropiaCubeta() {
+		LimitadorTasaService limitador = limitador(
+				"reservas=POST /api/boletos 1 1",
+				"lecturas=GET /api/** 1 1");
+		assertEquals(0, limitador.esperaParaPermitir("POST", "/api/boletos", "a"));
+		assertTrue(limitador.esperaParaPermitir("POST", "/api/boletos", "a") > 0);
+		assertEquals(0, limitador.esperaParaPermitir("POST", "/api/boletos", "b"));
+		assertEquals(0, limitador.esperaParaPermitir("GET", "/api/boletos", "a"));
+	}
+
+	@Test
+	void seAplicaLaPrimeraReglaQueCoincideYSinReglaNoSeLimita() {
+		LimitadorTasaService limitador = limitador(
+				"asientos=GET /api/boletos/funcion/*/asiento/* 1 1",
+				"todo=* /api/** 1 5");
+		assertEquals(0, limitador.esperaParaPermitir("get", "/api/boletos/funcion/3/asiento/A1", "a"));
+		assertTrue(limitador.esperaParaPermitir("GET", "/api/boletos/funcion/3/asiento/A2", "a") > 0);
+		// La regla general sigue con su ráfaga entera para el mismo cliente
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, limitador.esperaParaPermitir("DELETE", "/api/boletos/9", "a"));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, limitador.esperaParaPermitir("GET", "/actuator/health", "a"));
+		}
+	}
+
+	@Test
+	void conVariosHilosNuncaSePermiteMasQueLaRafaga() throws InterruptedException {
+		LimitadorTasaService limitador = limitador("reservas=POST /api/boletos 0.01 50");
+		AtomicInteger permitidas = new AtomicInteger();
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Thread> hilos = new ArrayList<>();
+		for (int h = 0; h < 8; h++) {
+			Thread hilo = new Thread(() -> {
+				try {
+					largada.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 100; i++) {
+					if (limitador.esperaParaPermitir("POST", "/api/boletos", "mismo") == 0) {
+						permitidas.incrementAndGet();
+					}
+				}
+			});
+			hilo.start();
+			hilos.add(hilo);
+		}
+		largada.countDown();
+		for (Thread hilo : hilos) {
+			hilo.join();
+		}
+		assertEquals(50, permitidas.get());
+	}
+
+	@Test
+	void recargarReemplazaLasReglasYVaciaLasCubetas() {
+		LimitadorTasaService limitador = limitador("reservas=POST /api/boletos 1 1");
+		assertEquals(0, limitador.esperaParaPermitir("POST", "/api/boletos", "a"));
+		assertTrue(limitador.esperaParaPermitir("POST", "/api/boletos", "a") > 0);
+
+		limitador.recargarReglas(List.of("reservas=POST /api/boletos 1 2"));
+		assertEquals(0, limitador.esperaParaPermitir("POST", "/api/boletos", "a"));
+		assertEquals(0, limitador.esperaParaPermitir("POST", "/api/boletos", "a"));
+		assertEquals(2, limitador.obtenerEstadisticas().getReglas().get(0).getRafaga());
+	}
+
+	@Test
+	void unaRecargaConUnaReglaInvalidaNoCambiaNada() {
+		LimitadorTasaService limitador = limitador("reservas=POST /api/boletos 1 1");
+		for (String invalida : new String[]{"sin-igual POST /x 1 1", "=POST /x 1 1", "x=POST /x 1", "x=POST /x uno 1",
+				"x=POST /x 0 1", "x=POST /x 1 0", "x=POST /x 1e-12 2"}) {
+			assertThrows(RuntimeException.class,
+					() -> limitador.recargarReglas(List.of("otra=GET /api/** 5 5", invalida)), invalida);
+		}
+		List<EstadisticasLimite.Regla> reglas = limitador.obtenerEstadisticas().getReglas();
+		assertEquals(1, reglas.size());
+		assertEquals("reservas", reglas.get(0).getNombre());
+	}
+}
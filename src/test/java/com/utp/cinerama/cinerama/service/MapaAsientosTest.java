@@ -0,0 +1,83 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.DisposicionAsientos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapaAsientosTest {
+
+	private static Boleto boleto(long id, String asiento) {
+		Boleto boleto = new Boleto();
+		boleto.setId(id);
+		boleto.setAsiento(asiento);
+		return boleto;
+	}
+
+	@Test
+	void bitmapUsaUnBitPorAsientoEmpezandoPorElMenosSignificativo() {
+		MapaAsientos mapa = new MapaAsientos(1L, 30);
+		mapa.ocupar("A1", boleto(1, "A1"));
+		mapa.ocupar("A10", boleto(2, "A10"));
+		mapa.ocupar("B10", boleto(3, "B10"));
+
+		byte[] bitmap = mapa.bitmap();
+		assertEquals(4, bitmap.length); // 30 asientos -> 4 bytes aunque los últimos estén libres
+		assertEquals(0b0000_0001, bitmap[0]);
+		assertEquals(0b0000_0010, bitmap[1]); // A10 = índice 9
+		assertEquals(0b0010_0000, bitmap[3]); // B10 = índice 29
+		assertEquals(List.of("A1", "A10", "B10"), mapa.asientosOcupados());
+	}
+
+	@Test
+	void cadaCambioSubeLaVersionYLaFotoSeReutilizaMientrasNoCambie() {
+		MapaAsientos mapa = new MapaAsientos(1L, 40);
+		Boleto boleto = boleto(1, "B3");
+
+		assertEquals(1, mapa.ocupar("B3", boleto));
+		MapaAsientos.Foto foto = mapa.foto();
+		assertSame(foto, mapa.foto());
+		assertEquals(1, foto.getVersion());
+		assertArrayEquals(foto.getBitmap(), Base64.getDecoder().decode(foto.getBitmapBase64()));
+
+		assertTrue(mapa.liberar("B3", boleto));
+		assertEquals(2, mapa.getVersion());
+		MapaAsientos.Foto nueva = mapa.foto();
+		assertNotSame(foto, nueva);
+		assertEquals(0, nueva.getBitmap()[2] & 0b0000_0100);
+	}
+
+	@Test
+	void liberarSoloQuitaElAsientoSiSigueSiendoDelMismoBoleto() {
+		MapaAsientos mapa = new MapaAsientos(1L, 20);
+		Boleto anterior = boleto(1, "A5");
+		Boleto actual = boleto(2, "A5");
+		mapa.ocupar("A5", anterior);
+		mapa.ocupar("A5", actual);
+
+		assertFalse(mapa.liberar("A5", anterior));
+		assertEquals(2, mapa.getVersion());
+		assertTrue(mapa.estaOcupado("A5"));
+		assertSame(actual, mapa.boletoEn("A5").orElseThrow());
+		assertTrue(mapa.liberar("A5", actual));
+		assertFalse(mapa.estaOcupado(DisposicionAsientos.indice("A5")));
+	}
+
+	@Test
+	void laCapacidadNoPasaDeLaDisposicion() {
+		MapaAsientos mapa = new MapaAsientos(1L, 10_000);
+		assertEquals(DisposicionAsientos.CAPACIDAD_MAXIMA, mapa.getCapacidad());
+		assertEquals(DisposicionAsientos.CAPACIDAD_MAXIMA / 8, mapa.bitmap().length);
+		assertTrue(mapa.existeAsiento("Z20"));
+		assertFalse(new MapaAsientos(1L, 25).existeAsiento("B6"));
+	}
+}
@@ -0,0 +1,128 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
+import com.utp.cinerama.cinerama.model.Pago;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PagoServiceTest {
+
+	// Aprueba todo y anota cada anulación que recibe
+	private static class PasarelaAprobadora implements PasarelaPago {
+		private final List<String> anuladas = new CopyOnWriteArrayList<>();
+
+		@Override
+		public Resultado autorizar(Pago pago) {
+			return Resultado.aprobado("AUT-" + pago.getId());
+		}
+
+		@Override
+		public void anular(Pago pago, String codigoAutorizacion) {
+			anuladas.add(codigoAutorizacion);
+		}
+	}
+
+	private BoletoService boletoService;
+	private PasarelaAprobadora pasarela;
+	private PagoService pagoService;
+
+	@BeforeEach
+	void preparar() {
+		Boleto boleto = new Boleto();
+		boleto.setId(7L);
+		boleto.setPrecio(new BigDecimal("15.00"));
+		boleto.setEstado(EstadoBoleto.RESERVADO);
+		boletoService = mock(BoletoService.class);
+		when(boletoService.obtenerBoletoPorId(7L)).thenReturn(Optional.of(boleto));
+
+		TopologiaCluster topologia = mock(TopologiaCluster.class);
+		when(topologia.siguienteId(any())).thenAnswer(inv -> inv.<AtomicLong>getArgument(0).getAndIncrement());
+
+		pasarela = new PasarelaAprobadora();
+		pagoService = new PagoService();
+		ReflectionTestUtils.setField(pagoService, "boletoService", boletoService);
+		ReflectionTestUtils.setField(pagoService, "pasarelaPago", pasarela);
+		ReflectionTestUtils.setField(pagoService, "topologiaCluster", topologia);
+		ReflectionTestUtils.setField(pagoService, "resumenVentasService", mock(ResumenVentasService.class));
+		ReflectionTestUtils.setField(pagoService, "almacenAnaliticoService", mock(AlmacenAnaliticoService.class));
+		ReflectionTestUtils.setField(pagoService, "trabajadores", 1);
+		ReflectionTestUtils.setField(pagoService, "capacidadCola", 10);
+		ReflectionTestUtils.setField(pagoService, "intentosAnulacion", 1);
+		pagoService.iniciarProcesadores();
+	}
+
+	@AfterEach
+	void detener() {
+		pagoService.detenerProcesadores();
+	}
+
+	private Pago pagar() throws Exception {
+		Pago pago = pagoService.crearPagoParaBoletos(List.of(7L), null, Pago.MetodoPago.APP_YAPE, null);
+		pagoService.procesarPagoApp(pago.getId());
+		return pagoService.resultadoDe(pago.getId()).get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void confirmacionCorrectaCompletaSinAnular() throws Exception {
+		when(boletoService.confirmarPagoBoletos(List.of(7L))).thenReturn(true);
+
+		Pago pago = pagar();
+
+		assertEquals(Pago.EstadoPago.COMPLETADO, pago.getEstado());
+		assertEquals("AUT-" + pago.getId(), pago.getCodigoAutorizacion());
+		assertTrue(pasarela.anuladas.isEmpty());
+	}
+
+	@Test
+	void boletosYaNoReservadosAnulanLaAutorizacion() throws Exception {
+		when(boletoService.confirmarPagoBoletos(List.of(7L))).thenReturn(false);
+
+		Pago pago = pagar();
+
+		assertEquals(Pago.EstadoPago.RECHAZADO, pago.getEstado());
+		assertEquals(List.of("AUT-" + pago.getId()), pasarela.anuladas);
+		assertTrue(pago.getMotivoRechazo().endsWith("la autorización fue anulada"), pago.getMotivoRechazo());
+	}
+
+	@Test
+	void excepcionAlConfirmarTambienAnulaLaAutorizacion() throws Exception {
+		when(boletoService.confirmarPagoBoletos(List.of(7L))).thenThrow(new RuntimeException("Boleto no encontrado: 7"));
+
+		Pago pago = pagar();
+
+		assertEquals(Pago.EstadoPago.RECHAZADO, pago.getEstado());
+		assertEquals(List.of("AUT-" + pago.getId()), pasarela.anuladas);
+		assertTrue(pago.getMotivoRechazo().contains("Boleto no encontrado: 7"), pago.getMotivoRechazo());
+		assertTrue(pago.getMotivoRechazo().endsWith("la autorización fue anulada"), pago.getMotivoRechazo());
+	}
+
+	@Test
+	void falloEnLosResumenesNoAnulaUnPagoYaConfirmado() throws Exception {
+		when(boletoService.confirmarPagoBoletos(List.of(7L))).thenReturn(true);
+		ResumenVentasService resumen = mock(ResumenVentasService.class);
+		doThrow(new RuntimeException("resumen caído")).when(resumen).registrarPago(any(), any());
+		ReflectionTestUtils.setField(pagoService, "resumenVentasService", resumen);
+
+		Pago pago = pagar();
+
+		assertEquals(Pago.EstadoPago.COMPLETADO, pago.getEstado());
+		assertTrue(pasarela.anuladas.isEmpty());
+	}
+}
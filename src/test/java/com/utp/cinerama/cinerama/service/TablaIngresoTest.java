@@ -0,0 +1,127 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.Boleto;
+import com.utp.cinerama.cinerama.model.Boleto.EstadoBoleto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablaIngresoTest {
+
+	private static Boleto boleto(long id, String asiento, EstadoBoleto estado) {
+		Boleto boleto = new Boleto();
+		boleto.setId(id);
+		boleto.setAsiento(asiento);
+		boleto.setEstado(estado);
+		return boleto;
+	}
+
+	private static TablaIngreso tabla() {
+		// Desordenados a propósito: la tabla ordena por id para la búsqueda binaria
+		return TablaIngreso.de(1L, List.of(
+				boleto(30, "C1", EstadoBoleto.PAGADO),
+				boleto(10, "A1", EstadoBoleto.PAGADO),
+				boleto(20, "B1", EstadoBoleto.RESERVADO),
+				boleto(40, "D1", EstadoBoleto.CANCELADO)), null);
+	}
+
+	@Test
+	void buscaPorIdYConservaElAsientoYElEstadoDeCadaBoleto() {
+		TablaIngreso tabla = tabla();
+		assertEquals(4, tabla.tamano());
+		assertEquals("A1", tabla.asiento(tabla.posicion(10)));
+		assertEquals("C1", tabla.asiento(tabla.posicion(30)));
+		assertEquals(EstadoBoleto.RESERVADO, tabla.estado(tabla.posicion(20)));
+		assertTrue(tabla.posicion(25) < 0);
+		assertEquals(2, tabla.contar(EstadoBoleto.PAGADO));
+	}
+
+	@Test
+	void soloSeAdmiteUnBoletoPagadoYUnaSolaVez() {
+		TablaIngreso tabla = tabla();
+		assertTrue(tabla.admitir(tabla.posicion(10), 1_000));
+		assertFalse(tabla.admitir(tabla.posicion(10), 2_000));
+		assertEquals(1_000, tabla.ingreso(tabla.posicion(10)));
+		assertEquals(EstadoBoleto.USADO, tabla.estado(tabla.posicion(10)));
+
+		assertFalse(tabla.admitir(tabla.posicion(20), 1_000));
+		assertFalse(tabla.admitir(tabla.posicion(40), 1_000));
+	}
+
+	@Test
+	void conVariosLectoresALaVezElMismoBoletoEntraUnaSolaVez() throws InterruptedException {
+		TablaIngreso tabla = tabla();
+		int posicion = tabla.posicion(30);
+		AtomicInteger admitidos = new AtomicInteger();
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Thread> lectores = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			long instante = i + 1;
+			Thread lector = new Thread(() -> {
+				try {
+					largada.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (tabla.admitir(posicion, instante)) {
+					admitidos.incrementAndGet();
+				}
+			});
+			lector.start();
+			lectores.add(lector);
+		}
+		largada.countDown();
+		for (Thread lector : lectores) {
+			lector.join();
+		}
+		assertEquals(1, admitidos.get());
+		assertTrue(tabla.ingreso(posicion) > 0);
+	}
+
+	@Test
+	void unBoletoRetiradoDejaDeEncontrarse() {
+		TablaIngreso tabla = tabla();
+		tabla.retirar(10);
+		tabla.retirar(99); // No está: no pasa nada
+		assertTrue(tabla.posicion(10) < 0);
+		assertEquals(1, tabla.contar(EstadoBoleto.PAGADO));
+	}
+
+	@Test
+	void sincronizarCopiaElEstadoYSoloMarcaElIngresoAlPasarAUsado() {
+		TablaIngreso tabla = tabla();
+		int posicion = tabla.posicion(20);
+		tabla.sincronizar(posicion, EstadoBoleto.PAGADO);
+		assertEquals(0, tabla.ingreso(posicion));
+		assertTrue(tabla.admitir(posicion, 5_000));
+
+		tabla.sincronizar(posicion, EstadoBoleto.USADO);
+		assertEquals(5_000, tabla.ingreso(posicion)); // No se pisa el instante real
+
+		tabla.sincronizar(posicion, EstadoBoleto.CANCELADO);
+		assertEquals(0, tabla.ingreso(posicion));
+		assertEquals(EstadoBoleto.CANCELADO, tabla.estado(posicion));
+	}
+
+	@Test
+	void alRearmarLaTablaSeConservanLosIngresosYLosContadores() {
+		TablaIngreso anterior = tabla();
+		anterior.admitir(anterior.posicion(10), 7_000);
+		anterior.contadores().admitidos.increment();
+
+		Boleto usado = boleto(10, "A1", EstadoBoleto.USADO);
+		TablaIngreso nueva = TablaIngreso.de(1L, List.of(usado, boleto(15, "A2", EstadoBoleto.PAGADO)), anterior);
+		assertEquals(7_000, nueva.ingreso(nueva.posicion(10)));
+		assertEquals(0, nueva.ingreso(nueva.posicion(15)));
+		assertSame(anterior.contadores(), nueva.contadores());
+		assertEquals(1, nueva.contadores().admitidos.sum());
+	}
+}
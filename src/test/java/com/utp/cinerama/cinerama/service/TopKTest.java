@@ -0,0 +1,67 @@
+package com.utp.cinerama.cinerama.service;
+
+import com.utp.cinerama.cinerama.model.ConteoEstimado;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKTest {
+
+	private static List<String> valores(List<ConteoEstimado> conteos) {
+		return conteos.stream().map(ConteoEstimado::getValor).collect(Collectors.toList());
+	}
+
+	@Test
+	void losMasFrecuentesDesplazanALosDemasAunqueLleguenTarde() {
+		TopK top = new TopK(3, 4, 1024);
+		for (int i = 0; i < 200; i++) {
+			top.agregar("poco-" + i, 1);
+		}
+		top.agregar("Dune", 50);
+		top.agregar("Coco", 30);
+		top.agregar("Up", 10);
+
+		List<ConteoEstimado> primeros = top.primeros(3);
+		assertEquals(List.of("Dune", "Coco", "Up"), valores(primeros));
+		assertEquals(50, primeros.get(0).getCantidad());
+	}
+
+	@Test
+	void unCandidatoQueVuelveASumarSeActualizaSinDuplicarse() {
+		TopK top = new TopK(2, 4, 1024);
+		top.agregar("Dune", 1);
+		top.agregar("Coco", 2);
+		top.agregar("Dune", 5);
+
+		List<ConteoEstimado> primeros = top.primeros(10);
+		assertEquals(List.of("Dune", "Coco"), valores(primeros));
+		assertEquals(6, primeros.get(0).getCantidad());
+	}
+
+	@Test
+	void aIgualCantidadOrdenaPorValor() {
+		TopK top = new TopK(5, 4, 1024);
+		top.agregar("b", 2);
+		top.agregar("c", 2);
+		top.agregar("a", 2);
+		assertEquals(List.of("a", "b"), valores(top.primeros(2)));
+	}
+
+	@Test
+	void combinarReevaluaLosCandidatosDeAmbos() {
+		TopK lunes = new TopK(2, 4, 1024);
+		TopK martes = new TopK(2, 4, 1024);
+		lunes.agregar("Dune", 10);
+		lunes.agregar("Coco", 8);
+		martes.agregar("Up", 9);
+		martes.agregar("Coco", 4);
+
+		lunes.combinar(martes);
+		List<ConteoEstimado> primeros = lunes.primeros(2);
+		assertEquals(List.of("Coco", "Dune"), valores(primeros));
+		assertEquals(12, primeros.get(0).getCantidad());
+	}
+}
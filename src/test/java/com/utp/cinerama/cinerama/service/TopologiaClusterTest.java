@@ -0,0 +1,152 @@
+package com.utp.cinerama.cinerama.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopologiaClusterTest {
+
+	private static final String NODO_A = "http://cine-a:8080";
+	private static final String NODO_B = "http://cine-b:8080";
+	private static final String NODO_C = "http://cine-c:8080";
+	private static final String NODO_D = "http://cine-d:8080";
+
+	private static TopologiaCluster topologiaConSecreto(String secreto, String actual, String... nodos) {
+		TopologiaCluster topologia = new TopologiaCluster();
+		ReflectionTestUtils.setField(topologia, "habilitado", true);
+		ReflectionTestUtils.setField(topologia, "nodosConfigurados", nodos);
+		ReflectionTestUtils.setField(topologia, "nodoActual", actual);
+		ReflectionTestUtils.setField(topologia, "nodosVirtuales", 160);
+		ReflectionTestUtils.setField(topologia, "secreto", secreto);
+		topologia.iniciar();
+		return topologia;
+	}
+
+	private static TopologiaCluster topologia(String actual, String... nodos) {
+		return topologiaConSecreto("s3creto", actual, nodos);
+	}
+
+	@Test
+	void deshabilitadoTodoEsLocalYLosIdsSonElContador() {
+		TopologiaCluster topologia = new TopologiaCluster();
+		ReflectionTestUtils.setField(topologia, "habilitado", false);
+		ReflectionTestUtils.setField(topologia, "nodoActual", "");
+		topologia.iniciar();
+
+		AtomicLong contador = new AtomicLong(5);
+		assertEquals(5, topologia.siguienteId(contador));
+		assertEquals(6, topologia.secuenciaDeId(6));
+		assertTrue(topologia.esFuncionLocal(42));
+		assertEquals(1, topologia.cantidadNodos());
+		assertFalse(topologia.esReenvioAutentico(NODO_A, "GET", "/api/boletos", null, "1.x"));
+	}
+
+	@Test
+	void lasFuncionesSeRepartenEntreTodosLosNodosYTodosCoincidenEnElDueno() {
+		TopologiaCluster a = topologia(NODO_A, NODO_A, NODO_B, NODO_C);
+		TopologiaCluster b = topologia(NODO_B + "/", NODO_C, " " + NODO_A, NODO_B + "/");
+
+		Map<String, Integer> porNodo = new HashMap<>();
+		for (long funcionId = 1; funcionId <= 30_000; funcionId++) {
+			String dueno = a.nodoDeFuncion(funcionId);
+			assertEquals(dueno, b.nodoDeFuncion(funcionId), "función " + funcionId);
+			porNodo.merge(dueno, 1, Integer::sum);
+		}
+		assertEquals(3, porNodo.size());
+		porNodo.forEach((nodo, funciones) ->
+				assertTrue(funciones > 30_000 * 0.2 && funciones < 30_000 * 0.47, nodo + " tiene " + funciones));
+	}
+
+	@Test
+	void agregarUnNodoSoloLeMueveFuncionesAlNuevo() {
+		TopologiaCluster antes = topologia(NODO_A, NODO_A, NODO_B, NODO_C);
+		TopologiaCluster despues = topologia(NODO_A, NODO_A, NODO_B, NODO_C, NODO_D);
+
+		int movidas = 0;
+		for (long funcionId = 1; funcionId <= 20_000; funcionId++) {
+			String anterior = antes.nodoDeFuncion(funcionId);
+			String nuevo = despues.nodoDeFuncion(funcionId);
+			if (!anterior.equals(nuevo)) {
+				assertEquals(NODO_D, nuevo);
+				movidas++;
+			}
+		}
+		// Lo esperado es ~1/4
+		assertTrue(movidas > 20_000 * 0.15 && movidas < 20_000 * 0.35, movidas + " funciones movidas");
+	}
+
+	@Test
+	void elIdLlevaElCodigoDelNodoYSigueSiendoSuyoAunqueCambieLaLista() {
+		TopologiaCluster b = topologia(NODO_B, NODO_A, NODO_B, NODO_C);
+		AtomicLong contador = new AtomicLong(1);
+		long id = b.siguienteId(contador);
+		long otro = b.siguienteId(contador);
+
+		assertEquals(TopologiaCluster.codigoDeNodo(NODO_B), id >>> 40);
+		assertEquals(1, b.secuenciaDeId(id));
+		assertEquals(2, b.secuenciaDeId(otro));
+		assertTrue(id < (1L << 53), "el id debe caber en un double sin perder precisión");
+
+		// Otro orden y un nodo más: el creador del id no cambia
+		TopologiaCluster d = topologia(NODO_D, NODO_D, NODO_C, NODO_B, NODO_A);
+		assertEquals(NODO_B, b.nodoDeId(id));
+		assertEquals(NODO_B, d.nodoDeId(id));
+		// Un id sin código (de antes del cluster) se busca en el nodo que lo recibe
+		assertEquals(NODO_D, d.nodoDeId(7));
+	}
+
+	@Test
+	void elCodigoDeNodoNuncaEsCeroNiPasaDeTreceBits() {
+		for (int puerto = 1; puerto <= 5_000; puerto++) {
+			long codigo = TopologiaCluster.codigoDeNodo("http://localhost:" + puerto);
+			assertTrue(codigo >= 1 && codigo < (1 << 13), "código " + codigo);
+		}
+	}
+
+	@Test
+	void rechazaUnaConfiguracionIncompleta() {
+		assertThrows(RuntimeException.class, () -> topologia("http://otro:8080", NODO_A, NODO_B));
+		assertThrows(RuntimeException.class, () -> topologiaConSecreto("", NODO_A, NODO_A, NODO_B));
+	}
+
+	@Test
+	void laFirmaDeReenvioSoloValeParaLaMismaPeticionYElMismoSecreto() {
+		TopologiaCluster a = topologia(NODO_A, NODO_A, NODO_B);
+		TopologiaCluster b = topologia(NODO_B, NODO_A, NODO_B);
+		TopologiaCluster intruso = topologiaConSecreto("otro-secreto", NODO_A, NODO_A, NODO_B);
+
+		String firma = a.firmarReenvio("POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7");
+		assertTrue(b.esReenvioAutentico(NODO_A, "POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7", firma));
+		assertTrue(b.esReenvioAutentico(NODO_A + "/", "POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7", firma));
+
+		assertFalse(b.esReenvioAutentico(NODO_B, "POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7", firma));
+		assertFalse(b.esReenvioAutentico(NODO_A, "DELETE", "/api/boletos/grupo?funcionId=3", "10.0.0.7", firma));
+		assertFalse(b.esReenvioAutentico(NODO_A, "POST", "/api/boletos/grupo?funcionId=4", "10.0.0.7", firma));
+		assertFalse(b.esReenvioAutentico(NODO_A, "POST", "/api/boletos/grupo?funcionId=3", "10.0.0.8", firma));
+		assertFalse(b.esReenvioAutentico("http://cine-x:8080", "POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7", firma));
+		assertFalse(b.esReenvioAutentico(NODO_A, "POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7",
+				intruso.firmarReenvio("POST", "/api/boletos/grupo?funcionId=3", "10.0.0.7")));
+	}
+
+	@Test
+	void unaFirmaVencidaOMalFormadaNoSeAcepta() {
+		TopologiaCluster a = topologia(NODO_A, NODO_A, NODO_B);
+		String firma = a.firmarReenvio("GET", "/api/funciones/1", null);
+		String hmac = firma.substring(firma.indexOf('.') + 1);
+		long haceUnMinuto = System.currentTimeMillis() - 60_000;
+
+		assertTrue(a.esReenvioAutentico(NODO_A, "GET", "/api/funciones/1", null, firma));
+		assertFalse(a.esReenvioAutentico(NODO_A, "GET", "/api/funciones/1", null, haceUnMinuto + "." + hmac));
+		assertFalse(a.esReenvioAutentico(NODO_A, "GET", "/api/funciones/1", null, hmac));
+		assertFalse(a.esReenvioAutentico(NODO_A, "GET", "/api/funciones/1", null, "abc." + hmac));
+		assertFalse(a.esReenvioAutentico(NODO_A, "GET", "/api/funciones/1", null, null));
+	}
+}